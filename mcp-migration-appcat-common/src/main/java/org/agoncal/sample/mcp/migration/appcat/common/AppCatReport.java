@@ -0,0 +1,259 @@
+package org.agoncal.sample.mcp.migration.appcat.common;
+
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * The AppCAT report of the application: the rulesets, the violations of their rules, and the incidents each violation
+ * found in the code. The report is read once by {@link AppCatReportReader}, and the incidents are indexed by rule ID,
+ * category, label and file URI, so the incidents matching several filters are found by intersecting the indexes instead
+ * of scanning the report.
+ * <p>
+ * The long messages and code snippets of the incidents are not kept in memory, only where they are in the report, and
+ * they are read back from the report for the incidents which are returned.
+ */
+public class AppCatReport {
+
+    public record RulesetJson(String name, String description, List<String> tags, int violations, int incidents) {
+    }
+
+    public record LinkJson(String url, String title) {
+    }
+
+    public record ViolationJson(String ruleId, String ruleset, String description, String category, List<String> labels, Integer effort, List<LinkJson> links, int incidents) {
+    }
+
+    public record IncidentJson(int id, String ruleId, String category, String uri, Integer lineNumber, String message, String codeSnip, Map<String, Object> variables) {
+    }
+
+    public record PageJson<T>(int total, int offset, List<T> items) {
+    }
+
+    /**
+     * A scalar of the report, either its value, or the index of its first code point in the report, its number of code
+     * points and the column of its key, when it is too long to be kept in memory.
+     */
+    record Text(String value, int start, int length, int keyColumn) {
+    }
+
+    record Incident(String ruleId, String category, String uri, Integer lineNumber, Text message, Text codeSnip, Map<String, Object> variables) {
+    }
+
+    // Report the long scalars are read back from, null if it has none
+    private final Path file;
+    // Byte offset in the report of every AppCatReportReader.CHECKPOINT_INTERVAL code points
+    private long[] checkpoints = new long[0];
+    private final List<RulesetJson> rulesets = new ArrayList<>();
+    private final List<ViolationJson> violations = new ArrayList<>();
+    private final List<Incident> incidents = new ArrayList<>();
+    // Indexes of the incidents, in ascending order, by rule ID, category, label and file URI
+    private final Map<String, List<Integer>> incidentsByRuleId = new HashMap<>();
+    private final Map<String, List<Integer>> incidentsByCategory = new HashMap<>();
+    private final Map<String, List<Integer>> incidentsByLabel = new HashMap<>();
+    private final Map<String, List<Integer>> incidentsByUri = new LinkedHashMap<>();
+
+    public AppCatReport(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Adds a ruleset with its violations, the incidents of each violation being in the same order as the violations.
+     */
+    void addRuleset(String name, String description, List<String> tags, List<ViolationJson> rulesetViolations, List<List<Incident>> violationIncidents) {
+        int incidentCount = 0;
+        for (int i = 0; i < rulesetViolations.size(); i++) {
+            ViolationJson violation = rulesetViolations.get(i);
+            List<Incident> found = violationIncidents.get(i);
+            violations.add(new ViolationJson(violation.ruleId(), name, violation.description(), violation.category(), violation.labels(), violation.effort(), violation.links(), found.size()));
+            for (Incident incident : found) {
+                addIncident(incident, violation.labels());
+            }
+            incidentCount += found.size();
+        }
+        rulesets.add(new RulesetJson(name, description, tags, rulesetViolations.size(), incidentCount));
+    }
+
+    private void addIncident(Incident incident, List<String> labels) {
+        int id = incidents.size();
+        incidents.add(incident);
+        index(incidentsByRuleId, incident.ruleId(), id);
+        index(incidentsByCategory, incident.category() == null ? null : incident.category().toLowerCase(), id);
+        // A label can be listed twice by a rule
+        for (String label : new TreeSet<>(labels)) {
+            index(incidentsByLabel, label, id);
+        }
+        index(incidentsByUri, incident.uri(), id);
+    }
+
+    void checkpoints(long[] checkpoints) {
+        this.checkpoints = checkpoints;
+    }
+
+    public List<RulesetJson> rulesets() {
+        return Collections.unmodifiableList(rulesets);
+    }
+
+    public int size() {
+        return incidents.size();
+    }
+
+    /**
+     * Returns the violations of the ruleset, category and label, the filters which are null or blank being ignored.
+     */
+    public List<ViolationJson> violations(String ruleset, String category, String label) {
+        List<ViolationJson> found = new ArrayList<>();
+        for (ViolationJson violation : violations) {
+            if ((isBlank(ruleset) || ruleset.equals(violation.ruleset())) && (isBlank(category) || category.equalsIgnoreCase(violation.category()))
+                && (isBlank(label) || violation.labels().contains(label))) {
+                found.add(violation);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns a page of the incidents of the rule, category, label and file, the filters which are null or blank being
+     * ignored. The file is either the URI of the file, or its path, or the end of its path, such as
+     * `chameleon/xml/XmlSerializer.java`. Only the messages and code snippets of the page are read back from the report.
+     */
+    public PageJson<IncidentJson> incidents(String ruleId, String category, String label, String file, int offset, int limit) throws IOException {
+        PageJson<Integer> page = page(incidentIds(ruleId, category, label, file), offset, limit);
+        List<IncidentJson> items = new ArrayList<>();
+        try (FileChannel channel = this.file == null ? null : FileChannel.open(this.file)) {
+            for (Integer id : page.items()) {
+                Incident incident = incidents.get(id);
+                items.add(new IncidentJson(id, incident.ruleId(), incident.category(), incident.uri(), incident.lineNumber(),
+                    text(channel, incident.message()), text(channel, incident.codeSnip()), incident.variables()));
+            }
+        }
+        return new PageJson<>(page.total(), page.offset(), items);
+    }
+
+    private List<Integer> incidentIds(String ruleId, String category, String label, String file) {
+        List<List<Integer>> filters = new ArrayList<>();
+        if (!isBlank(ruleId)) {
+            filters.add(incidentsByRuleId.getOrDefault(ruleId, List.of()));
+        }
+        if (!isBlank(category)) {
+            filters.add(incidentsByCategory.getOrDefault(category.toLowerCase(), List.of()));
+        }
+        if (!isBlank(label)) {
+            filters.add(incidentsByLabel.getOrDefault(label, List.of()));
+        }
+        if (!isBlank(file)) {
+            filters.add(incidentsOfFile(file));
+        }
+        if (filters.isEmpty()) {
+            List<Integer> ids = new ArrayList<>(incidents.size());
+            for (int id = 0; id < incidents.size(); id++) {
+                ids.add(id);
+            }
+            return ids;
+        }
+        // Walks the most selective index, looking the incidents up in the other ones
+        filters.sort((filter, other) -> Integer.compare(filter.size(), other.size()));
+        List<Integer> found = new ArrayList<>();
+        for (Integer id : filters.getFirst()) {
+            boolean matches = true;
+            for (List<Integer> filter : filters.subList(1, filters.size())) {
+                if (Collections.binarySearch(filter, id) < 0) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (matches) {
+                found.add(id);
+            }
+        }
+        return found;
+    }
+
+    public static <T> PageJson<T> page(List<T> items, int offset, int limit) {
+        int from = Math.min(Math.max(0, offset), items.size());
+        return new PageJson<>(items.size(), from, items.subList(from, Math.min(items.size(), from + Math.max(0, limit))));
+    }
+
+    /**
+     * Returns the incidents of the files whose URIs are, or end with, the given file, in ascending order.
+     */
+    private List<Integer> incidentsOfFile(String file) {
+        List<Integer> exact = incidentsByUri.get(file);
+        if (exact != null) {
+            return exact;
+        }
+        String suffix = file.replace('\\', '/');
+        suffix = suffix.startsWith("/") ? suffix : "/" + suffix;
+        List<Integer> ids = new ArrayList<>();
+        for (Map.Entry<String, List<Integer>> entry : incidentsByUri.entrySet()) {
+            if (entry.getKey().endsWith(suffix)) {
+                ids.addAll(entry.getValue());
+            }
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Returns the value of a scalar, reading it back from the report if it is not in memory. The scalar is read as it is
+     * written in the report, e.g. as a block scalar whose indentation is relative to its key, so it is parsed again, under
+     * a key in the same column, to get its value.
+     */
+    private String text(FileChannel channel, Text text) throws IOException {
+        if (text == null || text.value() != null) {
+            return text == null ? null : text.value();
+        }
+        int checkpoint = text.start() / AppCatReportReader.CHECKPOINT_INTERVAL;
+        channel.position(checkpoints[checkpoint]);
+        // Not closed, as it would close the channel
+        Reader reader = Channels.newReader(channel, StandardCharsets.UTF_8);
+        readCodePoints(reader, text.start() - checkpoint * AppCatReportReader.CHECKPOINT_INTERVAL, null);
+        StringBuilder scalar = new StringBuilder(" ".repeat(text.keyColumn())).append("value: ");
+        readCodePoints(reader, text.length(), scalar);
+        LoaderOptions loaderOptions = new LoaderOptions();
+        loaderOptions.setCodePointLimit(Integer.MAX_VALUE);
+        Object document = new Yaml(new SafeConstructor(loaderOptions)).load(scalar.toString());
+        return document instanceof Map<?, ?> map && map.get("value") != null ? map.get("value").toString() : null;
+    }
+
+    private static void readCodePoints(Reader reader, int count, StringBuilder sink) throws IOException {
+        int read = 0;
+        while (read < count) {
+            int c = reader.read();
+            if (c < 0) {
+                throw new IOException("The AppCAT report has changed since it was read");
+            }
+            if (sink != null) {
+                sink.append((char) c);
+            }
+            // The low surrogate of a pair is part of the same code point
+            if (!Character.isHighSurrogate((char) c)) {
+                read++;
+            }
+        }
+    }
+
+    private static void index(Map<String, List<Integer>> index, String key, int id) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new ArrayList<>()).add(id);
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
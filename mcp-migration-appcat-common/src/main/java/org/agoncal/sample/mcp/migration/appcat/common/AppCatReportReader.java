@@ -0,0 +1,339 @@
+package org.agoncal.sample.mcp.migration.appcat.common;
+
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.events.CollectionEndEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceEndEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+
+import java.io.BufferedReader;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads an AppCAT report into an {@link AppCatReport} from the stream of its YAML events, without building the document
+ * tree, so the memory used does not depend on the size of the report but on its number of incidents. The messages and
+ * code snippets longer than {@link #MAX_INLINE_LENGTH} are only recorded by their position in the report, and the byte
+ * offset of every {@link #CHECKPOINT_INTERVAL} code points is recorded while the report is read, so they can be read
+ * back without reading the report from the start.
+ */
+public class AppCatReportReader {
+
+    static final int CHECKPOINT_INTERVAL = 4096;
+    // Longer messages and code snippets are read back from the report when they are returned
+    private static final int MAX_INLINE_LENGTH = 256;
+
+    private final AppCatReport report;
+    private final Iterator<Event> events;
+    // The URIs and variables of the incidents of a file are the same strings
+    private final Map<String, String> strings = new HashMap<>();
+
+    private AppCatReportReader(AppCatReport report, Iterator<Event> events) {
+        this.report = report;
+        this.events = events;
+    }
+
+    /**
+     * Reads a report, which is a YAML list of rulesets, each one with its violations by rule ID.
+     */
+    public static AppCatReport read(Path file) throws IOException {
+        AppCatReport report = new AppCatReport(file);
+        try (OffsetReader reader = new OffsetReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            LoaderOptions loaderOptions = new LoaderOptions();
+            // The code snippets make the reports much larger than the 3 MB allowed by default
+            loaderOptions.setCodePointLimit(Integer.MAX_VALUE);
+            new AppCatReportReader(report, new Yaml(new SafeConstructor(loaderOptions)).parse(reader).iterator()).readRulesets();
+            report.checkpoints(reader.checkpoints());
+        }
+        return report;
+    }
+
+    private void readRulesets() {
+        while (events.hasNext()) {
+            Event event = events.next();
+            if (event instanceof SequenceStartEvent) {
+                for (Event ruleset = events.next(); !(ruleset instanceof SequenceEndEvent); ruleset = events.next()) {
+                    if (ruleset instanceof MappingStartEvent) {
+                        readRuleset();
+                    } else {
+                        skip(ruleset);
+                    }
+                }
+            } else {
+                skip(event);
+            }
+        }
+    }
+
+    private void readRuleset() {
+        String name = null;
+        String description = null;
+        List<String> tags = List.of();
+        List<AppCatReport.ViolationJson> violations = new ArrayList<>();
+        List<List<AppCatReport.Incident>> incidents = new ArrayList<>();
+        for (Event key = events.next(); !(key instanceof MappingEndEvent); key = events.next()) {
+            Event value = events.next();
+            switch (scalar(key)) {
+                case "name" -> name = string(value(value));
+                case "description" -> description = string(value(value));
+                case "tags" -> tags = strings(value(value));
+                case "violations" -> {
+                    if (value instanceof MappingStartEvent) {
+                        for (Event ruleId = events.next(); !(ruleId instanceof MappingEndEvent); ruleId = events.next()) {
+                            Event violation = events.next();
+                            if (violation instanceof MappingStartEvent) {
+                                List<AppCatReport.Incident> violationIncidents = new ArrayList<>();
+                                violations.add(readViolation(scalar(ruleId), violationIncidents));
+                                incidents.add(violationIncidents);
+                            } else {
+                                skip(violation);
+                            }
+                        }
+                    } else {
+                        skip(value);
+                    }
+                }
+                // The skipped and unmatched rules, and the tags
+                default -> skip(value);
+            }
+        }
+        // The ruleset is added once read, as its name can follow its violations
+        report.addRuleset(name, description, tags, violations, incidents);
+    }
+
+    private AppCatReport.ViolationJson readViolation(String ruleId, List<AppCatReport.Incident> incidents) {
+        String description = null;
+        String category = null;
+        List<String> labels = List.of();
+        Integer effort = null;
+        List<AppCatReport.LinkJson> links = new ArrayList<>();
+        for (Event key = events.next(); !(key instanceof MappingEndEvent); key = events.next()) {
+            Event value = events.next();
+            switch (scalar(key)) {
+                case "description" -> description = string(value(value));
+                case "category" -> category = string(value(value));
+                case "labels" -> labels = strings(value(value));
+                case "effort" -> effort = integer(value(value));
+                case "links" -> {
+                    if (value(value) instanceof List<?> list) {
+                        for (Object link : list) {
+                            if (link instanceof Map<?, ?> map) {
+                                links.add(new AppCatReport.LinkJson(string(map.get("url")), string(map.get("title"))));
+                            }
+                        }
+                    }
+                }
+                case "incidents" -> {
+                    if (value instanceof SequenceStartEvent) {
+                        for (Event incident = events.next(); !(incident instanceof SequenceEndEvent); incident = events.next()) {
+                            if (incident instanceof MappingStartEvent) {
+                                incidents.add(readIncident(ruleId));
+                            } else {
+                                skip(incident);
+                            }
+                        }
+                    } else {
+                        skip(value);
+                    }
+                }
+                default -> skip(value);
+            }
+        }
+        // The category can follow the incidents
+        for (int i = 0; i < incidents.size(); i++) {
+            AppCatReport.Incident incident = incidents.get(i);
+            incidents.set(i, new AppCatReport.Incident(ruleId, category, incident.uri(), incident.lineNumber(), incident.message(), incident.codeSnip(), incident.variables()));
+        }
+        return new AppCatReport.ViolationJson(ruleId, null, description, category, labels, effort, List.copyOf(links), incidents.size());
+    }
+
+    private AppCatReport.Incident readIncident(String ruleId) {
+        String uri = null;
+        Integer lineNumber = null;
+        AppCatReport.Text message = null;
+        AppCatReport.Text codeSnip = null;
+        Map<String, Object> variables = Map.of();
+        for (Event key = events.next(); !(key instanceof MappingEndEvent); key = events.next()) {
+            Event value = events.next();
+            switch (scalar(key)) {
+                case "uri" -> uri = shared(string(value(value)));
+                case "lineNumber" -> lineNumber = integer(value(value));
+                case "message" -> message = text(key, value);
+                case "codeSnip" -> codeSnip = text(key, value);
+                case "variables" -> {
+                    if (value(value) instanceof Map<?, ?> map) {
+                        variables = new LinkedHashMap<>();
+                        for (Map.Entry<?, ?> variable : map.entrySet()) {
+                            variables.put(shared(string(variable.getKey())), variable.getValue() instanceof String string ? shared(string) : variable.getValue());
+                        }
+                    }
+                }
+                default -> skip(value);
+            }
+        }
+        return new AppCatReport.Incident(ruleId, null, uri, lineNumber, message, codeSnip, variables);
+    }
+
+    /**
+     * Returns a scalar, keeping its value if it is short, otherwise only its position in the report.
+     */
+    private AppCatReport.Text text(Event key, Event event) {
+        if (!(event instanceof ScalarEvent scalar)) {
+            skip(event);
+            return null;
+        }
+        if (scalar.getValue().length() <= MAX_INLINE_LENGTH) {
+            return new AppCatReport.Text(scalar.getValue(), -1, 0, 0);
+        }
+        int start = scalar.getStartMark().getIndex();
+        return new AppCatReport.Text(null, start, scalar.getEndMark().getIndex() - start, key.getStartMark().getColumn());
+    }
+
+    /**
+     * Returns the node starting with the event as strings, lists and maps.
+     */
+    private Object value(Event event) {
+        if (event instanceof ScalarEvent scalar) {
+            String value = scalar.getValue();
+            return scalar.isPlain() && (value.isEmpty() || value.equals("~") || value.equals("null")) ? null : value;
+        }
+        if (event instanceof SequenceStartEvent) {
+            List<Object> list = new ArrayList<>();
+            for (Event item = events.next(); !(item instanceof SequenceEndEvent); item = events.next()) {
+                list.add(value(item));
+            }
+            return list;
+        }
+        if (event instanceof MappingStartEvent) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (Event key = events.next(); !(key instanceof MappingEndEvent); key = events.next()) {
+                map.put(string(value(key)), value(events.next()));
+            }
+            return map;
+        }
+        // Aliases are not used by the reports
+        return null;
+    }
+
+    /**
+     * Skips the node starting with the event.
+     */
+    private void skip(Event event) {
+        int depth = event instanceof CollectionStartEvent ? 1 : 0;
+        while (depth > 0) {
+            Event next = events.next();
+            if (next instanceof CollectionStartEvent) {
+                depth++;
+            } else if (next instanceof CollectionEndEvent) {
+                depth--;
+            }
+        }
+    }
+
+    private String scalar(Event event) {
+        if (event instanceof ScalarEvent scalar) {
+            return scalar.getValue();
+        }
+        skip(event);
+        return "";
+    }
+
+    private String shared(String string) {
+        return string == null ? null : strings.computeIfAbsent(string, s -> s);
+    }
+
+    private static String string(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private static List<String> strings(Object value) {
+        List<String> strings = new ArrayList<>();
+        if (value instanceof List<?> list) {
+            for (Object item : list) {
+                if (item != null) {
+                    strings.add(string(item));
+                }
+            }
+        }
+        return List.copyOf(strings);
+    }
+
+    private static Integer integer(Object value) {
+        try {
+            return value == null ? null : Integer.valueOf(value.toString().trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Counts the code points and the UTF-8 bytes read, and records the byte offset of every
+     * {@link #CHECKPOINT_INTERVAL} code points, the positions of the YAML events being indexes of code points.
+     */
+    private static class OffsetReader extends FilterReader {
+
+        private long[] checkpoints = new long[64];
+        private int checkpointCount;
+        private long codePoints;
+        private long bytes;
+
+        OffsetReader(BufferedReader reader) throws IOException {
+            super(reader);
+            // The BOM written by some tools is not part of the YAML, so it is skipped before the code points are counted,
+            // and the offsets start after its three bytes
+            reader.mark(1);
+            if (reader.read() == '\uFEFF') {
+                bytes = 3;
+            } else {
+                reader.reset();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            char[] c = new char[1];
+            return read(c, 0, 1) < 0 ? -1 : c[0];
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            for (int i = offset; i < offset + read; i++) {
+                char c = buffer[i];
+                // The low surrogate of a pair is counted with its high surrogate
+                if (Character.isLowSurrogate(c)) {
+                    continue;
+                }
+                if (codePoints % CHECKPOINT_INTERVAL == 0) {
+                    if (checkpointCount == checkpoints.length) {
+                        checkpoints = Arrays.copyOf(checkpoints, checkpointCount * 2);
+                    }
+                    checkpoints[checkpointCount++] = bytes;
+                }
+                codePoints++;
+                bytes += c < 0x80 ? 1 : c < 0x800 ? 2 : Character.isHighSurrogate(c) ? 4 : 3;
+            }
+            return read;
+        }
+
+        long[] checkpoints() {
+            return Arrays.copyOf(checkpoints, checkpointCount);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package org.agoncal.sample.mcp.migration.appcat.common;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AppCatReportReaderTest {
+
+    private static final String URI = "file:///app/src/main/java/com/example/jndi/Lookup.java";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testReadTheBundledReport() throws IOException, URISyntaxException {
+        Path file = Path.of(AppCatReportReaderTest.class.getResource("/output.yaml").toURI());
+
+        List<AppCatReport.IncidentJson> incidents = assertSameAsTree(file);
+        // The long scalars are read back from the report
+        assertTrue(incidents.stream().anyMatch(incident -> incident.codeSnip() != null && incident.codeSnip().length() > 256));
+    }
+
+    @Test
+    public void testReadTheScalarStyles() throws IOException {
+        List<String> snippet = snippet(20);
+        List<String> prose = prose(8);
+        Path file = write("report.yaml", report("Azure", List.of(
+            incident(1, "Plain message", literal(snippet)),
+            incident(2, folded(prose), doubleQuoted(String.join("\n", snippet))),
+            incident(3, singleQuoted(String.join(" ", prose)), "|-\n          " + String.join("\n          ", prose)),
+            incident(4, doubleQuoted("Short \"quoted\" message"), "'  1  short'"))));
+
+        List<AppCatReport.IncidentJson> incidents = assertSameAsTree(file);
+        assertEquals(String.join("\n", snippet), incidents.get(0).codeSnip());
+        assertEquals(String.join(" ", prose), incidents.get(1).message());
+        assertEquals(String.join("\n", snippet), incidents.get(1).codeSnip());
+        assertEquals(String.join(" ", prose), incidents.get(2).message());
+        assertEquals("Short \"quoted\" message", incidents.get(3).message());
+        assertEquals("  1  short", incidents.get(3).codeSnip());
+    }
+
+    @Test
+    public void testReadCrlfLineEndings() throws IOException {
+        String report = report("Azure", List.of(
+            incident(1, folded(prose(8)), literal(snippet(20))),
+            incident(2, singleQuoted(String.join(" ", prose(8))), doubleQuoted(String.join("\n", snippet(20))))));
+        Path lf = write("lf.yaml", report);
+        Path crlf = write("crlf.yaml", report.replace("\n", "\r\n"));
+
+        assertEquals(assertSameAsTree(lf), assertSameAsTree(crlf));
+    }
+
+    @Test
+    public void testReadByteOrderMark() throws IOException {
+        // The incidents are after the first checkpoint, so they are read back from a byte offset counting the BOM
+        String report = report("🚀".repeat(AppCatReportReader.CHECKPOINT_INTERVAL), List.of(
+            incident(1, folded(prose(8)), literal(snippet(20))),
+            incident(2, singleQuoted(String.join(" ", prose(8))), doubleQuoted(String.join("\n", snippet(20))))));
+        Path withoutBom = write("report.yaml", report);
+        // Written by Windows tools, the BOM is three bytes before the first code point of the report
+        Path withBom = write("bom.yaml", "\uFEFF" + report);
+
+        assertEquals(assertSameAsTree(withoutBom), assertSameAsTree(withBom));
+    }
+
+    @Test
+    public void testReadEmoji() throws IOException {
+        // The emoji are two chars but one code point, and four bytes in UTF-8
+        String emoji = "🚀💡";
+        List<String> snippet = new ArrayList<>();
+        for (String line : snippet(20)) {
+            snippet.add(line + " " + emoji);
+        }
+        Path file = write("report.yaml", report(emoji.repeat(100), List.of(
+            incident(1, emoji + " Short message", literal(snippet)),
+            incident(2, folded(prose(8)), doubleQuoted(emoji.repeat(300))))));
+
+        List<AppCatReport.IncidentJson> incidents = assertSameAsTree(file);
+        assertEquals(String.join("\n", snippet), incidents.get(0).codeSnip());
+        assertEquals(emoji.repeat(300), incidents.get(1).codeSnip());
+    }
+
+    @Test
+    public void testReadScalarsAcrossCheckpoints() throws IOException {
+        List<String> snippet = snippet(40);
+        List<String> prose = prose(16);
+        for (String scalar : List.of(literal(snippet), "|2+\n          " + String.join("\n          ", snippet) + "\n", folded(prose),
+            doubleQuoted(String.join("\n", snippet)), singleQuoted(String.join(" ", prose)))) {
+            int start = start(report("", List.of(incident(1, "Short message", scalar))), scalar);
+            // The description, made of emoji, moves the scalar to start just before the first checkpoint, so it is read
+            // across it, then just after it, so it is read from the byte offset of the checkpoint
+            String across = report("🚀".repeat(AppCatReportReader.CHECKPOINT_INTERVAL - 100 - start), List.of(incident(1, "Short message", scalar)));
+            assertTrue(start(across, scalar) + scalar.codePointCount(0, scalar.length()) > AppCatReportReader.CHECKPOINT_INTERVAL);
+            String after = report("🚀".repeat(AppCatReportReader.CHECKPOINT_INTERVAL + 100 - start), List.of(incident(1, "Short message", scalar)));
+            assertTrue(start(after, scalar) > AppCatReportReader.CHECKPOINT_INTERVAL);
+
+            for (String report : List.of(across, after)) {
+                assertSameAsTree(write("report.yaml", report));
+                assertSameAsTree(write("crlf.yaml", report.replace("\n", "\r\n")));
+            }
+        }
+    }
+
+    @Test
+    public void testReadTheCategoryAfterTheIncidents() throws IOException {
+        AppCatReport report = AppCatReportReader.read(write("report.yaml", report("Azure", List.of(incident(1, "Short message", "'  1  short'")))));
+
+        assertEquals(List.of(new AppCatReport.RulesetJson("azure/springboot", "Azure", List.of("Java"), 2, 2)), report.rulesets());
+        AppCatReport.ViolationJson violation = report.violations(null, "potential", null).getFirst();
+        assertEquals(new AppCatReport.ViolationJson("azure-jms-01000", "azure/springboot", "JMS 🚀", "potential", List.of("konveyor.io/target=azure-aks"), 1,
+            List.of(new AppCatReport.LinkJson("https://learn.microsoft.com/azure/service-bus-messaging", "Service Bus")), 1), violation);
+        assertEquals(List.of(1), report.incidents(null, "potential", null, null, 0, 10).items().stream().map(AppCatReport.IncidentJson::id).toList());
+    }
+
+    @Test
+    public void testReadTheReportChangedSinceItWasRead() throws IOException {
+        Path file = write("report.yaml", report("Azure", List.of(incident(1, "Short message", literal(snippet(20))))));
+        AppCatReport report = AppCatReportReader.read(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() / 2);
+        }
+
+        assertThrows(IOException.class, () -> report.incidents(null, null, null, null, 0, 10));
+    }
+
+    /**
+     * Reads the report, and checks its incidents are the ones of the document tree loaded by SnakeYAML.
+     */
+    private static List<AppCatReport.IncidentJson> assertSameAsTree(Path file) throws IOException {
+        List<Map<String, Object>> expected = new ArrayList<>();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            LoaderOptions loaderOptions = new LoaderOptions();
+            loaderOptions.setCodePointLimit(Integer.MAX_VALUE);
+            List<Map<String, Object>> rulesets = new Yaml(new SafeConstructor(loaderOptions)).load(reader);
+            for (Map<String, Object> ruleset : rulesets) {
+                if (ruleset.get("violations") instanceof Map<?, ?> violations) {
+                    for (Object violation : violations.values()) {
+                        expected.addAll((List<Map<String, Object>>) ((Map<?, ?>) violation).get("incidents"));
+                    }
+                }
+            }
+        }
+
+        List<AppCatReport.IncidentJson> incidents = AppCatReportReader.read(file).incidents(null, null, null, null, 0, Integer.MAX_VALUE).items();
+        assertEquals(expected.size(), incidents.size());
+        for (int i = 0; i < incidents.size(); i++) {
+            assertEquals(expected.get(i).get("uri"), incidents.get(i).uri());
+            assertEquals(expected.get(i).get("lineNumber"), incidents.get(i).lineNumber());
+            assertEquals(expected.get(i).get("message"), incidents.get(i).message());
+            assertEquals(expected.get(i).get("codeSnip"), incidents.get(i).codeSnip());
+        }
+        return incidents;
+    }
+
+    private Path write(String name, String report) throws IOException {
+        return Files.writeString(directory.resolve(name), report, StandardCharsets.UTF_8);
+    }
+
+    private static String report(String description, List<String> incidents) {
+        return """
+            - name: azure/springboot
+              description: "%s"
+              tags:
+              - Java
+              violations:
+                azure-jndi-01000:
+                  description: JNDI
+                  category: mandatory
+                  labels:
+                  - konveyor.io/target=azure-appservice
+                  incidents:
+            %s      effort: 3
+                azure-jms-01000:
+                  description: JMS 🚀
+                  labels:
+                  - konveyor.io/target=azure-aks
+                  incidents:
+                  - uri: file:///app/src/main/java/com/example/jms/Sender.java
+                    message: Short message
+                    lineNumber: 12
+                  links:
+                  - url: https://learn.microsoft.com/azure/service-bus-messaging
+                    title: Service Bus
+                  effort: 1
+                  category: potential
+            """.formatted(description, String.join("", incidents));
+    }
+
+    private static String incident(int lineNumber, String message, String codeSnip) {
+        return """
+                  - uri: %s
+                    message: %s
+                    codeSnip: %s
+                    lineNumber: %d
+                    variables:
+                      file: %s
+            """.formatted(URI, message, codeSnip, lineNumber, URI);
+    }
+
+    /**
+     * Returns a literal block scalar whose lines start with spaces, so its indentation is given.
+     */
+    private static String literal(List<String> lines) {
+        return "|2-\n          " + String.join("\n          ", lines);
+    }
+
+    private static String folded(List<String> lines) {
+        return ">-\n          " + String.join("\n          ", lines);
+    }
+
+    private static String doubleQuoted(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+    }
+
+    private static String singleQuoted(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    private static List<String> snippet(int lines) {
+        List<String> snippet = new ArrayList<>();
+        for (int i = 1; i <= lines; i++) {
+            snippet.add("%3d  String greeting = \"Héllo wörld, 你好\"; // '%d'".formatted(i, i));
+        }
+        return snippet;
+    }
+
+    private static List<String> prose(int lines) {
+        List<String> prose = new ArrayList<>();
+        for (int i = 1; i <= lines; i++) {
+            prose.add("Review the JNDI lookup #%d: it's bound to \"java:comp/env\" and won't resolve on Azure.".formatted(i));
+        }
+        return prose;
+    }
+
+    private static int start(String report, String scalar) {
+        return report.codePointCount(0, report.indexOf(scalar));
+    }
+}
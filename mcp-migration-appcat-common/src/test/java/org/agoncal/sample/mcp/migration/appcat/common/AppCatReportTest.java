@@ -0,0 +1,101 @@
+package org.agoncal.sample.mcp.migration.appcat.common;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AppCatReportTest {
+
+    private static final String JNDI = "file:///app/src/main/java/com/example/jndi/Lookup.java";
+    private static final String JMS = "file:///app/src/main/java/com/example/jms/Sender.java";
+    private static final String WEB = "file:///app/src/main/webapp/WEB-INF/web.xml";
+
+    private final AppCatReport report = new AppCatReport(null);
+
+    @BeforeEach
+    public void addRulesets() {
+        report.addRuleset("azure/springboot", "Azure", List.of("Java"),
+            List.of(violation("azure-jndi-01000", "mandatory", List.of("konveyor.io/target=azure-appservice", "konveyor.io/target=azure-aks")),
+                violation("azure-jms-01000", "potential", List.of("konveyor.io/target=azure-appservice", "konveyor.io/target=azure-appservice"))),
+            List.of(List.of(incident("azure-jndi-01000", "mandatory", JNDI, 12), incident("azure-jndi-01000", "mandatory", JMS, 40), incident("azure-jndi-01000", "mandatory", WEB, 3)),
+                List.of(incident("azure-jms-01000", "potential", JMS, 41), incident("azure-jms-01000", "potential", JMS, 57))));
+        report.addRuleset("eap8/eap7", "JBoss EAP 8", List.of(),
+            List.of(violation("javax-to-jakarta-01000", "Mandatory", List.of("konveyor.io/target=eap8"))),
+            List.of(List.of(incident("javax-to-jakarta-01000", "Mandatory", JNDI, 5), incident("javax-to-jakarta-01000", "Mandatory", WEB, 1))));
+    }
+
+    @Test
+    public void testRulesets() {
+        assertEquals(7, report.size());
+        assertEquals(List.of(new AppCatReport.RulesetJson("azure/springboot", "Azure", List.of("Java"), 2, 5), new AppCatReport.RulesetJson("eap8/eap7", "JBoss EAP 8", List.of(), 1, 2)), report.rulesets());
+    }
+
+    @Test
+    public void testViolations() {
+        assertEquals(List.of("azure-jndi-01000", "azure-jms-01000"), ruleIds(report.violations("azure/springboot", null, "")));
+        assertEquals(List.of("azure-jndi-01000", "javax-to-jakarta-01000"), ruleIds(report.violations(null, "MANDATORY", null)));
+        assertEquals(List.of("azure-jndi-01000"), ruleIds(report.violations(null, "mandatory", "konveyor.io/target=azure-aks")));
+        assertEquals(List.of(), ruleIds(report.violations("eap8/eap7", "potential", null)));
+        assertEquals(3, report.violations(null, null, null).get(0).incidents());
+    }
+
+    @Test
+    public void testIncidentsMatchingAllTheFilters() throws IOException {
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6), ids(report.incidents(null, null, " ", null, 0, 10)));
+        // The category is ignoring the case
+        assertEquals(List.of(0, 1, 2, 5, 6), ids(report.incidents(null, "mandatory", null, null, 0, 10)));
+        assertEquals(List.of(1, 3, 4), ids(report.incidents(null, null, null, "com/example/jms/Sender.java", 0, 10)));
+        assertEquals(List.of(1), ids(report.incidents("azure-jndi-01000", "MANDATORY", "konveyor.io/target=azure-appservice", JMS, 0, 10)));
+        // The label listed twice by the rule does not list its incidents twice
+        assertEquals(List.of(0, 1, 2, 3, 4), ids(report.incidents(null, null, "konveyor.io/target=azure-appservice", null, 0, 10)));
+        assertEquals(List.of(2, 6), ids(report.incidents(null, null, null, "\\WEB-INF\\web.xml", 0, 10)));
+        assertEquals(List.of(), ids(report.incidents("javax-to-jakarta-01000", null, "konveyor.io/target=azure-aks", null, 0, 10)));
+        assertEquals(List.of(), ids(report.incidents(null, null, null, "Sender.java.bak", 0, 10)));
+        // The end of the path is made of whole segments
+        assertEquals(List.of(), ids(report.incidents(null, null, null, "ender.java", 0, 10)));
+    }
+
+    @Test
+    public void testIncidentsByPage() throws IOException {
+        AppCatReport.PageJson<AppCatReport.IncidentJson> page = report.incidents(null, "mandatory", null, null, 2, 2);
+        assertEquals(5, page.total());
+        assertEquals(2, page.offset());
+        assertEquals(List.of(2, 5), ids(page));
+        assertEquals(new AppCatReport.IncidentJson(2, "azure-jndi-01000", "mandatory", WEB, 3, "Message 3", "   3  <web-app>", Map.of("file", WEB)), page.items().get(0));
+
+        page = report.incidents(null, "mandatory", null, null, 4, 2);
+        assertEquals(5, page.total());
+        assertEquals(List.of(6), ids(page));
+
+        page = report.incidents(null, "mandatory", null, null, 9, 2);
+        assertEquals(5, page.total());
+        assertEquals(5, page.offset());
+        assertEquals(List.of(), ids(page));
+
+        page = report.incidents(null, "mandatory", null, null, -1, -1);
+        assertEquals(0, page.offset());
+        assertEquals(List.of(), ids(page));
+    }
+
+    private static AppCatReport.ViolationJson violation(String ruleId, String category, List<String> labels) {
+        return new AppCatReport.ViolationJson(ruleId, null, "Description of " + ruleId, category, labels, 1, List.of(), 0);
+    }
+
+    private static AppCatReport.Incident incident(String ruleId, String category, String uri, int lineNumber) {
+        return new AppCatReport.Incident(ruleId, category, uri, lineNumber, new AppCatReport.Text("Message " + lineNumber, -1, 0, 0),
+            new AppCatReport.Text("%4d  <web-app>".formatted(lineNumber), -1, 0, 0), Map.of("file", uri));
+    }
+
+    private static List<String> ruleIds(List<AppCatReport.ViolationJson> violations) {
+        return violations.stream().map(AppCatReport.ViolationJson::ruleId).toList();
+    }
+
+    private static List<Integer> ids(AppCatReport.PageJson<AppCatReport.IncidentJson> page) {
+        return page.items().stream().map(AppCatReport.IncidentJson::id).toList();
+    }
+}
@@ -1,33 +1,95 @@
 package org.agoncal.sample.mcp.migration.appcat;
 
-import io.quarkiverse.mcp.server.Content;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.quarkiverse.mcp.server.McpLog;
 import io.quarkiverse.mcp.server.Resource;
 import io.quarkiverse.mcp.server.ResourceManager;
 import io.quarkiverse.mcp.server.TextResourceContents;
 import io.quarkiverse.mcp.server.Tool;
+import io.quarkiverse.mcp.server.ToolArg;
 import io.quarkiverse.mcp.server.ToolResponse;
+import jakarta.annotation.PostConstruct;
 import jakarta.inject.Inject;
+import org.agoncal.sample.mcp.migration.appcat.common.AppCatReport;
+import org.agoncal.sample.mcp.migration.appcat.common.AppCatReportReader;
 import org.jboss.logging.Logger;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
+import java.util.Objects;
 
 public class MigrationAppCATMCPServer {
 
     private static final Logger log = Logger.getLogger(MigrationAppCATMCPServer.class);
+    // AppCAT report of the application, the one bundled with the server by default
+    private static final String APPCAT_REPORT = System.getenv("APPCAT_REPORT");
+    private static AppCatReport report;
 
     @Inject
     ResourceManager resourceManager;
 
-    @Tool(name = "lists_all_the_available_migration_guides", description = "Lists all the available Java to Azure migration guides.")
-    public ToolResponse listAvailableMigrationGuides(McpLog mcpLog) {
+    @PostConstruct
+    void readReport() {
+        long start = System.currentTimeMillis();
+        try {
+            report = AppCatReportReader.read(APPCAT_REPORT == null ? bundledReport() : Paths.get(APPCAT_REPORT));
+            log.info("Indexed the " + report.size() + " incidents of the AppCAT report " + Objects.requireNonNullElse(APPCAT_REPORT, "output.yaml") + " in " + (System.currentTimeMillis() - start) + " ms");
+        } catch (IOException | RuntimeException e) {
+            log.error("Cannot read the AppCAT report " + Objects.requireNonNullElse(APPCAT_REPORT, "output.yaml"), e);
+            report = new AppCatReport(null);
+        }
+    }
+
+    /**
+     * Copies the report bundled with the server to a file, as the long messages and code snippets of the incidents are
+     * read back from it.
+     */
+    private static Path bundledReport() throws IOException {
+        Path file = Files.createTempFile("appcat-report", ".yaml");
+        file.toFile().deleteOnExit();
+        try (InputStream report = MigrationAppCATMCPServer.class.getResourceAsStream("/output.yaml")) {
+            Files.copy(report, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+
+    @Tool(name = "lists_all_the_available_migration_guides", description = "Lists all the available Java to Azure migration guides, which are the rulesets of the AppCAT report, with their number of violations and incidents.")
+    public ToolResponse listAvailableMigrationGuides(McpLog mcpLog) throws JsonProcessingException {
         log.info("Lists all the available Java to Azure migration guides");
 
-        List<Content> content = new ArrayList<>();
+        List<AppCatReport.RulesetJson> rulesets = report.rulesets();
+
+        mcpLog.info("Returning " + rulesets.size() + " migration guides");
+        return ToolResponse.success(new ObjectMapper().writeValueAsString(rulesets));
+    }
+
+    @Tool(name = "list_violations", description = "Lists the violations of the AppCAT report, which are the rules the application breaks, with their category, effort, links and number of incidents.")
+    public ToolResponse listViolations(
+        @ToolArg(name = "Ruleset", description = "The name of the ruleset of the violations, such as `cloud-readiness`. All the rulesets by default.", required = false) String ruleset,
+        @ToolArg(name = "Category", description = "The category of the violations, `mandatory`, `optional` or `potential`. All the categories by default.", required = false) String category,
+        @ToolArg(name = "Label", description = "A label of the violations, such as `konveyor.io/target=azure-appservice`. All the labels by default.", required = false) String label,
+        @ToolArg(name = "Offset", description = "The index of the first violation to return.", required = false, defaultValue = "0") int offset,
+        @ToolArg(name = "Limit", description = "The maximum number of violations to return.", required = false, defaultValue = "50") int limit) throws JsonProcessingException {
+        log.infov("List the violations of the ruleset {0}, category {1} and label {2}", ruleset, category, label);
+        return ToolResponse.success(new ObjectMapper().writeValueAsString(AppCatReport.page(report.violations(ruleset, category, label), offset, limit)));
+    }
 
-        mcpLog.info("Returning " + content.size() + " migration guides");
-        return ToolResponse.success();
+    @Tool(name = "list_incidents", description = "Lists the incidents of the AppCAT report, which are the places in the code breaking a rule, with their message and code snippet. For example all the mandatory incidents of a file.")
+    public ToolResponse listIncidents(
+        @ToolArg(name = "Rule ID", description = "The ID of the rule the incidents break, such as `jni-native-code-00000`. All the rules by default.", required = false) String ruleId,
+        @ToolArg(name = "Category", description = "The category of the incidents, `mandatory`, `optional` or `potential`. All the categories by default.", required = false) String category,
+        @ToolArg(name = "Label", description = "A label of the rule the incidents break, such as `konveyor.io/target=azure-appservice`. All the labels by default.", required = false) String label,
+        @ToolArg(name = "File", description = "The URI of the file of the incidents, or the end of its path, such as `chameleon/xml/XmlSerializer.java`. All the files by default.", required = false) String file,
+        @ToolArg(name = "Offset", description = "The index of the first incident to return.", required = false, defaultValue = "0") int offset,
+        @ToolArg(name = "Limit", description = "The maximum number of incidents to return.", required = false, defaultValue = "20") int limit) throws IOException {
+        log.infov("List the incidents of the rule {0}, category {1}, label {2} and file {3}", ruleId, category, label, file);
+        return ToolResponse.success(new ObjectMapper().writeValueAsString(report.incidents(ruleId, category, label, file, offset, limit)));
     }
 
     @Resource(name = "doc_quickstart_postgresql_flexible_server", description = "In this quickstart, you learn how to create, update, and delete an Azure Database for PostgreSQL flexible server instance using the Azure SDK for Java. The code examples are written in Java and use the Azure SDK libraries to interact with the Azure Database for PostgreSQL flexible server service", uri = "https://learn.microsoft.com/en-us/azure/postgresql/flexible-server/quickstart-create-server-java-sdk", mimeType = "text/html")
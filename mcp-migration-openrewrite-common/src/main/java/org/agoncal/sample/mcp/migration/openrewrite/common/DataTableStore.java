@@ -0,0 +1,147 @@
+package org.agoncal.sample.mcp.migration.openrewrite.common;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openrewrite.DataTable;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.RecipeRun;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data tables produced by the last `maxRuns` recipe runs, so their rows can be paged through or exported as CSV without
+ * running the recipe again. The rows are kept as the recipes produced them and only formatted when they are read.
+ */
+public class DataTableStore {
+
+    private static final ObjectMapper mapper = new ObjectMapper().disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+
+    private final int maxRuns;
+    // Runs by id, the oldest first
+    private final Map<Integer, Run> runs = new LinkedHashMap<>();
+    private int lastRunId;
+
+    public DataTableStore(int maxRuns) {
+        this.maxRuns = Math.max(1, maxRuns);
+    }
+
+    public record Run(int id, String recipe, Map<String, Table> tables) {
+    }
+
+    public record Table(DataTable<?> dataTable, List<?> rows) {
+    }
+
+    public record TableJson(String name, String displayName, String description, int rows) {
+    }
+
+    public record RunJson(int run, String recipe, List<TableJson> tables) {
+    }
+
+    /**
+     * Keeps the data tables of a recipe run which have rows, evicting the oldest run if needed. Returns null if the run
+     * produced no row.
+     */
+    public synchronized Run record(String recipe, Map<DataTable<?>, List<?>> dataTables) {
+        Map<String, Table> tables = new LinkedHashMap<>();
+        for (Map.Entry<DataTable<?>, List<?>> entry : dataTables.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                tables.put(entry.getKey().getName(), new Table(entry.getKey(), List.copyOf(entry.getValue())));
+            }
+        }
+        if (tables.isEmpty()) {
+            return null;
+        }
+        Run run = new Run(++lastRunId, recipe, tables);
+        runs.put(run.id(), run);
+        while (runs.size() > maxRuns) {
+            runs.remove(runs.keySet().iterator().next());
+        }
+        return run;
+    }
+
+    public synchronized Run run(int id) {
+        return runs.get(id);
+    }
+
+    public synchronized List<RunJson> runs() {
+        List<RunJson> summaries = new ArrayList<>();
+        for (Run run : runs.values()) {
+            summaries.add(summary(run));
+        }
+        return summaries;
+    }
+
+    public static RunJson summary(Run run) {
+        List<TableJson> tables = new ArrayList<>();
+        for (Table table : run.tables().values()) {
+            tables.add(new TableJson(table.dataTable().getName(), table.dataTable().getDisplayName(), table.dataTable().getDescription(), table.rows().size()));
+        }
+        return new RunJson(run.id(), run.recipe(), tables);
+    }
+
+    /**
+     * Finds a table of the run by its fully qualified or simple name (e.g. `SourcesFileResults`).
+     */
+    public static Table table(Run run, String name) {
+        Table table = run.tables().get(name);
+        if (table != null) {
+            return table;
+        }
+        for (Map.Entry<String, Table> entry : run.tables().entrySet()) {
+            if (entry.getKey().endsWith("." + name)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    public static String rowsAsJson(Table table, int offset, int limit) throws JsonProcessingException {
+        return mapper.writeValueAsString(page(table, offset, limit));
+    }
+
+    /**
+     * Returns a page of rows in the CSV format of OpenRewrite, the header lines first.
+     */
+    public static String rowsAsCsv(Table table, int offset, int limit, ExecutionContext ctx) {
+        StringBuilder csv = new StringBuilder();
+        RecipeRun.exportCsv(ctx, table.dataTable(), line -> csv.append(line).append('\n'), page(table, offset, limit));
+        return csv.toString();
+    }
+
+    /**
+     * Streams all the rows of the table to a CSV file of the directory, line by line.
+     */
+    public static Path exportCsv(Run run, Table table, Path directory, ExecutionContext ctx) throws IOException {
+        Files.createDirectories(directory);
+        String simpleName = table.dataTable().getName().substring(table.dataTable().getName().lastIndexOf('.') + 1);
+        Path csvFile = directory.resolve("run-" + run.id() + "-" + simpleName + ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8)) {
+            RecipeRun.exportCsv(ctx, table.dataTable(), line -> {
+                try {
+                    writer.write(line);
+                    writer.newLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, table.rows());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return csvFile;
+    }
+
+    private static List<?> page(Table table, int offset, int limit) {
+        int from = Math.min(Math.max(0, offset), table.rows().size());
+        return table.rows().subList(from, Math.min(table.rows().size(), from + Math.max(0, limit)));
+    }
+}
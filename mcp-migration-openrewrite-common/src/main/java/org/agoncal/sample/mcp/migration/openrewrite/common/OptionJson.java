@@ -0,0 +1,4 @@
+package org.agoncal.sample.mcp.migration.openrewrite.common;
+
+public record OptionJson(String name, String displayName, String description, String type) {
+}
@@ -0,0 +1,72 @@
+package org.agoncal.sample.mcp.migration.openrewrite.common;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Subset of the application a recipe is executed on, as comma separated glob patterns matched against the paths
+ * relative to the root of the application (e.g. `module-a/**` or `src/main/java/**`). A path is in scope if it matches
+ * one of the includes (or there is none) and none of the excludes.
+ */
+public class PathScope {
+
+    public static final PathScope ALL = new PathScope(List.of(), List.of());
+
+    private final List<PathMatcher> includes;
+    private final List<PathMatcher> excludes;
+
+    private PathScope(List<PathMatcher> includes, List<PathMatcher> excludes) {
+        this.includes = includes;
+        this.excludes = excludes;
+    }
+
+    public static PathScope of(String include, String exclude) {
+        List<PathMatcher> includes = matchers(include);
+        List<PathMatcher> excludes = matchers(exclude);
+        if (includes.isEmpty() && excludes.isEmpty()) {
+            return ALL;
+        }
+        return new PathScope(includes, excludes);
+    }
+
+    public boolean isAll() {
+        return this == ALL;
+    }
+
+    public boolean matches(Path relativePath) {
+        if (!includes.isEmpty() && includes.stream().noneMatch(matcher -> matcher.matches(relativePath))) {
+            return false;
+        }
+        return excludes.stream().noneMatch(matcher -> matcher.matches(relativePath));
+    }
+
+    public List<Path> filter(List<Path> relativePaths) {
+        if (isAll()) {
+            return relativePaths;
+        }
+        List<Path> inScope = new ArrayList<>();
+        for (Path relativePath : relativePaths) {
+            if (matches(relativePath)) {
+                inScope.add(relativePath);
+            }
+        }
+        return inScope;
+    }
+
+    private static List<PathMatcher> matchers(String globs) {
+        List<PathMatcher> matchers = new ArrayList<>();
+        if (globs == null || globs.isBlank()) {
+            return matchers;
+        }
+        for (String glob : globs.split(",")) {
+            if (!glob.isBlank()) {
+                // Throws an IllegalArgumentException if the pattern is invalid
+                matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + glob.trim()));
+            }
+        }
+        return matchers;
+    }
+}
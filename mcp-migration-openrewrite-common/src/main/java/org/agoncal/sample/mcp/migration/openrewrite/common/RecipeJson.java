@@ -0,0 +1,7 @@
+package org.agoncal.sample.mcp.migration.openrewrite.common;
+
+import java.util.List;
+
+public record RecipeJson(String migration, String fqn, String name, String displayName, String description,
+                  List<OptionJson> options) {
+}
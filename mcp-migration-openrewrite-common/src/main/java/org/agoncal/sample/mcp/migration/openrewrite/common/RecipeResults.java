@@ -0,0 +1,63 @@
+package org.agoncal.sample.mcp.migration.openrewrite.common;
+
+import org.jboss.logging.Logger;
+import org.openrewrite.Changeset;
+import org.openrewrite.Recipe;
+import org.openrewrite.Result;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Formats the results of a recipe run for the tools: the unified diffs of a dry run, and the data tables the run
+ * produced.
+ */
+public class RecipeResults {
+
+    private static final Logger log = Logger.getLogger(RecipeResults.class);
+
+    /**
+     * Returns the texts previewing a dry run, so nothing is written to disk: what the run would change, then the unified
+     * diff of each changed file, read by pages of `pageSize` results so they do not all have to be in memory, then the
+     * data tables of the run.
+     */
+    public static List<String> preview(Recipe recipe, Changeset changeset, DataTableStore.Run dataTableRun, String location, int pageSize, int maxDiffLinesPerFile) {
+        List<String> texts = new ArrayList<>();
+        if (changeset.size() == 0) {
+            log.info("Dry running the tool " + recipe.getDisplayName() + " would make no change in the code");
+            texts.add("Dry running the tool " + recipe.getDisplayName() + " would make no change in the code located in " + location);
+        } else {
+            log.info("Dry running the tool " + recipe.getDisplayName() + " would make " + changeset.size() + " changes in the code");
+            texts.add("Dry running the tool " + recipe.getDisplayName() + " would make " + changeset.size() + " changes in the code located in " + location);
+        }
+        for (int start = 0; start < changeset.size(); start += pageSize) {
+            for (Result result : changeset.getPage(start, pageSize)) {
+                texts.add(truncateDiff(result.diff(), maxDiffLinesPerFile));
+            }
+        }
+        if (dataTableRun != null) {
+            texts.add(dataTablesMessage(dataTableRun));
+        }
+        return texts;
+    }
+
+    public static String dataTablesMessage(DataTableStore.Run dataTableRun) {
+        List<String> tables = new ArrayList<>();
+        for (DataTableStore.TableJson table : DataTableStore.summary(dataTableRun).tables()) {
+            tables.add(table.name() + " (" + table.rows() + " rows)");
+        }
+        return "The run produced the data tables " + String.join(", ", tables) + ", which can be read with the get_data_table_rows tool and the run ID " + dataTableRun.id();
+    }
+
+    public static String truncateDiff(String diff, int maxLines) {
+        if (maxLines <= 0) {
+            return diff;
+        }
+        String[] lines = diff.split("\n", -1);
+        if (lines.length <= maxLines) {
+            return diff;
+        }
+        return String.join("\n", Arrays.copyOf(lines, maxLines)) + "\n... " + (lines.length - maxLines) + " more lines truncated";
+    }
+}
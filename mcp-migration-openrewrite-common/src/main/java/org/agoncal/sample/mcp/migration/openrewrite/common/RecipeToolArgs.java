@@ -0,0 +1,15 @@
+package org.agoncal.sample.mcp.migration.openrewrite.common;
+
+/**
+ * Descriptions of the arguments every recipe tool has, in the servers and in the tools generated by
+ * `ExtractRecipesMain`.
+ */
+public final class RecipeToolArgs {
+
+    public static final String DRY_RUN_DESCRIPTION = "Returns the unified diffs of the changes without writing them to disk.";
+    public static final String INCLUDE_DESCRIPTION = "Comma separated globs of the files, relative to the root of the application, the recipe is executed on (e.g. `module-a/**`). All the files by default.";
+    public static final String EXCLUDE_DESCRIPTION = "Comma separated globs of the files, relative to the root of the application, the recipe is not executed on (e.g. `**/generated/**`).";
+
+    private RecipeToolArgs() {
+    }
+}
@@ -0,0 +1,265 @@
+package org.agoncal.sample.mcp.migration.openrewrite.common;
+
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Finds the source files of the application to migrate. Each directory is listed with {@link Files#walkFileTree} by its
+ * own fork-join task, so wide trees are walked in parallel. The directories which never contain sources to migrate
+ * (VCS metadata, `node_modules`, the build output of a module, generated sources) and the files ignored by the
+ * `.gitignore` files are skipped without being descended into, as are the files larger than `maxFileSize`.
+ */
+public class SourceDiscovery {
+
+    private static final Logger log = Logger.getLogger(SourceDiscovery.class);
+
+    private static final Set<String> EXCLUDED_DIRECTORIES = Set.of(".git", ".svn", ".hg", ".idea", ".gradle", "node_modules", "generated-sources", "generated-test-sources");
+    // Only excluded next to a build file, as they are legitimate package names too
+    private static final Set<String> BUILD_OUTPUT_DIRECTORIES = Set.of("target", "build", "out", "bin");
+    private static final Set<String> BUILD_FILES = Set.of("pom.xml", "build.gradle", "build.gradle.kts", "build.xml");
+
+    private final Path root;
+    private final Predicate<Path> accept;
+    private final long maxFileSize;
+
+    public SourceDiscovery(Path root, Predicate<Path> accept, long maxFileSize) {
+        this.root = root;
+        this.accept = accept;
+        this.maxFileSize = maxFileSize;
+    }
+
+    public record Report(List<Path> files, int excludedDirectories, int ignored, int tooLarge, long millis) {
+
+        @Override
+        public String toString() {
+            return "found " + files.size() + " files in " + millis + " ms, skipped " + excludedDirectories + " excluded directories, "
+                + ignored + " git ignored files or directories and " + tooLarge + " files too large";
+        }
+    }
+
+    /**
+     * Returns the accepted files, as absolute paths sorted so the discovery order does not depend on the scheduling.
+     */
+    public Report discover() {
+        long start = System.currentTimeMillis();
+        Queue<Path> files = new ConcurrentLinkedQueue<>();
+        AtomicInteger excludedDirectories = new AtomicInteger();
+        AtomicInteger ignored = new AtomicInteger();
+        AtomicInteger tooLarge = new AtomicInteger();
+        if (Files.isDirectory(root)) {
+            try (ForkJoinPool pool = new ForkJoinPool()) {
+                pool.invoke(new DirectoryWalk(root, List.of(), files, excludedDirectories, ignored, tooLarge));
+            }
+        }
+        List<Path> sorted = new ArrayList<>(files);
+        sorted.sort(null);
+        return new Report(sorted, excludedDirectories.get(), ignored.get(), tooLarge.get(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Returns whether a single file, e.g. reported by git, would have been discovered. The `.gitignore` files are not
+     * read again, git having already applied them.
+     */
+    public boolean accepts(Path file) {
+        if (!file.startsWith(root) || !Files.isRegularFile(file) || !accept.test(file)) {
+            return false;
+        }
+        for (Path directory = file.getParent(); !directory.equals(root); directory = directory.getParent()) {
+            if (isExcludedDirectory(directory)) {
+                return false;
+            }
+        }
+        try {
+            return Files.size(file) <= maxFileSize;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static boolean isExcludedDirectory(Path directory) {
+        String name = directory.getFileName().toString();
+        if (EXCLUDED_DIRECTORIES.contains(name)) {
+            return true;
+        }
+        if (BUILD_OUTPUT_DIRECTORIES.contains(name)) {
+            for (String buildFile : BUILD_FILES) {
+                if (Files.exists(directory.resolveSibling(buildFile))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private class DirectoryWalk extends RecursiveAction {
+
+        private final Path directory;
+        private final List<GitIgnore> gitIgnores;
+        private final Queue<Path> files;
+        private final AtomicInteger excludedDirectories;
+        private final AtomicInteger ignored;
+        private final AtomicInteger tooLarge;
+
+        DirectoryWalk(Path directory, List<GitIgnore> gitIgnores, Queue<Path> files, AtomicInteger excludedDirectories, AtomicInteger ignored, AtomicInteger tooLarge) {
+            this.directory = directory;
+            this.gitIgnores = gitIgnores;
+            this.files = files;
+            this.excludedDirectories = excludedDirectories;
+            this.ignored = ignored;
+            this.tooLarge = tooLarge;
+        }
+
+        @Override
+        protected void compute() {
+            List<GitIgnore> applicable = gitIgnores;
+            Path gitIgnoreFile = directory.resolve(".gitignore");
+            if (Files.isRegularFile(gitIgnoreFile)) {
+                applicable = new ArrayList<>(gitIgnores);
+                applicable.add(GitIgnore.parse(gitIgnoreFile));
+            }
+            List<GitIgnore> rules = applicable;
+            List<DirectoryWalk> subdirectories = new ArrayList<>();
+            try {
+                // With a depth of 1 the subdirectories are visited as files, and walked by their own tasks
+                Files.walkFileTree(directory, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                        if (attributes.isDirectory()) {
+                            if (isExcludedDirectory(file)) {
+                                excludedDirectories.incrementAndGet();
+                            } else if (GitIgnore.isIgnored(rules, file, true)) {
+                                ignored.incrementAndGet();
+                            } else {
+                                subdirectories.add(new DirectoryWalk(file, rules, files, excludedDirectories, ignored, tooLarge));
+                            }
+                        } else if (attributes.isRegularFile() && accept.test(file)) {
+                            if (GitIgnore.isIgnored(rules, file, false)) {
+                                ignored.incrementAndGet();
+                            } else if (attributes.size() > maxFileSize) {
+                                tooLarge.incrementAndGet();
+                            } else {
+                                files.add(file);
+                            }
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        log.warn("Cannot read " + file + ": " + e.getMessage());
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                log.warn("Cannot list the directory " + directory + ": " + e.getMessage());
+            }
+            invokeAll(subdirectories);
+        }
+    }
+
+    /**
+     * Rules of a `.gitignore` file, matched against the paths relative to its directory.
+     */
+    record GitIgnore(Path directory, List<Rule> rules) {
+
+        record Rule(List<PathMatcher> matchers, boolean nameOnly, boolean directoryOnly, boolean negated) {
+
+            boolean matches(Path relativePath, boolean isDirectory) {
+                if (directoryOnly && !isDirectory) {
+                    return false;
+                }
+                Path matched = nameOnly ? relativePath.getFileName() : relativePath;
+                return matchers.stream().anyMatch(matcher -> matcher.matches(matched));
+            }
+        }
+
+        static GitIgnore parse(Path gitIgnoreFile) {
+            List<Rule> rules = new ArrayList<>();
+            try {
+                for (String line : Files.readAllLines(gitIgnoreFile)) {
+                    Rule rule = parseRule(line);
+                    if (rule != null) {
+                        rules.add(rule);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Cannot read " + gitIgnoreFile + ": " + e.getMessage());
+            }
+            return new GitIgnore(gitIgnoreFile.getParent(), rules);
+        }
+
+        static Rule parseRule(String line) {
+            String pattern = line.stripTrailing();
+            if (pattern.isEmpty() || pattern.startsWith("#")) {
+                return null;
+            }
+            boolean negated = pattern.startsWith("!");
+            if (negated) {
+                pattern = pattern.substring(1);
+            } else if (pattern.startsWith("\\")) {
+                pattern = pattern.substring(1);
+            }
+            boolean directoryOnly = pattern.endsWith("/");
+            if (directoryOnly) {
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+            // A pattern without a slash matches a name at any level, otherwise it is relative to the .gitignore
+            boolean nameOnly = !pattern.contains("/");
+            if (pattern.startsWith("/")) {
+                pattern = pattern.substring(1);
+            }
+            if (pattern.isEmpty()) {
+                return null;
+            }
+            List<PathMatcher> matchers = new ArrayList<>();
+            try {
+                matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+                // A leading **/ also matches at the top level
+                if (pattern.startsWith("**/")) {
+                    matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern.substring(3)));
+                }
+            } catch (IllegalArgumentException e) {
+                log.debug("Ignoring the invalid .gitignore pattern " + line);
+                return null;
+            }
+            return new Rule(matchers, nameOnly, directoryOnly, negated);
+        }
+
+        /**
+         * Returns whether the file is ignored by the closest `.gitignore` having a matching rule, the last matching
+         * rule of a file winning like with git.
+         */
+        static boolean isIgnored(List<GitIgnore> gitIgnores, Path file, boolean isDirectory) {
+            for (int i = gitIgnores.size() - 1; i >= 0; i--) {
+                GitIgnore gitIgnore = gitIgnores.get(i);
+                Path relativePath = gitIgnore.directory().relativize(file);
+                List<Rule> rules = gitIgnore.rules();
+                for (int j = rules.size() - 1; j >= 0; j--) {
+                    if (rules.get(j).matches(relativePath, isDirectory)) {
+                        return !rules.get(j).negated();
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package org.agoncal.sample.mcp.migration.openrewrite.common;
+
+import org.openrewrite.Parser;
+import org.openrewrite.Result;
+import org.openrewrite.SourceFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Source files of the application to migrate, keeping at most `maxInMemory` LSTs on the heap. The files on disk are the
+ * serialized form of the LSTs: the least recently used LSTs are dropped, and parsed again from disk when a recipe needs
+ * them, so the heap used does not grow with the size of the repository.
+ */
+public class SourceFileStore {
+
+    private final Path root;
+    private final int maxInMemory;
+    // Parses inputs whose paths are absolute into LSTs whose source paths are relative to the root
+    private final Function<List<Parser.Input>, List<SourceFile>> parser;
+    // Relative paths of all the source files, in the order they were parsed
+    private final Set<Path> paths = new LinkedHashSet<>();
+    // Least recently used LSTs, by relative path
+    private final Map<Path, SourceFile> cache = new LinkedHashMap<>(16, 0.75f, true);
+    // Last modified time of each file when it was indexed, to tell which files changed since
+    private final Map<Path, Long> modifiedTimes = new HashMap<>();
+    private int highWaterMark;
+    private int reparsed;
+
+    public SourceFileStore(Path root, int maxInMemory, Function<List<Parser.Input>, List<SourceFile>> parser) {
+        this.root = root;
+        this.maxInMemory = Math.max(1, maxInMemory);
+        this.parser = parser;
+    }
+
+    public void load(List<Path> files) {
+        load(files, sourceFile -> {
+        });
+    }
+
+    /**
+     * Parses the files by batches of `maxInMemory`, handing each LST to the consumer (e.g. to index it) before it may
+     * be evicted. Files which are already in the store are replaced.
+     */
+    public synchronized void load(List<Path> files, Consumer<SourceFile> consumer) {
+        for (int start = 0; start < files.size(); start += maxInMemory) {
+            List<Parser.Input> inputs = new ArrayList<>();
+            for (Path file : files.subList(start, Math.min(files.size(), start + maxInMemory))) {
+                inputs.add(Parser.Input.fromFile(file));
+            }
+            for (SourceFile sourceFile : parser.apply(inputs)) {
+                consumer.accept(sourceFile);
+                add(sourceFile);
+            }
+        }
+    }
+
+    /**
+     * Adds LSTs which have been parsed outside the store, e.g. concurrently. Files which are already in the store are
+     * replaced.
+     */
+    public synchronized void add(List<SourceFile> sourceFiles) {
+        for (SourceFile sourceFile : sourceFiles) {
+            add(sourceFile);
+        }
+    }
+
+    /**
+     * Returns a store of the files indexed so far, which the recipes can read while this store is changed, e.g. by a
+     * refresh. It shares the LSTs in memory, and parses the evicted files with the parsers of this store. So like this
+     * store, it refuses the evicted files which have changed on disk since.
+     */
+    public synchronized SourceFileStore snapshot() {
+        SourceFileStore snapshot = new SourceFileStore(root, maxInMemory, this::parse);
+        snapshot.paths.addAll(paths);
+        snapshot.modifiedTimes.putAll(modifiedTimes);
+        snapshot.cache.putAll(cache);
+        snapshot.highWaterMark = snapshot.cache.size();
+        return snapshot;
+    }
+
+    public synchronized List<Path> paths() {
+        return List.copyOf(paths);
+    }
+
+    public synchronized int size() {
+        return paths.size();
+    }
+
+    /**
+     * Returns the last modified time of the file when it was indexed, or -1 if it is not in the store.
+     */
+    public synchronized long indexedModifiedTime(Path path) {
+        return modifiedTimes.getOrDefault(path, -1L);
+    }
+
+    /**
+     * Drops files which have been deleted from disk.
+     */
+    public synchronized void remove(List<Path> relativePaths) {
+        for (Path path : relativePaths) {
+            paths.remove(path);
+            cache.remove(path);
+            modifiedTimes.remove(path);
+        }
+    }
+
+    public synchronized SourceFile get(Path path) {
+        return getAll(List.of(path)).getFirst();
+    }
+
+    /**
+     * Returns the LSTs of the given relative paths, parsing all the ones which are not in memory in one batch. Paths
+     * which are not in the store are returned as null.
+     *
+     * @throws IllegalStateException if a file which is not in memory has been modified or deleted since it was indexed,
+     *                               as its LST would not be the one the recipes were selected for, nor the one the
+     *                               changes are compared to
+     */
+    public synchronized List<SourceFile> getAll(List<Path> relativePaths) {
+        List<Parser.Input> missing = new ArrayList<>();
+        for (Path path : relativePaths) {
+            if (!cache.containsKey(path) && paths.contains(path)) {
+                if (modifiedTimes.get(path) != modifiedTime(path)) {
+                    throw new IllegalStateException("The file " + path + " has changed since it was indexed, refresh the sources first");
+                }
+                missing.add(Parser.Input.fromFile(root.resolve(path)));
+            }
+        }
+        Map<Path, SourceFile> loaded = new LinkedHashMap<>();
+        if (!missing.isEmpty()) {
+            reparsed += missing.size();
+            for (SourceFile sourceFile : parser.apply(missing)) {
+                loaded.put(sourceFile.getSourcePath(), sourceFile);
+            }
+        }
+        List<SourceFile> sourceFiles = new ArrayList<>(relativePaths.size());
+        for (Path path : relativePaths) {
+            SourceFile sourceFile = cache.containsKey(path) ? cache.get(path) : loaded.get(path);
+            sourceFiles.add(sourceFile);
+        }
+        // Cache after the lookups, so the batch does not evict LSTs it is about to return
+        for (SourceFile sourceFile : loaded.values()) {
+            cache(sourceFile);
+        }
+        return sourceFiles;
+    }
+
+    /**
+     * Parses inputs which are not necessarily on disk, such as the spilled versions of modified files. Synchronized, as
+     * the parsers are not thread safe and several source sets may spill at the same time.
+     */
+    public synchronized List<SourceFile> parse(List<Parser.Input> inputs) {
+        return parser.apply(inputs);
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    public int maxInMemory() {
+        return maxInMemory;
+    }
+
+    /**
+     * Keeps the store in sync with the disk once the results of a recipe have been written back.
+     */
+    public synchronized void update(List<Result> results) {
+        for (Result result : results) {
+            if (result.getBefore() != null) {
+                cache.remove(result.getBefore().getSourcePath());
+                if (result.getAfter() == null || !result.getAfter().getSourcePath().equals(result.getBefore().getSourcePath())) {
+                    paths.remove(result.getBefore().getSourcePath());
+                    modifiedTimes.remove(result.getBefore().getSourcePath());
+                }
+            }
+            if (result.getAfter() != null) {
+                paths.add(result.getAfter().getSourcePath());
+                modifiedTimes.put(result.getAfter().getSourcePath(), modifiedTime(result.getAfter().getSourcePath()));
+                cache(result.getAfter());
+            }
+        }
+    }
+
+    /**
+     * Returns the maximum number of LSTs which have been held in memory at the same time.
+     */
+    public synchronized int highWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * Returns the number of files which have been parsed again after being evicted.
+     */
+    public synchronized int reparsed() {
+        return reparsed;
+    }
+
+    private long modifiedTime(Path path) {
+        try {
+            return Files.getLastModifiedTime(root.resolve(path)).toMillis();
+        } catch (IOException e) {
+            return -1L;
+        }
+    }
+
+    private void add(SourceFile sourceFile) {
+        paths.add(sourceFile.getSourcePath());
+        modifiedTimes.put(sourceFile.getSourcePath(), modifiedTime(sourceFile.getSourcePath()));
+        cache(sourceFile);
+    }
+
+    private void cache(SourceFile sourceFile) {
+        cache.put(sourceFile.getSourcePath(), sourceFile);
+        while (cache.size() > maxInMemory) {
+            cache.remove(cache.keySet().iterator().next());
+        }
+        highWaterMark = Math.max(highWaterMark, cache.size());
+    }
+}
@@ -0,0 +1,229 @@
+package org.agoncal.sample.mcp.migration.openrewrite.common;
+
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the working tree with the files of a {@link SourceFileStore}, so only the files added, modified or deleted
+ * since they were indexed have to be parsed again. When the application is in a git repository, only the files reported
+ * by `git status`, and by `git diff --name-only` between the commit indexed last and `HEAD`, are compared, with the
+ * files which were dirty at the previous refresh or written by a recipe since, as reverting them makes them clean.
+ * Otherwise, or if git fails, the whole tree is walked again and the last modified times are compared.
+ */
+public class SourceRefresher {
+
+    private static final Logger log = Logger.getLogger(SourceRefresher.class);
+    private static final long GIT_TIMEOUT_SECONDS = 30;
+
+    private final Path root;
+    private final SourceDiscovery discovery;
+    private final SourceFileStore store;
+    // Commit checked out when the files were indexed last, null if unknown
+    private String indexedHead;
+    // Files git reported as changed at the previous refresh, or written by a recipe since, which git does not report
+    // anymore once they are reverted, e.g. with `git checkout -- <file>`
+    private final Set<Path> dirty = new HashSet<>();
+
+    public SourceRefresher(Path root, SourceDiscovery discovery, SourceFileStore store) {
+        this.root = root;
+        this.discovery = discovery;
+        this.store = store;
+        this.indexedHead = head();
+        try {
+            dirty.addAll(gitStatus());
+        } catch (IOException e) {
+            log.debug("Cannot list the changes with git: " + e.getMessage());
+        }
+    }
+
+    public record Changes(List<Path> added, List<Path> modified, List<Path> deleted, String method, long millis) {
+
+        public boolean isEmpty() {
+            return added.isEmpty() && modified.isEmpty() && deleted.isEmpty();
+        }
+
+        /**
+         * Returns the files to parse again, as absolute paths.
+         */
+        public List<Path> toParse(Path root) {
+            List<Path> files = new ArrayList<>();
+            for (Path path : added) {
+                files.add(root.resolve(path));
+            }
+            for (Path path : modified) {
+                files.add(root.resolve(path));
+            }
+            return files;
+        }
+
+        @Override
+        public String toString() {
+            return added.size() + " added, " + modified.size() + " modified and " + deleted.size() + " deleted files found with " + method + " in " + millis + " ms";
+        }
+    }
+
+    /**
+     * Records the relative paths of the files a recipe wrote, so they are compared at the next refresh even if they are
+     * reverted before.
+     */
+    public void written(Collection<Path> paths) {
+        dirty.addAll(paths);
+    }
+
+    /**
+     * Returns the relative paths of the files which changed since they were indexed. The caller applies the changes to
+     * the store, and the next refresh compares the tree with the commit checked out now.
+     */
+    public Changes changes() {
+        long start = System.currentTimeMillis();
+        String head = head();
+        Set<Path> indexed = new HashSet<>(store.paths());
+        Set<Path> candidates = gitCandidates(head);
+        String method = "git";
+        Set<Path> discovered = null;
+        if (candidates == null) {
+            method = "last modified times";
+            discovered = new HashSet<>();
+            for (Path file : discovery.discover().files()) {
+                discovered.add(root.relativize(file));
+            }
+            candidates = new TreeSet<>(discovered);
+            candidates.addAll(indexed);
+        }
+
+        List<Path> added = new ArrayList<>();
+        List<Path> modified = new ArrayList<>();
+        List<Path> deleted = new ArrayList<>();
+        for (Path path : candidates) {
+            Path file = root.resolve(path);
+            boolean exists = discovered == null ? discovery.accepts(file) : discovered.contains(path);
+            if (!indexed.contains(path)) {
+                if (exists) {
+                    added.add(path);
+                }
+            } else if (!exists) {
+                deleted.add(path);
+            } else if (modifiedTime(file) != store.indexedModifiedTime(path)) {
+                modified.add(path);
+            }
+        }
+        indexedHead = head;
+        return new Changes(added, modified, deleted, method, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Returns the paths, relative to the root, git reports as changed, or null if git cannot tell.
+     */
+    private Set<Path> gitCandidates(String head) {
+        // Without a commit to compare with, committed changes can only be found with the last modified times
+        if (head != null && indexedHead == null) {
+            return null;
+        }
+        try {
+            Set<Path> status = gitStatus();
+            Set<Path> candidates = new TreeSet<>(status);
+            candidates.addAll(dirty);
+            if (head != null && !head.equals(indexedHead)) {
+                Path topLevel = Path.of(git("rev-parse", "--show-toplevel").trim());
+                Path realRoot = root.toRealPath();
+                for (String path : split(git("diff", "--name-only", "-z", indexedHead, head, "--", "."))) {
+                    addCandidate(candidates, topLevel, realRoot, path);
+                }
+            }
+            dirty.clear();
+            dirty.addAll(status);
+            return candidates;
+        } catch (IOException e) {
+            log.debug("Cannot list the changes with git: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the paths, relative to the root, `git status` reports as changed.
+     */
+    private Set<Path> gitStatus() throws IOException {
+        Path topLevel = Path.of(git("rev-parse", "--show-toplevel").trim());
+        Path realRoot = root.toRealPath();
+        Set<Path> paths = new TreeSet<>();
+        // Entries are "XY path", followed by the original path for renames and copies
+        List<String> entries = split(git("status", "--porcelain", "-z", "--untracked-files=all", "--", "."));
+        for (int i = 0; i < entries.size(); i++) {
+            String entry = entries.get(i);
+            addCandidate(paths, topLevel, realRoot, entry.substring(3));
+            if (entry.charAt(0) == 'R' || entry.charAt(0) == 'C') {
+                addCandidate(paths, topLevel, realRoot, entries.get(++i));
+            }
+        }
+        return paths;
+    }
+
+    private static void addCandidate(Set<Path> candidates, Path topLevel, Path realRoot, String path) {
+        Path file = topLevel.resolve(path);
+        if (file.startsWith(realRoot)) {
+            candidates.add(realRoot.relativize(file));
+        }
+    }
+
+    private String head() {
+        try {
+            return git("rev-parse", "--verify", "-q", "HEAD").trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private String git(String... arguments) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(List.of(arguments));
+        Process process = new ProcessBuilder(command)
+            .directory(root.toFile())
+            .redirectError(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        try {
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            if (!process.waitFor(GIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IOException("git " + arguments[0] + " timed out");
+            }
+            if (process.exitValue() != 0) {
+                throw new IOException("git " + arguments[0] + " exited with " + process.exitValue());
+            }
+            return output;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+            throw new IOException("Interrupted while running git " + arguments[0], e);
+        }
+    }
+
+    private static List<String> split(String output) {
+        List<String> entries = new ArrayList<>();
+        for (String entry : output.split("\0")) {
+            if (!entry.isEmpty()) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    private static long modifiedTime(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return -1L;
+        }
+    }
+}
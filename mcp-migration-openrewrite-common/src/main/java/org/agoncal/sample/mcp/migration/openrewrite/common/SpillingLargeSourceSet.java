@@ -0,0 +1,268 @@
+package org.agoncal.sample.mcp.migration.openrewrite.common;
+
+import org.openrewrite.Changeset;
+import org.openrewrite.LargeSourceSet;
+import org.openrewrite.Parser;
+import org.openrewrite.Recipe;
+import org.openrewrite.Result;
+import org.openrewrite.SourceFile;
+import org.openrewrite.marker.RecipesThatMadeChanges;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link LargeSourceSet} streaming the files of a {@link SourceFileStore} through a recipe run by batches, instead of
+ * holding all the LSTs like {@code InMemoryLargeSourceSet}. The files modified by the recipe are kept in memory up to
+ * `maxInMemory`, the least recently used ones are spilled to a local directory as printed source code, and parsed again
+ * when a later cycle or the changeset needs them.
+ * <p>
+ * Unlike {@code InMemoryLargeSourceSet} the set is mutable: {@link #edit} and {@link #generate} return this instance.
+ */
+public class SpillingLargeSourceSet implements LargeSourceSet, AutoCloseable {
+
+    private final SourceFileStore store;
+    private final int maxInMemory;
+    // Relative paths of the files handed to the recipe, followed by the generated ones
+    private final Set<Path> paths;
+    private final Set<Path> generated = new LinkedHashSet<>();
+    // Least recently used modified files
+    private final Map<Path, SourceFile> afters = new LinkedHashMap<>(16, 0.75f, true);
+    // Modified files which have been evicted from memory, with the recipes that modified them
+    private final Map<Path, Path> spilled = new HashMap<>();
+    private final Map<Path, RecipesThatMadeChanges> spilledRecipes = new HashMap<>();
+    private final Map<Path, List<Recipe>> deletions = new LinkedHashMap<>();
+    private List<Recipe> currentRecipeStack;
+    private Path spillDirectory;
+    private int highWaterMark;
+
+    public SpillingLargeSourceSet(SourceFileStore store, List<Path> paths) {
+        this.store = store;
+        this.maxInMemory = store.maxInMemory();
+        this.paths = new LinkedHashSet<>(paths);
+    }
+
+    @Override
+    public void setRecipe(List<Recipe> recipeStack) {
+        this.currentRecipeStack = recipeStack;
+    }
+
+    @Override
+    public LargeSourceSet edit(UnaryOperator<SourceFile> map) {
+        List<Path> current = new ArrayList<>(paths);
+        current.removeAll(deletions.keySet());
+        for (int start = 0; start < current.size(); start += maxInMemory) {
+            List<Path> batch = current.subList(start, Math.min(current.size(), start + maxInMemory));
+            List<SourceFile> sourceFiles = currentSourceFiles(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                SourceFile sourceFile = sourceFiles.get(i);
+                if (sourceFile == null) {
+                    continue;
+                }
+                SourceFile edited = map.apply(sourceFile);
+                if (edited == null) {
+                    delete(batch.get(i));
+                } else if (edited != sourceFile) {
+                    putAfter(edited);
+                }
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public LargeSourceSet generate(Collection<? extends SourceFile> sourceFiles) {
+        for (SourceFile sourceFile : sourceFiles) {
+            paths.add(sourceFile.getSourcePath());
+            generated.add(sourceFile.getSourcePath());
+            putAfter(sourceFile);
+        }
+        return this;
+    }
+
+    @Override
+    public Changeset getChangeset() {
+        List<Path> changed = new ArrayList<>();
+        for (Path path : paths) {
+            // The files generated then deleted by the run are not changes
+            if (generated.contains(path) && deletions.containsKey(path)) {
+                continue;
+            }
+            if (afters.containsKey(path) || spilled.containsKey(path) || deletions.containsKey(path)) {
+                changed.add(path);
+            }
+        }
+        return new Changeset() {
+            @Override
+            public int size() {
+                return changed.size();
+            }
+
+            @Override
+            public List<Result> getPage(int start, int pageSize) {
+                List<Path> page = changed.subList(Math.min(start, changed.size()), Math.min(changed.size(), start + pageSize));
+                List<Path> modified = new ArrayList<>();
+                List<Path> existing = new ArrayList<>();
+                for (Path path : page) {
+                    if (!deletions.containsKey(path)) {
+                        modified.add(path);
+                    }
+                    if (!generated.contains(path)) {
+                        existing.add(path);
+                    }
+                }
+                Map<Path, SourceFile> befores = byPath(existing, store.getAll(existing));
+                Map<Path, SourceFile> modifiedAfters = byPath(modified, aftersOf(modified));
+                List<Result> results = new ArrayList<>(page.size());
+                for (Path path : page) {
+                    if (deletions.containsKey(path)) {
+                        results.add(new Result(befores.get(path), null, List.of(deletions.get(path))));
+                    } else {
+                        results.add(new Result(befores.get(path), modifiedAfters.get(path)));
+                    }
+                }
+                return results;
+            }
+        };
+    }
+
+    @Override
+    public SourceFile getBefore(Path sourcePath) {
+        if (generated.contains(sourcePath) || !paths.contains(sourcePath)) {
+            return null;
+        }
+        return store.get(sourcePath);
+    }
+
+    /**
+     * Returns the maximum number of modified LSTs which have been held in memory at the same time.
+     */
+    public int highWaterMark() {
+        return highWaterMark;
+    }
+
+    public int spilledCount() {
+        return spilled.size();
+    }
+
+    /**
+     * Deletes the spilled files.
+     */
+    @Override
+    public void close() throws IOException {
+        if (spillDirectory != null) {
+            for (Path file : spilled.values()) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(spillDirectory);
+            spilled.clear();
+        }
+    }
+
+    private List<SourceFile> currentSourceFiles(List<Path> batch) {
+        List<Path> unchanged = new ArrayList<>();
+        List<Path> modified = new ArrayList<>();
+        for (Path path : batch) {
+            if (afters.containsKey(path) || spilled.containsKey(path)) {
+                modified.add(path);
+            } else {
+                unchanged.add(path);
+            }
+        }
+        Map<Path, SourceFile> sourceFiles = byPath(unchanged, store.getAll(unchanged));
+        sourceFiles.putAll(byPath(modified, aftersOf(modified)));
+        List<SourceFile> current = new ArrayList<>(batch.size());
+        for (Path path : batch) {
+            current.add(sourceFiles.get(path));
+        }
+        return current;
+    }
+
+    /**
+     * Returns the modified versions of the files, parsing the spilled ones again in one batch.
+     */
+    private List<SourceFile> aftersOf(List<Path> modified) {
+        List<Parser.Input> inputs = new ArrayList<>();
+        for (Path path : modified) {
+            if (!afters.containsKey(path)) {
+                Path spilledFile = spilled.get(path);
+                inputs.add(new Parser.Input(store.root().resolve(path), () -> {
+                    try {
+                        return new ByteArrayInputStream(Files.readAllBytes(spilledFile));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+        }
+        Map<Path, SourceFile> reloaded = new HashMap<>();
+        if (!inputs.isEmpty()) {
+            for (SourceFile sourceFile : store.parse(inputs)) {
+                // The markers are lost when printing, so put back the recipes which made the changes
+                RecipesThatMadeChanges recipes = spilledRecipes.get(sourceFile.getSourcePath());
+                reloaded.put(sourceFile.getSourcePath(), recipes == null ? sourceFile : sourceFile.withMarkers(sourceFile.getMarkers().add(recipes)));
+            }
+        }
+        List<SourceFile> sourceFiles = new ArrayList<>(modified.size());
+        for (Path path : modified) {
+            sourceFiles.add(afters.containsKey(path) ? afters.get(path) : reloaded.get(path));
+        }
+        return sourceFiles;
+    }
+
+    private void putAfter(SourceFile sourceFile) {
+        Path path = sourceFile.getSourcePath();
+        afters.put(path, sourceFile);
+        while (afters.size() > maxInMemory) {
+            spill(afters.keySet().iterator().next());
+        }
+        highWaterMark = Math.max(highWaterMark, afters.size());
+    }
+
+    private void spill(Path path) {
+        SourceFile sourceFile = afters.remove(path);
+        Charset charset = sourceFile.getCharset() == null ? StandardCharsets.UTF_8 : sourceFile.getCharset();
+        try {
+            if (spillDirectory == null) {
+                spillDirectory = Files.createTempDirectory("mcp-migration-spill");
+            }
+            Path spilledFile = spilled.get(path);
+            if (spilledFile == null) {
+                spilledFile = spillDirectory.resolve(spilled.size() + ".txt");
+                spilled.put(path, spilledFile);
+            }
+            Files.write(spilledFile, sourceFile.printAll().getBytes(charset));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot spill " + path, e);
+        }
+        sourceFile.getMarkers().findFirst(RecipesThatMadeChanges.class).ifPresent(recipes -> spilledRecipes.put(path, recipes));
+    }
+
+    private void delete(Path path) {
+        deletions.put(path, currentRecipeStack);
+        afters.remove(path);
+        spilledRecipes.remove(path);
+    }
+
+    private static Map<Path, SourceFile> byPath(List<Path> paths, List<SourceFile> sourceFiles) {
+        Map<Path, SourceFile> byPath = new HashMap<>();
+        for (int i = 0; i < paths.size(); i++) {
+            byPath.put(paths.get(i), sourceFiles.get(i));
+        }
+        return byPath;
+    }
+}
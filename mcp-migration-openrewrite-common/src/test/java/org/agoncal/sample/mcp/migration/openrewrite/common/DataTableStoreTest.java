@@ -0,0 +1,79 @@
+package org.agoncal.sample.mcp.migration.openrewrite.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openrewrite.DataTable;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.RecipeRun;
+import org.openrewrite.SourceFile;
+import org.openrewrite.internal.InMemoryLargeSourceSet;
+import org.openrewrite.java.JavaParser;
+import org.openrewrite.java.search.FindTypes;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DataTableStoreTest {
+
+    private static final ExecutionContext executionContext = new InMemoryExecutionContext(Throwable::printStackTrace);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testPageAndExportTheRowsOfARun() throws IOException {
+        DataTableStore store = new DataTableStore(10);
+        DataTableStore.Run run = store.record("FindTypes", findTypes(5));
+
+        DataTableStore.Table typeUses = DataTableStore.table(run, "TypeUses");
+        assertNotNull(typeUses);
+        assertEquals(typeUses, DataTableStore.table(run, "org.openrewrite.java.table.TypeUses"));
+        assertEquals(5, typeUses.rows().size());
+
+        // Pages of rows, as JSON or CSV with the header lines first
+        assertEquals(2, new ObjectMapper().readTree(DataTableStore.rowsAsJson(typeUses, 3, 10)).size());
+        String csv = DataTableStore.rowsAsCsv(typeUses, 0, 2, executionContext);
+        assertTrue(csv.contains("Legacy0.java"));
+        assertFalse(csv.contains("Legacy2.java"));
+
+        // All the rows, streamed to a CSV file
+        Path csvFile = DataTableStore.exportCsv(run, typeUses, directory, executionContext);
+        assertEquals(DataTableStore.rowsAsCsv(typeUses, 0, 5, executionContext).lines().count(), Files.readAllLines(csvFile).size());
+    }
+
+    @Test
+    public void testOnlyKeepTheLastRunsWithRows() {
+        DataTableStore store = new DataTableStore(2);
+        assertNull(store.record("Empty", Map.of()));
+        DataTableStore.Run first = store.record("FindTypes", findTypes(1));
+        DataTableStore.Run second = store.record("FindTypes", findTypes(1));
+        DataTableStore.Run third = store.record("FindTypes", findTypes(1));
+
+        assertNull(store.run(first.id()));
+        assertEquals(second, store.run(second.id()));
+        assertEquals(List.of(second.id(), third.id()), store.runs().stream().map(DataTableStore.RunJson::run).collect(Collectors.toList()));
+    }
+
+    private static Map<DataTable<?>, List<?>> findTypes(int files) {
+        String[] sources = new String[files];
+        for (int i = 0; i < files; i++) {
+            sources[i] = "class Legacy" + i + " { String name; }";
+        }
+        List<SourceFile> sourceFiles = JavaParser.fromJavaVersion().build().parse(sources).collect(Collectors.toList());
+        ExecutionContext ctx = new InMemoryExecutionContext(Throwable::printStackTrace);
+        RecipeRun run = new FindTypes("java.lang.String", false).run(new InMemoryLargeSourceSet(sourceFiles), ctx);
+        return run.getDataTables();
+    }
+}
@@ -0,0 +1,42 @@
+package org.agoncal.sample.mcp.migration.openrewrite.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PathScopeTest {
+
+    private static final List<Path> PATHS = List.of(
+        Path.of("pom.xml"),
+        Path.of("module-a/pom.xml"),
+        Path.of("module-a/src/main/java/sample/A.java"),
+        Path.of("module-a/src/test/java/sample/ATest.java"),
+        Path.of("module-b/src/main/java/sample/B.java"));
+
+    @Test
+    public void testNoScopeKeepsAllTheFiles() {
+        assertSame(PathScope.ALL, PathScope.of(null, " "));
+        assertSame(PATHS, PathScope.ALL.filter(PATHS));
+    }
+
+    @Test
+    public void testIncludeAndExclude() {
+        assertEquals(List.of(Path.of("module-a/pom.xml"), Path.of("module-a/src/main/java/sample/A.java"), Path.of("module-a/src/test/java/sample/ATest.java")),
+            PathScope.of("module-a/**", null).filter(PATHS));
+        assertEquals(List.of(Path.of("module-a/src/main/java/sample/A.java")),
+            PathScope.of("module-a/**", "**/src/test/**, **.xml").filter(PATHS));
+        assertEquals(List.of(Path.of("pom.xml"), Path.of("module-a/pom.xml")),
+            PathScope.of(null, "**.java").filter(PATHS));
+        assertEquals(List.of(Path.of("pom.xml")), PathScope.of("*.xml", null).filter(PATHS));
+    }
+
+    @Test
+    public void testInvalidGlob() {
+        assertThrows(IllegalArgumentException.class, () -> PathScope.of("src/[main", null));
+    }
+}
@@ -0,0 +1,70 @@
+package org.agoncal.sample.mcp.migration.openrewrite.common;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SourceDiscoveryTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    public void testDiscoverSkipsIgnoredExcludedAndLargeFiles() throws IOException {
+        write(".gitignore", "# Comment\n*.tmp.java\n/legacy/\n!Kept.tmp.java\n");
+        write("pom.xml", "<project/>");
+        write("src/main/java/sample/App.java", "class App {}");
+        write("src/main/java/sample/build/Builder.java", "class Builder {}");
+        write("src/main/java/sample/Scratch.tmp.java", "class Scratch {}");
+        write("src/main/java/sample/Kept.tmp.java", "class Kept {}");
+        write("src/main/java/sample/Huge.java", "class Huge {}" + " ".repeat(2048));
+        write("legacy/Old.java", "class Old {}");
+        write("module/.gitignore", "ignored/\n");
+        write("module/src/main/java/sample/Module.java", "class Module {}");
+        write("module/ignored/Ignored.java", "class Ignored {}");
+        write("target/generated-sources/Generated.java", "class Generated {}");
+        write("node_modules/lib/Lib.java", "class Lib {}");
+        write(".git/objects/Object.java", "class Object {}");
+
+        SourceDiscovery.Report report = new SourceDiscovery(root, file -> file.getFileName().toString().endsWith(".java"), 1024).discover();
+
+        assertEquals(List.of(
+            root.resolve("module/src/main/java/sample/Module.java"),
+            root.resolve("src/main/java/sample/App.java"),
+            root.resolve("src/main/java/sample/Kept.tmp.java"),
+            root.resolve("src/main/java/sample/build/Builder.java")), report.files());
+        assertEquals(3, report.excludedDirectories());
+        assertEquals(3, report.ignored());
+        assertEquals(1, report.tooLarge());
+    }
+
+    @Test
+    public void testBuildOutputIsOnlyExcludedNextToABuildFile() throws IOException {
+        write("module/build.gradle", "");
+        write("module/build/Output.java", "");
+        write("src/main/java/sample/build/Builder.java", "");
+
+        assertTrue(SourceDiscovery.isExcludedDirectory(root.resolve("module/build")));
+        assertFalse(SourceDiscovery.isExcludedDirectory(root.resolve("src/main/java/sample/build")));
+    }
+
+    @Test
+    public void testDiscoverMissingRoot() {
+        SourceDiscovery.Report report = new SourceDiscovery(root.resolve("missing"), file -> true, Long.MAX_VALUE).discover();
+        assertTrue(report.files().isEmpty());
+    }
+
+    private void write(String relativePath, String content) throws IOException {
+        Path file = root.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
@@ -0,0 +1,88 @@
+package org.agoncal.sample.mcp.migration.openrewrite.common;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.text.PlainTextParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SourceFileStoreTest {
+
+    private static final Path FIRST = Path.of("first.txt");
+    private static final Path SECOND = Path.of("second.txt");
+
+    @TempDir
+    Path root;
+
+    @Test
+    public void testParseAgainTheEvictedFiles() throws IOException {
+        SourceFileStore store = store();
+        store.load(List.of(write(FIRST, "first"), write(SECOND, "second")));
+
+        assertEquals("first", store.get(FIRST).printAll());
+        assertEquals(1, store.reparsed());
+        assertNull(store.get(Path.of("unknown.txt")));
+    }
+
+    @Test
+    public void testRefuseTheEvictedFilesChangedSinceTheyWereIndexed() throws IOException {
+        SourceFileStore store = store();
+        store.load(List.of(write(FIRST, "first"), write(SECOND, "second")));
+        touch(write(FIRST, "changed"));
+
+        // The LST in memory is still the indexed one
+        assertEquals("second", store.get(SECOND).printAll());
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> store.get(FIRST));
+        assertEquals("The file first.txt has changed since it was indexed, refresh the sources first", exception.getMessage());
+
+        Files.delete(root.resolve(SECOND));
+        store.load(List.of(root.resolve(FIRST)));
+        assertThrows(IllegalStateException.class, () -> store.get(SECOND));
+
+        // Once refreshed, the store has the files on disk
+        store.remove(List.of(SECOND));
+        assertEquals("changed", store.get(FIRST).printAll());
+    }
+
+    @Test
+    public void testReadTheSnapshotWhileTheStoreChanges() throws IOException {
+        SourceFileStore store = store();
+        store.load(List.of(write(FIRST, "first"), write(SECOND, "second")));
+        SourceFileStore snapshot = store.snapshot();
+
+        Files.delete(root.resolve(SECOND));
+        store.remove(List.of(SECOND));
+        store.load(List.of(write(Path.of("third.txt"), "third")));
+
+        assertEquals(List.of(FIRST, SECOND), snapshot.paths());
+        assertEquals("second", snapshot.get(SECOND).printAll());
+        // The evicted files are parsed again, unless they changed since the snapshot
+        assertEquals("first", snapshot.get(FIRST).printAll());
+        touch(write(FIRST, "changed"));
+        assertThrows(IllegalStateException.class, () -> store.snapshot().get(FIRST));
+    }
+
+    private SourceFileStore store() {
+        PlainTextParser parser = PlainTextParser.builder().build();
+        // Only one LST in memory, so the first file is evicted when the second one is parsed
+        return new SourceFileStore(root, 1, inputs -> parser.parseInputs(inputs, root, new InMemoryExecutionContext(Throwable::printStackTrace)).toList());
+    }
+
+    private Path write(Path relativePath, String content) throws IOException {
+        return Files.writeString(root.resolve(relativePath), content);
+    }
+
+    private static void touch(Path file) throws IOException {
+        // The file system may not tell apart two writes in the same millisecond
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+    }
+}
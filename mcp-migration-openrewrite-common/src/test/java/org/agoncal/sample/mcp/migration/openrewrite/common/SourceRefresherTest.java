@@ -0,0 +1,134 @@
+package org.agoncal.sample.mcp.migration.openrewrite.common;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.text.PlainTextParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SourceRefresherTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    public void testChangesFromLastModifiedTimes() throws IOException {
+        write("src/main/java/sample/Kept.java", "class Kept {}");
+        write("src/main/java/sample/Modified.java", "class Modified {}");
+        write("src/main/java/sample/Deleted.java", "class Deleted {}");
+        SourceDiscovery discovery = discovery();
+        SourceFileStore store = store();
+        store.load(discovery.discover().files());
+        SourceRefresher refresher = new SourceRefresher(root, discovery, store);
+
+        touch(write("src/main/java/sample/Modified.java", "class Modified { int i; }"));
+        write("src/main/java/sample/Added.java", "class Added {}");
+        Files.delete(root.resolve("src/main/java/sample/Deleted.java"));
+        SourceRefresher.Changes changes = refresher.changes();
+
+        assertEquals("last modified times", changes.method());
+        assertEquals(List.of(Path.of("src/main/java/sample/Added.java")), changes.added());
+        assertEquals(List.of(Path.of("src/main/java/sample/Modified.java")), changes.modified());
+        assertEquals(List.of(Path.of("src/main/java/sample/Deleted.java")), changes.deleted());
+    }
+
+    @Test
+    public void testChangesFromGit() throws IOException, InterruptedException {
+        write("src/main/java/sample/Kept.java", "class Kept {}");
+        write("src/main/java/sample/Committed.java", "class Committed {}");
+        write("src/main/java/sample/Deleted.java", "class Deleted {}");
+        git("init", "-q");
+        git("add", ".");
+        git("commit", "-q", "-m", "Initial commit");
+        SourceDiscovery discovery = discovery();
+        SourceFileStore store = store();
+        store.load(discovery.discover().files());
+        SourceRefresher refresher = new SourceRefresher(root, discovery, store);
+
+        // Changes committed since the indexing, and changes in the working tree
+        touch(write("src/main/java/sample/Committed.java", "class Committed { int i; }"));
+        git("commit", "-q", "-a", "-m", "Second commit");
+        write("src/main/java/sample/Added.java", "class Added {}");
+        write("README.md", "Not a source file");
+        Files.delete(root.resolve("src/main/java/sample/Deleted.java"));
+        SourceRefresher.Changes changes = refresher.changes();
+
+        assertEquals("git", changes.method());
+        assertEquals(List.of(Path.of("src/main/java/sample/Added.java")), changes.added());
+        assertEquals(List.of(Path.of("src/main/java/sample/Committed.java")), changes.modified());
+        assertEquals(List.of(Path.of("src/main/java/sample/Deleted.java")), changes.deleted());
+
+        // Once applied, the store is up to date with the working tree
+        store.remove(changes.deleted());
+        store.load(changes.toParse(root));
+        assertTrue(refresher.changes().isEmpty());
+    }
+
+    @Test
+    public void testChangesOfRevertedFiles() throws IOException, InterruptedException {
+        write("src/main/java/sample/Dirty.java", "class Dirty {}");
+        write("src/main/java/sample/Written.java", "class Written {}");
+        git("init", "-q");
+        git("add", ".");
+        git("commit", "-q", "-m", "Initial commit");
+        // Dirty when it is indexed
+        write("src/main/java/sample/Dirty.java", "class Dirty { int i; }");
+        SourceDiscovery discovery = discovery();
+        SourceFileStore store = store();
+        store.load(discovery.discover().files());
+        SourceRefresher refresher = new SourceRefresher(root, discovery, store);
+
+        // Written by a recipe, which indexes it again
+        Path written = write("src/main/java/sample/Written.java", "class Written { int i; }");
+        store.load(List.of(written));
+        refresher.written(List.of(Path.of("src/main/java/sample/Written.java")));
+
+        // Both are reverted, so git reports neither of them anymore
+        git("checkout", "-q", "--", ".");
+        touch(root.resolve("src/main/java/sample/Dirty.java"));
+        touch(written);
+        SourceRefresher.Changes changes = refresher.changes();
+
+        assertEquals("git", changes.method());
+        assertEquals(List.of(Path.of("src/main/java/sample/Dirty.java"), Path.of("src/main/java/sample/Written.java")), changes.modified());
+
+        // Once applied, they are clean and not compared anymore
+        store.load(changes.toParse(root));
+        assertTrue(refresher.changes().isEmpty());
+    }
+
+    private SourceDiscovery discovery() {
+        return new SourceDiscovery(root, file -> file.getFileName().toString().endsWith(".java"), Long.MAX_VALUE);
+    }
+
+    private SourceFileStore store() {
+        PlainTextParser parser = PlainTextParser.builder().build();
+        return new SourceFileStore(root, 10, inputs -> parser.parseInputs(inputs, root, new InMemoryExecutionContext(Throwable::printStackTrace)).toList());
+    }
+
+    private Path write(String relativePath, String content) throws IOException {
+        Path file = root.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+
+    private static void touch(Path file) throws IOException {
+        // The file system may not tell apart two writes in the same millisecond
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+    }
+
+    private void git(String... arguments) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of("git", "-c", "user.name=test", "-c", "user.email=test@example.com"));
+        command.addAll(List.of(arguments));
+        assertEquals(0, new ProcessBuilder(command).directory(root.toFile()).inheritIO().start().waitFor());
+    }
+}
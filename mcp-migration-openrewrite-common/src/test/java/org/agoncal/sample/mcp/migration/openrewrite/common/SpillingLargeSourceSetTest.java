@@ -0,0 +1,122 @@
+package org.agoncal.sample.mcp.migration.openrewrite.common;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openrewrite.Changeset;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Recipe;
+import org.openrewrite.Result;
+import org.openrewrite.SourceFile;
+import org.openrewrite.internal.InMemoryLargeSourceSet;
+import org.openrewrite.java.ChangeMethodName;
+import org.openrewrite.java.JavaParser;
+import org.openrewrite.text.PlainTextParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SpillingLargeSourceSetTest {
+
+    private static final int CORPUS_SIZE = 120;
+    private static final int MAX_IN_MEMORY = 10;
+
+    private static final ExecutionContext executionContext = new InMemoryExecutionContext(Throwable::printStackTrace);
+
+    @TempDir
+    static Path root;
+    private static List<Path> javaFiles;
+
+    @BeforeAll
+    static void generateCorpus() throws IOException {
+        javaFiles = new ArrayList<>();
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            Path javaFile = root.resolve("src/main/java/sample/Legacy" + i + ".java");
+            Files.createDirectories(javaFile.getParent());
+            // One file out of three uses the removed Thread.stop()
+            Files.writeString(javaFile, """
+                package sample;
+                public class Legacy%d {
+                    void stop(Thread thread) {
+                        %s
+                    }
+                }
+                """.formatted(i, i % 3 == 0 ? "thread.stop();" : "thread.interrupt();"));
+            javaFiles.add(javaFile);
+        }
+    }
+
+    @Test
+    public void testRunRecipeOnCorpusLargerThanTheHeapBudget() throws IOException {
+        Recipe recipe = new ChangeMethodName("java.lang.Thread stop()", "interrupt", null, null);
+
+        // Expected results, with all the LSTs in memory
+        List<SourceFile> allSourceFiles = JavaParser.fromJavaVersion().build().parse(javaFiles, root, executionContext).collect(Collectors.toList());
+        Map<Path, String> expected = print(recipe.run(new InMemoryLargeSourceSet(allSourceFiles), executionContext).getChangeset().getAllResults());
+        assertEquals(CORPUS_SIZE / 3, expected.size());
+
+        // Same run, with at most MAX_IN_MEMORY LSTs in memory
+        JavaParser javaParser = JavaParser.fromJavaVersion().build();
+        SourceFileStore store = new SourceFileStore(root, MAX_IN_MEMORY, inputs -> {
+            List<SourceFile> parsed = javaParser.parseInputs(inputs, root, executionContext).collect(Collectors.toList());
+            javaParser.reset();
+            return parsed;
+        });
+        store.load(javaFiles);
+        assertEquals(CORPUS_SIZE, store.size());
+
+        try (SpillingLargeSourceSet sourceSet = new SpillingLargeSourceSet(store, store.paths())) {
+            Changeset changeset = recipe.run(sourceSet, executionContext).getChangeset();
+            Map<Path, String> actual = new TreeMap<>();
+            for (int start = 0; start < changeset.size(); start += MAX_IN_MEMORY) {
+                actual.putAll(print(changeset.getPage(start, MAX_IN_MEMORY)));
+            }
+
+            assertEquals(expected, actual);
+            assertTrue(sourceSet.spilledCount() > 0, "The modified files should have been spilled to disk");
+            assertTrue(sourceSet.highWaterMark() <= MAX_IN_MEMORY);
+        }
+        assertTrue(store.highWaterMark() <= MAX_IN_MEMORY);
+        assertTrue(store.reparsed() > 0, "The evicted files should have been parsed again");
+    }
+
+    @Test
+    public void testChangesetWithoutTheFilesGeneratedThenDeleted() throws IOException {
+        PlainTextParser parser = PlainTextParser.builder().build();
+        SourceFileStore store = new SourceFileStore(root, MAX_IN_MEMORY, inputs -> parser.parseInputs(inputs, root, executionContext).toList());
+        store.load(javaFiles.subList(0, 3));
+        Path generated = Path.of("src/main/java/sample/Generated.java");
+
+        try (SpillingLargeSourceSet sourceSet = new SpillingLargeSourceSet(store, store.paths())) {
+            sourceSet.setRecipe(List.of(new ChangeMethodName("java.lang.Thread stop()", "interrupt", null, null)));
+            sourceSet.generate(parser.parse("class Generated {}").map(sourceFile -> (SourceFile) sourceFile.withSourcePath(generated)).toList());
+            sourceSet.edit(sourceFile -> sourceFile.getSourcePath().equals(generated) || sourceFile.getSourcePath().equals(store.paths().getFirst()) ? null : sourceFile);
+
+            Changeset changeset = sourceSet.getChangeset();
+            List<Result> results = changeset.getPage(0, MAX_IN_MEMORY);
+            assertEquals(1, changeset.size());
+            assertEquals(changeset.size(), results.size());
+            assertEquals(store.paths().getFirst(), results.getFirst().getBefore().getSourcePath());
+            assertNull(results.getFirst().getAfter());
+        }
+    }
+
+    private static Map<Path, String> print(List<Result> results) {
+        Map<Path, String> printed = new TreeMap<>();
+        for (Result result : results) {
+            printed.put(result.getAfter().getSourcePath(), result.getAfter().printAll());
+        }
+        return printed;
+    }
+}
@@ -0,0 +1,134 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.agoncal.sample.mcp.migration.openrewrite.common.SourceDiscovery;
+import org.agoncal.sample.mcp.migration.openrewrite.common.SourceFileStore;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.java.JavaParser;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Corpora the benchmarks run on: `legacy` is the `mcp-migration-legacy` application, and a number is a corpus of that
+ * many Java files generated by {@link LegacyCorpusGenerator} with the `benchmark.seed` seed, written once under
+ * `target/benchmark-corpora` and reused by the following runs. Everything is local, so the benchmarks run offline.
+ */
+class BenchmarkCorpus {
+
+    static final String LEGACY = "legacy";
+    private static final Path LEGACY_DIRECTORY = Paths.get(Objects.requireNonNullElse(System.getProperty("benchmark.legacy"), "../mcp-migration-legacy"));
+    private static final Path CORPORA_DIRECTORY = Paths.get(Objects.requireNonNullElse(System.getProperty("benchmark.corpora"), "target/benchmark-corpora"));
+    private static final long SEED = Long.parseLong(Objects.requireNonNullElse(System.getProperty("benchmark.seed"), String.valueOf(LegacyCorpusGenerator.DEFAULT_SEED)));
+
+    /**
+     * Sources of a corpus loaded the way the server loads them at startup.
+     */
+    record Sources(SourceFileStore store, TypeUsageIndex typeUsageIndex, SourceDiscovery.Report discovery, long parseMillis) {
+    }
+
+    /**
+     * Returns the directory of the corpus, generating it if needed.
+     */
+    static Path directory(String corpus) throws IOException {
+        if (LEGACY.equals(corpus)) {
+            return LEGACY_DIRECTORY.toAbsolutePath().normalize();
+        }
+        int files = Integer.parseInt(corpus);
+        int modules = LegacyCorpusGenerator.defaultModules(files);
+        Path directory = CORPORA_DIRECTORY.resolve(corpus + "-" + SEED).toAbsolutePath().normalize();
+        if (!LegacyCorpusGenerator.isGenerated(directory, files, modules, SEED)) {
+            delete(directory);
+            new LegacyCorpusGenerator(SEED).generate(directory, files, modules);
+        }
+        return directory;
+    }
+
+    /**
+     * Copies the corpus to a directory the write-back benchmarks can modify.
+     */
+    static Path copy(Path corpus, Path target) throws IOException {
+        delete(target);
+        Files.walkFileTree(corpus, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                Files.createDirectories(target.resolve(corpus.relativize(directory)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                Files.copy(file, target.resolve(corpus.relativize(file)), StandardCopyOption.REPLACE_EXISTING);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return target;
+    }
+
+    /**
+     * Discovers and parses the files of the directory, as `JavaMigrationMCPServer.findJavaFiles()` does.
+     */
+    static Sources load(Path root, int maxInMemory) {
+        ExecutionContext executionContext = new InMemoryExecutionContext(t -> {
+        });
+        SourceDiscovery.Report discovery = new SourceDiscovery(root, SourceParsers::accept, 1024 * 1024).discover();
+        SourceParsers parsers = new SourceParsers(root, JavaParser.fromJavaVersion().classpath(SourceParsers.javaSourceRoots(discovery.files())).build(), executionContext);
+        long start = System.currentTimeMillis();
+        SourceFileStore store = new SourceFileStore(root, maxInMemory, parsers::parse);
+        TypeUsageIndex typeUsageIndex = new TypeUsageIndex();
+        store.load(discovery.files(), typeUsageIndex::add);
+        return new Sources(store, typeUsageIndex, discovery, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Collects the garbage and resets the peak usage of the heap memory pools, before measuring a phase.
+     */
+    static void resetPeakHeap() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Returns the sum of the peak usages of the heap memory pools since they were reset. The pools do not peak at the
+     * same time, so this is an upper bound of the heap high-water mark.
+     */
+    static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (var paths = Files.walk(directory)) {
+            for (Path path : paths.sorted((a, b) -> b.compareTo(a)).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    static List<String> corpora(String corpora) {
+        return List.of(corpora.split(","));
+    }
+}
@@ -0,0 +1,148 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.agoncal.sample.mcp.migration.openrewrite.common.SourceFileStore;
+import org.agoncal.sample.mcp.migration.openrewrite.common.SpillingLargeSourceSet;
+import org.jboss.logging.Logger;
+import org.openrewrite.Changeset;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Recipe;
+import org.openrewrite.Result;
+import org.openrewrite.internal.RecipeIntrospectionUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the server's pipeline end to end on each corpus, on a copy so the corpus is left untouched: discovery and parsing,
+ * a dry run of each exposed recipe, then each recipe again with its changes written back to disk. The timings and the
+ * heap high-water marks of each phase are written to `end-to-end.json` in the output directory.
+ * <p>
+ * Arguments: the output directory, the comma separated corpora (e.g. `legacy,1000,10000,50000`) and the maximum number
+ * of LSTs kept in memory.
+ */
+public class EndToEndBenchmark {
+
+    private static final Logger log = Logger.getLogger(EndToEndBenchmark.class);
+
+    record ParseReport(int files, long discoveryMillis, long parseMillis, double filesPerSecond, long peakHeapBytes, int lstHighWaterMark) {
+    }
+
+    record RecipeReport(String recipe, int candidateFiles, int changedFiles, long dryRunMillis, long peakHeapBytes, long runMillis, long writeBackMillis) {
+    }
+
+    record CorpusReport(String corpus, ParseReport parse, List<RecipeReport> recipes, int reparsedFiles) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path outputDirectory = Paths.get(args.length > 0 ? args[0] : "target/benchmarks");
+        List<String> corpora = BenchmarkCorpus.corpora(args.length > 1 ? args[1] : BenchmarkCorpus.LEGACY + ",1000,10000,50000");
+        int maxInMemory = Integer.parseInt(args.length > 2 ? args[2] : "10000");
+
+        List<CorpusReport> reports = new ArrayList<>();
+        for (String corpus : corpora) {
+            log.info("Benchmark the corpus " + corpus);
+            Path root = BenchmarkCorpus.copy(BenchmarkCorpus.directory(corpus), outputDirectory.resolve("work").resolve(corpus).toAbsolutePath());
+            reports.add(benchmark(corpus, root, maxInMemory));
+        }
+
+        Files.createDirectories(outputDirectory);
+        Path report = outputDirectory.resolve("end-to-end.json");
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(report.toFile(), reports);
+        for (CorpusReport corpusReport : reports) {
+            ParseReport parse = corpusReport.parse();
+            log.infof("%s: parsed %d files in %d ms (%.0f files/s, heap peak %d MB, %d LSTs in memory at most)",
+                corpusReport.corpus(), parse.files(), parse.parseMillis(), parse.filesPerSecond(), parse.peakHeapBytes() >> 20, parse.lstHighWaterMark());
+            for (RecipeReport recipe : corpusReport.recipes()) {
+                log.infof("%s: %s changes %d of %d candidate files, dry run in %d ms (heap peak %d MB), run in %d ms and written back in %d ms",
+                    corpusReport.corpus(), recipe.recipe(), recipe.changedFiles(), recipe.candidateFiles(), recipe.dryRunMillis(), recipe.peakHeapBytes() >> 20, recipe.runMillis(), recipe.writeBackMillis());
+            }
+        }
+        log.info("Wrote the report " + report);
+    }
+
+    private static CorpusReport benchmark(String corpus, Path root, int maxInMemory) throws IOException {
+        BenchmarkCorpus.resetPeakHeap();
+        BenchmarkCorpus.Sources sources = BenchmarkCorpus.load(root, maxInMemory);
+        SourceFileStore store = sources.store();
+        ParseReport parse = new ParseReport(store.size(), sources.discovery().millis(), sources.parseMillis(),
+            store.size() * 1000.0 / Math.max(1, sources.parseMillis()), BenchmarkCorpus.peakHeap(), store.highWaterMark());
+
+        List<Recipe> recipes = new ArrayList<>();
+        for (Class recipeClass : JavaRecipeCatalog.recipesToExpose) {
+            recipes.add(RecipeIntrospectionUtils.constructRecipe(recipeClass));
+        }
+
+        // Dry runs first, all of them on the code as it was parsed
+        List<RecipeReport> dryRuns = new ArrayList<>();
+        for (Recipe recipe : recipes) {
+            List<Path> candidates = sources.typeUsageIndex().candidatePaths(recipe, store.paths());
+            BenchmarkCorpus.resetPeakHeap();
+            long start = System.currentTimeMillis();
+            int changed = 0;
+            try (SpillingLargeSourceSet sourceSet = new SpillingLargeSourceSet(store, candidates)) {
+                Changeset changeset = recipe.run(sourceSet, new InMemoryExecutionContext(t -> {
+                })).getChangeset();
+                for (int page = 0; page < changeset.size(); page += maxInMemory) {
+                    for (Result result : changeset.getPage(page, maxInMemory)) {
+                        result.diff();
+                        changed++;
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.warn("Cannot dry run " + recipe.getName() + ": " + e.getMessage());
+                continue;
+            }
+            dryRuns.add(new RecipeReport(recipe.getName(), candidates.size(), changed, System.currentTimeMillis() - start, BenchmarkCorpus.peakHeap(), 0, 0));
+        }
+
+        // Then the recipes which change something are executed one after the other, like a migration plan
+        List<RecipeReport> reports = new ArrayList<>();
+        for (RecipeReport dryRun : dryRuns) {
+            if (dryRun.changedFiles() == 0) {
+                reports.add(dryRun);
+                continue;
+            }
+            Recipe recipe = recipes.stream().filter(r -> r.getName().equals(dryRun.recipe())).findFirst().orElseThrow();
+            long runMillis;
+            long writeBackMillis = 0;
+            try (SpillingLargeSourceSet sourceSet = new SpillingLargeSourceSet(store, sources.typeUsageIndex().candidatePaths(recipe, store.paths()))) {
+                long start = System.currentTimeMillis();
+                Changeset changeset = recipe.run(sourceSet, new InMemoryExecutionContext(t -> {
+                })).getChangeset();
+                runMillis = System.currentTimeMillis() - start;
+                for (int page = 0; page < changeset.size(); page += maxInMemory) {
+                    List<Result> results = changeset.getPage(page, maxInMemory);
+                    start = System.currentTimeMillis();
+                    for (Result result : results) {
+                        writeResult(root, result);
+                    }
+                    store.update(results);
+                    sources.typeUsageIndex().update(results);
+                    writeBackMillis += System.currentTimeMillis() - start;
+                }
+            }
+            reports.add(new RecipeReport(dryRun.recipe(), dryRun.candidateFiles(), dryRun.changedFiles(), dryRun.dryRunMillis(), dryRun.peakHeapBytes(), runMillis, writeBackMillis));
+        }
+        return new CorpusReport(corpus, parse, reports, store.reparsed());
+    }
+
+    private static void writeResult(Path root, Result result) throws IOException {
+        if (result.getAfter() == null) {
+            Files.deleteIfExists(root.resolve(result.getBefore().getSourcePath()));
+        } else {
+            Path absolutePath = root.resolve(result.getAfter().getSourcePath());
+            if (result.getBefore() != null && !result.getBefore().getSourcePath().equals(result.getAfter().getSourcePath())) {
+                Files.deleteIfExists(root.resolve(result.getBefore().getSourcePath()));
+            }
+            Files.createDirectories(absolutePath.getParent());
+            Files.writeString(absolutePath, result.getAfter().printAll(), result.getAfter().getCharset() == null ? StandardCharsets.UTF_8 : result.getAfter().getCharset());
+        }
+    }
+}
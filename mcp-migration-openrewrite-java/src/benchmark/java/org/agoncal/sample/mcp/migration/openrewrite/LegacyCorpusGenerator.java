@@ -0,0 +1,422 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Generates a large legacy application to migrate: a multi-module Maven build whose compilable Java classes mix the
+ * patterns of `mcp-migration-legacy` (`Thread.stop()`, URL and Locale constructors, `Logger.global`, JPA entities
+ * without default constructor, servlets, security managers...) with plain code. The number of methods of the classes
+ * follows a log-normal distribution, so most classes are small and a few are very large, like in real applications.
+ * <p>
+ * The same seed always generates the same files, so benchmarks and stress tests of all the modules can run on the same
+ * inputs. Arguments: the directory, the number of Java files, the number of modules (one per 500 files by default) and
+ * the seed (42 by default).
+ */
+public class LegacyCorpusGenerator {
+
+    private static final Logger log = Logger.getLogger(LegacyCorpusGenerator.class);
+
+    static final long DEFAULT_SEED = 42;
+    static final String MANIFEST = "corpus.properties";
+    private static final String GROUP_ID = "org.agoncal.sample.legacy.corpus";
+    private static final int CLASSES_PER_PACKAGE = 50;
+    // Median and spread of the number of methods per class
+    private static final double METHODS_MEDIAN = 4;
+    private static final double METHODS_SIGMA = 0.9;
+    private static final int MAX_METHODS = 150;
+    // Share of the methods using a legacy pattern, the others are plain code
+    private static final double LEGACY_RATIO = 0.3;
+
+    private final long seed;
+    private final Random random;
+
+    LegacyCorpusGenerator(long seed) {
+        this.seed = seed;
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args[0]);
+        int files = Integer.parseInt(args[1]);
+        int modules = args.length > 2 ? Integer.parseInt(args[2]) : defaultModules(files);
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_SEED;
+        long start = System.currentTimeMillis();
+        new LegacyCorpusGenerator(seed).generate(directory, files, modules);
+        log.info("Generated " + files + " Java files in " + modules + " modules with the seed " + seed + " in " + directory + " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    static int defaultModules(int files) {
+        return Math.max(1, files / 500);
+    }
+
+    /**
+     * Writes the corpus into the directory, which must not exist or be empty. The manifest is written last, so a corpus
+     * with a manifest is complete.
+     */
+    void generate(Path directory, int files, int modules) throws IOException {
+        Files.createDirectories(directory);
+        List<String> moduleNames = new ArrayList<>();
+        for (int module = 0; module < modules; module++) {
+            moduleNames.add("module-" + module);
+        }
+        Files.writeString(directory.resolve("pom.xml"), parentPom(moduleNames));
+
+        for (int module = 0; module < modules; module++) {
+            Path moduleDirectory = directory.resolve(moduleNames.get(module));
+            // Files are spread evenly, the first modules taking the remainder
+            int moduleFiles = files / modules + (module < files % modules ? 1 : 0);
+            // Each module but the first depends on one of the previous ones, so the modules form a graph
+            String dependency = module == 0 ? null : moduleNames.get(random.nextInt(module));
+            Files.createDirectories(moduleDirectory.resolve("src/main/resources"));
+            Files.writeString(moduleDirectory.resolve("pom.xml"), modulePom(moduleNames.get(module), dependency));
+            Files.writeString(moduleDirectory.resolve("src/main/resources/beans.xml"), BEANS_XML);
+            Files.writeString(moduleDirectory.resolve("src/main/resources/application.properties"), "legacy.module=" + moduleNames.get(module) + "\nlegacy.url=http://example.com\n");
+            for (int i = 0; i < moduleFiles; i++) {
+                String packageName = GROUP_ID + ".m" + module + ".p" + (i / CLASSES_PER_PACKAGE);
+                String className = "Legacy" + i;
+                Path javaFile = moduleDirectory.resolve("src/main/java/" + packageName.replace('.', '/') + "/" + className + ".java");
+                Files.createDirectories(javaFile.getParent());
+                Files.writeString(javaFile, javaClass(packageName, className));
+            }
+        }
+
+        Properties manifest = new Properties();
+        manifest.setProperty("seed", String.valueOf(seed));
+        manifest.setProperty("files", String.valueOf(files));
+        manifest.setProperty("modules", String.valueOf(modules));
+        try (var writer = Files.newBufferedWriter(directory.resolve(MANIFEST))) {
+            manifest.store(writer, "Generated by " + LegacyCorpusGenerator.class.getName());
+        }
+    }
+
+    /**
+     * Returns whether the directory holds a complete corpus generated with these parameters.
+     */
+    static boolean isGenerated(Path directory, int files, int modules, long seed) throws IOException {
+        Path manifestFile = directory.resolve(MANIFEST);
+        if (!Files.exists(manifestFile)) {
+            return false;
+        }
+        Properties manifest = new Properties();
+        try (var reader = Files.newBufferedReader(manifestFile)) {
+            manifest.load(reader);
+        }
+        return String.valueOf(files).equals(manifest.getProperty("files"))
+            && String.valueOf(modules).equals(manifest.getProperty("modules"))
+            && String.valueOf(seed).equals(manifest.getProperty("seed"));
+    }
+
+    private String javaClass(String packageName, String className) {
+        // A few classes are entities, servlets or security managers, like in mcp-migration-legacy
+        int kind = random.nextInt(20);
+        if (kind == 0) {
+            return entity(packageName, className);
+        }
+        String superclass = switch (kind) {
+            case 1 -> " extends javax.servlet.http.HttpServlet";
+            case 2 -> " extends SecurityManager";
+            default -> "";
+        };
+
+        TreeSet<String> imports = new TreeSet<>();
+        StringBuilder body = new StringBuilder();
+        if (kind == 1) {
+            imports.add("java.io.IOException");
+            imports.add("javax.servlet.http.HttpServletRequest");
+            imports.add("javax.servlet.http.HttpServletResponse");
+            body.append("""
+
+                    @Override
+                    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                        response.getWriter().write("%s");
+                    }
+                """.formatted(className));
+        } else if (kind == 2) {
+            imports.add("java.net.InetAddress");
+            body.append("""
+
+                    @Override
+                    public void checkMulticast(InetAddress address, byte ttl) {
+                        // Deprecated method
+                    }
+                """);
+        }
+        int methods = methodCount();
+        for (int method = 0; method < methods; method++) {
+            if (random.nextDouble() < LEGACY_RATIO) {
+                LegacyPattern pattern = LEGACY_PATTERNS.get(random.nextInt(LEGACY_PATTERNS.size()));
+                imports.addAll(pattern.imports());
+                body.append(pattern.code().replace("%d", String.valueOf(method)));
+            } else {
+                body.append(plainMethod(method));
+            }
+        }
+
+        StringBuilder source = new StringBuilder("package ").append(packageName).append(";\n\n");
+        for (String anImport : imports) {
+            source.append("import ").append(anImport).append(";\n");
+        }
+        if (!imports.isEmpty()) {
+            source.append('\n');
+        }
+        source.append("public class ").append(className).append(superclass).append(" {\n\n");
+        source.append("    private String name = \"").append(className.toLowerCase()).append("\";\n");
+        source.append("    private int count = ").append(random.nextInt(100)).append(";\n");
+        return source.append(body).append("}\n").toString();
+    }
+
+    private int methodCount() {
+        double methods = Math.exp(Math.log(METHODS_MEDIAN) + METHODS_SIGMA * random.nextGaussian());
+        return (int) Math.max(1, Math.min(MAX_METHODS, Math.round(methods)));
+    }
+
+    private String plainMethod(int method) {
+        return switch (random.nextInt(3)) {
+            case 0 -> """
+
+                    public int compute%d(int value) {
+                        int result = value * count;
+                        for (int i = 0; i < %d; i++) {
+                            result += i;
+                        }
+                        return result;
+                    }
+                """.formatted(method, random.nextInt(10) + 1);
+            case 1 -> """
+
+                    public String describe%d() {
+                        StringBuilder builder = new StringBuilder(name);
+                        builder.append('-').append(count + %d);
+                        return builder.toString();
+                    }
+                """.formatted(method, method);
+            default -> """
+
+                    public boolean matches%d(String other) {
+                        return other != null && other.equals(name + "%d");
+                    }
+                """.formatted(method, method);
+        };
+    }
+
+    private String entity(String packageName, String className) {
+        return """
+            package %s;
+
+            import javax.persistence.Entity;
+            import javax.persistence.Id;
+            import javax.persistence.Temporal;
+            import javax.persistence.TemporalType;
+            import java.sql.Date;
+
+            @Entity
+            public class %s {
+
+                @Id
+                private Long id;
+
+                @Temporal(TemporalType.DATE)
+                private Date legacyDate;
+
+                public %s(Long id, Date legacyDate) {
+                    this.id = id;
+                    this.legacyDate = legacyDate;
+                }
+
+                public Long getId() {
+                    return id;
+                }
+
+                public Date getLegacyDate() {
+                    return legacyDate;
+                }
+            }
+            """.formatted(packageName, className, className);
+    }
+
+    private String parentPom(List<String> moduleNames) {
+        StringBuilder modules = new StringBuilder();
+        for (String moduleName : moduleNames) {
+            modules.append("    <module>").append(moduleName).append("</module>\n");
+        }
+        return """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <project xmlns="http://maven.apache.org/POM/4.0.0" xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+                     xsi:schemaLocation="http://maven.apache.org/POM/4.0.0 https://maven.apache.org/xsd/maven-4.0.0.xsd">
+              <modelVersion>4.0.0</modelVersion>
+              <groupId>%s</groupId>
+              <artifactId>parent</artifactId>
+              <version>1.0.0-SNAPSHOT</version>
+              <packaging>pom</packaging>
+
+              <modules>
+            %s  </modules>
+
+              <properties>
+                <maven.compiler.source>1.8</maven.compiler.source>
+                <maven.compiler.target>1.8</maven.compiler.target>
+                <project.build.sourceEncoding>UTF-8</project.build.sourceEncoding>
+              </properties>
+
+              <dependencyManagement>
+                <dependencies>
+                  <dependency>
+                    <groupId>javax.persistence</groupId>
+                    <artifactId>javax.persistence-api</artifactId>
+                    <version>2.2</version>
+                  </dependency>
+                  <dependency>
+                    <groupId>javax.servlet</groupId>
+                    <artifactId>javax.servlet-api</artifactId>
+                    <version>3.1.0</version>
+                  </dependency>
+                  <dependency>
+                    <groupId>junit</groupId>
+                    <artifactId>junit</artifactId>
+                    <version>4.12</version>
+                  </dependency>
+                </dependencies>
+              </dependencyManagement>
+            </project>
+            """.formatted(GROUP_ID, modules);
+    }
+
+    private String modulePom(String moduleName, String dependency) {
+        String moduleDependency = dependency == null ? "" : """
+                <dependency>
+                  <groupId>%s</groupId>
+                  <artifactId>%s</artifactId>
+                  <version>${project.version}</version>
+                </dependency>
+            """.formatted(GROUP_ID, dependency);
+        return """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <project xmlns="http://maven.apache.org/POM/4.0.0" xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+                     xsi:schemaLocation="http://maven.apache.org/POM/4.0.0 https://maven.apache.org/xsd/maven-4.0.0.xsd">
+              <modelVersion>4.0.0</modelVersion>
+              <parent>
+                <groupId>%s</groupId>
+                <artifactId>parent</artifactId>
+                <version>1.0.0-SNAPSHOT</version>
+              </parent>
+
+              <artifactId>%s</artifactId>
+
+              <dependencies>
+            %s    <dependency>
+                  <groupId>javax.persistence</groupId>
+                  <artifactId>javax.persistence-api</artifactId>
+                  <scope>provided</scope>
+                </dependency>
+                <dependency>
+                  <groupId>javax.servlet</groupId>
+                  <artifactId>javax.servlet-api</artifactId>
+                  <scope>provided</scope>
+                </dependency>
+                <dependency>
+                  <groupId>junit</groupId>
+                  <artifactId>junit</artifactId>
+                  <scope>test</scope>
+                </dependency>
+              </dependencies>
+            </project>
+            """.formatted(GROUP_ID, moduleName, moduleDependency);
+    }
+
+    /**
+     * Method using a legacy API, `%d` being replaced by the index of the method to keep the names unique.
+     */
+    private record LegacyPattern(List<String> imports, String code) {
+    }
+
+    private static final List<LegacyPattern> LEGACY_PATTERNS = List.of(
+        new LegacyPattern(List.of(), """
+
+                public void stopThread%d(Thread thread) {
+                    thread.stop();
+                }
+            """),
+        new LegacyPattern(List.of("java.net.URL"), """
+
+                public URL url%d() throws Exception {
+                    return new URL("http://example.com");
+                }
+            """),
+        new LegacyPattern(List.of("java.util.Locale"), """
+
+                public Locale locale%d() {
+                    return new Locale("en", "US");
+                }
+            """),
+        new LegacyPattern(List.of("java.util.logging.Logger"), """
+
+                public void log%d() {
+                    Logger.global.info("Using deprecated Logger.global field");
+                }
+            """),
+        new LegacyPattern(List.of("java.util.Collections", "java.util.List"), """
+
+                public List<String> singleton%d() {
+                    return Collections.singletonList(name);
+                }
+            """),
+        new LegacyPattern(List.of("java.util.logging.Level", "java.util.logging.LogRecord"), """
+
+                public LogRecord record%d() {
+                    LogRecord logRecord = new LogRecord(Level.ALL, name);
+                    logRecord.setMillis(System.currentTimeMillis());
+                    return logRecord;
+                }
+            """),
+        new LegacyPattern(List.of("java.net.URLDecoder"), """
+
+                public String decode%d() {
+                    return URLDecoder.decode("http://example.com/" + name);
+                }
+            """),
+        new LegacyPattern(List.of("java.sql.DriverManager"), """
+
+                public void logStream%d() {
+                    DriverManager.setLogStream(System.out);
+                }
+            """),
+        new LegacyPattern(List.of("java.util.ArrayList", "java.util.List"), """
+
+                public String first%d() {
+                    List<String> list = new ArrayList<>();
+                    list.add(name);
+                    return list.get(0);
+                }
+            """),
+        new LegacyPattern(List.of(), """
+
+                public boolean notEmpty%d() {
+                    return 0 < name.length();
+                }
+            """),
+        new LegacyPattern(List.of("java.util.Arrays"), """
+
+                public Integer[] array%d() {
+                    return (Integer[]) Arrays.asList(1, 2, count).toArray();
+                }
+            """)
+    );
+
+    private static final String BEANS_XML = """
+        <?xml version="1.0" encoding="UTF-8"?>
+        <beans xmlns="http://java.sun.com/xml/ns/javaee"
+               xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+               xsi:schemaLocation="http://java.sun.com/xml/ns/javaee http://java.sun.com/xml/ns/javaee/beans_1_0.xsd">
+        </beans>
+        """;
+}
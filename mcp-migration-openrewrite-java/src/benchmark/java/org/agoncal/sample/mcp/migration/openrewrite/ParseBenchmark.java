@@ -0,0 +1,84 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.agoncal.sample.mcp.migration.openrewrite.common.SourceDiscovery;
+import org.agoncal.sample.mcp.migration.openrewrite.common.SourceFileStore;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.java.JavaParser;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse throughput, in files per second, of the discovery and parsing done by the server at startup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParseBenchmark {
+
+    @Param({BenchmarkCorpus.LEGACY, "1000", "10000", "50000"})
+    public String corpus;
+
+    @Param("10000")
+    public int maxInMemory;
+
+    private Path root;
+    private List<Path> files;
+    private SourceParsers parsers;
+
+    /**
+     * Number of files parsed, reported by JMH as files per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ParsedFiles {
+        public long files;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            files = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void discover() throws IOException {
+        root = BenchmarkCorpus.directory(corpus);
+        ExecutionContext executionContext = new InMemoryExecutionContext(t -> {
+        });
+        files = new SourceDiscovery(root, SourceParsers::accept, 1024 * 1024).discover().files();
+        parsers = new SourceParsers(root, JavaParser.fromJavaVersion().classpath(SourceParsers.javaSourceRoots(files)).build(), executionContext);
+    }
+
+    @Benchmark
+    public SourceFileStore parse(ParsedFiles parsed) {
+        SourceFileStore store = new SourceFileStore(root, maxInMemory, parsers::parse);
+        TypeUsageIndex typeUsageIndex = new TypeUsageIndex();
+        store.load(files, typeUsageIndex::add);
+        parsed.files += store.size();
+        return store;
+    }
+
+    @Benchmark
+    public SourceDiscovery.Report discovery() {
+        return new SourceDiscovery(root, SourceParsers::accept, 1024 * 1024).discover();
+    }
+}
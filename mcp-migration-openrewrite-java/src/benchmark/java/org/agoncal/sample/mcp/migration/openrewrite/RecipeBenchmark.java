@@ -0,0 +1,79 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.agoncal.sample.mcp.migration.openrewrite.common.SourceFileStore;
+import org.agoncal.sample.mcp.migration.openrewrite.common.SpillingLargeSourceSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openrewrite.Changeset;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Recipe;
+import org.openrewrite.Result;
+import org.openrewrite.internal.RecipeIntrospectionUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a dry run of a recipe, as executed by the recipe tools: the recipe runs on the candidate files of the type
+ * usage index, and the diffs of the changes are computed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RecipeBenchmark {
+
+    @Param({BenchmarkCorpus.LEGACY, "1000", "10000", "50000"})
+    public String corpus;
+
+    @Param({
+        "org.openrewrite.java.migrate.lang.ThreadStopUnsupported",
+        "org.openrewrite.java.migrate.net.URLConstructorToURICreate",
+        "org.openrewrite.java.migrate.util.MigrateCollectionsUnmodifiableList",
+        "org.openrewrite.java.migrate.BeansXmlNamespace"
+    })
+    public String recipe;
+
+    @Param("10000")
+    public int maxInMemory;
+
+    private SourceFileStore store;
+    private Recipe recipeToRun;
+    private List<Path> candidates;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException, ClassNotFoundException {
+        BenchmarkCorpus.Sources sources = BenchmarkCorpus.load(BenchmarkCorpus.directory(corpus), maxInMemory);
+        store = sources.store();
+        recipeToRun = RecipeIntrospectionUtils.constructRecipe(Class.forName(recipe));
+        candidates = sources.typeUsageIndex().candidatePaths(recipeToRun, store.paths());
+    }
+
+    @Benchmark
+    public void dryRun(Blackhole blackhole) throws IOException {
+        try (SpillingLargeSourceSet sourceSet = new SpillingLargeSourceSet(store, candidates)) {
+            Changeset changeset = recipeToRun.run(sourceSet, new InMemoryExecutionContext(t -> {
+            })).getChangeset();
+            for (int start = 0; start < changeset.size(); start += maxInMemory) {
+                for (Result result : changeset.getPage(start, maxInMemory)) {
+                    blackhole.consume(result.diff());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.agoncal.sample.mcp.migration.openrewrite.common.SourceFileStore;
+import org.agoncal.sample.mcp.migration.openrewrite.common.SpillingLargeSourceSet;
+import org.jboss.logging.Logger;
+import org.openrewrite.Changeset;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Recipe;
+import org.openrewrite.Result;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+/**
+ * Dry runs recipes in parallel on a fork-join pool to tell which ones would change the application, and how much manual
+ * effort they would save. The recipes share the LSTs of the {@link SourceFileStore}, which are immutable, but each run
+ * has its own source set and execution context. Nothing is written to disk.
+ */
+class ImpactEstimator {
+
+    private static final Logger log = Logger.getLogger(ImpactEstimator.class);
+
+    private final SourceFileStore store;
+    // Paths of the files a recipe can possibly change
+    private final Function<Recipe, List<Path>> candidates;
+    private final int parallelism;
+
+    ImpactEstimator(SourceFileStore store, Function<Recipe, List<Path>> candidates, int parallelism) {
+        this.store = store;
+        this.candidates = candidates;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Impact of a recipe. The occurrences are the hunks of the diffs, and the estimated effort is the occurrences times
+     * the effort the recipe declares per occurrence. Recipes which cannot run are reported with the reason.
+     */
+    record RecipeImpact(String recipe, String tool, int files, int occurrences, long effortPerOccurrenceMinutes, long estimatedEffortMinutes, String skipped) {
+    }
+
+    /**
+     * Returns the impact of each recipe, ranked by estimated effort then by number of changed files, the skipped
+     * recipes last.
+     */
+    List<RecipeImpact> estimate(List<Recipe> recipes, Function<Recipe, String> toolNames) {
+        List<RecipeImpact> impacts = new ArrayList<>();
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+            List<ForkJoinTask<RecipeImpact>> tasks = new ArrayList<>();
+            for (Recipe recipe : recipes) {
+                tasks.add(pool.submit(() -> estimate(recipe, toolNames.apply(recipe))));
+            }
+            for (ForkJoinTask<RecipeImpact> task : tasks) {
+                impacts.add(task.join());
+            }
+        }
+        impacts.sort(Comparator.comparing((RecipeImpact impact) -> impact.skipped() != null)
+            .thenComparing(Comparator.comparingLong(RecipeImpact::estimatedEffortMinutes).reversed())
+            .thenComparing(Comparator.comparingInt(RecipeImpact::files).reversed())
+            .thenComparing(RecipeImpact::recipe));
+        return impacts;
+    }
+
+    private RecipeImpact estimate(Recipe recipe, String tool) {
+        Duration effortPerOccurrence = recipe.getEstimatedEffortPerOccurrence() == null ? Duration.ZERO : recipe.getEstimatedEffortPerOccurrence();
+        if (!isValid(recipe)) {
+            return new RecipeImpact(recipe.getName(), tool, 0, 0, effortPerOccurrence.toMinutes(), 0, "The recipe needs options");
+        }
+        long start = System.currentTimeMillis();
+        try (SpillingLargeSourceSet sourceSet = new SpillingLargeSourceSet(store, candidates.apply(recipe))) {
+            Changeset changeset = recipe.run(sourceSet, new InMemoryExecutionContext(t -> log.debug("Error while estimating " + recipe.getName(), t))).getChangeset();
+            int occurrences = 0;
+            for (int page = 0; page < changeset.size(); page += store.maxInMemory()) {
+                for (Result result : changeset.getPage(page, store.maxInMemory())) {
+                    occurrences += Math.max(1, hunks(result.diff()));
+                }
+            }
+            log.debug("Estimated the impact of " + recipe.getName() + " in " + (System.currentTimeMillis() - start) + " ms");
+            return new RecipeImpact(recipe.getName(), tool, changeset.size(), occurrences, effortPerOccurrence.toMinutes(), effortPerOccurrence.multipliedBy(occurrences).toMinutes(), null);
+        } catch (Exception e) {
+            log.warn("Cannot estimate the impact of " + recipe.getName() + ": " + e.getMessage());
+            return new RecipeImpact(recipe.getName(), tool, 0, 0, effortPerOccurrence.toMinutes(), 0, "The recipe failed: " + e.getMessage());
+        }
+    }
+
+    private static boolean isValid(Recipe recipe) {
+        try {
+            return recipe.validate().isValid();
+        } catch (RuntimeException e) {
+            // Some recipes fail to validate missing options instead of reporting them
+            return false;
+        }
+    }
+
+    static int hunks(String diff) {
+        int hunks = 0;
+        for (String line : diff.split("\n")) {
+            if (line.startsWith("@@")) {
+                hunks++;
+            }
+        }
+        return hunks;
+    }
+}
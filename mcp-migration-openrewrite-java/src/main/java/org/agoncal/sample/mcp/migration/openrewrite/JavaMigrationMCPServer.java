@@ -2,18 +2,34 @@ package org.agoncal.sample.mcp.migration.openrewrite;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkiverse.mcp.server.TextContent;
 import io.quarkiverse.mcp.server.Tool;
+import io.quarkiverse.mcp.server.ToolArg;
+import io.quarkiverse.mcp.server.ToolManager;
 import io.quarkiverse.mcp.server.ToolResponse;
+import io.quarkus.runtime.StartupEvent;
 import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Instance;
+import org.agoncal.sample.mcp.migration.openrewrite.common.DataTableStore;
+import org.agoncal.sample.mcp.migration.openrewrite.common.OptionJson;
+import org.agoncal.sample.mcp.migration.openrewrite.common.PathScope;
+import org.agoncal.sample.mcp.migration.openrewrite.common.RecipeJson;
+import org.agoncal.sample.mcp.migration.openrewrite.common.RecipeResults;
+import org.agoncal.sample.mcp.migration.openrewrite.common.RecipeToolArgs;
+import org.agoncal.sample.mcp.migration.openrewrite.common.SourceDiscovery;
+import org.agoncal.sample.mcp.migration.openrewrite.common.SourceFileStore;
+import org.agoncal.sample.mcp.migration.openrewrite.common.SourceRefresher;
+import org.agoncal.sample.mcp.migration.openrewrite.common.SpillingLargeSourceSet;
 import org.jboss.logging.Logger;
+import org.openrewrite.Changeset;
 import org.openrewrite.ExecutionContext;
 import org.openrewrite.InMemoryExecutionContext;
 import org.openrewrite.Recipe;
 import org.openrewrite.RecipeRun;
 import org.openrewrite.Result;
-import org.openrewrite.SourceFile;
 import org.openrewrite.config.OptionDescriptor;
-import org.openrewrite.internal.InMemoryLargeSourceSet;
+import org.openrewrite.config.RecipeDescriptor;
 import org.openrewrite.internal.RecipeIntrospectionUtils;
 import org.openrewrite.java.JavaParser;
 import org.openrewrite.java.migrate.BeansXmlNamespace;
@@ -22,13 +38,9 @@ import org.openrewrite.java.migrate.ChangeDefaultKeyStore;
 import org.openrewrite.java.migrate.IllegalArgumentExceptionToAlreadyConnectedException;
 import org.openrewrite.java.migrate.JREThrowableFinalMethods;
 import org.openrewrite.java.migrate.RemovedSecurityManagerMethods;
-import org.openrewrite.java.migrate.ReplaceComSunAWTUtilitiesMethods;
-import org.openrewrite.java.migrate.UpgradeJavaVersion;
-import org.openrewrite.java.migrate.UseJavaUtilBase64;
 import org.openrewrite.java.migrate.io.ReplaceFileInOrOutputStreamFinalizeWithClose;
 import org.openrewrite.java.migrate.jakarta.ApplicationPathWildcardNoLongerAccepted;
 import org.openrewrite.java.migrate.jakarta.RemoveBeanIsNullable;
-import org.openrewrite.java.migrate.jakarta.UpdateAnnotationAttributeJavaxToJakarta;
 import org.openrewrite.java.migrate.jakarta.UpdateBeanManagerMethods;
 import org.openrewrite.java.migrate.jakarta.UpdateGetRealPath;
 import org.openrewrite.java.migrate.javax.AddColumnAnnotation;
@@ -38,7 +50,6 @@ import org.openrewrite.java.migrate.javax.RemoveTemporalAnnotation;
 import org.openrewrite.java.migrate.lang.StringFormatted;
 import org.openrewrite.java.migrate.lang.ThreadStopUnsupported;
 import org.openrewrite.java.migrate.lang.UseStringIsEmptyRecipe;
-import org.openrewrite.java.migrate.lang.UseTextBlocks;
 import org.openrewrite.java.migrate.logging.MigrateLogRecordSetMillisToSetInstant;
 import org.openrewrite.java.migrate.logging.MigrateLoggerGlobalToGetGlobal;
 import org.openrewrite.java.migrate.net.MigrateURLDecoderDecode;
@@ -57,33 +68,58 @@ import org.openrewrite.java.migrate.util.UseMapOf;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
 
 public class JavaMigrationMCPServer {
 
     private static final Logger log = Logger.getLogger(JavaMigrationMCPServer.class);
+    // Serialized at build time by JavaRecipeCatalog
+    private static final String recipeCatalog = JavaRecipeCatalog.load();
+    // Recipe simple name -> name of the tool executing it
+    private static final Map<String, String> toolBindings = JavaRecipeCatalog.toolBindings();
     private static final String ROOT_APP_TO_MIGRATE = System.getenv("ROOT_APP_TO_MIGRATE");
     private static final Path ROOT_PATH = Paths.get(ROOT_APP_TO_MIGRATE);
     private static final File ROOT_DIRECTORY = Paths.get(ROOT_APP_TO_MIGRATE).toFile();
+    private static final int MAX_DIFF_LINES_PER_FILE = Integer.parseInt(Objects.requireNonNullElse(System.getenv("MAX_DIFF_LINES_PER_FILE"), "200"));
+    private static final int MAX_SOURCE_FILES_IN_MEMORY = Integer.parseInt(Objects.requireNonNullElse(System.getenv("MAX_SOURCE_FILES_IN_MEMORY"), "10000"));
+    // Larger files are most likely generated, and are not parsed
+    private static final long MAX_SOURCE_FILE_SIZE = Long.parseLong(Objects.requireNonNullElse(System.getenv("MAX_SOURCE_FILE_SIZE"), "1048576"));
+    private static final int MAX_RECIPE_RUNS_WITH_DATA_TABLES = Integer.parseInt(Objects.requireNonNullElse(System.getenv("MAX_RECIPE_RUNS_WITH_DATA_TABLES"), "10"));
+    // Recipes configured with the options given to `run_recipe` and kept to be run again
+    private static final int MAX_CONFIGURED_RECIPES = Integer.parseInt(Objects.requireNonNullElse(System.getenv("MAX_CONFIGURED_RECIPES"), "100"));
+    private static final Path DATA_TABLES_DIRECTORY = Paths.get(Objects.requireNonNullElse(System.getenv("DATA_TABLES_DIRECTORY"), System.getProperty("java.io.tmpdir") + "/mcp-migration-data-tables"));
+    private static final Path CHECKPOINTS_DIRECTORY = Paths.get(Objects.requireNonNullElse(System.getenv("CHECKPOINTS_DIRECTORY"), System.getProperty("user.home") + "/.mcp-migration/checkpoints"));
+    // Refreshes the sources before each recipe run, instead of waiting for the refresh_sources tool
+    private static final boolean AUTO_REFRESH_SOURCES = Boolean.parseBoolean(Objects.requireNonNullElse(System.getenv("AUTO_REFRESH_SOURCES"), "false"));
+    // Number of recipes dry run at the same time when estimating the impact of the migration
+    private static final int IMPACT_ESTIMATION_PARALLELISM = Integer.parseInt(Objects.requireNonNullElse(System.getenv("IMPACT_ESTIMATION_PARALLELISM"), String.valueOf(Runtime.getRuntime().availableProcessors())));
+    // Parses the pom.xml files as Maven POMs with their resolved dependencies, so the recipes migrating both the Java code
+    // and the build (e.g. `AddJaxwsRuntime`), the Maven recipes run with `run_recipe`, and the Maven tools, also served
+    // by this server, share this source set
+    private static final boolean RESOLVE_POM_XML_FILES = Boolean.parseBoolean(Objects.requireNonNullElse(System.getenv("RESOLVE_POM_XML_FILES"), "false"));
+    // Resolves again the POMs depending on a changed one concurrently, as the Maven server does
+    private static final int MAVEN_RESOLUTION_PARALLELISM = Integer.parseInt(Objects.requireNonNullElse(System.getenv("MAVEN_RESOLUTION_PARALLELISM"), String.valueOf(Runtime.getRuntime().availableProcessors())));
     private static ExecutionContext executionContext;
-    private static List<SourceFile> sourceFiles;
+    private static SourceFileStore sourceFiles;
+    // Null when the pom.xml files are parsed as plain XML
+    private static MavenReactor mavenReactor;
+    private static SourceRefresher sourceRefresher;
+    private static final DataTableStore dataTables = new DataTableStore(MAX_RECIPE_RUNS_WITH_DATA_TABLES);
+    private static TypeUsageIndex typeUsageIndex;
+    private static final RecipeRegistry recipeRegistry = new RecipeRegistry(MAX_CONFIGURED_RECIPES);
+    private static volatile RecipeCatalogIndex recipeCatalogIndex;
 
     @PostConstruct
     void findJavaFiles() {
-        log.info("Finding the number of Java files in the directory: " + ROOT_APP_TO_MIGRATE);
-        List<Path> javaFiles = new ArrayList<>();
-        if (ROOT_DIRECTORY.exists()) {
-            collectJavaFiles(ROOT_DIRECTORY, javaFiles);
-        } else {
-            System.err.println("Directory does not exist: " + ROOT_DIRECTORY);
-        }
-        log.info("Found " + javaFiles.size() + " Java files in the directory: " + ROOT_DIRECTORY);
-
         // Create execution context
         executionContext = new InMemoryExecutionContext(t -> t.printStackTrace());
 
@@ -91,722 +127,691 @@ public class JavaMigrationMCPServer {
         //System.setProperty("java.version", "11.0.2");
         log.info("Java Version " + System.getProperty("java.version"));
 
-        // Create Java parser
+        log.info("Finding the number of Java, XML, properties and YAML files in the directory: " + ROOT_APP_TO_MIGRATE);
+        if (!ROOT_DIRECTORY.exists()) {
+            System.err.println("Directory does not exist: " + ROOT_DIRECTORY);
+        }
+        SourceDiscovery sourceDiscovery = new SourceDiscovery(ROOT_PATH, SourceParsers::accept, MAX_SOURCE_FILE_SIZE);
+        SourceDiscovery.Report discovery = sourceDiscovery.discover();
+        List<Path> files = discovery.files();
+        log.info("Found " + files.size() + " Java, XML, properties and YAML files in the directory: " + ROOT_DIRECTORY + " (" + discovery + ")");
+
+        // Create Java parser, finding the types of the application in its source roots whatever the batch they are parsed in
         JavaParser javaParser = JavaParser.fromJavaVersion()
+            .classpath(SourceParsers.javaSourceRoots(files))
             .logCompilationWarningsAndErrors(true)
             .build();
+        SourceParsers parsers;
+        if (RESOLVE_POM_XML_FILES) {
+            MavenMigrationMCPServer.configureMavenResolution(executionContext);
+            List<Path> pomXmlFiles = files.stream().filter(SourceParsers::isPomXml).toList();
+            mavenReactor = new MavenReactor(ROOT_PATH, pomXmlFiles, executionContext, MAVEN_RESOLUTION_PARALLELISM);
+            parsers = new SourceParsers(ROOT_PATH, javaParser, mavenReactor::resolve, executionContext);
+            log.info("Resolving the " + pomXmlFiles.size() + " pom.xml files as Maven POMs");
+        } else {
+            parsers = new SourceParsers(ROOT_PATH, javaParser, executionContext);
+        }
 
-        // Parse the Java files
-        sourceFiles = javaParser.parse(javaFiles, ROOT_PATH, executionContext).collect(Collectors.toList());
-        log.info("Parsed " + sourceFiles.size() + " Java files in the root path: " + ROOT_PATH);
-    }
-
-    static final List<Class> recipesToExpose = List.of(
-        BeansXmlNamespace.class,
-        CastArraysAsListToList.class,
-        ChangeDefaultKeyStore.class,
-        IllegalArgumentExceptionToAlreadyConnectedException.class,
-        JREThrowableFinalMethods.class,
-        RemovedSecurityManagerMethods.class,
-        ReplaceComSunAWTUtilitiesMethods.class,
-        UpgradeJavaVersion.class,
-        UseJavaUtilBase64.class,
-        ThreadStopUnsupported.class,
-        ReplaceFileInOrOutputStreamFinalizeWithClose.class,
-        ApplicationPathWildcardNoLongerAccepted.class,
-        RemoveBeanIsNullable.class,
-        UpdateAnnotationAttributeJavaxToJakarta.class,
-        UpdateBeanManagerMethods.class,
-        UpdateGetRealPath.class,
-        AddColumnAnnotation.class,
-        URLConstructorToURICreate.class,
-        AddDefaultConstructorToEntityClass.class,
-        AddJaxwsRuntime.class,
-        RemoveTemporalAnnotation.class,
-        StringFormatted.class,
-        UseStringIsEmptyRecipe.class,
-        UseTextBlocks.class,
-        MigrateLoggerGlobalToGetGlobal.class,
-        MigrateLogRecordSetMillisToSetInstant.class,
-        MigrateURLDecoderDecode.class,
-        MigrateURLEncoderEncode.class,
-        URLConstructorsToNewURI.class,
-        MigrateDriverManagerSetLogStream.class,
-        IteratorNext.class,
-        ListFirstAndLast.class,
-        MigrateCollectionsSingletonList.class,
-        MigrateCollectionsSingletonMap.class,
-        MigrateCollectionsUnmodifiableList.class,
-        UseEnumSetOf.class,
-        UseLocaleOf.class,
-        UseMapOf.class
-    );
+        // Parse all the files into one source set, only keeping MAX_SOURCE_FILES_IN_MEMORY of them on the heap
+        sourceFiles = new SourceFileStore(ROOT_PATH, MAX_SOURCE_FILES_IN_MEMORY, parsers::parse);
+
+        // Index the types and methods used by each Java file while it is parsed
+        typeUsageIndex = new TypeUsageIndex();
+        sourceFiles.load(files, typeUsageIndex::add);
+        log.info("Parsed " + sourceFiles.size() + " files in the root path: " + ROOT_PATH);
+        sourceRefresher = new SourceRefresher(ROOT_PATH, sourceDiscovery, sourceFiles);
+        if (mavenReactor != null) {
+            // The Maven tools run on the POMs of this source set, and record their data tables along with the ones of this server
+            mavenReactor.attach(sourceFiles, MAX_SOURCE_FILES_IN_MEMORY);
+            MavenMigrationMCPServer.share(mavenReactor, sourceFiles, sourceRefresher, dataTables, executionContext, JavaMigrationMCPServer::refresh);
+        }
+    }
+
+    /**
+     * Serves the Maven tools too when the pom.xml files are resolved, except the ones this server declares as well. The
+     * source set is created with this server, the first time one of its tools or one of the Maven tools is called.
+     */
+    static void serveMavenTools(@Observes StartupEvent event, ToolManager toolManager, Instance<JavaMigrationMCPServer> server) {
+        if (RESOLVE_POM_XML_FILES) {
+            MavenTools.register(toolManager, JavaMigrationMCPServer.class, server::get);
+        }
+    }
+
+    /**
+     * Indexes the recipe catalog the first time it is searched, from the recipes named at build time.
+     */
+    private static RecipeCatalogIndex recipeCatalogIndex() {
+        // Not locked on the class, so a search does not wait for the recipe being executed
+        if (recipeCatalogIndex == null) {
+            synchronized (RecipeCatalogIndex.class) {
+                if (recipeCatalogIndex == null) {
+                    recipeCatalogIndex = RecipeCatalogIndex.load();
+                    log.info("Indexed " + recipeCatalogIndex.size() + " recipes of the catalog");
+                }
+            }
+        }
+        return recipeCatalogIndex;
+    }
 
     @Tool(name = "list_all_available_java_migration_tools", description = "Lists of the available Java migration tools.")
     public ToolResponse listAllTheAvailableJavaMigrationTools() throws JsonProcessingException {
-        log.info("List all the " + recipesToExpose.size() + " available Java Migration Tools");
+        log.info("List all the " + JavaRecipeCatalog.recipesToExpose.size() + " available Java Migration Tools");
         return ToolResponse.success(getRecipeAsJson());
     }
 
+    @Tool(name = "refresh_sources", description = "Parses again the files added or modified since they were indexed, for example by a commit, and drops the deleted ones, without restarting the server.")
+    public ToolResponse refreshSources() {
+        log.info("Refresh the sources");
+        return ToolResponse.success(refresh());
+    }
+
+    @Tool(name = "list_data_tables", description = "Lists the data tables produced by the last recipe runs, with their number of rows.")
+    public ToolResponse listDataTables() throws JsonProcessingException {
+        log.info("List the data tables");
+        return ToolResponse.success(new ObjectMapper().writeValueAsString(dataTables.runs()));
+    }
+
+    @Tool(name = "get_data_table_rows", description = "Returns a page of the rows of a data table produced by a recipe run, as JSON or CSV, without running the recipe again.")
+    public ToolResponse getDataTableRows(
+        @ToolArg(name = "Run ID", description = "The ID of the recipe run, as returned by the recipe or by list_data_tables.") int runId,
+        @ToolArg(name = "Table", description = "The fully qualified or simple name of the data table, such as `SourcesFileResults`.") String table,
+        @ToolArg(name = "Offset", description = "The index of the first row to return.", required = false, defaultValue = "0") int offset,
+        @ToolArg(name = "Limit", description = "The maximum number of rows to return.", required = false, defaultValue = "100") int limit,
+        @ToolArg(name = "Format", description = "The format of the rows, `json` or `csv`.", required = false, defaultValue = "json") String format) throws JsonProcessingException {
+        log.infov("Get the rows {0} to {1} of the data table {2} of the run {3}", offset, offset + limit, table, runId);
+        DataTableStore.Run run = dataTables.run(runId);
+        DataTableStore.Table dataTable = run == null ? null : DataTableStore.table(run, table);
+        if (dataTable == null) {
+            return ToolResponse.error("No data table " + table + " for the recipe run " + runId);
+        }
+        if ("csv".equalsIgnoreCase(format)) {
+            return ToolResponse.success(DataTableStore.rowsAsCsv(dataTable, offset, limit, executionContext));
+        }
+        return ToolResponse.success(DataTableStore.rowsAsJson(dataTable, offset, limit));
+    }
+
+    @Tool(name = "export_data_table", description = "Streams all the rows of a data table produced by a recipe run to a CSV file, and returns the path of the file.")
+    public ToolResponse exportDataTable(
+        @ToolArg(name = "Run ID", description = "The ID of the recipe run, as returned by the recipe or by list_data_tables.") int runId,
+        @ToolArg(name = "Table", description = "The fully qualified or simple name of the data table, such as `SourcesFileResults`.") String table) throws IOException {
+        log.infov("Export the data table {0} of the run {1}", table, runId);
+        DataTableStore.Run run = dataTables.run(runId);
+        DataTableStore.Table dataTable = run == null ? null : DataTableStore.table(run, table);
+        if (dataTable == null) {
+            return ToolResponse.error("No data table " + table + " for the recipe run " + runId);
+        }
+        Path csvFile = DataTableStore.exportCsv(run, dataTable, DATA_TABLES_DIRECTORY, executionContext);
+        return ToolResponse.success("Exported the " + dataTable.rows().size() + " rows of the data table " + dataTable.dataTable().getName() + " to " + csvFile);
+    }
+
+    @Tool(name = "describe_recipe", description = "Describes any OpenRewrite recipe available on the classpath, with the options it accepts.")
+    public ToolResponse describeRecipe(
+        @ToolArg(name = "Name", description = "The fully qualified name of the recipe, such as `org.openrewrite.java.migrate.UpgradeToJava21`.") String name) throws JsonProcessingException {
+        log.info("Describe the recipe " + name);
+        RecipeDescriptor descriptor;
+        try {
+            descriptor = recipeRegistry.descriptor(name);
+        } catch (IllegalArgumentException e) {
+            return ToolResponse.error(e.getMessage());
+        }
+        List<OptionJson> jsonOptions = new ArrayList<>();
+        for (OptionDescriptor optionDescriptor : descriptor.getOptions()) {
+            jsonOptions.add(new OptionJson(optionDescriptor.getName(), optionDescriptor.getDisplayName(), optionDescriptor.getDescription(), optionDescriptor.getType()));
+        }
+        RecipeJson recipeJson = new RecipeJson("Java Migration", descriptor.getName(), "run_recipe", descriptor.getDisplayName(), descriptor.getDescription(), jsonOptions);
+        return ToolResponse.success(new ObjectMapper().writeValueAsString(recipeJson));
+    }
+
+    @Tool(name = "run_recipe", description = "Runs any OpenRewrite recipe available on the classpath, not only the ones exposed as tools. Use `describe_recipe` to know the options of the recipe.")
+    public ToolResponse runRecipe(
+        @ToolArg(name = "Name", description = "The fully qualified name of the recipe, such as `org.openrewrite.java.migrate.UpgradeToJava21`.") String name,
+        @ToolArg(name = "Options", description = "The options of the recipe as a JSON object, such as `{\"version\": 21}`.", required = false) String options,
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
+        log.infov("Execute the recipe {0} ({1})", name, options);
+        Recipe recipe;
+        try {
+            recipe = recipeRegistry.recipe(name, options);
+        } catch (IllegalArgumentException e) {
+            return ToolResponse.error(e.getMessage());
+        }
+        return executeRecipe(recipe, dryRun, include, exclude);
+    }
+
+    @Tool(name = "execute_migration_plan", description = "Executes an ordered plan of recipes one after the other. A checkpoint is written after each step, so executing the same plan again, e.g. after a restart, resumes after the last completed step. A failed step is not rolled back, it runs again on top of the changes it wrote before failing.")
+    public ToolResponse executeMigrationPlan(
+        @ToolArg(name = "Plan", description = "The steps of the plan as a JSON array, such as `[{\"recipe\": \"org.openrewrite.java.migrate.jakarta.JavaxMigrationToJakarta\"}, {\"recipe\": \"org.openrewrite.java.migrate.UpgradeJavaVersion\", \"options\": {\"version\": 21}}]`.") String plan,
+        @ToolArg(name = "Restart", description = "Discards the checkpoint of the plan and executes it from the first step.", required = false, defaultValue = "false") boolean restart) throws IOException {
+        log.info("Execute the migration plan " + plan);
+        MigrationPlan migrationPlan;
+        List<Recipe> recipes = new ArrayList<>();
+        try {
+            migrationPlan = new MigrationPlan(ROOT_PATH, MigrationPlan.parse(plan), CHECKPOINTS_DIRECTORY);
+            // Configure all the recipes first, so an invalid step does not stop the plan midway
+            for (MigrationPlan.Step step : migrationPlan.steps()) {
+                recipes.add(recipeRegistry.recipe(step.recipe(), step.options().isEmpty() ? null : new ObjectMapper().writeValueAsString(step.options())));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            return ToolResponse.error("Invalid plan: " + e.getMessage());
+        }
+
+        if (restart) {
+            migrationPlan.discardCheckpoint();
+        }
+        MigrationPlan.Checkpoint checkpoint = migrationPlan.checkpoint();
+        int alreadyCompleted = checkpoint == null ? 0 : checkpoint.completed().size();
+        if (checkpoint != null) {
+            List<Path> modified = migrationPlan.modifiedSince(checkpoint);
+            if (!modified.isEmpty()) {
+                return ToolResponse.error("Cannot resume the plan " + migrationPlan.id() + " after its step " + alreadyCompleted + ", these files have been modified since: " + modified + ". Execute it again with Restart to start over.");
+            }
+        }
+        List<String> report = new ArrayList<>();
+        if (alreadyCompleted > 0) {
+            report.add("Resumed the plan " + migrationPlan.id() + " after its step " + alreadyCompleted + " completed by a previous execution.");
+        }
+        // No other tool changes the sources between the steps of the plan
+        synchronized (JavaMigrationMCPServer.class) {
+            if (AUTO_REFRESH_SOURCES) {
+                refresh();
+            }
+            try {
+                for (MigrationPlan.CompletedStep completed : migrationPlan.execute((index, step) -> applyRecipe(recipes.get(index)))) {
+                    report.add("Step " + completed.step() + " " + completed.recipe() + " changed " + completed.changedFiles().size() + " files.");
+                }
+            } catch (IOException | RuntimeException e) {
+                log.error("The plan " + migrationPlan.id() + " failed", e);
+                report.add("The plan failed: " + e.getMessage() + ". The changes the failed step wrote are left as they are, execute the plan again to run this step again on top of them and resume.");
+                return ToolResponse.error(String.join("\n", report));
+            }
+        }
+        report.add("Completed the " + migrationPlan.steps().size() + " steps of the plan " + migrationPlan.id() + " on the code located in " + ROOT_APP_TO_MIGRATE + ".");
+        return ToolResponse.success(String.join("\n", report));
+    }
+
+    @Tool(name = "search_recipes", description = "Searches the OpenRewrite recipe catalog by keywords found in the name, description or options of the recipes. Keywords can be prefixes, such as `jaka` for Jakarta. The recipes available on the classpath are returned with their name, to run them with `run_recipe`.")
+    public ToolResponse searchRecipes(
+        @ToolArg(name = "Query", description = "The keywords to search for, all of them have to match.", required = false) String query,
+        @ToolArg(name = "Tags", description = "Comma separated tags the recipes must have, such as `java`, `spring` or `migrate-java`.", required = false) String tags,
+        @ToolArg(name = "Limit", description = "The maximum number of recipes to return.", required = false, defaultValue = "10") int limit) throws JsonProcessingException {
+        log.infov("Search the recipes matching {0} with the tags {1}", query, tags);
+        long start = System.nanoTime();
+        List<RecipeCatalogIndex.SearchResult> results = recipeCatalogIndex().search(query, tags == null || tags.isBlank() ? null : Arrays.asList(tags.split(",")), limit);
+        log.info("Found " + results.size() + " recipes in " + (System.nanoTime() - start) / 1000 + " µs");
+        return ToolResponse.success(new ObjectMapper().writeValueAsString(results));
+    }
+
+    @Tool(name = "estimate_migration_impact", description = "Dry runs all the Java migration tools, without writing anything to disk, and ranks them by the manual effort they would save, with the number of files and occurrences each of them would change.")
+    public ToolResponse estimateMigrationImpact(
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws JsonProcessingException {
+        log.info("Estimate the impact of the " + JavaRecipeCatalog.recipesToExpose.size() + " Java migration tools");
+        PathScope scope;
+        try {
+            scope = PathScope.of(include, exclude);
+        } catch (IllegalArgumentException e) {
+            return ToolResponse.error("Invalid include or exclude glob: " + e.getMessage());
+        }
+        List<Recipe> recipes = new ArrayList<>();
+        for (Class recipeClass : JavaRecipeCatalog.recipesToExpose) {
+            recipes.add(RecipeIntrospectionUtils.constructRecipe(recipeClass));
+        }
+        // Only the selection of the files is locked, the recipes are dry run on a snapshot while the other tools go on
+        SourceFileStore snapshot;
+        Map<Recipe, List<Path>> candidates = new HashMap<>();
+        synchronized (JavaMigrationMCPServer.class) {
+            if (AUTO_REFRESH_SOURCES) {
+                log.info(refresh());
+            }
+            List<Path> paths = scope.filter(sourceFiles.paths());
+            for (Recipe recipe : recipes) {
+                candidates.put(recipe, typeUsageIndex.candidatePaths(recipe, paths));
+            }
+            snapshot = sourceFiles.snapshot();
+        }
+        long start = System.currentTimeMillis();
+        ImpactEstimator estimator = new ImpactEstimator(snapshot, candidates::get, IMPACT_ESTIMATION_PARALLELISM);
+        List<ImpactEstimator.RecipeImpact> impacts = estimator.estimate(recipes, recipe -> toolBindings.getOrDefault(recipe.getClass().getSimpleName(), JavaRecipeCatalog.RUN_RECIPE));
+        log.info("Estimated the impact of " + recipes.size() + " recipes in " + (System.currentTimeMillis() - start) + " ms");
+        return ToolResponse.success(new ObjectMapper().writeValueAsString(impacts));
+    }
+
     @Tool(name = "beans_xml_namespace", description = "Change `beans.xml` `schemaLocation` to match XML namespace. Set the `schemaLocation` that corresponds to the `xmlns` set in `beans.xml` files.")
-    public ToolResponse executeBeansXmlNamespaceRecipe() throws IOException {
+    public ToolResponse executeBeansXmlNamespaceRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute BeansXmlNamespace Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(BeansXmlNamespace.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(BeansXmlNamespace.class), dryRun, include, exclude);
     }
 
     @Tool(name = "cast_arrays_as_list_to_list", description = "Remove explicit casts on `Arrays.asList(..).toArray()`. Convert code like `(Integer[]) Arrays.asList(1, 2, 3).toArray()` to `Arrays.asList(1, 2, 3).toArray(new Integer[0])`.")
-    public ToolResponse executeCastArraysAsListToListRecipe() throws IOException {
+    public ToolResponse executeCastArraysAsListToListRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute CastArraysAsListToList Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(CastArraysAsListToList.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(CastArraysAsListToList.class), dryRun, include, exclude);
     }
 
     @Tool(name = "change_default_key_store", description = "Return String `jks` when  `KeyStore.getDefaultType()` is called. In Java 11 the default keystore was updated from JKS to PKCS12. As a result, applications relying on KeyStore.getDefaultType() may encounter issues after migrating, unless their JKS keystore has been converted to PKCS12. This returns default key store of `jks` when `KeyStore.getDefaultType()` method is called to use the pre Java 11 default keystore.")
-    public ToolResponse executeChangeDefaultKeyStoreRecipe() throws IOException {
+    public ToolResponse executeChangeDefaultKeyStoreRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute ChangeDefaultKeyStore Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(ChangeDefaultKeyStore.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(ChangeDefaultKeyStore.class), dryRun, include, exclude);
     }
 
     @Tool(name = "illegal_argument_exception_to_already_connected_exception", description = "Replace `IllegalArgumentException` with `AlreadyConnectedException` for DatagramChannel.send() to ensure compatibility with Java 11+.")
-    public ToolResponse executeIllegalArgumentExceptionToAlreadyConnectedExceptionRecipe() throws IOException {
+    public ToolResponse executeIllegalArgumentExceptionToAlreadyConnectedExceptionRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute IllegalArgumentExceptionToAlreadyConnectedException Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(IllegalArgumentExceptionToAlreadyConnectedException.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(IllegalArgumentExceptionToAlreadyConnectedException.class), dryRun, include, exclude);
     }
 
     @Tool(name = "jre_throwable_final_methods", description = "Rename final method declarations `getSuppressed()` and `addSuppressed(Throwable exception)` in classes that extend `Throwable`")
-    public ToolResponse executeJREThrowableFinalMethodsRecipe() throws IOException {
+    public ToolResponse executeJREThrowableFinalMethodsRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute JREThrowableFinalMethods Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(JREThrowableFinalMethods.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(JREThrowableFinalMethods.class), dryRun, include, exclude);
     }
 
     @Tool(name = "removed_security_manager_methods", description = "Replace deprecated methods in`SecurityManager`. Replace `SecurityManager` methods `checkAwtEventQueueAccess()`, `checkSystemClipboardAccess()`, `checkMemberAccess()` and `checkTopLevelWindow()` deprecated in Java SE 11 by `checkPermission(new java.security.AllPermission())`.")
-    public ToolResponse executeRemovedSecurityManagerMethodsRecipe() throws IOException {
+    public ToolResponse executeRemovedSecurityManagerMethodsRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute RemovedSecurityManagerMethods Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(RemovedSecurityManagerMethods.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(RemovedSecurityManagerMethods.class), dryRun, include, exclude);
     }
 
     @Tool(name = "thread_stop_unsupported", description = "Replace `Thread.resume()`, `Thread.stop()`, and `Thread.suspend()` with `throw new UnsupportedOperationException()`")
-    public ToolResponse executeThreadStopUnsupportedRecipe() throws IOException {
+    public ToolResponse executeThreadStopUnsupportedRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute ThreadStopUnsupported Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(ThreadStopUnsupported.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(ThreadStopUnsupported.class), dryRun, include, exclude);
     }
 
     @Tool(name = "replace_file_in_or_output_stream_finalize_with_close", description = "Replace invocations of `finalize()` on `FileInputStream` and `FileOutputStream` with `close()`. Replace invocations of the deprecated `finalize()` method on `FileInputStream` and `FileOutputStream` with `close()`.")
-    public ToolResponse executeReplaceFileInOrOutputStreamFinalizeWithCloseRecipe() throws IOException {
+    public ToolResponse executeReplaceFileInOrOutputStreamFinalizeWithCloseRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute ReplaceFileInOrOutputStreamFinalizeWithClose Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(ReplaceFileInOrOutputStreamFinalizeWithClose.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(ReplaceFileInOrOutputStreamFinalizeWithClose.class), dryRun, include, exclude);
     }
 
     @Tool(name = "application_path_wildcard_no_longer_accepted", description = "Remove trailing `/*` from `jakarta.ws.rs.ApplicationPath` values.")
-    public ToolResponse executeApplicationPathWildcardNoLongerAcceptedRecipe() throws IOException {
+    public ToolResponse executeApplicationPathWildcardNoLongerAcceptedRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute ApplicationPathWildcardNoLongerAccepted Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(ApplicationPathWildcardNoLongerAccepted.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(ApplicationPathWildcardNoLongerAccepted.class), dryRun, include, exclude);
     }
 
     @Tool(name = "remove_bean_is_nullable", description = "Remove `Bean.isNullable()`. `Bean.isNullable()` has been removed in CDI 4.0.0, and now always returns `false`.")
-    public ToolResponse executeRemoveBeanIsNullableRecipe() throws IOException {
+    public ToolResponse executeRemoveBeanIsNullableRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute RemoveBeanIsNullable Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(RemoveBeanIsNullable.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(RemoveBeanIsNullable.class), dryRun, include, exclude);
     }
 
     @Tool(name = "update_bean_manager_methods", description = "Update `fireEvent()` and `createInjectionTarget()` calls.  Updates `BeanManager.fireEvent()` or `BeanManager.createInjectionTarget()`.")
-    public ToolResponse executeUpdateBeanManagerMethodsRecipe() throws IOException {
+    public ToolResponse executeUpdateBeanManagerMethodsRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute UpdateBeanManagerMethods Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(UpdateBeanManagerMethods.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(UpdateBeanManagerMethods.class), dryRun, include, exclude);
     }
 
     @Tool(name = "update_get_real_path", description = "Updates `getRealPath()` to call `getContext()` followed by `getRealPath()`. Updates `getRealPath()` for `jakarta.servlet.ServletRequest` and `jakarta.servlet.ServletRequestWrapper` to use `ServletContext.getRealPath(String)`.")
-    public ToolResponse executeUpdateGetRealPathRecipe() throws IOException {
+    public ToolResponse executeUpdateGetRealPathRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute UpdateGetRealPath Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(UpdateGetRealPath.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(UpdateGetRealPath.class), dryRun, include, exclude);
     }
 
     @Tool(name = "add_column_annotation", description = "`@ElementCollection` annotations must be accompanied by a defined `@Column` annotation. When an attribute is annotated with `@ElementCollection`, a separate table is created for the attribute that includes the attribute \nID and value. In OpenJPA, the column for the annotated attribute is named element, whereas EclipseLink names the column based on \nthe name of the attribute. To remain compatible with tables that were created with OpenJPA, add a `@Column` annotation with the name \nattribute set to element.")
-    public ToolResponse executeAddColumnAnnotationRecipe() throws IOException {
+    public ToolResponse executeAddColumnAnnotationRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute AddColumnAnnotation Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(AddColumnAnnotation.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(AddColumnAnnotation.class), dryRun, include, exclude);
     }
 
     @Tool(name = "url_constructor_to_uri_create", description = "Converts `new URL(String)` constructor to `URI.create(String).toURL()`.")
-    public ToolResponse executeURLConstructorToURICreateRecipe() throws IOException {
+    public ToolResponse executeURLConstructorToURICreateRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute URLConstructorToURICreate Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(URLConstructorToURICreate.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(URLConstructorToURICreate.class), dryRun, include, exclude);
     }
 
     @Tool(name = "add_default_constructor_to_entity_class", description = "`@Entity` objects with constructors must also have a default constructor. When a Java Persistence API (JPA) entity class has a constructor with arguments, the class must also have a default, no-argument constructor. The OpenJPA implementation automatically generates the no-argument constructor, but the EclipseLink implementation does not.")
-    public ToolResponse executeAddDefaultConstructorToEntityClassRecipe() throws IOException {
+    public ToolResponse executeAddDefaultConstructorToEntityClassRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute AddDefaultConstructorToEntityClass Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(AddDefaultConstructorToEntityClass.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(AddDefaultConstructorToEntityClass.class), dryRun, include, exclude);
     }
 
     @Tool(name = "add_jaxws_runtime", description = "Use the latest JAX-WS API and runtime for Jakarta EE 8. Update build files to use the latest JAX-WS runtime from Jakarta EE 8 to maintain compatibility with Java version 11 or greater. The will add a JAX-WS run-time, in Gradle `compileOnly`+`testImplementation` and Maven `provided` scope, to any project that has a transitive dependency on the JAX-WS API. **The resulting dependencies still use the `javax` namespace, despite the move to the Jakarta artifact**.")
-    public ToolResponse executeAddJaxwsRuntimeRecipe() throws IOException {
+    public ToolResponse executeAddJaxwsRuntimeRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute AddJaxwsRuntime Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(AddJaxwsRuntime.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(AddJaxwsRuntime.class), dryRun, include, exclude);
     }
 
     @Tool(name = "remove_temporal_annotation", description = "Remove the `@Temporal` annotation for some `java.sql` attributes. OpenJPA persists the fields of attributes of type `java.sql.Date`, `java.sql.Time`, or `java.sql.Timestamp` that have a `javax.persistence.Temporal` annotation, whereas EclipseLink throws an exception. Remove the `@Temporal` annotation so the behavior in EclipseLink will match the behavior in OpenJPA.")
-    public ToolResponse executeRemoveTemporalAnnotationRecipe() throws IOException {
+    public ToolResponse executeRemoveTemporalAnnotationRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute RemoveTemporalAnnotation Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(RemoveTemporalAnnotation.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(RemoveTemporalAnnotation.class), dryRun, include, exclude);
     }
 
     @Tool(name = "string_formatted", description = "Prefer `String.formatted(Object...)` over `String.format(String, Object...)` in Java 17 or higher.")
-    public ToolResponse executeStringFormattedRecipe() throws IOException {
+    public ToolResponse executeStringFormattedRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute StringFormatted Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(StringFormatted.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(StringFormatted.class), dryRun, include, exclude);
     }
 
     @Tool(name = "use_string_is_empty_recipe", description = "Replace `0 < s.length()` and `s.length() != 0` with `!s.isEmpty()`.")
-    public ToolResponse executeUseStringIsEmptyRecipeRecipe() throws IOException {
+    public ToolResponse executeUseStringIsEmptyRecipeRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute UseStringIsEmptyRecipe Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(UseStringIsEmptyRecipe.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(UseStringIsEmptyRecipe.class), dryRun, include, exclude);
     }
 
     @Tool(name = "migrate_logger_global_to_get_global", description = "Use `Logger#getGlobal()`. The preferred way to get the global logger object is via the call `Logger#getGlobal()` over direct field access to `java.util.logging.Logger.global`.")
-    public ToolResponse executeMigrateLoggerGlobalToGetGlobalRecipe() throws IOException {
+    public ToolResponse executeMigrateLoggerGlobalToGetGlobalRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute MigrateLoggerGlobalToGetGlobal Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(MigrateLoggerGlobalToGetGlobal.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(MigrateLoggerGlobalToGetGlobal.class), dryRun, include, exclude);
     }
 
     @Tool(name = "migrate_log_record_set_millis_to_set_instant", description = "Use `LogRecord#setInstant(Instant)` instead of the deprecated `LogRecord#setMillis(long)` in Java 9 or higher.")
-    public ToolResponse executeMigrateLogRecordSetMillisToSetInstantRecipe() throws IOException {
+    public ToolResponse executeMigrateLogRecordSetMillisToSetInstantRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute MigrateLogRecordSetMillisToSetInstant Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(MigrateLogRecordSetMillisToSetInstant.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(MigrateLogRecordSetMillisToSetInstant.class), dryRun, include, exclude);
     }
 
     @Tool(name = "migrate_url_decoder_decode", description = "Use `java.net.URLDecoder#decode(String, StandardCharsets.UTF_8)` instead of the deprecated `java.net.URLDecoder#decode(String)` in Java 10 or higher.")
-    public ToolResponse executeMigrateURLDecoderDecodeRecipe() throws IOException {
+    public ToolResponse executeMigrateURLDecoderDecodeRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute MigrateURLDecoderDecode Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(MigrateURLDecoderDecode.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(MigrateURLDecoderDecode.class), dryRun, include, exclude);
     }
 
     @Tool(name = "migrate_url_encoder_encode", description = "Use `java.net.URLEncoder#encode(String, StandardCharsets.UTF_8)` instead of the deprecated `java.net.URLEncoder#encode(String)` in Java 10 or higher.")
-    public ToolResponse executeMigrateURLEncoderEncodeRecipe() throws IOException {
+    public ToolResponse executeMigrateURLEncoderEncodeRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute MigrateURLEncoderEncode Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(MigrateURLEncoderEncode.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(MigrateURLEncoderEncode.class), dryRun, include, exclude);
     }
 
     @Tool(name = "url_constructors_to_new_uri", description = "Converts `new URL(String, ..)` constructors to `new URI(String, ..).toURL()`.")
-    public ToolResponse executeURLConstructorsToNewURIRecipe() throws IOException {
+    public ToolResponse executeURLConstructorsToNewURIRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute URLConstructorsToNewURI Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(URLConstructorsToNewURI.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(URLConstructorsToNewURI.class), dryRun, include, exclude);
     }
 
     @Tool(name = "migrate_driver_manager_set_log_stream", description = "Use `DriverManager#setLogWriter(java.io.PrintWriter)` instead of the deprecated `DriverManager#setLogStream(java.io.PrintStream)` in Java 1.2 or higher.")
-    public ToolResponse executeMigrateDriverManagerSetLogStreamRecipe() throws IOException {
+    public ToolResponse executeMigrateDriverManagerSetLogStreamRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute MigrateDriverManagerSetLogStream Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(MigrateDriverManagerSetLogStream.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(MigrateDriverManagerSetLogStream.class), dryRun, include, exclude);
     }
 
     @Tool(name = "iterator_next", description = "Replace `iterator().next()` with `getFirst()`. Replace `SequencedCollection.iterator().next()` with `getFirst()`.")
-    public ToolResponse executeIteratorNextRecipe() throws IOException {
+    public ToolResponse executeIteratorNextRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute IteratorNext Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(IteratorNext.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(IteratorNext.class), dryRun, include, exclude);
     }
 
     @Tool(name = "list_first_and_last", description = "Replace `List.get(int)`, `add(int, Object)`, and `remove(int)` with `SequencedCollection` `*First` and `*Last` methods. Replace `list.get(0)` with `list.getFirst()`, `list.get(list.size() - 1)` with `list.getLast()`, and similar for `add(int, E)` and `remove(int)`.")
-    public ToolResponse executeListFirstAndLastRecipe() throws IOException {
+    public ToolResponse executeListFirstAndLastRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute ListFirstAndLast Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(ListFirstAndLast.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(ListFirstAndLast.class), dryRun, include, exclude);
     }
 
     @Tool(name = "migrate_collections_singleton_list", description = "Prefer `List.of(..)` instead of using `Collections.singletonList()` in Java 9 or higher.")
-    public ToolResponse executeMigrateCollectionsSingletonListRecipe() throws IOException {
+    public ToolResponse executeMigrateCollectionsSingletonListRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute MigrateCollectionsSingletonList Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(MigrateCollectionsSingletonList.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(MigrateCollectionsSingletonList.class), dryRun, include, exclude);
     }
 
     @Tool(name = "migrate_collections_singleton_map", description = "Prefer `Map.Of(..)` instead of using `Collections.singletonMap()` in Java 9 or higher.")
-    public ToolResponse executeMigrateCollectionsSingletonMapRecipe() throws IOException {
+    public ToolResponse executeMigrateCollectionsSingletonMapRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute MigrateCollectionsSingletonMap Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(MigrateCollectionsSingletonMap.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(MigrateCollectionsSingletonMap.class), dryRun, include, exclude);
     }
 
     @Tool(name = "migrate_collections_unmodifiable_list", description = "Prefer `List.Of(..)` instead of using `unmodifiableList(java.util.Arrays asList(<args>))` in Java 9 or higher.")
-    public ToolResponse executeMigrateCollectionsUnmodifiableListRecipe() throws IOException {
+    public ToolResponse executeMigrateCollectionsUnmodifiableListRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute MigrateCollectionsUnmodifiableList Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(MigrateCollectionsUnmodifiableList.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(MigrateCollectionsUnmodifiableList.class), dryRun, include, exclude);
     }
 
     @Tool(name = "use_locale_of", description = "Prefer `Locale.of(..)` over `new Locale(..)` in Java 19 or higher.")
-    public ToolResponse executeUseLocaleOfRecipe() throws IOException {
+    public ToolResponse executeUseLocaleOfRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute UseLocaleOf Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(UseLocaleOf.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(UseLocaleOf.class), dryRun, include, exclude);
     }
 
     @Tool(name = "use_enum_set_of", description = "Prefer `EnumSet of(..)` instead of using `Set of(..)` when the arguments are enums in Java 5 or higher.")
-    public ToolResponse executeUseEnumSetOfRecipe() throws IOException {
+    public ToolResponse executeUseEnumSetOfRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute UseEnumSetOf Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(UseEnumSetOf.class));
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(UseEnumSetOf.class), dryRun, include, exclude);
     }
 
     @Tool(name = "use_map_of", description = "Prefer `Map.of(..)` instead of using `java.util.Map#put(..)` in Java 10 or higher.")
-    public ToolResponse executeUseMapOfRecipe() throws IOException {
+    public ToolResponse executeUseMapOfRecipe(
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.info("Execute UseMapOf Recipe");
-        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(UseMapOf.class));
-    }
-
-    private static ToolResponse executeRecipe(Recipe recipe) throws IOException {
-        // Apply the recipe
-        RecipeRun recipeRun = recipe.run(new InMemoryLargeSourceSet(sourceFiles), executionContext);
-
-        // Process results
-        List<Result> results = recipeRun.getChangeset().getAllResults();
-        for (Result result : results) {
-            // Write the changes back to disk
-            Path absolutePath = ROOT_PATH.resolve(result.getBefore().getSourcePath());
-            Files.writeString(absolutePath, result.getAfter().printAll());
+        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(UseMapOf.class), dryRun, include, exclude);
+    }
+
+    /**
+     * Runs a recipe on the files in scope, and writes its changes unless it is a dry run. Like {@link #refresh()}, the
+     * methods changing the source set, the type index or the reactor are synchronized on the class, so the tools do not
+     * interleave their changes.
+     */
+    private static synchronized ToolResponse executeRecipe(Recipe recipe, boolean dryRun, String include, String exclude) throws IOException {
+        PathScope scope;
+        try {
+            scope = PathScope.of(include, exclude);
+        } catch (IllegalArgumentException e) {
+            return ToolResponse.error("Invalid include or exclude glob: " + e.getMessage());
         }
 
-        if (results.isEmpty()) {
-            log.info("Executing the tool " + recipe.getDisplayName() + " made no change in the code");
-            return ToolResponse.success("Executing the tool " + recipe.getDisplayName() + " made no change in the code located in " + ROOT_APP_TO_MIGRATE);
-        } else {
-            log.info("Executing the tool " + recipe.getDisplayName() + " made " + results.size() + " changes in the code");
-            return ToolResponse.success("Executing the tool " + recipe.getDisplayName() + " made " + results.size() + " changes in the code located in " + ROOT_APP_TO_MIGRATE);
+        if (AUTO_REFRESH_SOURCES) {
+            refresh();
         }
-    }
 
-    String getRecipeAsJson() {
-        return """
-            [
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.BeansXmlNamespace",
-                "name": "beans_xml_namespace",
-                "displayName": "Change `beans.xml` `schemaLocation` to match XML namespace",
-                "description": "Set the `schemaLocation` that corresponds to the `xmlns` set in `beans.xml` files.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.CastArraysAsListToList",
-                "name": "cast_arrays_as_list_to_list",
-                "displayName": "Remove explicit casts on `Arrays.asList(..).toArray()`",
-                "description": "Convert code like `(Integer[]) Arrays.asList(1, 2, 3).toArray()` to `Arrays.asList(1, 2, 3).toArray(new Integer[0])`.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.ChangeDefaultKeyStore",
-                "name": "change_default_key_store",
-                "displayName": "Return String `jks` when  `KeyStore.getDefaultType()` is called",
-                "description": "In Java 11 the default keystore was updated from JKS to PKCS12. As a result, applications relying on KeyStore.getDefaultType() may encounter issues after migrating, unless their JKS keystore has been converted to PKCS12. This tool returns default key store of `jks` when `KeyStore.getDefaultType()` method is called to use the pre Java 11 default keystore.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.IllegalArgumentExceptionToAlreadyConnectedException",
-                "name": "illegal_argument_exception_to_already_connected_exception",
-                "displayName": "Replace `IllegalArgumentException` with `AlreadyConnectedException` in `DatagramChannel.send()` method",
-                "description": "Replace `IllegalArgumentException` with `AlreadyConnectedException` for DatagramChannel.send() to ensure compatibility with Java 11+.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.JREThrowableFinalMethods",
-                "name": "j_r_e_throwable_final_methods",
-                "displayName": "Rename final method declarations `getSuppressed()` and `addSuppressed(Throwable exception)` in classes that extend `Throwable`",
-                "description": "The tool renames  `getSuppressed()` and `addSuppressed(Throwable exception)` methods  in classes that extend `java.lang.Throwable` to `myGetSuppressed` and `myAddSuppressed(Throwable)`.These methods were added to Throwable in Java 7 and are marked final which cannot be overridden.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.RemovedSecurityManagerMethods",
-                "name": "removed_security_manager_methods",
-                "displayName": "Replace deprecated methods in`SecurityManager`",
-                "description": "Replace `SecurityManager` methods `checkAwtEventQueueAccess()`, `checkSystemClipboardAccess()`, `checkMemberAccess()` and `checkTopLevelWindow()` deprecated in Java SE 11 by `checkPermission(new java.security.AllPermission())`.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.ReplaceComSunAWTUtilitiesMethods",
-                "name": "replace_com_sun_a_w_t_utilities_methods",
-                "displayName": "Replace `com.sun.awt.AWTUtilities` static method invocations",
-                "description": "This tool replaces several static calls  in `com.sun.awt.AWTUtilities` with the JavaSE 11 equivalent. The methods replaced are `AWTUtilities.isTranslucencySupported()`, `AWTUtilities.setWindowOpacity()`, `AWTUtilities.getWindowOpacity()`, `AWTUtilities.getWindowShape()`, `AWTUtilities.isWindowOpaque()`, `AWTUtilities.isTranslucencyCapable()` and `AWTUtilities.setComponentMixingCutoutShape()`.",
-                "options": [
-                  {
-                    "name": "get_a_w_t_is_windows_translucency_pattern",
-                    "displayName": "Method pattern to replace",
-                    "description": "The method pattern to match and replace.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "is_window_opaque_pattern",
-                    "displayName": "Method pattern to replace",
-                    "description": "The method pattern to match and replace.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "is_translucency_capable_pattern",
-                    "displayName": "Method pattern to replace",
-                    "description": "The method pattern to match and replace.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "set_window_opacity_pattern",
-                    "displayName": "Method pattern to replace",
-                    "description": "The method pattern to match and replace.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "get_window_opacity_pattern",
-                    "displayName": "Method pattern to replace",
-                    "description": "The method pattern to match and replace.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "get_window_shape_pattern",
-                    "displayName": "Method pattern to replace",
-                    "description": "The method pattern to match and replace.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "set_component_mixing_cutout_shape_pattern",
-                    "displayName": "Method pattern to replace",
-                    "description": "The method pattern to match and replace.",
-                    "type": "String"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.UpgradeJavaVersion",
-                "name": "upgrade_java_version",
-                "displayName": "Upgrade Java version",
-                "description": "Upgrade build plugin configuration to use the specified Java version. This tool changes `java.toolchain.languageVersion` in `build.gradle(.kts)` of gradle projects, or maven-compiler-plugin target version and related settings. Will not downgrade if the version is newer than the specified version.",
-                "options": [
-                  {
-                    "name": "version",
-                    "displayName": "Java version",
-                    "description": "The Java version to upgrade to.",
-                    "type": "Integer"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.UseJavaUtilBase64",
-                "name": "use_java_util_base64",
-                "displayName": "Prefer `java.util.Base64` instead of `sun.misc`",
-                "description": "Prefer `java.util.Base64` instead of using `sun.misc` in Java 8 or higher. `sun.misc` is not exported by the Java module system and accessing this class will result in a warning in Java 11 and an error in Java 17.",
-                "options": [
-                  {
-                    "name": "use_mime_coder",
-                    "displayName": "Use Mime Coder",
-                    "description": "Use `Base64.getMimeEncoder()/getMimeDecoder()` instead of `Base64.getEncoder()/getDecoder()`.",
-                    "type": "boolean"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.lang.ThreadStopUnsupported",
-                "name": "thread_stop_unsupported",
-                "displayName": "Replace `Thread.resume()`, `Thread.stop()`, and `Thread.suspend()` with `throw new UnsupportedOperationException()`",
-                "description": "`Thread.resume()`, `Thread.stop()`, and `Thread.suspend()` always throws a `new UnsupportedOperationException` in Java 21+. This tool makes that explicit, as the migration is more complicated.See https://docs.oracle.com/en/java/javase/21/docs/api/java.base/java/lang/doc-files/threadPrimitiveDeprecation.html .",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.io.ReplaceFileInOrOutputStreamFinalizeWithClose",
-                "name": "replace_file_in_or_output_stream_finalize_with_close",
-                "displayName": "Replace invocations of `finalize()` on `FileInputStream` and `FileOutputStream` with `close()`",
-                "description": "Replace invocations of the deprecated `finalize()` method on `FileInputStream` and `FileOutputStream` with `close()`.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.jakarta.ApplicationPathWildcardNoLongerAccepted",
-                "name": "application_path_wildcard_no_longer_accepted",
-                "displayName": "Remove trailing slash from `jakarta.ws.rs.ApplicationPath` values",
-                "description": "Remove trailing `/*` from `jakarta.ws.rs.ApplicationPath` values.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.jakarta.RemoveBeanIsNullable",
-                "name": "remove_bean_is_nullable",
-                "displayName": "Remove `Bean.isNullable()`",
-                "description": "`Bean.isNullable()` has been removed in CDI 4.0.0, and now always returns `false`.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.jakarta.UpdateAnnotationAttributeJavaxToJakarta",
-                "name": "update_annotation_attribute_javax_to_jakarta",
-                "displayName": "Update annotation attributes using `javax` to `jakarta`",
-                "description": "Replace `javax` with `jakarta` in annotation attributes for matching annotation signatures.",
-                "options": [
-                  {
-                    "name": "signature",
-                    "displayName": "Annotation signature",
-                    "description": "An annotation signature to match.",
-                    "type": "String"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.jakarta.UpdateBeanManagerMethods",
-                "name": "update_bean_manager_methods",
-                "displayName": "Update `fireEvent()` and `createInjectionTarget()` calls",
-                "description": " Updates `BeanManager.fireEvent()` or `BeanManager.createInjectionTarget()`.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.jakarta.UpdateGetRealPath",
-                "name": "update_get_real_path",
-                "displayName": "Updates `getRealPath()` to call `getContext()` followed by `getRealPath()`",
-                "description": "Updates `getRealPath()` for `jakarta.servlet.ServletRequest` and `jakarta.servlet.ServletRequestWrapper` to use `ServletContext.getRealPath(String)`.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.javax.AddColumnAnnotation",
-                "name": "add_column_annotation",
-                "displayName": "`@ElementCollection` annotations must be accompanied by a defined `@Column` annotation",
-                "description": "When an attribute is annotated with `@ElementCollection`, a separate table is created for the attribute that includes the attribute \\nID and value. In OpenJPA, the column for the annotated attribute is named element, whereas EclipseLink names the column based on \\nthe name of the attribute. To remain compatible with tables that were created with OpenJPA, add a `@Column` annotation with the name \\nattribute set to element.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.net.URLConstructorToURICreate",
-                "name": "u_r_l_constructor_to_u_r_i_create",
-                "displayName": "Convert `new URL(String)` to `URI.create(String).toURL()`",
-                "description": "Converts `new URL(String)` constructor to `URI.create(String).toURL()`.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.javax.AddDefaultConstructorToEntityClass",
-                "name": "add_default_constructor_to_entity_class",
-                "displayName": "`@Entity` objects with constructors must also have a default constructor",
-                "description": "When a Java Persistence API (JPA) entity class has a constructor with arguments, the class must also have a default, no-argument constructor. The OpenJPA implementation automatically generates the no-argument constructor, but the EclipseLink implementation does not.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.javax.AddJaxwsRuntime",
-                "name": "add_jaxws_runtime",
-                "displayName": "Use the latest JAX-WS API and runtime for Jakarta EE 8",
-                "description": "Update build files to use the latest JAX-WS runtime from Jakarta EE 8 to maintain compatibility with Java version 11 or greater. The tool will add a JAX-WS run-time, in Gradle `compileOnly`+`testImplementation` and Maven `provided` scope, to any project that has a transitive dependency on the JAX-WS API. **The resulting dependencies still use the `javax` namespace, despite the move to the Jakarta artifact**.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.javax.RemoveTemporalAnnotation",
-                "name": "remove_temporal_annotation",
-                "displayName": "Remove the `@Temporal` annotation for some `java.sql` attributes",
-                "description": "OpenJPA persists the fields of attributes of type `java.sql.Date`, `java.sql.Time`, or `java.sql.Timestamp` that have a `javax.persistence.Temporal` annotation, whereas EclipseLink throws an exception. Remove the `@Temporal` annotation so the behavior in EclipseLink will match the behavior in OpenJPA.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.lang.StringFormatted",
-                "name": "string_formatted",
-                "displayName": "Prefer `String.formatted(Object...)`",
-                "description": "Prefer `String.formatted(Object...)` over `String.format(String, Object...)` in Java 17 or higher.",
-                "options": [
-                  {
-                    "name": "add_parentheses",
-                    "displayName": "Add parentheses around the first argument",
-                    "description": "Add parentheses around the first argument if it is not a simple expression. Default true; if false no change will be made. ",
-                    "type": "Boolean"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.lang.UseStringIsEmptyRecipe",
-                "name": "use_string_is_empty",
-                "displayName": "Replace `0 < s.length()` with `!s.isEmpty()`",
-                "description": "Replace `0 < s.length()` and `s.length() != 0` with `!s.isEmpty()`.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.lang.UseTextBlocks",
-                "name": "use_text_blocks",
-                "displayName": "Use text blocks",
-                "description": "Text blocks are easier to read than concatenated strings.",
-                "options": [
-                  {
-                    "name": "convert_strings_without_newlines",
-                    "displayName": "Whether to convert strings without newlines (the default value is true).",
-                    "description": "Whether or not strings without newlines should be converted to text block when processing code. The default value is true.",
-                    "type": "boolean"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.logging.MigrateLoggerGlobalToGetGlobal",
-                "name": "migrate_logger_global_to_get_global",
-                "displayName": "Use `Logger#getGlobal()`",
-                "description": "The preferred way to get the global logger object is via the call `Logger#getGlobal()` over direct field access to `java.util.logging.Logger.global`.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.logging.MigrateLogRecordSetMillisToSetInstant",
-                "name": "migrate_log_record_set_millis_to_set_instant",
-                "displayName": "Use `LogRecord#setInstant(Instant)`",
-                "description": "Use `LogRecord#setInstant(Instant)` instead of the deprecated `LogRecord#setMillis(long)` in Java 9 or higher.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.net.MigrateURLDecoderDecode",
-                "name": "migrate_u_r_l_decoder_decode",
-                "displayName": "Use `java.net.URLDecoder#decode(String, StandardCharsets.UTF_8)`",
-                "description": "Use `java.net.URLDecoder#decode(String, StandardCharsets.UTF_8)` instead of the deprecated `java.net.URLDecoder#decode(String)` in Java 10 or higher.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.net.MigrateURLEncoderEncode",
-                "name": "migrate_u_r_l_encoder_encode",
-                "displayName": "Use `java.net.URLEncoder#encode(String, StandardCharsets.UTF_8)`",
-                "description": "Use `java.net.URLEncoder#encode(String, StandardCharsets.UTF_8)` instead of the deprecated `java.net.URLEncoder#encode(String)` in Java 10 or higher.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.net.URLConstructorsToNewURI",
-                "name": "u_r_l_constructors_to_new_u_r_i",
-                "displayName": "Convert `new URL(String, ..)` to `new URI(String, ..).toURL()`",
-                "description": "Converts `new URL(String, ..)` constructors to `new URI(String, ..).toURL()`.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.sql.MigrateDriverManagerSetLogStream",
-                "name": "migrate_driver_manager_set_log_stream",
-                "displayName": "Use `DriverManager#setLogWriter(java.io.PrintWriter)`",
-                "description": "Use `DriverManager#setLogWriter(java.io.PrintWriter)` instead of the deprecated `DriverManager#setLogStream(java.io.PrintStream)` in Java 1.2 or higher.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.util.IteratorNext",
-                "name": "iterator_next",
-                "displayName": "Replace `iterator().next()` with `getFirst()`",
-                "description": "Replace `SequencedCollection.iterator().next()` with `getFirst()`.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.util.ListFirstAndLast",
-                "name": "list_first_and_last",
-                "displayName": "Replace `List.get(int)`, `add(int, Object)`, and `remove(int)` with `SequencedCollection` `*First` and `*Last` methods",
-                "description": "Replace `list.get(0)` with `list.getFirst()`, `list.get(list.size() - 1)` with `list.getLast()`, and similar for `add(int, E)` and `remove(int)`.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.util.MigrateCollectionsSingletonList",
-                "name": "migrate_collections_singleton_list",
-                "displayName": "Prefer `List.of(..)`",
-                "description": "Prefer `List.of(..)` instead of using `Collections.singletonList()` in Java 9 or higher.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.util.MigrateCollectionsSingletonMap",
-                "name": "migrate_collections_singleton_map",
-                "displayName": "Prefer `Map.of(..)`",
-                "description": "Prefer `Map.Of(..)` instead of using `Collections.singletonMap()` in Java 9 or higher.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.util.MigrateCollectionsUnmodifiableList",
-                "name": "migrate_collections_unmodifiable_list",
-                "displayName": "Prefer `List.of(..)`",
-                "description": "Prefer `List.Of(..)` instead of using `unmodifiableList(java.util.Arrays asList(<args>))` in Java 9 or higher.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.util.UseEnumSetOf",
-                "name": "use_enum_set_of",
-                "displayName": "Prefer `EnumSet of(..)`",
-                "description": "Prefer `EnumSet of(..)` instead of using `Set of(..)` when the arguments are enums in Java 5 or higher.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.util.UseLocaleOf",
-                "name": "use_locale_of",
-                "displayName": "Prefer `Locale.of(..)` over `new Locale(..)`",
-                "description": "Prefer `Locale.of(..)` over `new Locale(..)` in Java 19 or higher.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.java.migrate.util.UseMapOf",
-                "name": "use_map_of",
-                "displayName": "Prefer `Map.of(..)`",
-                "description": "Prefer `Map.of(..)` instead of using `java.util.Map#put(..)` in Java 10 or higher.",
-                "options": []
-              }
-            ]
-            """;
-    }
-
-    String getRecipeJson() throws JsonProcessingException {
-
-        List<RecipeJson> jsonRecipes = new ArrayList<>();
-        for (Class recipeClass : recipesToExpose) {
-
-            Recipe recipe = RecipeIntrospectionUtils.constructRecipe(recipeClass);
-
-            List<OptionJson> jsonOptions = new ArrayList<>();
-            for (OptionDescriptor optionDescriptor : recipe.getDescriptor().getOptions()) {
-                jsonOptions.add(new OptionJson(camelToSnakeCase(optionDescriptor.getName()), optionDescriptor.getDisplayName(), optionDescriptor.getDescription(), optionDescriptor.getType()));
+        // Only hand the recipe the files in scope using the types it migrates, so only those are loaded and written back
+        List<Path> candidates = typeUsageIndex.candidatePaths(recipe, scope.filter(sourceFiles.paths()));
+        log.info("Running the tool " + recipe.getDisplayName() + " on " + candidates.size() + " out of " + sourceFiles.size() + " files");
+
+        // Apply the recipe, streaming the files through it
+        try (SpillingLargeSourceSet sourceSet = new SpillingLargeSourceSet(sourceFiles, candidates)) {
+            // The execution context is shared by all the runs, so only collect the data tables of this one
+            executionContext.pollMessage(ExecutionContext.DATA_TABLES);
+            RecipeRun recipeRun = recipe.run(sourceSet, executionContext);
+            executionContext.pollMessage(ExecutionContext.DATA_TABLES);
+            DataTableStore.Run dataTableRun = dataTables.record(recipe.getName(), recipeRun.getDataTables());
+            Changeset changeset = recipeRun.getChangeset();
+
+            // Preview or write the results, by pages so they do not all have to be in memory
+            if (dryRun) {
+                return ToolResponse.success(RecipeResults.preview(recipe, changeset, dataTableRun, ROOT_APP_TO_MIGRATE, MAX_SOURCE_FILES_IN_MEMORY, MAX_DIFF_LINES_PER_FILE).stream().map(TextContent::new).toList());
             }
+            writeChangeset(changeset);
 
-            jsonRecipes.add(new RecipeJson("Java Migration", recipe.getName(), camelToSnakeCase(recipe.getClass().getSimpleName()), recipe.getDisplayName(), recipe.getDescription(), jsonOptions));
+            if (changeset.size() == 0) {
+                log.info("Executing the tool " + recipe.getDisplayName() + " made no change in the code");
+                return ToolResponse.success("Executing the tool " + recipe.getDisplayName() + " made no change in the code located in " + ROOT_APP_TO_MIGRATE + (dataTableRun == null ? "" : ". " + RecipeResults.dataTablesMessage(dataTableRun)));
+            } else {
+                log.info("Executing the tool " + recipe.getDisplayName() + " made " + changeset.size() + " changes in the code");
+                return ToolResponse.success("Executing the tool " + recipe.getDisplayName() + " made " + changeset.size() + " changes in the code located in " + ROOT_APP_TO_MIGRATE + (dataTableRun == null ? "" : ". " + RecipeResults.dataTablesMessage(dataTableRun)));
+            }
+        } catch (IllegalStateException e) {
+            // A file evicted from memory has changed on disk since it was indexed
+            return ToolResponse.error(e.getMessage());
         }
-
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.writeValueAsString(jsonRecipes);
     }
 
-    static String camelToSnakeCase(String camelCase) {
-        if (camelCase == null || camelCase.isEmpty()) {
-            return camelCase;
+    /**
+     * Runs a step of a migration plan on all the files, and returns the paths of the files it changed.
+     */
+    private static synchronized List<Path> applyRecipe(Recipe recipe) throws IOException {
+        List<Path> candidates = typeUsageIndex.candidatePaths(recipe, sourceFiles.paths());
+        try (SpillingLargeSourceSet sourceSet = new SpillingLargeSourceSet(sourceFiles, candidates)) {
+            executionContext.pollMessage(ExecutionContext.DATA_TABLES);
+            Changeset changeset = recipe.run(sourceSet, executionContext).getChangeset();
+            executionContext.pollMessage(ExecutionContext.DATA_TABLES);
+            return writeChangeset(changeset);
         }
+    }
 
-        StringBuilder result = new StringBuilder();
-        result.append(Character.toLowerCase(camelCase.charAt(0)));
-
-        for (int i = 1; i < camelCase.length(); i++) {
-            char currentChar = camelCase.charAt(i);
-            if (Character.isUpperCase(currentChar)) {
-                result.append('_');
-                result.append(Character.toLowerCase(currentChar));
-            } else {
-                result.append(currentChar);
+    /**
+     * Writes the changes back to disk by pages, so they do not all have to be in memory, and returns the paths of the
+     * changed files.
+     */
+    private static synchronized List<Path> writeChangeset(Changeset changeset) throws IOException {
+        List<Path> changed = new ArrayList<>();
+        for (int start = 0; start < changeset.size(); start += MAX_SOURCE_FILES_IN_MEMORY) {
+            List<Result> results = changeset.getPage(start, MAX_SOURCE_FILES_IN_MEMORY);
+            for (Result result : results) {
+                writeResult(result);
+                if (result.getBefore() != null) {
+                    changed.add(result.getBefore().getSourcePath());
+                }
+                if (result.getAfter() != null && (result.getBefore() == null || !result.getAfter().getSourcePath().equals(result.getBefore().getSourcePath()))) {
+                    changed.add(result.getAfter().getSourcePath());
+                }
             }
+            // Keep the LSTs in sync with the disk so the next recipe starts from the migrated code
+            sourceFiles.update(results);
+            typeUsageIndex.update(results);
         }
+        // Compared at the next refresh even if they are reverted
+        sourceRefresher.written(changed);
+        if (mavenReactor != null) {
+            // The POMs inheriting from or importing a changed one are resolved again against it
+            mavenReactor.resolveAgain(changed);
+        }
+        return changed;
+    }
 
-        return result.toString();
+    /**
+     * Brings the source set and the type index up to date with the working tree.
+     */
+    private static synchronized String refresh() {
+        SourceRefresher.Changes changes = sourceRefresher.changes();
+        if (!changes.isEmpty()) {
+            for (Path path : changes.modified()) {
+                typeUsageIndex.remove(path);
+            }
+            for (Path path : changes.deleted()) {
+                typeUsageIndex.remove(path);
+            }
+            sourceFiles.remove(changes.deleted());
+            List<Path> toParse = changes.toParse(ROOT_PATH);
+            if (mavenReactor != null) {
+                // Resolved by the reactor, along with the POMs inheriting from or importing them, which are stale too
+                toParse.removeIf(SourceParsers::isPomXml);
+            }
+            sourceFiles.load(toParse, typeUsageIndex::add);
+            if (mavenReactor != null) {
+                List<Path> changed = new ArrayList<>(changes.added());
+                changed.addAll(changes.modified());
+                changed.addAll(changes.deleted());
+                mavenReactor.resolveAgain(changed);
+            }
+        }
+        log.info("Refreshed the sources: " + changes);
+        return "Refreshed the sources located in " + ROOT_APP_TO_MIGRATE + ": " + changes;
     }
 
-    private static void collectJavaFiles(File directory, List<Path> files) {
-        File[] fileList = directory.listFiles();
-        if (fileList != null) {
-            for (File file : fileList) {
-                if (file.isDirectory()) {
-                    collectJavaFiles(file, files);
-                } else if (file.getName().endsWith(".java")) {
-                    files.add(file.toPath());
-                }
+    private static void writeResult(Result result) throws IOException {
+        if (result.getAfter() == null) {
+            Files.deleteIfExists(ROOT_PATH.resolve(result.getBefore().getSourcePath()));
+        } else {
+            Path absolutePath = ROOT_PATH.resolve(result.getAfter().getSourcePath());
+            if (result.getBefore() != null && !result.getBefore().getSourcePath().equals(result.getAfter().getSourcePath())) {
+                Files.deleteIfExists(ROOT_PATH.resolve(result.getBefore().getSourcePath()));
             }
+            Files.createDirectories(absolutePath.getParent());
+            Files.writeString(absolutePath, result.getAfter().printAll(), result.getAfter().getCharset() == null ? StandardCharsets.UTF_8 : result.getAfter().getCharset());
         }
     }
+
+    String getRecipeAsJson() {
+        return recipeCatalog;
+    }
+
 }
 
@@ -0,0 +1,206 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkiverse.mcp.server.Tool;
+import org.agoncal.sample.mcp.migration.openrewrite.common.OptionJson;
+import org.agoncal.sample.mcp.migration.openrewrite.common.RecipeJson;
+import org.jboss.logging.Logger;
+import org.openrewrite.Recipe;
+import org.openrewrite.config.OptionDescriptor;
+import org.openrewrite.internal.RecipeIntrospectionUtils;
+import org.openrewrite.java.migrate.BeansXmlNamespace;
+import org.openrewrite.java.migrate.CastArraysAsListToList;
+import org.openrewrite.java.migrate.ChangeDefaultKeyStore;
+import org.openrewrite.java.migrate.IllegalArgumentExceptionToAlreadyConnectedException;
+import org.openrewrite.java.migrate.JREThrowableFinalMethods;
+import org.openrewrite.java.migrate.RemovedSecurityManagerMethods;
+import org.openrewrite.java.migrate.ReplaceComSunAWTUtilitiesMethods;
+import org.openrewrite.java.migrate.UpgradeJavaVersion;
+import org.openrewrite.java.migrate.UseJavaUtilBase64;
+import org.openrewrite.java.migrate.io.ReplaceFileInOrOutputStreamFinalizeWithClose;
+import org.openrewrite.java.migrate.jakarta.ApplicationPathWildcardNoLongerAccepted;
+import org.openrewrite.java.migrate.jakarta.RemoveBeanIsNullable;
+import org.openrewrite.java.migrate.jakarta.UpdateAnnotationAttributeJavaxToJakarta;
+import org.openrewrite.java.migrate.jakarta.UpdateBeanManagerMethods;
+import org.openrewrite.java.migrate.jakarta.UpdateGetRealPath;
+import org.openrewrite.java.migrate.javax.AddColumnAnnotation;
+import org.openrewrite.java.migrate.javax.AddDefaultConstructorToEntityClass;
+import org.openrewrite.java.migrate.javax.AddJaxwsRuntime;
+import org.openrewrite.java.migrate.javax.RemoveTemporalAnnotation;
+import org.openrewrite.java.migrate.lang.StringFormatted;
+import org.openrewrite.java.migrate.lang.ThreadStopUnsupported;
+import org.openrewrite.java.migrate.lang.UseStringIsEmptyRecipe;
+import org.openrewrite.java.migrate.lang.UseTextBlocks;
+import org.openrewrite.java.migrate.logging.MigrateLogRecordSetMillisToSetInstant;
+import org.openrewrite.java.migrate.logging.MigrateLoggerGlobalToGetGlobal;
+import org.openrewrite.java.migrate.net.MigrateURLDecoderDecode;
+import org.openrewrite.java.migrate.net.MigrateURLEncoderEncode;
+import org.openrewrite.java.migrate.net.URLConstructorToURICreate;
+import org.openrewrite.java.migrate.net.URLConstructorsToNewURI;
+import org.openrewrite.java.migrate.sql.MigrateDriverManagerSetLogStream;
+import org.openrewrite.java.migrate.util.IteratorNext;
+import org.openrewrite.java.migrate.util.ListFirstAndLast;
+import org.openrewrite.java.migrate.util.MigrateCollectionsSingletonList;
+import org.openrewrite.java.migrate.util.MigrateCollectionsSingletonMap;
+import org.openrewrite.java.migrate.util.MigrateCollectionsUnmodifiableList;
+import org.openrewrite.java.migrate.util.UseEnumSetOf;
+import org.openrewrite.java.migrate.util.UseLocaleOf;
+import org.openrewrite.java.migrate.util.UseMapOf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Catalog of the recipes exposed by {@link JavaMigrationMCPServer}. The recipes are introspected at build time, when the
+ * exec-maven-plugin runs {@link #main(String[])} after the compilation, and the serialized catalog is written next to
+ * the classes. At runtime the catalog is served from these precomputed bytes, without constructing any recipe.
+ */
+public class JavaRecipeCatalog {
+
+    private static final Logger log = Logger.getLogger(JavaRecipeCatalog.class);
+    static final String CATALOG = "/java-recipe-catalog.json";
+    static final String RUN_RECIPE = "run_recipe";
+
+    static final List<Class> recipesToExpose = List.of(
+        BeansXmlNamespace.class,
+        CastArraysAsListToList.class,
+        ChangeDefaultKeyStore.class,
+        IllegalArgumentExceptionToAlreadyConnectedException.class,
+        JREThrowableFinalMethods.class,
+        RemovedSecurityManagerMethods.class,
+        ReplaceComSunAWTUtilitiesMethods.class,
+        UpgradeJavaVersion.class,
+        UseJavaUtilBase64.class,
+        ThreadStopUnsupported.class,
+        ReplaceFileInOrOutputStreamFinalizeWithClose.class,
+        ApplicationPathWildcardNoLongerAccepted.class,
+        RemoveBeanIsNullable.class,
+        UpdateAnnotationAttributeJavaxToJakarta.class,
+        UpdateBeanManagerMethods.class,
+        UpdateGetRealPath.class,
+        AddColumnAnnotation.class,
+        URLConstructorToURICreate.class,
+        AddDefaultConstructorToEntityClass.class,
+        AddJaxwsRuntime.class,
+        RemoveTemporalAnnotation.class,
+        StringFormatted.class,
+        UseStringIsEmptyRecipe.class,
+        UseTextBlocks.class,
+        MigrateLoggerGlobalToGetGlobal.class,
+        MigrateLogRecordSetMillisToSetInstant.class,
+        MigrateURLDecoderDecode.class,
+        MigrateURLEncoderEncode.class,
+        URLConstructorsToNewURI.class,
+        MigrateDriverManagerSetLogStream.class,
+        IteratorNext.class,
+        ListFirstAndLast.class,
+        MigrateCollectionsSingletonList.class,
+        MigrateCollectionsSingletonMap.class,
+        MigrateCollectionsUnmodifiableList.class,
+        UseEnumSetOf.class,
+        UseLocaleOf.class,
+        UseMapOf.class
+    );
+
+    /**
+     * Writes the catalog, and the recipes of the {@link RecipeCatalogIndex}, into the directory given as first argument,
+     * usually `target/classes`.
+     */
+    public static void main(String[] args) throws IOException {
+        Path catalog = Paths.get(args[0]).resolve(CATALOG.substring(1));
+        Files.createDirectories(catalog.getParent());
+        Files.write(catalog, generate());
+        log.info("Generated the catalog of the " + recipesToExpose.size() + " exposed recipes in " + catalog);
+        Path index = Paths.get(args[0]).resolve(RecipeCatalogIndex.INDEX.substring(1));
+        Files.write(index, RecipeCatalogIndex.generate());
+        log.info("Generated the recipes of the searchable catalog in " + index);
+    }
+
+    /**
+     * Returns the catalog generated at build time, or introspects the recipes if it is not on the classpath (e.g. when
+     * the server is started from an IDE which does not run the exec-maven-plugin).
+     */
+    static String load() {
+        try (InputStream inputStream = JavaRecipeCatalog.class.getResourceAsStream(CATALOG)) {
+            if (inputStream != null) {
+                return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            log.warn("The catalog " + CATALOG + " has not been generated at build time, introspecting the recipes");
+            return new String(generate(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot load the catalog " + CATALOG, e);
+        }
+    }
+
+    static byte[] generate() throws JsonProcessingException {
+        Map<String, String> toolNames = toolBindings();
+        List<RecipeJson> jsonRecipes = new ArrayList<>();
+        for (Class recipeClass : recipesToExpose) {
+
+            Recipe recipe = RecipeIntrospectionUtils.constructRecipe(recipeClass);
+
+            // The recipes without a tool of their own are executed by `run_recipe`, whose options keep the recipe names
+            String toolName = toolNames.getOrDefault(recipeClass.getSimpleName(), RUN_RECIPE);
+            List<OptionJson> jsonOptions = new ArrayList<>();
+            for (OptionDescriptor optionDescriptor : recipe.getDescriptor().getOptions()) {
+                String optionName = RUN_RECIPE.equals(toolName) ? optionDescriptor.getName() : camelToSnakeCase(optionDescriptor.getName());
+                jsonOptions.add(new OptionJson(optionName, optionDescriptor.getDisplayName(), optionDescriptor.getDescription(), optionDescriptor.getType()));
+            }
+
+            jsonRecipes.add(new RecipeJson("Java Migration", recipe.getName(), toolName, recipe.getDisplayName(), recipe.getDescription(), jsonOptions));
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        return mapper.writeValueAsBytes(jsonRecipes);
+    }
+
+    /**
+     * Binds each recipe to the name of the tool executing it, following the `execute<Recipe>Recipe` naming of the tool
+     * methods. The server class is only loaded, not initialized, so its static state is never touched at build time.
+     */
+    static Map<String, String> toolBindings() {
+        Map<String, String> toolNames = new HashMap<>();
+        for (Method method : JavaMigrationMCPServer.class.getDeclaredMethods()) {
+            Tool tool = method.getAnnotation(Tool.class);
+            if (tool != null && method.getName().startsWith("execute")) {
+                String recipeName = method.getName().substring("execute".length());
+                if (recipeName.endsWith("Recipe")) {
+                    recipeName = recipeName.substring(0, recipeName.length() - "Recipe".length());
+                }
+                toolNames.put(recipeName, tool.name());
+            }
+        }
+        return toolNames;
+    }
+
+    static String camelToSnakeCase(String camelCase) {
+        if (camelCase == null || camelCase.isEmpty()) {
+            return camelCase;
+        }
+
+        StringBuilder result = new StringBuilder();
+        result.append(Character.toLowerCase(camelCase.charAt(0)));
+
+        for (int i = 1; i < camelCase.length(); i++) {
+            char currentChar = camelCase.charAt(i);
+            if (Character.isUpperCase(currentChar)) {
+                result.append('_');
+                result.append(Character.toLowerCase(currentChar));
+            } else {
+                result.append(currentChar);
+            }
+        }
+
+        return result.toString();
+    }
+}
@@ -0,0 +1,181 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Ordered plan of recipes executed one after the other on the same source set. After each step a checkpoint is written
+ * with the completed steps and the hashes of the files they changed, so executing the same plan on the same application
+ * again, e.g. after the server died, resumes after the last completed step. Resuming is refused if the files changed by
+ * the completed steps have been modified since, as the remaining steps would not start from the expected code.
+ * <p>
+ * A step is not rolled back when it fails: the files it wrote before failing stay changed and are not recorded in the
+ * checkpoint, so resuming runs the failed step again on top of its own partial changes. The recipes only change the code
+ * which is not migrated yet, so running the step again completes its changes.
+ */
+class MigrationPlan {
+
+    private static final Logger log = Logger.getLogger(MigrationPlan.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    // Hash of a file deleted by a step
+    static final String DELETED = "deleted";
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    record Step(String recipe, Map<String, Object> options) {
+    }
+
+    record CompletedStep(int step, String recipe, Map<String, String> changedFiles) {
+    }
+
+    record Checkpoint(String plan, String root, List<Step> steps, List<CompletedStep> completed) {
+    }
+
+    /**
+     * Runs a step on the source set, writes its changes to disk, and returns the relative paths of the changed files.
+     */
+    @FunctionalInterface
+    interface StepRunner {
+        List<Path> run(int index, Step step) throws IOException;
+    }
+
+    private final Path root;
+    private final List<Step> steps;
+    private final String id;
+    private final Path checkpointFile;
+
+    MigrationPlan(Path root, List<Step> steps, Path checkpointDirectory) {
+        this.root = root;
+        this.steps = List.copyOf(steps);
+        this.id = id(root, steps);
+        this.checkpointFile = checkpointDirectory.resolve("plan-" + id + ".json");
+    }
+
+    /**
+     * Parses a JSON array of steps, such as `[{"recipe": "org.openrewrite.java.migrate.UpgradeJavaVersion", "options": {"version": 21}}]`.
+     */
+    static List<Step> parse(String json) throws IOException {
+        List<Step> steps = mapper.readValue(json, new TypeReference<List<Step>>() {
+        });
+        List<Step> normalized = new ArrayList<>();
+        for (Step step : steps) {
+            if (step.recipe() == null || step.recipe().isBlank()) {
+                throw new IllegalArgumentException("Each step of the plan must have a recipe");
+            }
+            // Sorted options, so that the same plan always has the same id
+            normalized.add(new Step(step.recipe().trim(), step.options() == null ? Map.of() : new TreeMap<>(step.options())));
+        }
+        if (normalized.isEmpty()) {
+            throw new IllegalArgumentException("The plan has no step");
+        }
+        return normalized;
+    }
+
+    static String id(Path root, List<Step> steps) {
+        try {
+            return sha256((root.toAbsolutePath().normalize() + "\n" + mapper.writeValueAsString(steps)).getBytes(StandardCharsets.UTF_8)).substring(0, 16);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot serialize the plan", e);
+        }
+    }
+
+    String id() {
+        return id;
+    }
+
+    List<Step> steps() {
+        return steps;
+    }
+
+    /**
+     * Returns the checkpoint of the last execution of this plan, or null if it has never been executed.
+     */
+    Checkpoint checkpoint() throws IOException {
+        if (!Files.exists(checkpointFile)) {
+            return null;
+        }
+        return mapper.readValue(checkpointFile.toFile(), Checkpoint.class);
+    }
+
+    void discardCheckpoint() throws IOException {
+        Files.deleteIfExists(checkpointFile);
+    }
+
+    /**
+     * Returns the files changed by the completed steps which do not have the hash recorded in the checkpoint anymore.
+     */
+    List<Path> modifiedSince(Checkpoint checkpoint) throws IOException {
+        Map<String, String> expected = new TreeMap<>();
+        for (CompletedStep completed : checkpoint.completed()) {
+            expected.putAll(completed.changedFiles());
+        }
+        List<Path> modified = new ArrayList<>();
+        for (Map.Entry<String, String> entry : expected.entrySet()) {
+            if (!entry.getValue().equals(hash(root.resolve(entry.getKey())))) {
+                modified.add(Path.of(entry.getKey()));
+            }
+        }
+        return modified;
+    }
+
+    /**
+     * Runs the steps following the last completed one, writing the checkpoint after each of them. Returns the steps
+     * completed by this execution. If a step fails, the checkpoint is left at the previous step, and the changes the
+     * failed step wrote are left as they are.
+     */
+    List<CompletedStep> execute(StepRunner runner) throws IOException {
+        Checkpoint checkpoint = checkpoint();
+        List<CompletedStep> completed = checkpoint == null ? new ArrayList<>() : new ArrayList<>(checkpoint.completed());
+        List<CompletedStep> executed = new ArrayList<>();
+        for (int index = completed.size(); index < steps.size(); index++) {
+            Step step = steps.get(index);
+            log.info("Execute the step " + (index + 1) + "/" + steps.size() + " of the plan " + id + ": " + step.recipe());
+            Map<String, String> changedFiles = new TreeMap<>();
+            for (Path path : runner.run(index, step)) {
+                changedFiles.put(path.toString(), hash(root.resolve(path)));
+            }
+            CompletedStep completedStep = new CompletedStep(index + 1, step.recipe(), changedFiles);
+            completed.add(completedStep);
+            executed.add(completedStep);
+            save(new Checkpoint(id, root.toAbsolutePath().normalize().toString(), steps, completed));
+        }
+        return executed;
+    }
+
+    private void save(Checkpoint checkpoint) throws IOException {
+        Files.createDirectories(checkpointFile.getParent());
+        // Written aside then moved, so a crash while writing does not corrupt the previous checkpoint
+        Path temporaryFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        mapper.writeValue(temporaryFile.toFile(), checkpoint);
+        Files.move(temporaryFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static String hash(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return DELETED;
+        }
+        return sha256(Files.readAllBytes(file));
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
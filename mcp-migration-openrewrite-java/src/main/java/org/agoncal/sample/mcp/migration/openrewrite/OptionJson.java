@@ -1,4 +0,0 @@
-package org.agoncal.sample.mcp.migration.openrewrite;
-
-record OptionJson(String name, String displayName, String description, String type) {
-}
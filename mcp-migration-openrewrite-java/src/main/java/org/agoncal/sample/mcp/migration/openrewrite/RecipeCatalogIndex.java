@@ -0,0 +1,327 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jboss.logging.Logger;
+import org.openrewrite.config.OptionDescriptor;
+import org.openrewrite.config.RecipeDescriptor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory inverted index over the OpenRewrite recipe catalog (`open_rewrite_recipe_source.csv`). Each token of the
+ * recipe name, display name, description and options points to the recipes containing it, so a search only looks at
+ * the postings of the query tokens instead of scanning the whole catalog. The catalog has no recipe name column, so the
+ * rows are named after the recipes on the classpath at build time, when {@link JavaRecipeCatalog#main(String[])}
+ * serializes them next to the classes, and the index is loaded from these recipes at runtime without scanning the
+ * classpath.
+ */
+class RecipeCatalogIndex {
+
+    private static final Logger log = Logger.getLogger(RecipeCatalogIndex.class);
+    static final String CATALOG = "/open_rewrite_recipe_source.csv";
+    static final String INDEX = "/recipe-catalog-index.json";
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float DISPLAY_NAME_WEIGHT = 3f;
+    private static final float OPTION_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    // A token only matching as a prefix counts less than an exact match
+    private static final float PREFIX_PENALTY = 0.5f;
+
+    // Null for the recipes which are not on the classpath, or cannot be told apart from another recipe on the classpath
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record CatalogRecipe(String name, String displayName, String description, String repository, String link,
+                         Set<String> tags, List<CatalogOption> options) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record CatalogOption(String name, String displayName, String description, String example) {
+    }
+
+    record SearchResult(float score, CatalogRecipe recipe) {
+    }
+
+    private final List<CatalogRecipe> recipes = new ArrayList<>();
+    // Token -> recipe id -> weight, sorted so that prefixes can be looked up with a range query
+    private final TreeMap<String, Map<Integer, Float>> postings = new TreeMap<>();
+    // Tag -> recipe ids
+    private final Map<String, Set<Integer>> recipesByTag = new HashMap<>();
+
+    /**
+     * Returns the index of the catalog generated at build time, or generates the catalog if it is not on the classpath
+     * (e.g. when the server is started from an IDE which does not run the exec-maven-plugin).
+     */
+    static RecipeCatalogIndex load() {
+        try (InputStream inputStream = RecipeCatalogIndex.class.getResourceAsStream(INDEX)) {
+            List<CatalogRecipe> recipes;
+            if (inputStream != null) {
+                recipes = new ObjectMapper().readValue(inputStream, new TypeReference<List<CatalogRecipe>>() {
+                });
+            } else {
+                log.warn("The recipe index " + INDEX + " has not been generated at build time, scanning the classpath");
+                recipes = catalogRecipes(new RecipeRegistry(1).descriptors().values());
+            }
+            RecipeCatalogIndex index = new RecipeCatalogIndex();
+            recipes.forEach(index::add);
+            return index;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot load the recipe index " + INDEX, e);
+        }
+    }
+
+    /**
+     * Returns the serialized recipes of the catalog, named after the recipes on the classpath, which is only scanned at
+     * build time.
+     */
+    static byte[] generate() throws IOException {
+        return new ObjectMapper().writeValueAsBytes(catalogRecipes(new RecipeRegistry(1).descriptors().values()));
+    }
+
+    static List<CatalogRecipe> catalogRecipes(Collection<RecipeDescriptor> descriptors) throws IOException {
+        try (InputStream inputStream = RecipeCatalogIndex.class.getResourceAsStream(CATALOG)) {
+            if (inputStream == null) {
+                throw new IOException("The recipe catalog " + CATALOG + " is not on the classpath");
+            }
+            return catalogRecipes(new InputStreamReader(inputStream, StandardCharsets.UTF_8), descriptors);
+        }
+    }
+
+    /**
+     * Returns the recipes of the catalog with the name of the recipe on the classpath each row describes, followed by the
+     * recipes on the classpath which are not in the catalog, so every recipe `run_recipe` can execute is found by name.
+     */
+    static List<CatalogRecipe> catalogRecipes(Reader reader, Collection<RecipeDescriptor> descriptors) throws IOException {
+        Map<String, List<RecipeDescriptor>> descriptorsByDisplayName = new HashMap<>();
+        for (RecipeDescriptor descriptor : descriptors) {
+            descriptorsByDisplayName.computeIfAbsent(descriptor.getDisplayName(), k -> new ArrayList<>()).add(descriptor);
+        }
+        Set<String> cataloged = new HashSet<>();
+        ObjectMapper mapper = new ObjectMapper();
+        List<CatalogRecipe> recipes = new ArrayList<>();
+        List<List<String>> rows = parseCsv(reader);
+        List<String> header = rows.getFirst();
+        int repositoryPath = header.indexOf("repositoryPath");
+        int repositoryLink = header.indexOf("repositoryLink");
+        int displayName = header.indexOf("displayName");
+        int description = header.indexOf("description");
+        int recipeType = header.indexOf("recipeType");
+        int options = header.indexOf("options");
+        for (List<String> row : rows.subList(1, rows.size())) {
+            if (row.size() != header.size()) {
+                continue;
+            }
+            String repository = row.get(repositoryPath);
+            Set<String> tags = new LinkedHashSet<>();
+            tags.add(row.get(recipeType).toLowerCase());
+            tags.add(repository.substring(repository.lastIndexOf('/') + 1).replaceFirst("^rewrite-", ""));
+            List<CatalogOption> catalogOptions = row.get(options).isBlank() ? List.of() :
+                mapper.readValue(row.get(options), new TypeReference<List<CatalogOption>>() {
+                });
+            String name = name(descriptorsByDisplayName.getOrDefault(row.get(displayName), List.of()), row.get(description));
+            if (name != null) {
+                cataloged.add(name);
+            }
+            recipes.add(new CatalogRecipe(name, row.get(displayName), row.get(description), repository, row.get(repositoryLink), tags, catalogOptions));
+        }
+        for (RecipeDescriptor descriptor : descriptors) {
+            if (cataloged.add(descriptor.getName())) {
+                List<CatalogOption> catalogOptions = new ArrayList<>();
+                for (OptionDescriptor option : descriptor.getOptions()) {
+                    catalogOptions.add(new CatalogOption(option.getName(), option.getDisplayName(), option.getDescription(), option.getExample()));
+                }
+                recipes.add(new CatalogRecipe(descriptor.getName(), descriptor.getDisplayName(), descriptor.getDescription(), null, null, Set.of(), catalogOptions));
+            }
+        }
+        return recipes;
+    }
+
+    /**
+     * Returns the name of the recipe a row of the catalog describes, telling apart the recipes sharing a display name by
+     * their description. Returns null if the recipe is not on the classpath, or cannot be told apart.
+     */
+    private static String name(List<RecipeDescriptor> descriptors, String description) {
+        if (descriptors.size() > 1) {
+            descriptors = descriptors.stream().filter(descriptor -> description.equals(descriptor.getDescription())).toList();
+        }
+        return descriptors.size() == 1 ? descriptors.getFirst().getName() : null;
+    }
+
+    void add(CatalogRecipe recipe) {
+        int id = recipes.size();
+        recipes.add(recipe);
+        Map<String, Float> weights = new HashMap<>();
+        addTokens(weights, recipe.name(), NAME_WEIGHT);
+        addTokens(weights, recipe.displayName(), DISPLAY_NAME_WEIGHT);
+        addTokens(weights, recipe.description(), DESCRIPTION_WEIGHT);
+        for (CatalogOption option : recipe.options()) {
+            addTokens(weights, option.name(), OPTION_WEIGHT);
+            addTokens(weights, option.displayName(), OPTION_WEIGHT);
+            addTokens(weights, option.description(), DESCRIPTION_WEIGHT);
+        }
+        for (Map.Entry<String, Float> weight : weights.entrySet()) {
+            postings.computeIfAbsent(weight.getKey(), k -> new HashMap<>()).put(id, weight.getValue());
+        }
+        for (String tag : recipe.tags()) {
+            recipesByTag.computeIfAbsent(tag, k -> new LinkedHashSet<>()).add(id);
+        }
+    }
+
+    int size() {
+        return recipes.size();
+    }
+
+    Set<String> tags() {
+        return recipesByTag.keySet();
+    }
+
+    /**
+     * Returns the recipes matching every token of the query (exactly or as a prefix) and all the tags, best first.
+     */
+    List<SearchResult> search(String query, Collection<String> tags, int limit) {
+        Map<Integer, Float> scores = null;
+        for (String token : new LinkedHashSet<>(tokenize(query))) {
+            Map<Integer, Float> tokenScores = scoreToken(token);
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                // Every query token has to match
+                scores.keySet().retainAll(tokenScores.keySet());
+                for (Map.Entry<Integer, Float> score : scores.entrySet()) {
+                    score.setValue(score.getValue() + tokenScores.get(score.getKey()));
+                }
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+        if (scores == null) {
+            // No query, only filter on the tags
+            scores = new HashMap<>();
+            for (int id = 0; id < recipes.size(); id++) {
+                scores.put(id, 0f);
+            }
+        }
+        if (tags != null) {
+            for (String tag : tags) {
+                if (tag.isBlank()) {
+                    continue;
+                }
+                scores.keySet().retainAll(recipesByTag.getOrDefault(tag.trim().toLowerCase(), Set.of()));
+            }
+        }
+        return scores.entrySet().stream()
+            .sorted(Map.Entry.<Integer, Float>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()))
+            .limit(Math.max(0, limit))
+            .map(score -> new SearchResult(score.getValue(), recipes.get(score.getKey())))
+            .toList();
+    }
+
+    private Map<Integer, Float> scoreToken(String token) {
+        Map<Integer, Float> scores = new HashMap<>();
+        for (Map.Entry<String, Map<Integer, Float>> posting : postings.subMap(token, true, token + Character.MAX_VALUE, true).entrySet()) {
+            float idf = (float) Math.log(1 + (double) recipes.size() / posting.getValue().size());
+            float penalty = posting.getKey().equals(token) ? 1f : PREFIX_PENALTY;
+            for (Map.Entry<Integer, Float> weight : posting.getValue().entrySet()) {
+                // Keep the best matching token for each recipe
+                scores.merge(weight.getKey(), weight.getValue() * idf * penalty, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    private static void addTokens(Map<String, Float> weights, String text, float weight) {
+        for (String token : tokenize(text)) {
+            weights.merge(token, weight, Math::max);
+        }
+    }
+
+    /**
+     * Splits on anything which is not a letter or a digit, and on camel case humps so `fileMatcher` is found by `file`
+     * and `matcher` as well as `filematcher`.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            tokens.add(word.toLowerCase());
+            String[] humps = word.split("(?<=\\p{Ll})(?=\\p{Lu})");
+            if (humps.length > 1) {
+                Arrays.stream(humps).map(String::toLowerCase).forEach(tokens::add);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Parses a semicolon separated file whose values can be quoted, span several lines, and escape quotes by doubling
+     * them.
+     */
+    static List<List<String>> parseCsv(Reader reader) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        List<String> row = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        BufferedReader in = new BufferedReader(reader);
+        int c = in.read();
+        // Skips the byte order mark
+        if (c == '\uFEFF') {
+            c = in.read();
+        }
+        for (; c != -1; c = in.read()) {
+            if (quoted) {
+                if (c == '"') {
+                    in.mark(1);
+                    if (in.read() == '"') {
+                        value.append('"');
+                    } else {
+                        in.reset();
+                        quoted = false;
+                    }
+                } else {
+                    value.append((char) c);
+                }
+            } else if (c == '"' && value.isEmpty()) {
+                quoted = true;
+            } else if (c == ';') {
+                row.add(value.toString());
+                value.setLength(0);
+            } else if (c == '\n') {
+                row.add(value.toString());
+                value.setLength(0);
+                rows.add(row);
+                row = new ArrayList<>();
+            } else if (c != '\r') {
+                value.append((char) c);
+            }
+        }
+        if (!value.isEmpty() || !row.isEmpty()) {
+            row.add(value.toString());
+            rows.add(row);
+        }
+        return rows;
+    }
+}
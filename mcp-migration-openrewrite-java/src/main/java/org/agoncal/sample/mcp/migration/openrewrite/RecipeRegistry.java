@@ -0,0 +1,157 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jboss.logging.Logger;
+import org.openrewrite.Recipe;
+import org.openrewrite.Validated;
+import org.openrewrite.config.Environment;
+import org.openrewrite.config.RecipeDescriptor;
+import org.openrewrite.internal.ObjectMappers;
+import org.openrewrite.internal.RecipeIntrospectionUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Registry of all the OpenRewrite recipes available on the runtime classpath. The classpath is only scanned the first
+ * time a recipe is looked up, and the descriptors are cached afterwards. The last `maxRecipes` configured recipe
+ * instances are cached too, the least recently used ones being evicted, as each set of options makes a new instance.
+ */
+class RecipeRegistry {
+
+    private static final Logger log = Logger.getLogger(RecipeRegistry.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    // Same mapper as OpenRewrite, creating the recipes with their constructor when it has no @JsonCreator
+    private static final ObjectMapper recipeMapper = ObjectMappers.propertyBasedMapper(RecipeRegistry.class.getClassLoader());
+
+    private final int maxRecipes;
+    private volatile Environment environment;
+    private volatile Map<String, RecipeDescriptor> descriptors;
+    // Least recently used configured recipes, by recipe name and options
+    private final Map<String, Recipe> recipes = new LinkedHashMap<>(16, 0.75f, true);
+
+    RecipeRegistry(int maxRecipes) {
+        this.maxRecipes = Math.max(1, maxRecipes);
+    }
+
+    Environment environment() {
+        if (environment == null) {
+            synchronized (this) {
+                if (environment == null) {
+                    long start = System.currentTimeMillis();
+                    environment = Environment.builder().scanRuntimeClasspath().build();
+                    log.info("Scanned the runtime classpath for recipes in " + (System.currentTimeMillis() - start) + " ms");
+                }
+            }
+        }
+        return environment;
+    }
+
+    Map<String, RecipeDescriptor> descriptors() {
+        if (descriptors == null) {
+            synchronized (this) {
+                if (descriptors == null) {
+                    descriptors = environment().listRecipeDescriptors().stream()
+                        .collect(Collectors.toMap(RecipeDescriptor::getName, descriptor -> descriptor, (first, second) -> first, TreeMap::new));
+                    log.info("Found " + descriptors.size() + " recipes on the runtime classpath");
+                }
+            }
+        }
+        return descriptors;
+    }
+
+    RecipeDescriptor descriptor(String name) {
+        RecipeDescriptor descriptor = descriptors().get(name);
+        if (descriptor == null) {
+            throw new IllegalArgumentException("No recipe named " + name + " is available on the classpath");
+        }
+        return descriptor;
+    }
+
+    /**
+     * Returns the recipe configured with the given options, a JSON object whose keys are the recipe option names.
+     */
+    Recipe recipe(String name, String options) {
+        Map<String, Object> parsedOptions = parseOptions(options);
+        String key;
+        try {
+            key = name + mapper.writeValueAsString(parsedOptions);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("The options of the recipe " + name + " are not valid JSON", e);
+        }
+        synchronized (recipes) {
+            Recipe recipe = recipes.get(key);
+            if (recipe == null) {
+                recipe = createRecipe(name, parsedOptions);
+                recipes.put(key, recipe);
+                if (recipes.size() > maxRecipes) {
+                    recipes.remove(recipes.keySet().iterator().next());
+                }
+            }
+            return recipe;
+        }
+    }
+
+    int size() {
+        synchronized (recipes) {
+            return recipes.size();
+        }
+    }
+
+    private Recipe createRecipe(String name, Map<String, Object> options) {
+        Class<?> recipeClass = recipeClass(name);
+        Recipe recipe;
+        if (recipeClass == null) {
+            // Declarative recipes only exist in the YAML files found on the classpath and have no options
+            if (!options.isEmpty()) {
+                throw new IllegalArgumentException("The declarative recipe " + name + " does not take options");
+            }
+            descriptor(name);
+            recipe = environment().activateRecipes(name);
+        } else if (options.isEmpty()) {
+            recipe = RecipeIntrospectionUtils.constructRecipe(recipeClass);
+        } else {
+            // Recipes are polymorphic in Jackson, the "@c" property holds the concrete class
+            Map<String, Object> withJsonType = new TreeMap<>(options);
+            withJsonType.put("@c", name);
+            try {
+                recipe = (Recipe) recipeMapper.convertValue(withJsonType, recipeClass);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("The options of the recipe " + name + " are not valid: " + e.getMessage(), e);
+            }
+        }
+
+        Validated<Object> validated = recipe.validate();
+        if (validated.isInvalid()) {
+            throw new IllegalArgumentException("The recipe " + name + " is not correctly configured: " + validated.failures().stream()
+                .map(failure -> failure.getProperty() + " " + failure.getMessage())
+                .collect(Collectors.joining(", ")));
+        }
+        return recipe;
+    }
+
+    private static Class<?> recipeClass(String name) {
+        try {
+            Class<?> recipeClass = Class.forName(name, false, Thread.currentThread().getContextClassLoader());
+            return Recipe.class.isAssignableFrom(recipeClass) ? recipeClass : null;
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static Map<String, Object> parseOptions(String options) {
+        if (options == null || options.isBlank()) {
+            return new TreeMap<>();
+        }
+        try {
+            return new TreeMap<>(mapper.readValue(options, new TypeReference<Map<String, Object>>() {
+            }));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("The recipe options must be a JSON object: " + e.getOriginalMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Parser;
+import org.openrewrite.SourceFile;
+import org.openrewrite.java.JavaParser;
+import org.openrewrite.properties.PropertiesParser;
+import org.openrewrite.xml.XmlParser;
+import org.openrewrite.yaml.YamlParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Parses the Java, XML, properties and YAML files of the application into one source set, so recipes spanning several
+ * file types (e.g. `BeansXmlNamespace`) migrate them in one pass. In a batch, the non Java files are parsed on the
+ * common pool while the Java files, which are the most expensive to parse, are parsed on the calling thread.
+ * <p>
+ * The pom.xml files can be parsed as Maven POMs instead of plain XML, so the recipes needing both the Java code and the
+ * resolved dependencies (e.g. `AddJaxwsRuntime`) see them in the same source set. A POM is then resolved by the
+ * {@link MavenReactor}, along with the modules it depends on, so its parents and the BOMs it imports are found, and only
+ * its LST is kept.
+ * <p>
+ * The Java files are parsed by batches, and parsed again when their LSTs have been evicted, so the Java parser should
+ * have the {@link #javaSourceRoots source roots} of the application on its classpath: the types of the application
+ * are then found whatever the batch they are parsed in, instead of being unknown to the files parsed before them.
+ */
+class SourceParsers {
+
+    private static final Pattern PACKAGE = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE);
+    // Stateless, so they only tell which files are accepted before the Java parser is built
+    private static final List<Parser> OTHER_PARSERS = List.of(new XmlParser(), new PropertiesParser(), new YamlParser());
+
+    private final Path root;
+    private final ExecutionContext executionContext;
+    private final JavaParser javaParser;
+    // Resolves the requested pom.xml files with the reactor, null when they are parsed as plain XML
+    private final Function<List<Parser.Input>, List<SourceFile>> pomXmlParser;
+
+    SourceParsers(Path root, JavaParser javaParser, ExecutionContext executionContext) {
+        this(root, javaParser, null, executionContext);
+    }
+
+    SourceParsers(Path root, JavaParser javaParser, Function<List<Parser.Input>, List<SourceFile>> pomXmlParser, ExecutionContext executionContext) {
+        this.root = root;
+        this.javaParser = javaParser;
+        this.pomXmlParser = pomXmlParser;
+        this.executionContext = executionContext;
+    }
+
+    static boolean isPomXml(Path file) {
+        return file.getFileName() != null && file.getFileName().toString().equals("pom.xml");
+    }
+
+    static boolean accept(Path file) {
+        return isJava(file) || OTHER_PARSERS.stream().anyMatch(parser -> parser.accept(file));
+    }
+
+    static boolean isJava(Path file) {
+        return file.toString().endsWith(".java") && !file.endsWith("module-info.java");
+    }
+
+    /**
+     * Returns the source roots of the Java files, found from the package of one Java file of each directory.
+     */
+    static Set<Path> javaSourceRoots(List<Path> files) {
+        Set<Path> directories = new LinkedHashSet<>();
+        Set<Path> sourceRoots = new LinkedHashSet<>();
+        for (Path file : files) {
+            Path directory = file.getParent();
+            if (directory == null || !isJava(file) || !directories.add(directory)) {
+                continue;
+            }
+            String packageName;
+            try {
+                Matcher matcher = PACKAGE.matcher(Files.readString(file));
+                packageName = matcher.find() ? matcher.group(1) : "";
+            } catch (IOException e) {
+                // E.g. not encoded in UTF-8, the other files of the directory tell its source root
+                directories.remove(directory);
+                continue;
+            }
+            if (packageName.isEmpty()) {
+                sourceRoots.add(directory);
+                continue;
+            }
+            // The files whose directory does not match their package are not found by the compiler either
+            Path packagePath = directory.getFileSystem().getPath(packageName.replace('.', '/'));
+            if (directory.endsWith(packagePath)) {
+                Path sourceRoot = directory;
+                for (int i = 0; i < packagePath.getNameCount(); i++) {
+                    sourceRoot = sourceRoot.getParent();
+                }
+                sourceRoots.add(sourceRoot);
+            }
+        }
+        return sourceRoots;
+    }
+
+    /**
+     * Parses inputs whose paths are absolute into LSTs whose source paths are relative to the root. Inputs no parser
+     * accepts are ignored.
+     */
+    List<SourceFile> parse(List<Parser.Input> inputs) {
+        List<Parser.Input> javaInputs = new ArrayList<>();
+        List<Parser.Input> pomXmlInputs = new ArrayList<>();
+        Map<Parser, List<Parser.Input>> otherInputs = new LinkedHashMap<>();
+        for (Parser.Input input : inputs) {
+            if (isJava(input.getPath())) {
+                javaInputs.add(input);
+            } else if (pomXmlParser != null && isPomXml(input.getPath())) {
+                pomXmlInputs.add(input);
+            } else {
+                OTHER_PARSERS.stream()
+                    .filter(parser -> parser.accept(input.getPath()))
+                    .findFirst()
+                    .ifPresent(parser -> otherInputs.computeIfAbsent(parser, p -> new ArrayList<>()).add(input));
+            }
+        }
+
+        List<CompletableFuture<List<SourceFile>>> others = new ArrayList<>();
+        for (Map.Entry<Parser, List<Parser.Input>> entry : otherInputs.entrySet()) {
+            // The parsers are lazy, so the stream is collected on the pool too
+            others.add(CompletableFuture.supplyAsync(() -> entry.getKey().parseInputs(entry.getValue(), root, executionContext).collect(Collectors.toList())));
+        }
+        if (!pomXmlInputs.isEmpty()) {
+            others.add(CompletableFuture.supplyAsync(() -> pomXmlParser.apply(pomXmlInputs)));
+        }
+
+        List<SourceFile> sourceFiles = new ArrayList<>(inputs.size());
+        if (!javaInputs.isEmpty()) {
+            sourceFiles.addAll(javaParser.parseInputs(javaInputs, root, executionContext).collect(Collectors.toList()));
+            // Required before parsing the same types again, the types of the application being found in its source roots
+            javaParser.reset();
+        }
+        for (CompletableFuture<List<SourceFile>> other : others) {
+            sourceFiles.addAll(other.join());
+        }
+        return sourceFiles;
+    }
+}
@@ -0,0 +1,331 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.openrewrite.Preconditions;
+import org.openrewrite.Recipe;
+import org.openrewrite.Result;
+import org.openrewrite.ScanningRecipe;
+import org.openrewrite.SourceFile;
+import org.openrewrite.TreeVisitor;
+import org.openrewrite.java.MethodMatcher;
+import org.openrewrite.java.internal.TypesInUse;
+import org.openrewrite.java.migrate.RemovedSecurityManagerMethods;
+import org.openrewrite.java.migrate.ReplaceComSunAWTUtilitiesMethods;
+import org.openrewrite.java.migrate.jakarta.ApplicationPathWildcardNoLongerAccepted;
+import org.openrewrite.java.migrate.jakarta.RemoveBeanIsNullable;
+import org.openrewrite.java.migrate.jakarta.UpdateBeanManagerMethods;
+import org.openrewrite.java.migrate.jakarta.UpdateGetRealPath;
+import org.openrewrite.java.migrate.lang.ThreadStopUnsupported;
+import org.openrewrite.java.search.UsesMethod;
+import org.openrewrite.java.search.UsesType;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.JavaSourceFile;
+import org.openrewrite.java.tree.JavaType;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inverted index built at parse time, from the types and methods referenced by each Java file to the paths of these
+ * files. It lets a recipe only visit the files that use the types it migrates, instead of the entire source set. The
+ * files are selected as the `UsesType` and `UsesMethod` preconditions of the recipe would accept them.
+ */
+class TypeUsageIndex {
+
+    /**
+     * Types that a file must reference for the recipe, configured by default, to change it. The recipes are narrowed down
+     * by their preconditions, so only the recipes whose visitor checks the types itself are listed here. The recipes
+     * which are not listed, or are configured otherwise, run on every file.
+     */
+    static final Map<Class<? extends Recipe>, List<String>> TYPES_USED_BY_RECIPE = Map.ofEntries(
+        Map.entry(RemovedSecurityManagerMethods.class, List.of("java.lang.SecurityManager")),
+        Map.entry(ReplaceComSunAWTUtilitiesMethods.class, List.of("com.sun.awt.AWTUtilities")),
+        Map.entry(ThreadStopUnsupported.class, List.of("java.lang.Thread")),
+        Map.entry(ApplicationPathWildcardNoLongerAccepted.class, List.of("jakarta.ws.rs.ApplicationPath")),
+        Map.entry(RemoveBeanIsNullable.class, List.of("jakarta.enterprise.inject.spi.Bean")),
+        Map.entry(UpdateBeanManagerMethods.class, List.of("javax.enterprise.inject.spi.BeanManager", "jakarta.enterprise.inject.spi.BeanManager")),
+        Map.entry(UpdateGetRealPath.class, List.of("jakarta.servlet.ServletRequest", "jakarta.servlet.ServletRequestWrapper"))
+    );
+
+    // Anonymous classes of the visitors combining checks
+    private static final Class<?> OR = Preconditions.or(new UsesType<>("java.lang.Object", false)).getClass();
+    private static final Class<?> AND = Preconditions.and(new UsesType<>("java.lang.Object", false)).getClass();
+
+    // Fully qualified type name -> files referencing it. The maps are concurrent, as the index is updated when recipes
+    // write their changes while the impact of other recipes is estimated in parallel
+    private final Map<String, Set<Path>> filesByType = new ConcurrentHashMap<>();
+    // Method pattern, such as "declaring.Type methodName(java.lang.String)" -> type of the method and files invoking it
+    private final Map<String, MethodUsage> filesByMethod = new ConcurrentHashMap<>();
+    // File -> keys it was indexed under, so a file can be removed when it changes
+    private final Map<Path, Set<String>> typesByFile = new ConcurrentHashMap<>();
+    private final Map<Path, Set<String>> methodsByFile = new ConcurrentHashMap<>();
+
+    private record MethodUsage(JavaType.Method type, Set<Path> files) {
+    }
+
+    void add(SourceFile sourceFile) {
+        if (!(sourceFile instanceof JavaSourceFile javaSourceFile)) {
+            return;
+        }
+        Path path = sourceFile.getSourcePath();
+        TypesInUse typesInUse = javaSourceFile.getTypesInUse();
+        Set<String> types = new HashSet<>();
+        for (JavaType type : typesInUse.getTypesInUse()) {
+            addType(types, type);
+        }
+        // UsesType also accepts the imported types, even if they are not used
+        for (J.Import anImport : javaSourceFile.getImports()) {
+            addType(types, anImport.isStatic() ? anImport.getQualid().getTarget().getType() : anImport.getQualid().getType());
+        }
+        Map<String, JavaType.Method> methods = new HashMap<>();
+        for (JavaType.Method method : typesInUse.getUsedMethods()) {
+            if (method.getDeclaringType() != null) {
+                addType(types, method.getDeclaringType());
+                addType(types, method.getReturnType());
+                method.getParameterTypes().forEach(parameterType -> addType(types, parameterType));
+                methods.putIfAbsent(MethodMatcher.methodPattern(method), method);
+            }
+        }
+        for (String type : types) {
+            index(filesByType, type, path);
+        }
+        for (Map.Entry<String, JavaType.Method> method : methods.entrySet()) {
+            // The first file invoking a method gives its type, which is the same for all the files
+            filesByMethod.compute(method.getKey(), (k, usage) -> {
+                MethodUsage indexed = usage == null ? new MethodUsage(method.getValue(), ConcurrentHashMap.newKeySet()) : usage;
+                indexed.files().add(path);
+                return indexed;
+            });
+        }
+        typesByFile.put(path, types);
+        methodsByFile.put(path, methods.keySet());
+    }
+
+    void remove(Path path) {
+        for (String type : typesByFile.getOrDefault(path, Set.of())) {
+            unindex(filesByType, type, path);
+        }
+        for (String method : methodsByFile.getOrDefault(path, Set.of())) {
+            filesByMethod.computeIfPresent(method, (k, usage) -> {
+                usage.files().remove(path);
+                return usage.files().isEmpty() ? null : usage;
+            });
+        }
+        typesByFile.remove(path);
+        methodsByFile.remove(path);
+    }
+
+    /**
+     * Re-indexes the files changed, deleted or generated by a recipe run.
+     */
+    void update(List<Result> results) {
+        for (Result result : results) {
+            if (result.getBefore() != null) {
+                remove(result.getBefore().getSourcePath());
+            }
+            if (result.getAfter() != null) {
+                add(result.getAfter());
+            }
+        }
+    }
+
+    Set<Path> filesUsingType(String fullyQualifiedName) {
+        return Set.copyOf(filesByType.getOrDefault(fullyQualifiedName, Set.of()));
+    }
+
+    /**
+     * Returns the files invoking a method matched by the matcher, which sees the whole type of the method, e.g. its
+     * parameter types and the supertypes of its declaring type.
+     */
+    Set<Path> filesUsingMethod(MethodMatcher methodMatcher) {
+        Set<Path> files = new HashSet<>();
+        for (MethodUsage usage : filesByMethod.values()) {
+            if (methodMatcher.matches(usage.type())) {
+                files.addAll(usage.files());
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Returns the paths of the source files the recipe can possibly change, or all of them when the recipe cannot be
+     * narrowed down, so the LSTs do not have to be in memory.
+     */
+    List<Path> candidatePaths(Recipe recipe, List<Path> paths) {
+        Set<Path> candidatePaths = candidatePaths(recipe);
+        if (candidatePaths == null) {
+            return paths;
+        }
+        List<Path> candidates = new ArrayList<>();
+        for (Path path : paths) {
+            // Only Java files can use the types, so the XML, properties and YAML files are left out
+            if (candidatePaths.contains(path)) {
+                candidates.add(path);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns the paths of the files the recipe can change, or null if every file has to be visited.
+     */
+    Set<Path> candidatePaths(Recipe recipe) {
+        // Scanning and composite recipes may need to see every file
+        if (recipe instanceof ScanningRecipe || !recipe.getRecipeList().isEmpty()) {
+            return null;
+        }
+        Set<Path> files = filesMatching(preconditions(recipe));
+        if (files != null) {
+            return files;
+        }
+        List<String> types = TYPES_USED_BY_RECIPE.get(recipe.getClass());
+        if (types != null && hasDefaultConfiguration(recipe)) {
+            return filesUsingAnyType(types);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the check of the recipe visitor, e.g. `Preconditions.check(new UsesType<>(...), visitor)`, or null if the
+     * visitor has no precondition.
+     */
+    static TreeVisitor<?, ?> preconditions(Recipe recipe) {
+        try {
+            return recipe.getVisitor() instanceof Preconditions.Check check ? check.getCheck() : null;
+        } catch (RuntimeException e) {
+            // Some recipes fail to create their visitor when they miss options
+            return null;
+        }
+    }
+
+    /**
+     * Returns the files a precondition accepts, from its `UsesType` and `UsesMethod` checks, combined with
+     * `Preconditions.or` and `Preconditions.and`. Returns null if the files cannot be told from the index.
+     */
+    private Set<Path> filesMatching(TreeVisitor<?, ?> check) {
+        if (check instanceof UsesType<?> usesType) {
+            return usesType.getFullyQualifiedType().contains("*") ? null : filesUsingType(usesType.getFullyQualifiedType());
+        }
+        if (check instanceof UsesMethod<?> usesMethod) {
+            return filesUsingMethod(usesMethod.getMethodMatcher());
+        }
+        if (check == null || (check.getClass() != OR && check.getClass() != AND)) {
+            return null;
+        }
+        Set<Path> files = null;
+        for (TreeVisitor<?, ?> visitor : combined(check)) {
+            Set<Path> visitorFiles = filesMatching(visitor);
+            if (check.getClass() == OR) {
+                // Any check may accept a file the index cannot tell
+                if (visitorFiles == null) {
+                    return null;
+                }
+                files = files == null ? visitorFiles : union(files, visitorFiles);
+            } else if (visitorFiles != null) {
+                // The checks the index cannot tell only accept fewer files
+                files = files == null ? visitorFiles : intersection(files, visitorFiles);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Returns the visitors combined by `Preconditions.or` or `Preconditions.and`, which keep them in a field of their
+     * anonymous class.
+     */
+    private static List<TreeVisitor<?, ?>> combined(TreeVisitor<?, ?> check) {
+        try {
+            for (Field field : check.getClass().getDeclaredFields()) {
+                if (field.getType() == TreeVisitor[].class) {
+                    field.setAccessible(true);
+                    return List.of((TreeVisitor<?, ?>[]) field.get(check));
+                }
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // The visitors cannot be told, as if there were none
+        }
+        return List.of();
+    }
+
+    /**
+     * Returns whether the recipe is configured as its no-argument constructor configures it, as the types of
+     * {@link #TYPES_USED_BY_RECIPE} are the ones of its default configuration. The fields of the recipe are compared, as
+     * some of them are not options of its descriptor.
+     */
+    static boolean hasDefaultConfiguration(Recipe recipe) {
+        try {
+            Recipe defaultRecipe = recipe.getClass().getDeclaredConstructor().newInstance();
+            for (Field field : recipe.getClass().getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                if (!Objects.equals(field.get(recipe), field.get(defaultRecipe))) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static Set<Path> union(Set<Path> files, Set<Path> otherFiles) {
+        Set<Path> union = new HashSet<>(files);
+        union.addAll(otherFiles);
+        return union;
+    }
+
+    private static Set<Path> intersection(Set<Path> files, Set<Path> otherFiles) {
+        Set<Path> intersection = new HashSet<>(files);
+        intersection.retainAll(otherFiles);
+        return intersection;
+    }
+
+    private Set<Path> filesUsingAnyType(Collection<String> fullyQualifiedNames) {
+        Set<Path> files = new HashSet<>();
+        for (String fullyQualifiedName : fullyQualifiedNames) {
+            files.addAll(filesUsingType(fullyQualifiedName));
+        }
+        return files;
+    }
+
+    // The set of a key is changed atomically with the key, so it is not removed while a file is added to it
+    private static void index(Map<String, Set<Path>> index, String key, Path path) {
+        index.compute(key, (k, files) -> {
+            Set<Path> indexed = files == null ? ConcurrentHashMap.newKeySet() : files;
+            indexed.add(path);
+            return indexed;
+        });
+    }
+
+    private static void unindex(Map<String, Set<Path>> index, String key, Path path) {
+        index.computeIfPresent(key, (k, files) -> {
+            files.remove(path);
+            return files.isEmpty() ? null : files;
+        });
+    }
+
+    /**
+     * Adds the type with its supertypes, as `UsesType` accepts the files using a subtype of the type it looks for.
+     */
+    private static void addType(Set<String> types, JavaType type) {
+        if (type instanceof JavaType.Array array) {
+            addType(types, array.getElemType());
+        } else if (type instanceof JavaType.FullyQualified fullyQualified && types.add(fullyQualified.getFullyQualifiedName())) {
+            addType(types, fullyQualified.getSupertype());
+            for (JavaType.FullyQualified anInterface : fullyQualified.getInterfaces()) {
+                addType(types, anInterface);
+            }
+        }
+    }
+}
@@ -9,6 +9,10 @@ import org.openrewrite.config.RecipeExample;
 import org.openrewrite.internal.RecipeIntrospectionUtils;
 import org.openrewrite.java.migrate.UpgradeJavaVersion;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
 public class ExtractRecipesMain {
 
 
@@ -21,11 +25,47 @@ public class ExtractRecipesMain {
         recipeToJson();
 
         // Generate a Tool
-        generateTool();
+        generateTool(UpgradeJavaVersion.class);
     }
 
-    private static void generateTool() {
+    /**
+     * Prints the source of the tool method executing the recipe, to be pasted into JavaMigrationMCPServer. Its name
+     * follows the `execute<Recipe>Recipe` convention so the recipe is bound to the tool in the generated catalog.
+     */
+    private static void generateTool(Class recipeClass) {
+        Recipe recipe = RecipeIntrospectionUtils.constructRecipe(recipeClass);
+        String simpleName = recipeClass.getSimpleName();
+
+        StringBuilder tool = new StringBuilder();
+        tool.append("    @Tool(name = \"").append(JavaRecipeCatalog.camelToSnakeCase(simpleName)).append("\", description = \"")
+            .append(escape(recipe.getDisplayName() + ". " + recipe.getDescription())).append("\")\n");
+        tool.append("    public ToolResponse execute").append(simpleName).append("Recipe(\n");
+        List<String> arguments = new ArrayList<>();
+        for (OptionDescriptor optionDescriptor : recipe.getDescriptor().getOptions()) {
+            tool.append("        @ToolArg(name = \"").append(escape(optionDescriptor.getDisplayName()))
+                .append("\", description = \"").append(escape(optionDescriptor.getDescription())).append("\"")
+                .append(optionDescriptor.isRequired() ? "" : ", required = false").append(") ")
+                .append(optionDescriptor.getType()).append(" ").append(optionDescriptor.getName()).append(",\n");
+            arguments.add(optionDescriptor.getName());
+        }
+        tool.append("        @ToolArg(name = \"Dry Run\", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = \"false\") boolean dryRun,\n");
+        tool.append("        @ToolArg(name = \"Include\", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,\n");
+        tool.append("        @ToolArg(name = \"Exclude\", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {\n");
+        tool.append("        log.info(\"Execute ").append(simpleName).append(" Recipe\");\n");
+        if (arguments.isEmpty()) {
+            tool.append("        return executeRecipe(RecipeIntrospectionUtils.constructRecipe(").append(simpleName).append(".class), dryRun, include, exclude);\n");
+        } else {
+            // Lombok generates the constructor with the options in their declaration order
+            tool.append("        return executeRecipe(new ").append(simpleName).append("(").append(String.join(", ", arguments)).append("), dryRun, include, exclude);\n");
+        }
+        tool.append("    }\n");
+
+        System.out.println("\n-- Tool ---");
+        System.out.println(tool);
+    }
 
+    private static String escape(String text) {
+        return text == null ? "" : text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", " ");
     }
 
     private static void displayInfoRecipe(Class recipeClass) {
@@ -92,6 +132,6 @@ public class ExtractRecipesMain {
     }
 
     private static void recipeToJson() throws JsonProcessingException {
-        System.out.println(new JavaMigrationMCPServer().getRecipeAsJson());
+        System.out.println(new String(JavaRecipeCatalog.generate(), StandardCharsets.UTF_8));
     }
 }
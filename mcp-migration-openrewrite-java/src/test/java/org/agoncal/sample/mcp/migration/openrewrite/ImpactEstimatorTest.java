@@ -0,0 +1,105 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.agoncal.sample.mcp.migration.openrewrite.common.SourceFileStore;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Recipe;
+import org.openrewrite.SourceFile;
+import org.openrewrite.internal.RecipeIntrospectionUtils;
+import org.openrewrite.java.ChangeType;
+import org.openrewrite.java.JavaParser;
+import org.openrewrite.java.migrate.lang.ThreadStopUnsupported;
+import org.openrewrite.java.migrate.net.URLConstructorToURICreate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ImpactEstimatorTest {
+
+    private static final int CORPUS_SIZE = 30;
+
+    private static final ExecutionContext executionContext = new InMemoryExecutionContext(Throwable::printStackTrace);
+
+    @TempDir
+    static Path root;
+    private static SourceFileStore store;
+
+    @BeforeAll
+    static void generateCorpus() throws IOException {
+        List<Path> javaFiles = new ArrayList<>();
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            Path javaFile = root.resolve("src/main/java/sample/Legacy" + i + ".java");
+            Files.createDirectories(javaFile.getParent());
+            // One file out of three stops two threads
+            Files.writeString(javaFile, """
+                package sample;
+                public class Legacy%d {
+                    void stop(Thread first, Thread second) {
+                        %s
+                    }
+                }
+                """.formatted(i, i % 3 == 0 ? "first.stop();\n        second.stop();" : "first.interrupt();"));
+            javaFiles.add(javaFile);
+        }
+        JavaParser javaParser = JavaParser.fromJavaVersion().build();
+        store = new SourceFileStore(root, 10, inputs -> {
+            List<SourceFile> parsed = javaParser.parseInputs(inputs, root, executionContext).collect(Collectors.toList());
+            javaParser.reset();
+            return parsed;
+        });
+        store.load(javaFiles);
+    }
+
+    @Test
+    public void testEstimateInParallelAsSequentially() {
+        List<ImpactEstimator.RecipeImpact> sequential = new ImpactEstimator(store, recipe -> store.paths(), 1).estimate(recipes(), recipe -> null);
+        List<ImpactEstimator.RecipeImpact> parallel = new ImpactEstimator(store, recipe -> store.paths(), 4).estimate(recipes(), recipe -> null);
+        assertEquals(sequential, parallel);
+
+        // The recipe changing files is ranked first
+        ImpactEstimator.RecipeImpact threadStop = parallel.getFirst();
+        assertEquals(ThreadStopUnsupported.class.getName(), threadStop.recipe());
+        assertEquals(CORPUS_SIZE / 3, threadStop.files());
+        assertNull(threadStop.skipped());
+        assertEquals(threadStop.occurrences() * threadStop.effortPerOccurrenceMinutes(), threadStop.estimatedEffortMinutes());
+
+        ImpactEstimator.RecipeImpact changeType = parallel.getLast();
+        assertEquals(ChangeType.class.getName(), changeType.recipe());
+        assertNotNull(changeType.skipped());
+    }
+
+    @Test
+    public void testCountHunks() {
+        assertEquals(0, ImpactEstimator.hunks(""));
+        assertEquals(2, ImpactEstimator.hunks("""
+            --- a/Legacy.java
+            +++ b/Legacy.java
+            @@ -1,3 +1,3 @@
+            -a
+            +b
+            @@ -10,3 +10,3 @@
+            -c
+            +d
+            """));
+    }
+
+    private static List<Recipe> recipes() {
+        List<Recipe> recipes = new ArrayList<>();
+        recipes.add(new ThreadStopUnsupported());
+        recipes.add(new URLConstructorToURICreate());
+        // Needs the old and new type names
+        recipes.add(RecipeIntrospectionUtils.constructRecipe(ChangeType.class));
+        return recipes;
+    }
+}
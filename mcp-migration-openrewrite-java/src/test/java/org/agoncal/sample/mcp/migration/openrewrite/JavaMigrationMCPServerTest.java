@@ -3,9 +3,11 @@ package org.agoncal.sample.mcp.migration.openrewrite;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import io.quarkiverse.mcp.server.ToolResponse;
 import io.quarkus.test.junit.QuarkusTest;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.agoncal.sample.mcp.migration.openrewrite.common.RecipeResults;
 import org.junit.jupiter.api.Test;
 
 import jakarta.inject.Inject;
@@ -29,32 +31,126 @@ public class JavaMigrationMCPServerTest {
 
     @Test
     public void testExecuteURLConstructorToURICreateRecipe() throws IOException {
-        ToolResponse result = openRewriteMCPServer.executeURLConstructorToURICreateRecipe();
+        ToolResponse result = openRewriteMCPServer.executeURLConstructorToURICreateRecipe(false, null, null);
         assertTrue(result.content().getFirst().toString().contains("made 2 changes in the code"));
     }
 
     @Test
     public void testExecuteCastArraysAsListToListRecipe() throws IOException {
-        ToolResponse result = openRewriteMCPServer.executeCastArraysAsListToListRecipe();
+        ToolResponse result = openRewriteMCPServer.executeCastArraysAsListToListRecipe(false, null, null);
         assertTrue(result.content().getFirst().toString().contains("made 1 changes in the code"));
     }
 
     @Test
     public void testExecuteThreadStopUnsupportedRecipe() throws IOException {
-        ToolResponse result = openRewriteMCPServer.executeThreadStopUnsupportedRecipe();
+        ToolResponse result = openRewriteMCPServer.executeThreadStopUnsupportedRecipe(false, null, null);
         assertTrue(result.content().getFirst().toString().contains("made 1 changes in the code"));
     }
 
     @Test
     public void testRemoveTemporalAnnotationRecipe() throws IOException {
-        ToolResponse result = openRewriteMCPServer.executeRemoveTemporalAnnotationRecipe();
+        ToolResponse result = openRewriteMCPServer.executeRemoveTemporalAnnotationRecipe(false, null, null);
         assertTrue(result.content().getFirst().toString().contains("made no change in the code"));
     }
 
     @Test
     public void testUseMapOfRecipeRecipe() throws IOException {
-        ToolResponse result = openRewriteMCPServer.executeUseMapOfRecipe();
+        ToolResponse result = openRewriteMCPServer.executeUseMapOfRecipe(false, null, null);
         assertTrue(result.content().getFirst().toString().contains("made no change in the code"));
     }
-}
 
+    @Test
+    public void testDryRunUseMapOfRecipe() throws IOException {
+        ToolResponse result = openRewriteMCPServer.executeUseMapOfRecipe(true, null, null);
+        assertTrue(result.content().getFirst().toString().contains("would make no change in the code"));
+    }
+
+    @Test
+    public void testTruncateDiff() {
+        String diff = "--- a\n+++ b\n@@ -1 +1 @@\n-old\n+new";
+        assertEquals(diff, RecipeResults.truncateDiff(diff, 0));
+        assertEquals(diff, RecipeResults.truncateDiff(diff, 5));
+        assertEquals("--- a\n+++ b\n... 3 more lines truncated", RecipeResults.truncateDiff(diff, 2));
+    }
+
+    @Test
+    public void testDescribeRecipe() throws JsonProcessingException {
+        ToolResponse result = openRewriteMCPServer.describeRecipe("org.openrewrite.java.migrate.UpgradeJavaVersion");
+        assertFalse(result.isError());
+        assertTrue(result.content().getFirst().toString().contains("\"name\":\"version\""));
+    }
+
+    @Test
+    public void testRunRecipe() throws IOException {
+        ToolResponse result = openRewriteMCPServer.runRecipe("org.openrewrite.java.migrate.lang.ThreadStopUnsupported", null, true, null, null);
+        assertFalse(result.isError());
+        assertTrue(result.content().getFirst().toString().contains("Dry running the tool"));
+    }
+
+    @Test
+    public void testRunRecipeWithOptions() throws IOException {
+        ToolResponse result = openRewriteMCPServer.runRecipe("org.openrewrite.java.migrate.UpgradeJavaVersion", "{\"version\": 21}", true, null, null);
+        assertFalse(result.isError());
+    }
+
+    @Test
+    public void testRunUnknownRecipe() throws IOException {
+        ToolResponse result = openRewriteMCPServer.runRecipe("org.openrewrite.java.migrate.DoesNotExist", null, true, null, null);
+        assertTrue(result.isError());
+    }
+
+    @Test
+    public void testRunRecipeOnExcludedFiles() throws IOException {
+        ToolResponse result = openRewriteMCPServer.runRecipe("org.openrewrite.java.migrate.lang.ThreadStopUnsupported", null, true, null, "**");
+        assertFalse(result.isError());
+        assertTrue(result.content().getFirst().toString().contains("would make no change in the code"));
+    }
+
+    @Test
+    public void testRunRecipeWithInvalidGlob() throws IOException {
+        ToolResponse result = openRewriteMCPServer.runRecipe("org.openrewrite.java.migrate.lang.ThreadStopUnsupported", null, true, "src/[main", null);
+        assertTrue(result.isError());
+    }
+
+    @Test
+    public void testRefreshSources() {
+        ToolResponse result = openRewriteMCPServer.refreshSources();
+        assertFalse(result.isError());
+        assertTrue(result.content().getFirst().toString().contains("Refreshed the sources"));
+    }
+
+    @Test
+    public void testDataTablesOfARecipeRun() throws IOException {
+        ToolResponse result = openRewriteMCPServer.runRecipe("org.openrewrite.java.search.FindTypes", "{\"fullyQualifiedTypeName\": \"java.lang.String\"}", true, null, null);
+        String message = result.content().getLast().asText().text();
+        assertTrue(message.contains("TypeUses"));
+        int runId = Integer.parseInt(message.substring(message.lastIndexOf(' ') + 1));
+
+        ToolResponse rows = openRewriteMCPServer.getDataTableRows(runId, "TypeUses", 0, 2, "json");
+        assertFalse(rows.isError());
+        assertTrue(rows.content().getFirst().asText().text().contains("\"concreteType\":\"java.lang.String\""));
+        assertTrue(openRewriteMCPServer.getDataTableRows(runId, "DoesNotExist", 0, 2, "json").isError());
+    }
+
+    @Test
+    public void testEstimateMigrationImpact() throws IOException {
+        ToolResponse result = openRewriteMCPServer.estimateMigrationImpact(null, null);
+        assertFalse(result.isError());
+        assertTrue(result.content().getFirst().asText().text().contains("\"tool\":\"beans_xml_namespace\""));
+        assertTrue(openRewriteMCPServer.estimateMigrationImpact("[", null).isError());
+    }
+
+    @Test
+    public void testExecuteInvalidMigrationPlan() throws IOException {
+        assertTrue(openRewriteMCPServer.executeMigrationPlan("[{\"recipe\": \"org.openrewrite.java.migrate.DoesNotExist\"}]", false).isError());
+        assertTrue(openRewriteMCPServer.executeMigrationPlan("not a plan", false).isError());
+    }
+
+    @Test
+    public void testSearchRecipes() throws IOException {
+        ToolResponse result = openRewriteMCPServer.searchRecipes("jakarta", "java", 3);
+        assertFalse(result.isError());
+        // The recipe names are indexed too, so the best matches are the recipes of the jakarta packages
+        assertTrue(result.content().get(0).asText().text().contains("\"name\":\"org.openrewrite.java.migrate.jakarta."));
+    }
+}
@@ -0,0 +1,59 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkiverse.mcp.server.Tool;
+import org.agoncal.sample.mcp.migration.openrewrite.common.RecipeJson;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JavaRecipeCatalogTest {
+
+    @Test
+    public void testToolBindings() {
+        Map<String, String> toolNames = JavaRecipeCatalog.toolBindings();
+        assertEquals("thread_stop_unsupported", toolNames.get("ThreadStopUnsupported"));
+        assertEquals("url_constructor_to_uri_create", toolNames.get("URLConstructorToURICreate"));
+        assertEquals("use_string_is_empty_recipe", toolNames.get("UseStringIsEmptyRecipe"));
+        assertFalse(toolNames.containsKey("Recipes"));
+    }
+
+    @Test
+    public void testEveryRecipeIsBoundToATool() throws JsonProcessingException {
+        Set<String> tools = new HashSet<>();
+        for (Method method : JavaMigrationMCPServer.class.getDeclaredMethods()) {
+            Tool tool = method.getAnnotation(Tool.class);
+            if (tool != null) {
+                tools.add(tool.name());
+            }
+        }
+
+        List<RecipeJson> recipes = new ObjectMapper().readValue(JavaRecipeCatalog.load(), new TypeReference<List<RecipeJson>>() {
+        });
+        assertEquals(JavaRecipeCatalog.recipesToExpose.size(), recipes.size());
+        for (RecipeJson recipe : recipes) {
+            assertTrue(tools.contains(recipe.name()), recipe.fqn() + " is bound to the undeclared tool " + recipe.name());
+        }
+        // The recipes without a tool of their own are run by run_recipe, with the option names it expects
+        RecipeJson upgradeJavaVersion = recipes.stream().filter(recipe -> recipe.fqn().equals("org.openrewrite.java.migrate.UpgradeJavaVersion")).findFirst().orElseThrow();
+        assertEquals("run_recipe", upgradeJavaVersion.name());
+        RecipeJson useTextBlocks = recipes.stream().filter(recipe -> recipe.fqn().equals("org.openrewrite.java.migrate.lang.UseTextBlocks")).findFirst().orElseThrow();
+        assertTrue(useTextBlocks.options().stream().anyMatch(option -> option.name().equals("convertStringsWithoutNewlines")));
+    }
+
+    @Test
+    public void testCatalogGeneratedAtBuildTime() throws JsonProcessingException {
+        assertEquals(new String(JavaRecipeCatalog.generate(), StandardCharsets.UTF_8), JavaRecipeCatalog.load());
+    }
+}
@@ -0,0 +1,116 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MigrationPlanTest {
+
+    private static final String PLAN = """
+        [
+          {"recipe": "org.openrewrite.java.migrate.jakarta.JavaxMigrationToJakarta"},
+          {"recipe": "org.openrewrite.java.migrate.UpgradeJavaVersion", "options": {"version": 21}},
+          {"recipe": "org.openrewrite.java.migrate.lang.StringFormatted"}
+        ]
+        """;
+
+    @TempDir
+    Path root;
+    @TempDir
+    Path checkpoints;
+
+    @Test
+    public void testParsePlan() throws IOException {
+        List<MigrationPlan.Step> steps = MigrationPlan.parse(PLAN);
+        assertEquals(3, steps.size());
+        assertEquals(Map.of("version", 21), steps.get(1).options());
+        assertEquals(MigrationPlan.id(root, steps), MigrationPlan.id(root, MigrationPlan.parse(PLAN.replace(" ", ""))));
+        assertNotEquals(MigrationPlan.id(root, steps), MigrationPlan.id(root, steps.subList(0, 2)));
+        assertThrows(IllegalArgumentException.class, () -> MigrationPlan.parse("[]"));
+        assertThrows(IllegalArgumentException.class, () -> MigrationPlan.parse("[{\"options\": {}}]"));
+    }
+
+    @Test
+    public void testResumeAfterTheLastCompletedStep() throws IOException {
+        MigrationPlan plan = new MigrationPlan(root, MigrationPlan.parse(PLAN), checkpoints);
+        List<Integer> executed = new ArrayList<>();
+
+        // The server dies during the second step
+        assertThrows(IOException.class, () -> plan.execute((index, step) -> {
+            if (index == 1) {
+                throw new IOException("Killed");
+            }
+            executed.add(index);
+            return List.of(write("Step" + index + ".java", "class Step" + index + " {}"));
+        }));
+        assertEquals(1, plan.checkpoint().completed().size());
+        assertEquals(MigrationPlan.hash(root.resolve("Step0.java")), plan.checkpoint().completed().getFirst().changedFiles().get("Step0.java"));
+
+        // A new server executing the same plan only runs the remaining steps
+        MigrationPlan samePlan = new MigrationPlan(root, MigrationPlan.parse(PLAN), checkpoints);
+        List<MigrationPlan.CompletedStep> completed = samePlan.execute((index, step) -> {
+            executed.add(index);
+            return List.of(write("Step" + index + ".java", "class Step" + index + " {}"));
+        });
+        assertEquals(List.of(0, 1, 2), executed);
+        assertEquals(List.of(2, 3), completed.stream().map(MigrationPlan.CompletedStep::step).toList());
+        assertEquals(List.of(), samePlan.execute((index, step) -> {
+            throw new IllegalStateException("All the steps are completed");
+        }));
+    }
+
+    @Test
+    public void testRunTheFailedStepAgainOnItsPartialChanges() throws IOException {
+        MigrationPlan plan = new MigrationPlan(root, MigrationPlan.parse(PLAN).subList(0, 1), checkpoints);
+
+        // The step writes a first file, then fails
+        assertThrows(IOException.class, () -> plan.execute((index, step) -> {
+            write("First.java", "class First {}");
+            throw new IOException("Killed");
+        }));
+        assertNull(plan.checkpoint());
+        assertEquals("class First {}", Files.readString(root.resolve("First.java")));
+
+        // It is not rolled back, so running it again starts from its partial changes
+        List<String> found = new ArrayList<>();
+        plan.execute((index, step) -> {
+            found.add(Files.readString(root.resolve("First.java")));
+            return List.of(write("First.java", "class First {}"), write("Second.java", "class Second {}"));
+        });
+        assertEquals(List.of("class First {}"), found);
+        assertEquals(2, plan.checkpoint().completed().getFirst().changedFiles().size());
+    }
+
+    @Test
+    public void testDetectFilesModifiedSinceTheCheckpoint() throws IOException {
+        MigrationPlan plan = new MigrationPlan(root, MigrationPlan.parse(PLAN).subList(0, 1), checkpoints);
+        write("Deleted.java", "class Deleted {}");
+        plan.execute((index, step) -> {
+            Files.delete(root.resolve("Deleted.java"));
+            return List.of(write("Changed.java", "class Changed {}"), Path.of("Deleted.java"));
+        });
+        assertEquals(List.of(), plan.modifiedSince(plan.checkpoint()));
+
+        write("Changed.java", "class Changed { int modified; }");
+        assertEquals(List.of(Path.of("Changed.java")), plan.modifiedSince(plan.checkpoint()));
+
+        plan.discardCheckpoint();
+        assertNull(plan.checkpoint());
+    }
+
+    private Path write(String relativePath, String content) throws IOException {
+        Files.writeString(root.resolve(relativePath), content);
+        return Path.of(relativePath);
+    }
+}
@@ -0,0 +1,103 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RecipeCatalogIndexTest {
+
+    private static RecipeCatalogIndex recipeCatalogIndex;
+
+    @BeforeAll
+    static void load() {
+        recipeCatalogIndex = RecipeCatalogIndex.load();
+    }
+
+    @Test
+    public void testLoadTheWholeCatalog() {
+        // The rows of the catalog, followed by the recipes on the classpath which are not in the catalog
+        List<RecipeCatalogIndex.SearchResult> results = recipeCatalogIndex.search(null, null, Integer.MAX_VALUE);
+        assertEquals(1050, results.stream().filter(result -> result.recipe().repository() != null).count());
+        assertTrue(recipeCatalogIndex.size() > 1050);
+        assertTrue(results.stream().allMatch(result -> result.recipe().repository() != null || result.recipe().name() != null));
+        assertTrue(recipeCatalogIndex.tags().contains("java"));
+        assertTrue(recipeCatalogIndex.tags().contains("spring"));
+    }
+
+    @Test
+    public void testSearchRanksTheDisplayNameFirst() {
+        List<RecipeCatalogIndex.SearchResult> results = recipeCatalogIndex.search("Upgrade Java version", null, 5);
+        assertEquals(5, results.size());
+        assertTrue(results.getFirst().recipe().displayName().toLowerCase().contains("java"));
+        assertTrue(results.get(0).score() >= results.get(1).score());
+    }
+
+    @Test
+    public void testJoinTheRecipeNames() {
+        // The name is indexed too, so the recipe is found by its class name
+        List<RecipeCatalogIndex.SearchResult> results = recipeCatalogIndex.search("ChangeText", null, 1);
+        assertEquals(1, results.size());
+        assertEquals("Change text", results.getFirst().recipe().displayName());
+        assertEquals("org.openrewrite.text.ChangeText", results.getFirst().recipe().name());
+        // The recipes which are not on the classpath have no name
+        long named = recipeCatalogIndex.search(null, null, Integer.MAX_VALUE).stream().filter(result -> result.recipe().name() != null).count();
+        assertTrue(named > 0 && named < recipeCatalogIndex.size());
+    }
+
+    @Test
+    public void testTellApartTheRecipesSharingADisplayName() {
+        List<String> names = recipeCatalogIndex.search("ChangePropertyKey", null, 10).stream()
+            .filter(result -> result.recipe().repository() != null)
+            .map(result -> result.recipe().name())
+            .toList();
+        assertTrue(names.contains("org.openrewrite.properties.ChangePropertyKey"));
+        assertTrue(names.contains("org.openrewrite.yaml.ChangePropertyKey"));
+    }
+
+    @Test
+    public void testSearchWithNegativeLimit() {
+        assertTrue(recipeCatalogIndex.search("java", null, -1).isEmpty());
+    }
+
+    @Test
+    public void testSearchByPrefix() {
+        List<RecipeCatalogIndex.SearchResult> results = recipeCatalogIndex.search("jakar", null, 5);
+        assertEquals(5, results.size());
+        for (RecipeCatalogIndex.SearchResult result : results) {
+            assertTrue(result.recipe().toString().toLowerCase().contains("jakar"));
+        }
+    }
+
+    @Test
+    public void testSearchByTags() {
+        List<RecipeCatalogIndex.SearchResult> results = recipeCatalogIndex.search(null, List.of("spring"), 1000);
+        assertFalse(results.isEmpty());
+        for (RecipeCatalogIndex.SearchResult result : results) {
+            assertTrue(result.recipe().tags().contains("spring"));
+        }
+        assertTrue(recipeCatalogIndex.search("zzzunknownzzz", null, 10).isEmpty());
+    }
+
+    @Test
+    public void testParseCsv() throws IOException {
+        List<List<String>> rows = RecipeCatalogIndex.parseCsv(new StringReader("""
+            a;b;c
+            1;"two; ""quoted""
+            lines";3
+            """));
+        assertEquals(2, rows.size());
+        assertEquals(List.of("1", "two; \"quoted\"\nlines", "3"), rows.get(1));
+    }
+
+    @Test
+    public void testTokenize() {
+        assertEquals(List.of("filematcher", "file", "matcher", "java", "21"), RecipeCatalogIndex.tokenize("fileMatcher, Java 21"));
+    }
+}
@@ -0,0 +1,34 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.junit.jupiter.api.Test;
+import org.openrewrite.Recipe;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class RecipeRegistryTest {
+
+    private static final String CHANGE_METHOD_NAME = "org.openrewrite.java.ChangeMethodName";
+
+    @Test
+    public void testKeepTheLastConfiguredRecipes() {
+        RecipeRegistry recipeRegistry = new RecipeRegistry(2);
+        Recipe interrupt = recipeRegistry.recipe(CHANGE_METHOD_NAME, options("interrupt"));
+        Recipe join = recipeRegistry.recipe(CHANGE_METHOD_NAME, options("join"));
+
+        // The options are the same whatever the order of their keys
+        assertSame(interrupt, recipeRegistry.recipe(CHANGE_METHOD_NAME, "{\"newMethodName\": \"interrupt\", \"methodPattern\": \"java.lang.Thread stop()\"}"));
+        recipeRegistry.recipe(CHANGE_METHOD_NAME, options("yield"));
+        assertEquals(2, recipeRegistry.size());
+
+        // The least recently used recipe is evicted, and configured again
+        assertSame(interrupt, recipeRegistry.recipe(CHANGE_METHOD_NAME, options("interrupt")));
+        assertNotSame(join, recipeRegistry.recipe(CHANGE_METHOD_NAME, options("join")));
+        assertEquals(2, recipeRegistry.size());
+    }
+
+    private static String options(String newMethodName) {
+        return "{\"methodPattern\": \"java.lang.Thread stop()\", \"newMethodName\": \"" + newMethodName + "\"}";
+    }
+}
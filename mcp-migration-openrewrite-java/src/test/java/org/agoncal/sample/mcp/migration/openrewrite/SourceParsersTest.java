@@ -0,0 +1,176 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Parser;
+import org.openrewrite.Result;
+import org.openrewrite.SourceFile;
+import org.openrewrite.internal.InMemoryLargeSourceSet;
+import org.openrewrite.java.JavaParser;
+import org.openrewrite.java.migrate.BeansXmlNamespace;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.JavaType;
+import org.openrewrite.java.tree.TypeUtils;
+import org.openrewrite.maven.MavenExecutionContextView;
+import org.openrewrite.maven.tree.MavenResolutionResult;
+import org.openrewrite.properties.tree.Properties;
+import org.openrewrite.xml.tree.Xml;
+import org.openrewrite.yaml.tree.Yaml;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SourceParsersTest {
+
+    private static final ExecutionContext executionContext = new InMemoryExecutionContext(Throwable::printStackTrace);
+
+    @TempDir
+    Path root;
+
+    @Test
+    public void testParseAllTheFileTypesIntoOneSourceSet() throws IOException {
+        SourceParsers parsers = new SourceParsers(root, JavaParser.fromJavaVersion().build(), executionContext);
+        List<Parser.Input> inputs = new ArrayList<>();
+        inputs.add(input("src/main/java/sample/App.java", "package sample; class App {}"));
+        inputs.add(input("src/main/resources/META-INF/beans.xml", "<beans/>"));
+        inputs.add(input("src/main/resources/application.properties", "quarkus.http.port=8080"));
+        inputs.add(input("src/main/resources/application.yaml", "quarkus:\n  http:\n    port: 8080\n"));
+        assertFalse(SourceParsers.accept(root.resolve("README.md")));
+
+        Map<Path, SourceFile> sourceFiles = new TreeMap<>();
+        for (SourceFile sourceFile : parsers.parse(inputs)) {
+            sourceFiles.put(sourceFile.getSourcePath(), sourceFile);
+        }
+
+        assertEquals(4, sourceFiles.size());
+        assertInstanceOf(J.CompilationUnit.class, sourceFiles.get(Path.of("src/main/java/sample/App.java")));
+        assertInstanceOf(Xml.Document.class, sourceFiles.get(Path.of("src/main/resources/META-INF/beans.xml")));
+        assertInstanceOf(Properties.File.class, sourceFiles.get(Path.of("src/main/resources/application.properties")));
+        assertInstanceOf(Yaml.Documents.class, sourceFiles.get(Path.of("src/main/resources/application.yaml")));
+    }
+
+    @Test
+    public void testRunXmlRecipeOnTheSourceSet() throws IOException {
+        SourceParsers parsers = new SourceParsers(root, JavaParser.fromJavaVersion().build(), executionContext);
+        List<SourceFile> sourceFiles = parsers.parse(List.of(
+            input("src/main/java/sample/App.java", "package sample; class App {}"),
+            input("src/main/resources/META-INF/beans.xml", """
+                <beans xmlns="http://xmlns.jcp.org/xml/ns/javaee"
+                       xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+                       xsi:schemaLocation="http://java.sun.com/xml/ns/javaee http://java.sun.com/xml/ns/javaee/beans_1_0.xsd">
+                </beans>
+                """)));
+
+        List<Result> results = new BeansXmlNamespace().run(new InMemoryLargeSourceSet(sourceFiles), executionContext).getChangeset().getAllResults();
+
+        assertEquals(1, results.size());
+        assertTrue(results.getFirst().getAfter().printAll().contains("http://xmlns.jcp.org/xml/ns/javaee/beans_1_1.xsd"));
+    }
+
+    @Test
+    public void testResolvePomXmlFilesWithTheReactor() throws IOException {
+        ExecutionContext mavenExecutionContext = new InMemoryExecutionContext(Throwable::printStackTrace);
+        MavenExecutionContextView.view(mavenExecutionContext).setAddCentralRepository(false);
+        Parser.Input parent = input("pom.xml", """
+            <project>
+              <modelVersion>4.0.0</modelVersion>
+              <groupId>com.example</groupId>
+              <artifactId>reactor</artifactId>
+              <version>1.0</version>
+              <packaging>pom</packaging>
+              <properties>
+                <legacy.version>1.2</legacy.version>
+              </properties>
+              <modules>
+                <module>app</module>
+              </modules>
+            </project>
+            """);
+        Parser.Input child = input("app/pom.xml", """
+            <project>
+              <modelVersion>4.0.0</modelVersion>
+              <parent>
+                <groupId>com.example</groupId>
+                <artifactId>reactor</artifactId>
+                <version>1.0</version>
+              </parent>
+              <artifactId>app</artifactId>
+            </project>
+            """);
+        MavenReactor reactor = new MavenReactor(root, List.of(parent.getPath(), child.getPath()), mavenExecutionContext, 1);
+        SourceParsers parsers = new SourceParsers(root, JavaParser.fromJavaVersion().build(), reactor::resolve, mavenExecutionContext);
+
+        // Only the module is requested, its parent is parsed to resolve it but is not returned
+        List<SourceFile> sourceFiles = parsers.parse(List.of(input("app/src/main/java/sample/App.java", "package sample; class App {}"), child));
+
+        assertEquals(2, sourceFiles.size());
+        SourceFile pomXml = sourceFiles.stream().filter(sourceFile -> SourceParsers.isPomXml(sourceFile.getSourcePath())).findFirst().orElseThrow();
+        assertEquals(Path.of("app/pom.xml"), pomXml.getSourcePath());
+        MavenResolutionResult resolutionResult = pomXml.getMarkers().findFirst(MavenResolutionResult.class).orElseThrow();
+        assertEquals("com.example:reactor:1.0", resolutionResult.getParent().getPom().getGav().toString());
+        assertEquals("1.2", resolutionResult.getPom().getProperties().get("legacy.version"));
+    }
+
+    @Test
+    public void testJavaSourceRoots() throws IOException {
+        List<Path> files = List.of(
+            input("core/src/main/java/com/example/core/Order.java", "package com.example.core; public class Order {}").getPath(),
+            input("core/src/main/java/com/example/core/OrderService.java", "package com.example.core; class OrderService {}").getPath(),
+            input("core/src/test/java/com/example/core/OrderTest.java", "// package com.example.test;\npackage com.example.core;\nclass OrderTest {}").getPath(),
+            input("scripts/Main.java", "class Main {}").getPath(),
+            // Its directory does not match its package
+            input("web/src/main/java/Misplaced.java", "package com.example.web; class Misplaced {}").getPath(),
+            input("core/src/main/resources/application.properties", "package=com.example").getPath());
+
+        assertEquals(Set.of(root.resolve("core/src/main/java"), root.resolve("core/src/test/java"), root.resolve("scripts")), SourceParsers.javaSourceRoots(files));
+    }
+
+    @Test
+    public void testAttributeTheTypesOfTheApplicationWhateverTheBatch() throws IOException {
+        Parser.Input order = input("src/main/java/com/example/Order.java", "package com.example; public class Order { public void ship() {} }");
+        Parser.Input orderService = input("src/main/java/com/example/service/OrderService.java", """
+            package com.example.service;
+            import com.example.Order;
+            class OrderService {
+                void ship(Order order) {
+                    order.ship();
+                }
+            }
+            """);
+        List<Path> files = List.of(order.getPath(), orderService.getPath());
+        SourceParsers parsers = new SourceParsers(root, JavaParser.fromJavaVersion().classpath(SourceParsers.javaSourceRoots(files)).build(), executionContext);
+
+        // The service is parsed before the type it uses, and parsed again after it, e.g. once evicted from memory
+        J.CompilationUnit first = (J.CompilationUnit) parsers.parse(List.of(orderService)).getFirst();
+        parsers.parse(List.of(order));
+        J.CompilationUnit again = (J.CompilationUnit) parsers.parse(List.of(orderService)).getFirst();
+
+        for (J.CompilationUnit compilationUnit : List.of(first, again)) {
+            assertTrue(compilationUnit.getTypesInUse().getTypesInUse().stream().anyMatch(type -> TypeUtils.isOfClassType(type, "com.example.Order")));
+            assertTrue(compilationUnit.getTypesInUse().getUsedMethods().stream().map(JavaType.Method::getName).anyMatch("ship"::equals));
+        }
+        // Without the source roots, the type is unknown to the files parsed before it
+        J.CompilationUnit unknown = (J.CompilationUnit) new SourceParsers(root, JavaParser.fromJavaVersion().build(), executionContext).parse(List.of(orderService)).getFirst();
+        assertTrue(unknown.getTypesInUse().getUsedMethods().isEmpty());
+    }
+
+    private Parser.Input input(String relativePath, String content) throws IOException {
+        Path file = root.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        return Parser.Input.fromFile(file);
+    }
+}
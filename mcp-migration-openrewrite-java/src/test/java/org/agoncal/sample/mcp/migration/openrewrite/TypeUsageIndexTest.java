@@ -0,0 +1,189 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.agoncal.sample.mcp.migration.openrewrite.common.SourceFileStore;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Recipe;
+import org.openrewrite.Result;
+import org.openrewrite.SourceFile;
+import org.openrewrite.internal.InMemoryLargeSourceSet;
+import org.openrewrite.internal.RecipeIntrospectionUtils;
+import org.openrewrite.java.JavaParser;
+import org.openrewrite.java.MethodMatcher;
+import org.openrewrite.java.migrate.UseJavaUtilBase64;
+import org.openrewrite.java.migrate.lang.ThreadStopUnsupported;
+import org.openrewrite.java.migrate.lang.UseTextBlocks;
+import org.openrewrite.java.migrate.util.MigrateCollectionsSingletonList;
+import org.openrewrite.java.search.FindMethods;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TypeUsageIndexTest {
+
+    private static final ExecutionContext executionContext = new InMemoryExecutionContext(Throwable::printStackTrace);
+    private static List<SourceFile> sourceFiles;
+    private static TypeUsageIndex typeUsageIndex;
+
+    @BeforeAll
+    static void parse() {
+        sourceFiles = JavaParser.fromJavaVersion().build().parse(executionContext,
+            """
+                package sample;
+                public class UsesThread {
+                    void stop(Thread thread) {
+                        thread.stop();
+                    }
+                }
+                """,
+            """
+                package sample;
+                import java.util.Collections;
+                import java.util.List;
+                public class UsesCollections {
+                    List<String> list = Collections.singletonList("item");
+                }
+                """,
+            """
+                package sample;
+                public class UsesNothing {
+                }
+                """
+        ).collect(Collectors.toList());
+        typeUsageIndex = build(sourceFiles);
+    }
+
+    @Test
+    public void testFilesUsingType() {
+        assertEquals(Set.of(sourceFiles.get(0).getSourcePath()), typeUsageIndex.filesUsingType("java.lang.Thread"));
+        assertEquals(Set.of(sourceFiles.get(1).getSourcePath()), typeUsageIndex.filesUsingType("java.util.Collections"));
+        assertTrue(typeUsageIndex.filesUsingType("java.net.URL").isEmpty());
+    }
+
+    @Test
+    public void testFilesUsingTypeIsACopy() {
+        TypeUsageIndex index = build(sourceFiles);
+        Set<Path> files = index.filesUsingType("java.lang.Thread");
+        index.remove(sourceFiles.get(0).getSourcePath());
+        assertEquals(Set.of(sourceFiles.get(0).getSourcePath()), files);
+        assertTrue(index.filesUsingType("java.lang.Thread").isEmpty());
+    }
+
+    @Test
+    public void testCandidatesOfIndexedRecipe() {
+        List<SourceFile> candidates = candidates(new ThreadStopUnsupported(), sourceFiles);
+        assertEquals(1, candidates.size());
+        assertEquals(sourceFiles.get(0), candidates.getFirst());
+
+        candidates = candidates(new MigrateCollectionsSingletonList(), sourceFiles);
+        assertEquals(1, candidates.size());
+        assertEquals(sourceFiles.get(1), candidates.getFirst());
+    }
+
+    @Test
+    public void testCandidatesOfNotIndexedRecipe() {
+        assertNull(typeUsageIndex.candidatePaths(new UseTextBlocks()));
+        assertEquals(sourceFiles.size(), candidates(new UseTextBlocks(), sourceFiles).size());
+    }
+
+    @Test
+    public void testRecipesOfTheToolsAreConfiguredByDefault() {
+        for (Class<? extends Recipe> recipeClass : TypeUsageIndex.TYPES_USED_BY_RECIPE.keySet()) {
+            assertTrue(TypeUsageIndex.hasDefaultConfiguration(RecipeIntrospectionUtils.constructRecipe(recipeClass)), recipeClass.getName());
+        }
+    }
+
+    @Test
+    public void testCandidatesOfRecipeWithOtherOptions() {
+        // No file uses the sun.misc types of the default options
+        assertTrue(typeUsageIndex.candidatePaths(new UseJavaUtilBase64()).isEmpty());
+        // The preconditions of the recipe follow its options
+        assertTrue(typeUsageIndex.candidatePaths(new UseJavaUtilBase64("java.util", false)).isEmpty());
+        assertEquals(Set.of(sourceFiles.get(1).getSourcePath()), typeUsageIndex.candidatePaths(new FindMethods("java.util.Collections singletonList(..)", false)));
+    }
+
+    @Test
+    public void testFilesUsingMethod() {
+        Path usesThread = sourceFiles.get(0).getSourcePath();
+        assertEquals(Set.of(usesThread), typeUsageIndex.filesUsingMethod(new MethodMatcher("java.lang.Thread stop()")));
+        assertEquals(Set.of(usesThread), typeUsageIndex.filesUsingMethod(new MethodMatcher("java.lang.Thread *(..)")));
+        // The parameters are matched too
+        assertTrue(typeUsageIndex.filesUsingMethod(new MethodMatcher("java.lang.Thread stop(java.lang.Throwable)")).isEmpty());
+        // And the method is found from a supertype of its declaring type
+        assertEquals(Set.of(usesThread), typeUsageIndex.filesUsingMethod(new MethodMatcher("java.lang.Runnable stop()", true)));
+        assertEquals(Set.of(usesThread), typeUsageIndex.filesUsingType("java.lang.Runnable"));
+    }
+
+    @Test
+    public void testOnlyTheRecipesWithoutPreconditionsAreListed() {
+        for (Class<? extends Recipe> recipeClass : TypeUsageIndex.TYPES_USED_BY_RECIPE.keySet()) {
+            assertNull(TypeUsageIndex.preconditions(RecipeIntrospectionUtils.constructRecipe(recipeClass)), recipeClass.getName());
+        }
+    }
+
+    @Test
+    public void testCandidatesGiveTheSameResults() {
+        Recipe recipe = new ThreadStopUnsupported();
+        List<Result> allResults = recipe.run(new InMemoryLargeSourceSet(sourceFiles), executionContext).getChangeset().getAllResults();
+        List<Result> candidateResults = recipe.run(new InMemoryLargeSourceSet(candidates(recipe, sourceFiles)), executionContext).getChangeset().getAllResults();
+        assertEquals(1, allResults.size());
+        assertEquals(allResults.size(), candidateResults.size());
+        assertEquals(allResults.getFirst().getAfter().printAll(), candidateResults.getFirst().getAfter().printAll());
+    }
+
+    @Test
+    public void testCandidatePathsOfTheStore(@TempDir Path root) throws IOException {
+        List<Path> javaFiles = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Path javaFile = root.resolve("src/main/java/sample/Legacy" + i + ".java");
+            Files.createDirectories(javaFile.getParent());
+            Files.writeString(javaFile, """
+                package sample;
+                public class Legacy%d {
+                    void stop(Thread thread) {
+                        %s
+                    }
+                }
+                """.formatted(i, i % 3 == 0 ? "thread.stop();" : "thread.interrupt();"));
+            javaFiles.add(javaFile);
+        }
+        JavaParser javaParser = JavaParser.fromJavaVersion().build();
+        SourceFileStore store = new SourceFileStore(root, 5, inputs -> {
+            List<SourceFile> parsed = javaParser.parseInputs(inputs, root, executionContext).collect(Collectors.toList());
+            javaParser.reset();
+            return parsed;
+        });
+        TypeUsageIndex index = new TypeUsageIndex();
+        store.load(javaFiles, index::add);
+
+        // Every file uses Thread, but only the store keeps a bounded number of them in memory
+        assertEquals(30, index.candidatePaths(new ThreadStopUnsupported(), store.paths()).size());
+        assertTrue(store.highWaterMark() <= 5);
+    }
+
+    private static TypeUsageIndex build(List<SourceFile> sourceFiles) {
+        TypeUsageIndex index = new TypeUsageIndex();
+        sourceFiles.forEach(index::add);
+        return index;
+    }
+
+    /**
+     * Returns the source files the recipe can possibly change, as the recipe tools select them by path.
+     */
+    private static List<SourceFile> candidates(Recipe recipe, List<SourceFile> sourceFiles) {
+        List<Path> candidatePaths = typeUsageIndex.candidatePaths(recipe, sourceFiles.stream().map(SourceFile::getSourcePath).toList());
+        return sourceFiles.stream().filter(sourceFile -> candidatePaths.contains(sourceFile.getSourcePath())).toList();
+    }
+}
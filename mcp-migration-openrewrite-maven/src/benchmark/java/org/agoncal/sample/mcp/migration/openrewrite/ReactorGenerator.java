@@ -0,0 +1,187 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Generates the pom.xml files of a multi-module reactor: a tree of aggregator modules, each with `fanOut` modules, down
+ * to jar modules. A fan-out of the number of modules gives a wide reactor, a fan-out of 1 a deep one. The root imports
+ * a BOM managing all the modules, and each jar module depends on up to two of the previous jar modules, so resolving a
+ * module needs its parents, the BOM and other modules. The modules sit side by side, each one finding its parent by its
+ * relative path.
+ * <p>
+ * The same seed always generates the same files. Arguments: the directory, the number of modules, the fan-out and the
+ * seed (42 by default).
+ */
+public class ReactorGenerator {
+
+    private static final Logger log = Logger.getLogger(ReactorGenerator.class);
+
+    static final long DEFAULT_SEED = 42;
+    private static final String GROUP_ID = "org.agoncal.sample.legacy.reactor";
+
+    private final Random random;
+
+    ReactorGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args[0]);
+        int modules = Integer.parseInt(args[1]);
+        int fanOut = Integer.parseInt(args[2]);
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_SEED;
+        new ReactorGenerator(seed).generate(directory, modules, fanOut);
+        log.info("Generated " + modules + " modules with a fan-out of " + fanOut + " and the seed " + seed + " in " + directory);
+    }
+
+    /**
+     * Writes the reactor into the directory, overwriting a reactor generated with the same parameters, and returns the
+     * paths of its pom.xml files.
+     */
+    List<Path> generate(Path directory, int modules, int fanOut) throws IOException {
+        // Modules are numbered breadth first, the parent of a module being an aggregator of the previous level
+        List<Integer> parents = new ArrayList<>();
+        List<List<Integer>> children = new ArrayList<>();
+        for (int module = 0; module < modules; module++) {
+            int parent = module == 0 ? -1 : (module - 1) / Math.max(1, fanOut);
+            parents.add(parent);
+            children.add(new ArrayList<>());
+            if (parent >= 0) {
+                children.get(parent).add(module);
+            }
+        }
+
+        List<Path> pomXmlFiles = new ArrayList<>();
+        pomXmlFiles.add(write(directory.resolve("pom.xml"), rootPom(modules)));
+        pomXmlFiles.add(write(directory.resolve("bom/pom.xml"), bomPom(modules)));
+        List<Integer> jars = new ArrayList<>();
+        for (int module = 0; module < modules; module++) {
+            boolean aggregator = !children.get(module).isEmpty();
+            TreeSet<Integer> dependencies = new TreeSet<>();
+            if (!aggregator) {
+                for (int i = 0; i < 2 && !jars.isEmpty(); i++) {
+                    dependencies.add(jars.get(random.nextInt(jars.size())));
+                }
+                jars.add(module);
+            }
+            String parentPath = parents.get(module) < 0 ? "../../pom.xml" : "../m" + parents.get(module) + "/pom.xml";
+            String parentArtifactId = parents.get(module) < 0 ? "reactor" : "m" + parents.get(module);
+            pomXmlFiles.add(write(directory.resolve("modules/m" + module + "/pom.xml"), modulePom(module, parentArtifactId, parentPath, children.get(module), dependencies)));
+        }
+        return pomXmlFiles;
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+
+    private static String rootPom(int modules) {
+        return """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <project xmlns="http://maven.apache.org/POM/4.0.0">
+              <modelVersion>4.0.0</modelVersion>
+              <groupId>%s</groupId>
+              <artifactId>reactor</artifactId>
+              <version>1.0-SNAPSHOT</version>
+              <packaging>pom</packaging>
+              <properties>
+                <maven.compiler.source>1.8</maven.compiler.source>
+                <maven.compiler.target>1.8</maven.compiler.target>
+                <modules.count>%d</modules.count>
+              </properties>
+              <modules>
+                <module>bom</module>
+                <module>modules/m0</module>
+              </modules>
+              <dependencyManagement>
+                <dependencies>
+                  <dependency>
+                    <groupId>${project.groupId}</groupId>
+                    <artifactId>bom</artifactId>
+                    <version>${project.version}</version>
+                    <type>pom</type>
+                    <scope>import</scope>
+                  </dependency>
+                </dependencies>
+              </dependencyManagement>
+            </project>
+            """.formatted(GROUP_ID, modules);
+    }
+
+    private static String bomPom(int modules) {
+        StringBuilder managed = new StringBuilder();
+        for (int module = 0; module < modules; module++) {
+            managed.append("""
+                      <dependency>
+                        <groupId>%s</groupId>
+                        <artifactId>m%d</artifactId>
+                        <version>1.0-SNAPSHOT</version>
+                      </dependency>
+                """.formatted(GROUP_ID, module));
+        }
+        return """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <project xmlns="http://maven.apache.org/POM/4.0.0">
+              <modelVersion>4.0.0</modelVersion>
+              <groupId>%s</groupId>
+              <artifactId>bom</artifactId>
+              <version>1.0-SNAPSHOT</version>
+              <packaging>pom</packaging>
+              <dependencyManagement>
+                <dependencies>
+            %s    </dependencies>
+              </dependencyManagement>
+            </project>
+            """.formatted(GROUP_ID, managed);
+    }
+
+    private static String modulePom(int module, String parentArtifactId, String parentPath, List<Integer> children, TreeSet<Integer> dependencies) {
+        StringBuilder content = new StringBuilder();
+        if (!children.isEmpty()) {
+            content.append("  <modules>\n");
+            for (int child : children) {
+                content.append("    <module>../m").append(child).append("</module>\n");
+            }
+            content.append("  </modules>\n");
+        }
+        if (!dependencies.isEmpty()) {
+            content.append("  <dependencies>\n");
+            for (int dependency : dependencies) {
+                content.append("""
+                        <dependency>
+                          <groupId>${project.groupId}</groupId>
+                          <artifactId>m%d</artifactId>
+                        </dependency>
+                    """.formatted(dependency));
+            }
+            content.append("  </dependencies>\n");
+        }
+        return """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <project xmlns="http://maven.apache.org/POM/4.0.0">
+              <modelVersion>4.0.0</modelVersion>
+              <parent>
+                <groupId>%s</groupId>
+                <artifactId>%s</artifactId>
+                <version>1.0-SNAPSHOT</version>
+                <relativePath>%s</relativePath>
+              </parent>
+              <artifactId>m%d</artifactId>
+              <packaging>%s</packaging>
+              <properties>
+                <module.index>%d</module.index>
+              </properties>
+            %s</project>
+            """.formatted(GROUP_ID, parentArtifactId, parentPath, module, children.isEmpty() ? "jar" : "pom", module, content);
+    }
+}
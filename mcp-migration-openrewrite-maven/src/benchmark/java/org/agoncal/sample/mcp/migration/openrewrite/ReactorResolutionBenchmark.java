@@ -0,0 +1,95 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Parser;
+import org.openrewrite.SourceFile;
+import org.openrewrite.maven.MavenExecutionContextView;
+import org.openrewrite.maven.MavenParser;
+import org.openrewrite.maven.cache.InMemoryMavenPomCache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the resolution of all the pom.xml files of a generated reactor when the server starts: the whole reactor at
+ * once on one thread, or its subtrees on several threads. The shapes are a wide reactor (all the modules under the
+ * root), a deep one (a chain of parents) and a balanced one (4 modules per aggregator).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ReactorResolutionBenchmark {
+
+    @Param({"wide", "balanced", "deep"})
+    public String shape;
+
+    @Param("300")
+    public int modules;
+
+    @Param("8")
+    public int parallelism;
+
+    private Path root;
+    private List<Path> pomXmlFiles;
+    private ModuleGraph moduleGraph;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        int fanOut = switch (shape) {
+            case "wide" -> modules;
+            case "deep" -> 1;
+            default -> 4;
+        };
+        long seed = Long.getLong("benchmark.seed", ReactorGenerator.DEFAULT_SEED);
+        root = Paths.get(System.getProperty("benchmark.reactors", "target/benchmark-reactors")).resolve(shape + "-" + modules + "-" + seed).toAbsolutePath();
+        pomXmlFiles = new ReactorGenerator(seed).generate(root, modules, fanOut);
+        moduleGraph = new ModuleGraph();
+        for (Path pomXmlFile : pomXmlFiles) {
+            moduleGraph.read(root, root.relativize(pomXmlFile));
+        }
+    }
+
+    @Benchmark
+    public List<SourceFile> serial() {
+        return resolver(1).resolve(pomXmlFiles.stream().map(Parser.Input::fromFile).toList());
+    }
+
+    @Benchmark
+    public List<SourceFile> parallel() {
+        return resolver(parallelism).resolveAll();
+    }
+
+    /**
+     * Returns a resolver with empty caches, as when the server starts, which never downloads anything.
+     */
+    private ReactorResolver resolver(int parallelism) {
+        ExecutionContext executionContext = new InMemoryExecutionContext(Throwable::printStackTrace);
+        MavenExecutionContextView mavenExecutionContext = MavenExecutionContextView.view(executionContext);
+        mavenExecutionContext.setPomCache(new InMemoryMavenPomCache());
+        mavenExecutionContext.setAddCentralRepository(false);
+        Set<Path> reactor = ConcurrentHashMap.newKeySet();
+        reactor.addAll(pomXmlFiles);
+        return new ReactorResolver(root, moduleGraph, reactor, MavenParser.builder().build(), executionContext, parallelism);
+    }
+}
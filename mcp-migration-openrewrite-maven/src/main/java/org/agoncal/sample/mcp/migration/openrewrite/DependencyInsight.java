@@ -0,0 +1,258 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.openrewrite.SourceFile;
+import org.openrewrite.Validated;
+import org.openrewrite.internal.StringUtils;
+import org.openrewrite.maven.tree.MavenResolutionResult;
+import org.openrewrite.maven.tree.ResolvedDependency;
+import org.openrewrite.maven.tree.Scope;
+import org.openrewrite.semver.Semver;
+import org.openrewrite.semver.VersionComparator;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Answers questions about the dependencies the modules resolve, such as why a library is on the classpath of a module
+ * or which modules resolve different versions of it, from the resolution results of their POMs, without running Maven.
+ * <p>
+ * The dependency graph of a module is walked once, breadth first like Maven resolves it, into a flat list of the
+ * dependencies, each one pointing at the dependency which brought it in. These lists are kept until the module is
+ * resolved again, so the next questions do not load or walk the LSTs again.
+ */
+class DependencyInsight {
+
+    // Scopes in which the dependencies are looked for, a dependency being reported in the first one it is found in
+    private static final List<Scope> SCOPES = List.of(Scope.Compile, Scope.Provided, Scope.Runtime, Scope.Test);
+
+    // Loads the LSTs of the given relative paths in one batch
+    private final Function<List<Path>, List<SourceFile>> loader;
+    private final int batchSize;
+    // Dependencies of each module, by relative path
+    private final Map<Path, Module> modules = new HashMap<>();
+    private int walked;
+
+    DependencyInsight(Function<List<Path>, List<SourceFile>> loader, int batchSize) {
+        this.loader = loader;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * A dependency resolved by a module, and the index in the module of the dependency which brought it in, or -1 if the
+     * module declares it.
+     */
+    record Node(String groupId, String artifactId, String version, String requestedVersion, Scope scope, int depth, int parent) {
+
+        String gav() {
+            return groupId + ":" + artifactId + ":" + version;
+        }
+    }
+
+    record Module(String gav, List<Node> nodes) {
+    }
+
+    record DependencyJson(String module, String dependency, String scope, String requestedVersion, int depth, List<String> path) {
+    }
+
+    record ConflictJson(String dependency, Map<String, List<String>> modulesByVersion, List<String> overriddenRequests) {
+    }
+
+    record PageJson<T>(int total, int offset, List<T> items) {
+    }
+
+    /**
+     * Returns the dependencies of the modules matching the globs of the group and artifact IDs, and the semver selector
+     * of the version if any, each one with the path of dependencies bringing it in from the module.
+     */
+    List<DependencyJson> find(List<Path> modulePaths, String groupId, String artifactId, String version) {
+        VersionComparator versionComparator = versionComparator(version);
+        List<DependencyJson> found = new ArrayList<>();
+        for (Map.Entry<Path, Module> entry : modules(modulePaths).entrySet()) {
+            List<Node> nodes = entry.getValue().nodes();
+            for (Node node : nodes) {
+                if (StringUtils.matchesGlob(node.groupId(), groupId) && StringUtils.matchesGlob(node.artifactId(), artifactId)
+                    && (versionComparator == null || versionComparator.isValid(null, node.version()))) {
+                    found.add(new DependencyJson(entry.getKey().toString(), node.gav(), node.scope().name().toLowerCase(), node.requestedVersion(), node.depth(), path(entry.getValue(), node)));
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the dependencies matching the globs which are resolved with different versions by the modules, or with
+     * another version than the one a module requests, as a managed version or a nearer dependency wins.
+     */
+    List<ConflictJson> conflicts(List<Path> modulePaths, String groupId, String artifactId) {
+        Map<String, Map<String, List<String>>> modulesByVersion = new TreeMap<>();
+        Map<String, Set<String>> overriddenRequests = new HashMap<>();
+        for (Map.Entry<Path, Module> entry : modules(modulePaths).entrySet()) {
+            String module = entry.getKey().toString();
+            for (Node node : entry.getValue().nodes()) {
+                if (!StringUtils.matchesGlob(node.groupId(), groupId) || !StringUtils.matchesGlob(node.artifactId(), artifactId)) {
+                    continue;
+                }
+                String groupArtifact = node.groupId() + ":" + node.artifactId();
+                List<String> modulesOfVersion = modulesByVersion.computeIfAbsent(groupArtifact, key -> new TreeMap<>()).computeIfAbsent(node.version(), key -> new ArrayList<>());
+                if (!modulesOfVersion.contains(module)) {
+                    modulesOfVersion.add(module);
+                }
+                if (isExactVersion(node.requestedVersion()) && !node.requestedVersion().equals(node.version())) {
+                    overriddenRequests.computeIfAbsent(groupArtifact, key -> new TreeSet<>())
+                        .add(module + " requests " + node.requestedVersion() + (node.parent() < 0 ? "" : " through " + entry.getValue().nodes().get(node.parent()).gav()) + " and resolves " + node.version());
+                }
+            }
+        }
+        List<ConflictJson> conflicts = new ArrayList<>();
+        for (Map.Entry<String, Map<String, List<String>>> entry : modulesByVersion.entrySet()) {
+            Set<String> overridden = overriddenRequests.getOrDefault(entry.getKey(), Set.of());
+            if (entry.getValue().size() > 1 || !overridden.isEmpty()) {
+                conflicts.add(new ConflictJson(entry.getKey(), entry.getValue(), List.copyOf(overridden)));
+            }
+        }
+        // The most divergent first
+        conflicts.sort((conflict, other) -> Integer.compare(other.modulesByVersion().size(), conflict.modulesByVersion().size()));
+        return conflicts;
+    }
+
+    /**
+     * Forgets the dependencies of the modules which are resolved again or deleted.
+     */
+    synchronized void invalidate(Collection<Path> relativePaths) {
+        for (Path path : relativePaths) {
+            modules.remove(path);
+        }
+    }
+
+    /**
+     * Returns the number of dependency graphs which have been walked, so the ones walked again can be told apart.
+     */
+    synchronized int walked() {
+        return walked;
+    }
+
+    static <T> PageJson<T> page(List<T> items, int offset, int limit) {
+        int from = Math.min(Math.max(0, offset), items.size());
+        return new PageJson<>(items.size(), from, items.subList(from, Math.min(items.size(), from + Math.max(0, limit))));
+    }
+
+    /**
+     * Returns the comparator of a semver selector, such as `1.x` or `[1.0,2.0)`, or null if there is none.
+     */
+    static VersionComparator versionComparator(String version) {
+        if (version == null || version.isBlank()) {
+            return null;
+        }
+        Validated<VersionComparator> validated = Semver.validate(version, null);
+        if (!validated.isValid()) {
+            throw new IllegalArgumentException("Invalid version selector " + version);
+        }
+        return validated.getValue();
+    }
+
+    /**
+     * Returns the dependencies of the modules, walking the graphs of the ones which are not known yet by batches.
+     */
+    private synchronized Map<Path, Module> modules(List<Path> modulePaths) {
+        List<Path> missing = new ArrayList<>();
+        for (Path path : modulePaths) {
+            if (!modules.containsKey(path)) {
+                missing.add(path);
+            }
+        }
+        for (int start = 0; start < missing.size(); start += batchSize) {
+            List<Path> batch = missing.subList(start, Math.min(missing.size(), start + batchSize));
+            List<SourceFile> sourceFiles = loader.apply(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                SourceFile sourceFile = sourceFiles.get(i);
+                MavenResolutionResult resolutionResult = sourceFile == null ? null : sourceFile.getMarkers().findFirst(MavenResolutionResult.class).orElse(null);
+                modules.put(batch.get(i), resolutionResult == null ? new Module(null, List.of()) : walk(resolutionResult));
+                walked++;
+            }
+        }
+        Map<Path, Module> inScope = new LinkedHashMap<>();
+        for (Path path : modulePaths) {
+            inScope.put(path, modules.get(path));
+        }
+        return inScope;
+    }
+
+    /**
+     * Walks the dependencies of each scope breadth first, from the ones the module declares, only following the ones
+     * Maven kept for the scope. Each dependency is only listed once, in the first scope it is found in.
+     */
+    private static Module walk(MavenResolutionResult resolutionResult) {
+        List<Node> nodes = new ArrayList<>();
+        // Indexes of the dependencies listed, by GAV
+        Map<String, Integer> listed = new HashMap<>();
+        for (Scope scope : SCOPES) {
+            List<ResolvedDependency> resolved = resolutionResult.getDependencies().getOrDefault(scope, List.of());
+            Set<ResolvedDependency> inScope = Collections.newSetFromMap(new IdentityHashMap<>());
+            inScope.addAll(resolved);
+            Map<ResolvedDependency, Integer> indexes = new IdentityHashMap<>();
+            Deque<ResolvedDependency> queue = new ArrayDeque<>();
+            Map<ResolvedDependency, ResolvedDependency> parents = new IdentityHashMap<>();
+            for (ResolvedDependency dependency : resolved) {
+                if (dependency.isDirect()) {
+                    queue.add(dependency);
+                }
+            }
+            Set<ResolvedDependency> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+            visited.addAll(queue);
+            while (!queue.isEmpty()) {
+                ResolvedDependency dependency = queue.poll();
+                ResolvedDependency parent = parents.get(dependency);
+                Integer parentIndex = parent == null ? null : indexes.get(parent);
+                String key = dependency.getGroupId() + ":" + dependency.getArtifactId() + ":" + dependency.getVersion();
+                Integer index = listed.get(key);
+                if (index == null) {
+                    listed.put(key, nodes.size());
+                    indexes.put(dependency, nodes.size());
+                    nodes.add(new Node(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion(), dependency.getRequested().getVersion(),
+                        scope, dependency.getDepth(), parentIndex == null ? -1 : parentIndex));
+                } else {
+                    // Listed in a previous scope, its dependencies are still walked to point at an index of this module
+                    indexes.put(dependency, index);
+                }
+                for (ResolvedDependency child : dependency.getDependencies()) {
+                    if (inScope.contains(child) && visited.add(child)) {
+                        parents.put(child, dependency);
+                        queue.add(child);
+                    }
+                }
+            }
+        }
+        return new Module(resolutionResult.getPom().getGav().toString(), List.copyOf(nodes));
+    }
+
+    /**
+     * Returns the GAVs from the module down to the dependency.
+     */
+    private static List<String> path(Module module, Node node) {
+        List<String> path = new ArrayList<>();
+        for (Node current = node; current != null; current = current.parent() < 0 ? null : module.nodes().get(current.parent())) {
+            path.add(current.gav());
+        }
+        path.add(module.gav());
+        Collections.reverse(path);
+        return path;
+    }
+
+    private static boolean isExactVersion(String version) {
+        return version != null && !version.contains("${") && !version.startsWith("[") && !version.startsWith("(")
+            && !version.equals("LATEST") && !version.equals("RELEASE");
+    }
+}
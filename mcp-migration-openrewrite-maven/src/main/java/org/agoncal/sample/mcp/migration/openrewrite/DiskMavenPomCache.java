@@ -0,0 +1,237 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.cfg.ConstructorDetector;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.jboss.logging.Logger;
+import org.openrewrite.maven.cache.MavenPomCache;
+import org.openrewrite.maven.tree.GroupArtifactVersion;
+import org.openrewrite.maven.tree.MavenMetadata;
+import org.openrewrite.maven.tree.MavenRepository;
+import org.openrewrite.maven.tree.Pom;
+import org.openrewrite.maven.tree.ResolvedGroupArtifactVersion;
+import org.openrewrite.maven.tree.ResolvedPom;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Maven POM cache persisted as one file per entry, so the parents, BOMs and metadata downloaded once are not downloaded
+ * again after a restart. The entries are serialized like OpenRewrite's RocksDB cache does, without its native library,
+ * under a directory named after the POM model version so an upgrade of OpenRewrite starts with an empty cache. It is
+ * meant to sit behind an in-memory cache in a {@link org.openrewrite.maven.cache.CompositeMavenPomCache}.
+ * <p>
+ * Only what was found is persisted: a POM missing while offline may exist later. The resolved dependency POMs depend
+ * on the profiles and repositories of each resolution and stay in memory, as do the repositories with credentials.
+ * Unlike a released POM, the metadata listing the versions of an artifact changes with each release, so it expires
+ * after a time to live, counted from when it was downloaded, and is not persisted at all with a time to live of zero.
+ * The same goes for the SNAPSHOT POMs, which change with each deployment.
+ */
+class DiskMavenPomCache implements MavenPomCache {
+
+    private static final Logger log = Logger.getLogger(DiskMavenPomCache.class);
+    private static final ObjectMapper mapper = JsonMapper.builder(new SmileFactory().configure(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES, true))
+        .constructorDetector(ConstructorDetector.USE_PROPERTIES_BASED)
+        .build()
+        .registerModule(new ParameterNamesModule())
+        .registerModule(new Jdk8Module())
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+        .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    static {
+        mapper.setVisibility(mapper.getSerializationConfig().getDefaultVisibilityChecker()
+            .withFieldVisibility(JsonAutoDetect.Visibility.ANY)
+            .withGetterVisibility(JsonAutoDetect.Visibility.NONE)
+            .withSetterVisibility(JsonAutoDetect.Visibility.NONE)
+            .withCreatorVisibility(JsonAutoDetect.Visibility.PUBLIC_ONLY));
+    }
+
+    private final Path directory;
+    private final long metadataTimeToLiveMillis;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private final AtomicInteger writes = new AtomicInteger();
+    private final AtomicInteger expirations = new AtomicInteger();
+
+    DiskMavenPomCache(Path directory) {
+        this(directory, Duration.ofMillis(Long.MAX_VALUE));
+    }
+
+    DiskMavenPomCache(Path directory, Duration metadataTimeToLive) {
+        this.directory = directory.resolve("v" + Pom.getModelVersion());
+        this.metadataTimeToLiveMillis = metadataTimeToLive.toMillis();
+    }
+
+    @Override
+    public ResolvedPom getResolvedDependencyPom(ResolvedGroupArtifactVersion dependency) {
+        return null;
+    }
+
+    @Override
+    public void putResolvedDependencyPom(ResolvedGroupArtifactVersion dependency, ResolvedPom resolved) {
+    }
+
+    @Override
+    public Optional<MavenMetadata> getMavenMetadata(URI repo, GroupArtifactVersion gav) {
+        if (metadataTimeToLiveMillis <= 0) {
+            return null;
+        }
+        MavenMetadata metadata = read("metadata", repo + " " + gav, MavenMetadata.class, metadataTimeToLiveMillis);
+        return metadata == null ? null : Optional.of(metadata);
+    }
+
+    @Override
+    public void putMavenMetadata(URI repo, GroupArtifactVersion gav, MavenMetadata metadata) {
+        // The downloader puts again the metadata it got from the cache, which is only written again once expired
+        if (metadata != null && metadataTimeToLiveMillis > 0 && expired(file("metadata", repo + " " + gav), metadataTimeToLiveMillis)) {
+            write("metadata", repo + " " + gav, metadata);
+        }
+    }
+
+    @Override
+    public Optional<Pom> getPom(ResolvedGroupArtifactVersion gav) {
+        long timeToLiveMillis = isSnapshot(gav) ? metadataTimeToLiveMillis : Long.MAX_VALUE;
+        if (timeToLiveMillis <= 0) {
+            return null;
+        }
+        Pom pom = read("poms", gav.toString(), Pom.class, timeToLiveMillis);
+        return pom == null ? null : Optional.of(pom);
+    }
+
+    @Override
+    public void putPom(ResolvedGroupArtifactVersion gav, Pom pom) {
+        if (pom == null) {
+            return;
+        }
+        if (!isSnapshot(gav)) {
+            write("poms", gav.toString(), pom);
+        } else if (metadataTimeToLiveMillis > 0 && expired(file("poms", gav.toString()), metadataTimeToLiveMillis)) {
+            // Like the metadata, only written again once expired, so its time to live counts from its download
+            write("poms", gav.toString(), pom);
+        }
+    }
+
+    @Override
+    public Optional<MavenRepository> getNormalizedRepository(MavenRepository repository) {
+        if (hasCredentials(repository)) {
+            return null;
+        }
+        MavenRepository normalized = read("repositories", repository.getId() + " " + repository.getUri(), MavenRepository.class, Long.MAX_VALUE);
+        return normalized == null ? null : Optional.of(normalized);
+    }
+
+    @Override
+    public void putNormalizedRepository(MavenRepository repository, MavenRepository normalized) {
+        if (normalized != null && !hasCredentials(repository) && !hasCredentials(normalized)) {
+            write("repositories", repository.getId() + " " + repository.getUri(), normalized);
+        }
+    }
+
+    Path directory() {
+        return directory;
+    }
+
+    int hits() {
+        return hits.get();
+    }
+
+    @Override
+    public String toString() {
+        return hits.get() + " hits, " + misses.get() + " misses, " + expirations.get() + " expirations and " + writes.get() + " writes of the POM cache " + directory;
+    }
+
+    private <T> T read(String kind, String key, Class<T> type, long timeToLiveMillis) {
+        Path file = file(kind, key);
+        if (!Files.exists(file)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try {
+            if (timeToLiveMillis < Long.MAX_VALUE && expired(file, timeToLiveMillis)) {
+                // Not deleted, it is replaced at once when downloaded again
+                expirations.incrementAndGet();
+                misses.incrementAndGet();
+                return null;
+            }
+            T value = mapper.readValue(file.toFile(), type);
+            hits.incrementAndGet();
+            return value;
+        } catch (IOException e) {
+            // Most likely written by another version of the classes, it is downloaded and written again
+            log.debug("Cannot read the cached " + kind + " " + key + ": " + e.getMessage());
+            misses.incrementAndGet();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+            }
+            return null;
+        }
+    }
+
+    private void write(String kind, String key, Object value) {
+        Path file = file(kind, key);
+        try {
+            Files.createDirectories(file.getParent());
+            // Written aside then moved, so a concurrent reader or a crash never sees a partial entry
+            Path temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                mapper.writeValue(temporaryFile.toFile(), value);
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                writes.incrementAndGet();
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        } catch (IOException e) {
+            log.warn("Cannot cache the " + kind + " " + key + ": " + e.getMessage());
+        }
+    }
+
+    private static boolean expired(Path file, long timeToLiveMillis) {
+        try {
+            return System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis() > timeToLiveMillis;
+        } catch (IOException e) {
+            // Not written yet
+            return true;
+        }
+    }
+
+    private Path file(String kind, String key) {
+        String hash = sha256(key);
+        return directory.resolve(kind).resolve(hash.substring(0, 2)).resolve(hash + ".smile");
+    }
+
+    private static boolean isSnapshot(ResolvedGroupArtifactVersion gav) {
+        return gav.getVersion() != null && gav.getVersion().endsWith("-SNAPSHOT");
+    }
+
+    private static boolean hasCredentials(MavenRepository repository) {
+        return repository.getUsername() != null || repository.getPassword() != null;
+    }
+
+    private static String sha256(String key) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
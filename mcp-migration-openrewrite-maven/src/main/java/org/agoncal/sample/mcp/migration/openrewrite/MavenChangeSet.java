@@ -0,0 +1,179 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.openrewrite.Recipe;
+import org.openrewrite.Validated;
+import org.openrewrite.config.OptionDescriptor;
+import org.openrewrite.internal.RecipeIntrospectionUtils;
+import org.openrewrite.internal.RecipeLoader;
+import org.openrewrite.maven.UpdateMavenWrapper;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.representer.Representer;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Several changes to the pom.xml files, such as adding a BOM, dependencies and properties, applied by one recipe run
+ * instead of one tool call each: the files are visited once by all the changes, in order, and written once. A change set
+ * is a YAML or JSON list of changes, each one named after the tool making it, with the options of the tool:
+ * <pre>
+ * - add_managed_dependency:
+ *     group_id: org.apache.logging.log4j
+ *     artifact_id: log4j-bom
+ *     version: 2.24.3
+ *     scope: import
+ *     type: pom
+ * - add_dependency: { group_id: org.apache.logging.log4j, artifact_id: log4j-api, version: 2.24.3 }
+ * - remove_duplicate_dependencies
+ * </pre>
+ * The options can also be named in camel case, as in the recipes, and the changes by the simple name of their recipe.
+ */
+class MavenChangeSet extends Recipe {
+
+    private final List<Recipe> changes;
+
+    private MavenChangeSet(List<Recipe> changes) {
+        this.changes = changes;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Maven change set";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Applies " + changes.size() + " changes to the pom.xml files in one pass.";
+    }
+
+    @Override
+    public List<Recipe> getRecipeList() {
+        return changes;
+    }
+
+    /**
+     * Compiles a change set into the recipes making its changes, validating their options. Throws an
+     * IllegalArgumentException describing the first invalid change.
+     */
+    static MavenChangeSet parse(String changeSet) {
+        Object changeList;
+        try {
+            LoaderOptions loaderOptions = new LoaderOptions();
+            changeList = new Yaml(new SafeConstructor(loaderOptions), new Representer(new DumperOptions()), new DumperOptions(), loaderOptions, new VersionResolver()).load(changeSet);
+        } catch (YAMLException e) {
+            throw new IllegalArgumentException("The change set is neither YAML nor JSON: " + e.getMessage(), e);
+        }
+        if (!(changeList instanceof List<?> items) || items.isEmpty()) {
+            throw new IllegalArgumentException("The change set must be a non empty list of changes");
+        }
+        Map<String, Class<?>> recipeClasses = recipeClasses();
+        List<Recipe> changes = new ArrayList<>();
+        for (Object item : items) {
+            String name;
+            Object options;
+            if (item instanceof String itemName) {
+                name = itemName;
+                options = null;
+            } else if (item instanceof Map<?, ?> map && map.size() == 1) {
+                Map.Entry<?, ?> entry = map.entrySet().iterator().next();
+                name = String.valueOf(entry.getKey());
+                options = entry.getValue();
+            } else {
+                throw new IllegalArgumentException("Change " + (changes.size() + 1) + " must name a single change: " + item);
+            }
+            Class<?> recipeClass = recipeClasses.get(name);
+            if (recipeClass == null) {
+                throw new IllegalArgumentException("Change " + (changes.size() + 1) + " is unknown: " + name + ". The known changes are " + new TreeSet<>(recipeClasses.keySet()));
+            }
+            if (options != null && !(options instanceof Map<?, ?>)) {
+                throw new IllegalArgumentException("The options of the change " + (changes.size() + 1) + " (" + name + ") must be a map");
+            }
+            changes.add(recipe(changes.size() + 1, name, recipeClass, (Map<?, ?>) options));
+        }
+        return new MavenChangeSet(List.copyOf(changes));
+    }
+
+    /**
+     * Returns the recipes which can be part of a change set by the names of their tools and their simple names. The
+     * Maven wrapper is not made of pom.xml files, so it is updated by its own tool.
+     */
+    private static Map<String, Class<?>> recipeClasses() {
+        Map<String, String> toolNames = MavenRecipeCatalog.toolBindings();
+        Map<String, Class<?>> recipeClasses = new HashMap<>();
+        for (Class<?> recipeClass : MavenRecipeCatalog.recipesToExpose) {
+            if (recipeClass != UpdateMavenWrapper.class) {
+                recipeClasses.put(toolNames.getOrDefault(recipeClass.getSimpleName(), MavenRecipeCatalog.camelToSnakeCase(recipeClass.getSimpleName())), recipeClass);
+                recipeClasses.put(recipeClass.getSimpleName(), recipeClass);
+            }
+        }
+        return recipeClasses;
+    }
+
+    private static Recipe recipe(int index, String name, Class<?> recipeClass, Map<?, ?> options) {
+        Set<String> optionNames = new TreeSet<>();
+        for (OptionDescriptor optionDescriptor : RecipeIntrospectionUtils.constructRecipe(recipeClass).getDescriptor().getOptions()) {
+            optionNames.add(optionDescriptor.getName());
+        }
+        Map<String, Object> args = new LinkedHashMap<>();
+        if (options != null) {
+            for (Map.Entry<?, ?> option : options.entrySet()) {
+                String optionName = snakeToCamelCase(String.valueOf(option.getKey()));
+                if (!optionNames.contains(optionName)) {
+                    throw new IllegalArgumentException("The change " + index + " (" + name + ") has no option " + option.getKey() + ". Its options are " + optionNames);
+                }
+                args.put(optionName, option.getValue());
+            }
+        }
+        // Constructed like the declarative recipes, the options which are not given being null
+        Recipe recipe = new RecipeLoader(MavenChangeSet.class.getClassLoader()).load(recipeClass.getName(), args);
+        Validated<Object> validated = recipe.validate();
+        if (validated.isInvalid()) {
+            List<String> failures = new ArrayList<>();
+            for (Validated.Invalid<Object> failure : validated.failures()) {
+                failures.add(failure.getProperty() + ": " + failure.getMessage());
+            }
+            throw new IllegalArgumentException("The change " + index + " (" + name + ") is invalid: " + String.join(", ", failures));
+        }
+        return recipe;
+    }
+
+    /**
+     * Resolves the scalars like YAML does, except for the floats and timestamps, which are kept as strings so versions
+     * such as `2.10` are not read as `2.1`.
+     */
+    private static class VersionResolver extends Resolver {
+
+        @Override
+        protected void addImplicitResolvers() {
+            addImplicitResolver(Tag.BOOL, BOOL, "yYnNtTfFoO", 10);
+            addImplicitResolver(Tag.INT, INT, "-+0123456789");
+            addImplicitResolver(Tag.NULL, NULL, "~nN\0", 10);
+            addImplicitResolver(Tag.NULL, EMPTY, null, 10);
+        }
+    }
+
+    static String snakeToCamelCase(String snakeCase) {
+        StringBuilder result = new StringBuilder();
+        boolean upperCase = false;
+        for (char c : snakeCase.toCharArray()) {
+            if (c == '_') {
+                upperCase = true;
+            } else {
+                result.append(upperCase ? Character.toUpperCase(c) : c);
+                upperCase = false;
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,137 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.openrewrite.maven.MavenDownloadingException;
+import org.openrewrite.maven.cache.MavenPomCache;
+import org.openrewrite.maven.tree.GroupArtifactVersion;
+import org.openrewrite.maven.tree.MavenMetadata;
+import org.openrewrite.maven.tree.MavenRepository;
+import org.openrewrite.maven.tree.Pom;
+import org.openrewrite.maven.tree.ResolvedGroupArtifactVersion;
+import org.openrewrite.maven.tree.ResolvedPom;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory cache of the maven-metadata.xml files, which list the versions the upgrade recipes select from, keyed by
+ * repository and GAV. Unlike the POMs of a release, which never change, the metadata changes with each release, so the
+ * entries expire after a time to live, and the least recently used entries are evicted beyond a number of entries. The
+ * metadata found missing is cached too, for the same time. Everything else is delegated to another cache.
+ * <p>
+ * It is meant to be the first level of a {@link org.openrewrite.maven.cache.CompositeMavenPomCache}, in front of a
+ * {@link DiskMavenPomCache} expiring the metadata it persists after the same time to live.
+ */
+class MavenMetadataCache implements MavenPomCache {
+
+    private final MavenPomCache delegate;
+    private final int maxEntries;
+    private final long timeToLiveMillis;
+    private final LongSupplier currentTimeMillis;
+    // Least recently used metadata, by repository and GAV
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int hits;
+    private int misses;
+    private int expirations;
+    private int evictions;
+
+    MavenMetadataCache(MavenPomCache delegate, int maxEntries, Duration timeToLive) {
+        this(delegate, maxEntries, timeToLive, System::currentTimeMillis);
+    }
+
+    MavenMetadataCache(MavenPomCache delegate, int maxEntries, Duration timeToLive, LongSupplier currentTimeMillis) {
+        this.delegate = delegate;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.timeToLiveMillis = timeToLive.toMillis();
+        this.currentTimeMillis = currentTimeMillis;
+    }
+
+    private record Entry(Optional<MavenMetadata> metadata, long expiresAt) {
+    }
+
+    @Override
+    public synchronized Optional<MavenMetadata> getMavenMetadata(URI repo, GroupArtifactVersion gav) {
+        String key = repo + " " + gav;
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.expiresAt() <= currentTimeMillis.getAsLong()) {
+            entries.remove(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.metadata();
+    }
+
+    @Override
+    public synchronized void putMavenMetadata(URI repo, GroupArtifactVersion gav, MavenMetadata metadata) {
+        if (timeToLiveMillis <= 0) {
+            return;
+        }
+        String key = repo + " " + gav;
+        long now = currentTimeMillis.getAsLong();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt() > now) {
+            // The downloader puts again the metadata it got from the cache, which must not live longer for it
+            return;
+        }
+        entries.put(key, new Entry(Optional.ofNullable(metadata), now + timeToLiveMillis));
+        Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+        while (entries.size() > maxEntries) {
+            leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            evictions++;
+        }
+    }
+
+    @Override
+    public ResolvedPom getResolvedDependencyPom(ResolvedGroupArtifactVersion dependency) {
+        return delegate.getResolvedDependencyPom(dependency);
+    }
+
+    @Override
+    public void putResolvedDependencyPom(ResolvedGroupArtifactVersion dependency, ResolvedPom resolved) {
+        delegate.putResolvedDependencyPom(dependency, resolved);
+    }
+
+    @Override
+    public Optional<Pom> getPom(ResolvedGroupArtifactVersion gav) throws MavenDownloadingException {
+        return delegate.getPom(gav);
+    }
+
+    @Override
+    public void putPom(ResolvedGroupArtifactVersion gav, Pom pom) {
+        delegate.putPom(gav, pom);
+    }
+
+    @Override
+    public Optional<MavenRepository> getNormalizedRepository(MavenRepository repository) {
+        return delegate.getNormalizedRepository(repository);
+    }
+
+    @Override
+    public void putNormalizedRepository(MavenRepository repository, MavenRepository normalized) {
+        delegate.putNormalizedRepository(repository, normalized);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized int hits() {
+        return hits;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return entries.size() + " metadata, " + hits + " hits, " + misses + " misses, " + expirations + " expirations and " + evictions + " evictions of the metadata cache";
+    }
+}
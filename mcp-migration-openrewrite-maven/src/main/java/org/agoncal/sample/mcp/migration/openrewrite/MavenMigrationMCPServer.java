@@ -2,152 +2,308 @@ package org.agoncal.sample.mcp.migration.openrewrite;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkiverse.mcp.server.TextContent;
 import io.quarkiverse.mcp.server.Tool;
 import io.quarkiverse.mcp.server.ToolArg;
 import io.quarkiverse.mcp.server.ToolResponse;
 import jakarta.annotation.PostConstruct;
+import org.agoncal.sample.mcp.migration.openrewrite.common.DataTableStore;
+import org.agoncal.sample.mcp.migration.openrewrite.common.PathScope;
+import org.agoncal.sample.mcp.migration.openrewrite.common.RecipeResults;
+import org.agoncal.sample.mcp.migration.openrewrite.common.RecipeToolArgs;
+import org.agoncal.sample.mcp.migration.openrewrite.common.SourceDiscovery;
+import org.agoncal.sample.mcp.migration.openrewrite.common.SourceFileStore;
+import org.agoncal.sample.mcp.migration.openrewrite.common.SourceRefresher;
+import org.agoncal.sample.mcp.migration.openrewrite.common.SpillingLargeSourceSet;
 import org.jboss.logging.Logger;
+import org.openrewrite.Changeset;
 import org.openrewrite.ExecutionContext;
 import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.LargeSourceSet;
 import org.openrewrite.Recipe;
 import org.openrewrite.RecipeRun;
 import org.openrewrite.Result;
-import org.openrewrite.SourceFile;
-import org.openrewrite.config.OptionDescriptor;
 import org.openrewrite.internal.InMemoryLargeSourceSet;
-import org.openrewrite.internal.RecipeIntrospectionUtils;
 import org.openrewrite.maven.AddDependency;
 import org.openrewrite.maven.AddManagedDependency;
 import org.openrewrite.maven.AddParentPom;
 import org.openrewrite.maven.AddPlugin;
-import org.openrewrite.maven.AddPluginDependency;
 import org.openrewrite.maven.AddProperty;
-import org.openrewrite.maven.ChangeDependencyGroupIdAndArtifactId;
-import org.openrewrite.maven.ChangeManagedDependencyGroupIdAndArtifactId;
-import org.openrewrite.maven.ChangeParentPom;
-import org.openrewrite.maven.ChangePluginConfiguration;
-import org.openrewrite.maven.ChangePluginGroupIdAndArtifactId;
-import org.openrewrite.maven.MavenParser;
-import org.openrewrite.maven.OrderPomElements;
-import org.openrewrite.maven.RemoveDependency;
-import org.openrewrite.maven.RemoveDuplicateDependencies;
-import org.openrewrite.maven.RemoveManagedDependency;
-import org.openrewrite.maven.RemovePlugin;
-import org.openrewrite.maven.RemovePluginDependency;
-import org.openrewrite.maven.RemoveProperty;
-import org.openrewrite.maven.UpdateMavenProjectPropertyJavaVersion;
+import org.openrewrite.maven.MavenExecutionContextView;
 import org.openrewrite.maven.UpdateMavenWrapper;
 import org.openrewrite.maven.UpgradeDependencyVersion;
 import org.openrewrite.maven.UpgradeParentVersion;
 import org.openrewrite.maven.UpgradePluginVersion;
+import org.openrewrite.maven.cache.CompositeMavenPomCache;
+import org.openrewrite.maven.cache.InMemoryMavenPomCache;
+import org.openrewrite.maven.tree.MavenRepository;
+import org.openrewrite.maven.tree.MavenRepositoryMirror;
+import org.openrewrite.remote.Remote;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
 
 public class MavenMigrationMCPServer {
 
     private static final Logger log = Logger.getLogger(MavenMigrationMCPServer.class);
+    // Serialized at build time by MavenRecipeCatalog
+    private static final String recipeCatalog = MavenRecipeCatalog.load();
     private static final String ROOT_APP_TO_MIGRATE = System.getenv("ROOT_APP_TO_MIGRATE");
     private static final Path ROOT_PATH = Paths.get(ROOT_APP_TO_MIGRATE);
     private static final File ROOT_DIRECTORY = Paths.get(ROOT_APP_TO_MIGRATE).toFile();
+    private static final int MAX_DIFF_LINES_PER_FILE = Integer.parseInt(Objects.requireNonNullElse(System.getenv("MAX_DIFF_LINES_PER_FILE"), "200"));
+    private static final int MAX_SOURCE_FILES_IN_MEMORY = Integer.parseInt(Objects.requireNonNullElse(System.getenv("MAX_SOURCE_FILES_IN_MEMORY"), "10000"));
+    // Larger files are most likely generated, and are not parsed
+    private static final long MAX_SOURCE_FILE_SIZE = Long.parseLong(Objects.requireNonNullElse(System.getenv("MAX_SOURCE_FILE_SIZE"), "1048576"));
+    private static final int MAX_RECIPE_RUNS_WITH_DATA_TABLES = Integer.parseInt(Objects.requireNonNullElse(System.getenv("MAX_RECIPE_RUNS_WITH_DATA_TABLES"), "10"));
+    private static final Path DATA_TABLES_DIRECTORY = Paths.get(Objects.requireNonNullElse(System.getenv("DATA_TABLES_DIRECTORY"), System.getProperty("java.io.tmpdir") + "/mcp-migration-data-tables"));
+    // Refreshes the sources before each recipe run, instead of waiting for the refresh_sources tool
+    private static final boolean AUTO_REFRESH_SOURCES = Boolean.parseBoolean(Objects.requireNonNullElse(System.getenv("AUTO_REFRESH_SOURCES"), "false"));
+    private static final Path MAVEN_POM_CACHE_DIRECTORY = Paths.get(Objects.requireNonNullElse(System.getenv("MAVEN_POM_CACHE_DIRECTORY"), System.getProperty("user.home") + "/.mcp-migration/maven-pom-cache"));
+    // Resolves the POMs only from the local repository and the POM cache, never from a remote repository
+    private static final boolean MAVEN_OFFLINE = Boolean.parseBoolean(Objects.requireNonNullElse(System.getenv("MAVEN_OFFLINE"), "false"));
+    // Time the versions listed by the metadata of an artifact, and the SNAPSHOT POMs, are cached, a day like Maven's default
+    // update policy
+    private static final Duration MAVEN_METADATA_TTL = Duration.ofMinutes(Long.parseLong(Objects.requireNonNullElse(System.getenv("MAVEN_METADATA_TTL_MINUTES"), "1440")));
+    private static final int MAVEN_METADATA_CACHE_SIZE = Integer.parseInt(Objects.requireNonNullElse(System.getenv("MAVEN_METADATA_CACHE_SIZE"), "10000"));
+    // Repository mirroring all the remote ones, such as a repository manager, which also serves the Maven wrapper
+    private static final String MAVEN_MIRROR_URL = System.getenv("MAVEN_MIRROR_URL");
+    // Resolves the independent subtrees of the reactor concurrently when the server starts
+    private static final boolean MAVEN_PARALLEL_RESOLUTION = Boolean.parseBoolean(Objects.requireNonNullElse(System.getenv("MAVEN_PARALLEL_RESOLUTION"), "false"));
+    private static final int MAVEN_RESOLUTION_PARALLELISM = Integer.parseInt(Objects.requireNonNullElse(System.getenv("MAVEN_RESOLUTION_PARALLELISM"), String.valueOf(Runtime.getRuntime().availableProcessors())));
     private static ExecutionContext executionContext;
-    private static List<SourceFile> sourceFiles;
+    private static MavenReactor reactor;
+    private static SourceFileStore sourceFiles;
+    private static SourceRefresher sourceRefresher;
+    private static DataTableStore dataTables = new DataTableStore(MAX_RECIPE_RUNS_WITH_DATA_TABLES);
+    // Refreshes the source set shared with the Java server, which also holds the other files, null when served alone
+    private static Supplier<String> sharedRefresh;
 
     @PostConstruct
     void findPomXMLFiles() {
         log.info("Finding the number of pom.xml files in the directory: " + ROOT_APP_TO_MIGRATE);
-        List<Path> pomXmlFiles = new ArrayList<>();
-        if (ROOT_DIRECTORY.exists()) {
-            collectPomXMLFiles(ROOT_DIRECTORY, pomXmlFiles);
-        } else {
+        if (!ROOT_DIRECTORY.exists()) {
             System.err.println("Directory does not exist: " + ROOT_DIRECTORY);
         }
-        log.info("Found " + pomXmlFiles.size() + " pom.xml files in the directory: " + ROOT_DIRECTORY);
+        SourceDiscovery sourceDiscovery = new SourceDiscovery(ROOT_PATH, file -> file.getFileName().toString().equals("pom.xml"), MAX_SOURCE_FILE_SIZE);
+        SourceDiscovery.Report discovery = sourceDiscovery.discover();
+        List<Path> pomXmlFiles = discovery.files();
+        log.info("Found " + pomXmlFiles.size() + " pom.xml files in the directory: " + ROOT_DIRECTORY + " (" + discovery + ")");
 
         // Create execution context
         executionContext = new InMemoryExecutionContext(t -> t.printStackTrace());
+        configureMavenResolution(executionContext);
 
-        // Create Maven parser
-        MavenParser mavenParser = MavenParser.builder().build();
+        // Read the module graph of the reactor
+        reactor = new MavenReactor(ROOT_PATH, pomXmlFiles, executionContext, MAVEN_RESOLUTION_PARALLELISM);
 
-        // Parse the POM XML files
-        sourceFiles = mavenParser.parse(pomXmlFiles, ROOT_PATH, executionContext).collect(Collectors.toList());
+        // Parse the POM XML files, only keeping MAX_SOURCE_FILES_IN_MEMORY of them on the heap
+        sourceFiles = new SourceFileStore(ROOT_PATH, MAX_SOURCE_FILES_IN_MEMORY, reactor::resolve);
+        if (MAVEN_PARALLEL_RESOLUTION && pomXmlFiles.size() <= MAX_SOURCE_FILES_IN_MEMORY) {
+            // The parents are linked to their modules once they are all resolved, so they must all fit in memory
+            sourceFiles.add(reactor.resolveAll());
+        } else {
+            sourceFiles.load(pomXmlFiles);
+        }
         log.info("Parsed " + sourceFiles.size() + " pom.xml files in the root path: " + ROOT_PATH);
+        sourceRefresher = new SourceRefresher(ROOT_PATH, sourceDiscovery, sourceFiles);
+        reactor.attach(sourceFiles, MAX_SOURCE_FILES_IN_MEMORY);
     }
 
-    static final List<Class> recipesToExpose = List.of(
-        // Add
-        AddDependency.class,
-        AddManagedDependency.class,
-        AddParentPom.class,
-        AddPlugin.class,
-        AddPluginDependency.class,
-        AddProperty.class,
-        // Change
-        ChangeDependencyGroupIdAndArtifactId.class,
-        ChangeManagedDependencyGroupIdAndArtifactId.class,
-        ChangeParentPom.class,
-        ChangePluginConfiguration.class,
-        ChangePluginGroupIdAndArtifactId.class,
-        // Remove
-        RemoveDependency.class,
-        RemoveDuplicateDependencies.class,
-        RemoveManagedDependency.class,
-        RemovePlugin.class,
-        RemovePluginDependency.class,
-        RemoveProperty.class,
-        // Update
-        UpdateMavenProjectPropertyJavaVersion.class,
-        UpdateMavenWrapper.class,
-        UpgradeDependencyVersion.class,
-        UpgradeParentVersion.class,
-        UpgradeParentVersion.class,
-        UpgradePluginVersion.class,
-        // Other
-        OrderPomElements.class
-    );
+    /**
+     * Serves the Maven tools on the source set of the Java server, which parses the pom.xml files with the reactor, and
+     * records their data tables along with its own. The sources are refreshed by the Java server, as it parses all the
+     * other files too.
+     */
+    public static synchronized void share(MavenReactor mavenReactor, SourceFileStore sharedSourceFiles, SourceRefresher sharedSourceRefresher,
+                                          DataTableStore sharedDataTables, ExecutionContext sharedExecutionContext, Supplier<String> refresh) {
+        reactor = mavenReactor;
+        sourceFiles = sharedSourceFiles;
+        sourceRefresher = sharedSourceRefresher;
+        dataTables = sharedDataTables;
+        executionContext = sharedExecutionContext;
+        sharedRefresh = refresh;
+    }
+
+    /**
+     * Caches the downloaded POMs and metadata on disk, in front of the remote repositories, and the metadata in memory
+     * too, so the versions of an artifact are downloaded once for all the modules upgrading it. Offline, all the
+     * repositories, including the ones declared in the POMs, are mirrored by the local repository, otherwise they can
+     * be mirrored by a remote one.
+     */
+    public static void configureMavenResolution(ExecutionContext executionContext) {
+        MavenExecutionContextView mavenExecutionContext = MavenExecutionContextView.view(executionContext);
+        // Offline, the metadata cached on disk is the only one there is, however old
+        DiskMavenPomCache pomCache = new DiskMavenPomCache(MAVEN_POM_CACHE_DIRECTORY, MAVEN_OFFLINE ? Duration.ofMillis(Long.MAX_VALUE) : MAVEN_METADATA_TTL);
+        log.info("Resolving the pom.xml files with " + pomCache);
+        mavenExecutionContext.setPomCache(new CompositeMavenPomCache(new MavenMetadataCache(new InMemoryMavenPomCache(), MAVEN_METADATA_CACHE_SIZE, MAVEN_METADATA_TTL), pomCache));
+        if (MAVEN_OFFLINE) {
+            String localRepository = MavenRepository.MAVEN_LOCAL_DEFAULT.getUri();
+            mavenExecutionContext.setAddCentralRepository(false);
+            mavenExecutionContext.setMirrors(List.of(new MavenRepositoryMirror("offline", localRepository, "*", true, true, null)));
+            log.info("Resolving the pom.xml files offline from " + localRepository + " and " + pomCache.directory());
+        } else if (MAVEN_MIRROR_URL != null) {
+            mavenExecutionContext.setAddCentralRepository(false);
+            mavenExecutionContext.setMirrors(List.of(new MavenRepositoryMirror("mirror", MAVEN_MIRROR_URL, "*", true, true, null)));
+            log.info("Resolving the pom.xml files from the mirror " + MAVEN_MIRROR_URL);
+        }
+    }
 
     @Tool(name = "list_all_available_maven_migration_tools", description = "Lists of the available Maven migration tools.")
     public ToolResponse listAllTheAvailableMavenMigrationTools() throws JsonProcessingException {
-        log.info("List all the " + recipesToExpose.size() + " available Maven Migration Tools");
+        log.info("List all the " + MavenRecipeCatalog.recipesToExpose.size() + " available Maven Migration Tools");
         return ToolResponse.success(getRecipeAsJson());
     }
 
+    @Tool(name = "refresh_sources", description = "Parses again the pom.xml files added or modified since they were indexed, for example by a commit, and drops the deleted ones, without restarting the server.")
+    public ToolResponse refreshSources() {
+        log.info("Refresh the sources");
+        return ToolResponse.success(refresh());
+    }
+
+    @Tool(name = "list_data_tables", description = "Lists the data tables produced by the last recipe runs, with their number of rows.")
+    public ToolResponse listDataTables() throws JsonProcessingException {
+        log.info("List the data tables");
+        return ToolResponse.success(new ObjectMapper().writeValueAsString(dataTables.runs()));
+    }
+
+    @Tool(name = "get_data_table_rows", description = "Returns a page of the rows of a data table produced by a recipe run, as JSON or CSV, without running the recipe again.")
+    public ToolResponse getDataTableRows(
+        @ToolArg(name = "Run ID", description = "The ID of the recipe run, as returned by the recipe or by list_data_tables.") int runId,
+        @ToolArg(name = "Table", description = "The fully qualified or simple name of the data table, such as `SourcesFileResults`.") String table,
+        @ToolArg(name = "Offset", description = "The index of the first row to return.", required = false, defaultValue = "0") int offset,
+        @ToolArg(name = "Limit", description = "The maximum number of rows to return.", required = false, defaultValue = "100") int limit,
+        @ToolArg(name = "Format", description = "The format of the rows, `json` or `csv`.", required = false, defaultValue = "json") String format) throws JsonProcessingException {
+        log.infov("Get the rows {0} to {1} of the data table {2} of the run {3}", offset, offset + limit, table, runId);
+        DataTableStore.Run run = dataTables.run(runId);
+        DataTableStore.Table dataTable = run == null ? null : DataTableStore.table(run, table);
+        if (dataTable == null) {
+            return ToolResponse.error("No data table " + table + " for the recipe run " + runId);
+        }
+        if ("csv".equalsIgnoreCase(format)) {
+            return ToolResponse.success(DataTableStore.rowsAsCsv(dataTable, offset, limit, executionContext));
+        }
+        return ToolResponse.success(DataTableStore.rowsAsJson(dataTable, offset, limit));
+    }
+
+    @Tool(name = "export_data_table", description = "Streams all the rows of a data table produced by a recipe run to a CSV file, and returns the path of the file.")
+    public ToolResponse exportDataTable(
+        @ToolArg(name = "Run ID", description = "The ID of the recipe run, as returned by the recipe or by list_data_tables.") int runId,
+        @ToolArg(name = "Table", description = "The fully qualified or simple name of the data table, such as `SourcesFileResults`.") String table) throws IOException {
+        log.infov("Export the data table {0} of the run {1}", table, runId);
+        DataTableStore.Run run = dataTables.run(runId);
+        DataTableStore.Table dataTable = run == null ? null : DataTableStore.table(run, table);
+        if (dataTable == null) {
+            return ToolResponse.error("No data table " + table + " for the recipe run " + runId);
+        }
+        Path csvFile = DataTableStore.exportCsv(run, dataTable, DATA_TABLES_DIRECTORY, executionContext);
+        return ToolResponse.success("Exported the " + dataTable.rows().size() + " rows of the data table " + dataTable.dataTable().getName() + " to " + csvFile);
+    }
+
+    @Tool(name = "dependency_insight", description = "Finds the dependencies the modules resolve, directly or transitively, and shows for each one the path of dependencies bringing it in from the module, like `mvn dependency:tree` would, e.g. to tell why log4j 1.x is on the classpath.")
+    public ToolResponse dependencyInsight(
+        @ToolArg(name = "Group ID", description = "The group ID of the dependency, such as `log4j`. This can be a glob expression.") String groupId,
+        @ToolArg(name = "Artifact ID", description = "The artifact ID of the dependency, such as `log4j`. This can be a glob expression.", required = false, defaultValue = "*") String artifactId,
+        @ToolArg(name = "Version", description = "A node-style semver selector the resolved version must match, such as `1.x`. All the versions by default.", required = false) String version,
+        @ToolArg(name = "Offset", description = "The index of the first dependency to return.", required = false, defaultValue = "0") int offset,
+        @ToolArg(name = "Limit", description = "The maximum number of dependencies to return.", required = false, defaultValue = "100") int limit,
+        @ToolArg(name = "Include", description = "Comma separated globs of the pom.xml files, relative to the root of the application, to look into (e.g. `module-a/**`). All the files by default.", required = false) String include,
+        @ToolArg(name = "Exclude", description = "Comma separated globs of the pom.xml files, relative to the root of the application, not to look into (e.g. `**/samples/**`).", required = false) String exclude) throws JsonProcessingException {
+        log.infov("Dependency insight ({0}, {1}, {2})", groupId, artifactId, version);
+        List<DependencyInsight.DependencyJson> dependencies;
+        try {
+            dependencies = reactor.dependencyInsight().find(modulesInScope(include, exclude), groupId, artifactId, version);
+        } catch (IllegalArgumentException e) {
+            return ToolResponse.error(e.getMessage());
+        }
+        return ToolResponse.success(new ObjectMapper().writeValueAsString(DependencyInsight.page(dependencies, offset, limit)));
+    }
+
+    @Tool(name = "list_dependency_conflicts", description = "Lists the dependencies resolved with different versions by the modules, with the modules resolving each version, and the ones a module resolves with another version than it requests.")
+    public ToolResponse listDependencyConflicts(
+        @ToolArg(name = "Group ID", description = "The group ID of the dependencies, such as `org.apache.logging.log4j`. This can be a glob expression.", required = false, defaultValue = "*") String groupId,
+        @ToolArg(name = "Artifact ID", description = "The artifact ID of the dependencies. This can be a glob expression.", required = false, defaultValue = "*") String artifactId,
+        @ToolArg(name = "Offset", description = "The index of the first conflict to return.", required = false, defaultValue = "0") int offset,
+        @ToolArg(name = "Limit", description = "The maximum number of conflicts to return.", required = false, defaultValue = "100") int limit,
+        @ToolArg(name = "Include", description = "Comma separated globs of the pom.xml files, relative to the root of the application, to look into (e.g. `module-a/**`). All the files by default.", required = false) String include,
+        @ToolArg(name = "Exclude", description = "Comma separated globs of the pom.xml files, relative to the root of the application, not to look into (e.g. `**/samples/**`).", required = false) String exclude) throws JsonProcessingException {
+        log.infov("List the dependency conflicts ({0}, {1})", groupId, artifactId);
+        List<DependencyInsight.ConflictJson> conflicts;
+        try {
+            conflicts = reactor.dependencyInsight().conflicts(modulesInScope(include, exclude), groupId, artifactId);
+        } catch (IllegalArgumentException e) {
+            return ToolResponse.error(e.getMessage());
+        }
+        return ToolResponse.success(new ObjectMapper().writeValueAsString(DependencyInsight.page(conflicts, offset, limit)));
+    }
+
+    @Tool(name = "apply_maven_change_set", description = "Applies several changes to the pom.xml files at once, such as adding a BOM, dependencies and properties, visiting and writing each file once. The change set is a YAML or JSON list of changes, each one named after the tool making it with the options of the tool in snake case, e.g. `[{\"add_managed_dependency\": {\"group_id\": \"org.apache.logging.log4j\", \"artifact_id\": \"log4j-bom\", \"version\": \"2.24.3\", \"type\": \"pom\", \"scope\": \"import\"}}, {\"add_property\": {\"key\": \"log4j.version\", \"value\": \"2.24.3\"}}]`.")
+    public ToolResponse applyMavenChangeSet(
+        @ToolArg(name = "Change Set", description = "The YAML or JSON list of the changes, applied in order.") String changeSet,
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
+        log.info("Apply a Maven change set");
+        MavenChangeSet mavenChangeSet;
+        try {
+            mavenChangeSet = MavenChangeSet.parse(changeSet);
+        } catch (IllegalArgumentException e) {
+            return ToolResponse.error(e.getMessage());
+        }
+        return executeRecipe(mavenChangeSet, dryRun, include, exclude);
+    }
+
     @Tool(name = "add_dependency", description = "Add a Maven dependency to a `pom.xml` file in the correct scope based on where it is used.")
     public ToolResponse executeAddDependencyRecipe(
         @ToolArg(name = "Group ID", description = "The first part of a dependency coordinate `com.google.guava:guava:VERSION`.") String groupId,
         @ToolArg(name = "Artifact ID", description = "The second part of a dependency coordinate `com.google.guava:guava:VERSION`.") String artifactId,
         @ToolArg(name = "Version", description = "An exact version number or node-style semver selector used to select the version number.") String version,
-        @ToolArg(name = "Scope", description = "A scope to use when it is not what can be inferred from usage. Most of the time this will be left empty, but is used when adding a runtime, provided, or import dependency.", required = false) String scope) throws IOException {
+        @ToolArg(name = "Scope", description = "A scope to use when it is not what can be inferred from usage. Most of the time this will be left empty, but is used when adding a runtime, provided, or import dependency.", required = false) String scope,
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.infov("Execute AddDependency Recipe ({0}, {1}, {2}, {3})", groupId, artifactId, version, scope);
         AddDependency addDependency = new AddDependency(groupId, artifactId, version, null, scope, null, null, null, null, null, null, null);
-        return executeRecipe(addDependency);
+        return executeRecipe(addDependency, dryRun, include, exclude);
     }
 
     @Tool(name = "add_managed_dependency", description = "Add a managed Maven dependency to a `pom.xml` file.")
     public ToolResponse executeAddManagedDependency(
         @ToolArg(name = "Group ID", description = "The first part of a dependency coordinate 'org.apache.logging.log4j:ARTIFACT_ID:VERSION'.") String groupId,
         @ToolArg(name = "Artifact ID", description = "The second part of a dependency coordinate 'org.apache.logging.log4j:log4j-bom:VERSION'.") String artifactId,
-        @ToolArg(name = "Version", description = "An exact version number or node-style semver selector used to select the version number.") String version) throws IOException {
+        @ToolArg(name = "Version", description = "An exact version number or node-style semver selector used to select the version number.") String version,
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.infov("Execute AddManagedDependency Recipe ({0}, {1}, {2})", groupId, artifactId, version);
         AddManagedDependency addManagedDependency = new AddManagedDependency(groupId, artifactId, version, "import", "pom", null, null, null, null, null);
-        return executeRecipe(addManagedDependency);
+        return executeRecipe(addManagedDependency, dryRun, include, exclude);
     }
 
     @Tool(name = "add_parent_pom", description = "Add a parent pom to a Maven pom.xml. Does nothing if a parent pom is already present.")
     public ToolResponse executeAddParentPom(
         @ToolArg(name = "Group ID", description = "The group ID of the maven parent pom to be adopted.") String groupId,
         @ToolArg(name = "Artifact ID", description = "The artifact ID of the maven parent pom to be adopted.") String artifactId,
-        @ToolArg(name = "Version", description = "An exact version number or node-style semver selector used to select the version number.") String version) throws IOException {
+        @ToolArg(name = "Version", description = "An exact version number or node-style semver selector used to select the version number.") String version,
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.infov("Execute AddManagedDependency Recipe ({0}, {1}, {2})", groupId, artifactId, version);
         AddParentPom addParentPom = new AddParentPom(groupId, artifactId, version, null, null);
-        return executeRecipe(addParentPom);
+        return executeRecipe(addParentPom, dryRun, include, exclude);
     }
 
     @Tool(name = "add_plugin", description = "Add the specified Maven plugin to the pom.xml.")
@@ -157,10 +313,13 @@ public class MavenMigrationMCPServer {
         @ToolArg(name = "Version", description = "A fixed version of the plugin to add.") String version,
         @ToolArg(name = "Configuration", description = "Optional plugin configuration provided as raw XML") String configuration,
         @ToolArg(name = "Dependencies", description = "Optional plugin dependencies provided as raw XML.") String dependencies,
-        @ToolArg(name = "Executions", description = "Optional executions provided as raw XML.") String executions) throws IOException {
+        @ToolArg(name = "Executions", description = "Optional executions provided as raw XML.") String executions,
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.infov("Execute AddManagedDependency Recipe ({0}, {1}, {2}, {3}, {4}, {5})", groupId, artifactId, version, configuration, dependencies, executions);
         AddPlugin addPlugin = new AddPlugin(groupId, artifactId, version, configuration, dependencies, executions, null);
-        return executeRecipe(addPlugin);
+        return executeRecipe(addPlugin, dryRun, include, exclude);
     }
 
     @Tool(name = "add_property", description = "Add a new property to the Maven project property. Prefers to add the property to the parent if the project has multiple modules.")
@@ -168,881 +327,214 @@ public class MavenMigrationMCPServer {
         @ToolArg(name = "Key", description = "The name of the property key to be added.") String key,
         @ToolArg(name = "Value", description = "The value of property to be added.") String value,
         @ToolArg(name = "Version", description = "An exact version number or node-style semver selector used to select the version number.") String version,
-        @ToolArg(name = "Scope", description = "A scope to use when it is not what can be inferred from usage. Most of the time this will be left empty, but is used when adding a runtime, provided, or import dependency.", required = false) String scope) throws IOException {
+        @ToolArg(name = "Scope", description = "A scope to use when it is not what can be inferred from usage. Most of the time this will be left empty, but is used when adding a runtime, provided, or import dependency.", required = false) String scope,
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
         log.infov("Execute AddProperty Recipe ({0}, {1}, {2}, {3})", key, value, false, false);
         AddProperty addProperty = new AddProperty(key, value, false, false);
-        return executeRecipe(addProperty);
+        return executeRecipe(addProperty, dryRun, include, exclude);
     }
 
-    private static ToolResponse executeRecipe(Recipe recipe) throws IOException {
-        // Apply the recipe
-        RecipeRun recipeRun = recipe.run(new InMemoryLargeSourceSet(sourceFiles), executionContext);
-
-        // Process results
-        List<Result> results = recipeRun.getChangeset().getAllResults();
-        for (Result result : results) {
-            // Write the changes back to disk
-            Path absolutePath = ROOT_PATH.resolve(result.getBefore().getSourcePath());
-            Files.writeString(absolutePath, result.getAfter().printAll());
-        }
-
-        if (results.isEmpty()) {
-            log.info("Executing the tool " + recipe.getDisplayName() + " made no change in the code");
-            return ToolResponse.success("Executing the tool " + recipe.getDisplayName() + " made no change in the code located in " + ROOT_APP_TO_MIGRATE);
-        } else {
-            log.info("Executing the tool " + recipe.getDisplayName() + " made " + results.size() + " changes in the code");
-            return ToolResponse.success("Executing the tool " + recipe.getDisplayName() + " made " + results.size() + " changes in the code located in " + ROOT_APP_TO_MIGRATE);
-        }
+    @Tool(name = "upgrade_dependency_version", description = "Upgrade the version of a dependency by specifying a group and (optionally) an artifact using Node Semver advanced range selectors, allowing more precise control over version updates to patch or minor releases.")
+    public ToolResponse executeUpgradeDependencyVersionRecipe(
+        @ToolArg(name = "Group ID", description = "The first part of a dependency coordinate `com.google.guava:guava:VERSION`. This can be a glob expression.") String groupId,
+        @ToolArg(name = "Artifact ID", description = "The second part of a dependency coordinate `com.google.guava:guava:VERSION`. This can be a glob expression.") String artifactId,
+        @ToolArg(name = "New Version", description = "An exact version number or node-style semver selector used to select the version number, such as `latest.release` or `latest.patch`.") String newVersion,
+        @ToolArg(name = "Version Pattern", description = "Extends the version selection beyond the Node Semver semantics, e.g. `-jre` with a new version of `25-29` selects Guava 29.0-jre.", required = false) String versionPattern,
+        @ToolArg(name = "Override Managed Version", description = "Overrides the version of a dependency managed by a parent or an imported BOM.", required = false, defaultValue = "false") boolean overrideManagedVersion,
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
+        log.infov("Execute UpgradeDependencyVersion Recipe ({0}, {1}, {2}, {3}, {4})", groupId, artifactId, newVersion, versionPattern, overrideManagedVersion);
+        UpgradeDependencyVersion upgradeDependencyVersion = new UpgradeDependencyVersion(groupId, artifactId, newVersion, versionPattern, overrideManagedVersion, null);
+        return executeRecipe(upgradeDependencyVersion, dryRun, include, exclude);
     }
 
-    String getRecipeAsJson() {
-        return """
-            [
-              {
-                "migration": "Maven Migration",
-                "fqn": "org.openrewrite.maven.AddDependency",
-                "name": "add_dependency",
-                "displayName": "Add Maven dependency",
-                "description": "Add a Maven dependency to a `pom.xml` file in the correct scope based on where it is used.",
-                "options": [
-                  {
-                    "name": "group_id",
-                    "displayName": "Group",
-                    "description": "The first part of a dependency coordinate `com.google.guava:guava:VERSION`.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "artifact_id",
-                    "displayName": "Artifact",
-                    "description": "The second part of a dependency coordinate `com.google.guava:guava:VERSION`.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "version",
-                    "displayName": "Version",
-                    "description": "An exact version number or node-style semver selector used to select the version number.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "scope",
-                    "displayName": "Scope",
-                    "description": "A scope to use when it is not what can be inferred from usage. Most of the time this will be left empty, but is used when adding a runtime, provided, or import dependency.",
-                    "type": "String"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.AddManagedDependency",
-                "name": "add_managed_dependency",
-                "displayName": "Add managed Maven dependency",
-                "description": "Add a managed Maven dependency to a `pom.xml` file.",
-                "options": [
-                  {
-                    "name": "group_id",
-                    "displayName": "Group",
-                    "description": "The first part of a dependency coordinate 'org.apache.logging.log4j:ARTIFACT_ID:VERSION'.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "artifact_id",
-                    "displayName": "Artifact",
-                    "description": "The second part of a dependency coordinate 'org.apache.logging.log4j:log4j-bom:VERSION'.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "version",
-                    "displayName": "Version",
-                    "description": "An exact version number or node-style semver selector used to select the version number.",
-                    "type": "String"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.AddParentPom",
-                "name": "add_parent_pom",
-                "displayName": "Add Maven parent",
-                "description": "Add a parent pom to a Maven pom.xml. Does nothing if a parent pom is already present.",
-                "options": [
-                  {
-                    "name": "group_id",
-                    "displayName": "Group ID",
-                    "description": "The group ID of the maven parent pom to be adopted.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "artifact_id",
-                    "displayName": "Artifact ID",
-                    "description": "The artifact ID of the maven parent pom to be adopted.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "version",
-                    "displayName": "Version",
-                    "description": "An exact version number or node-style semver selector used to select the version number.",
-                    "type": "String"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.AddPlugin",
-                "name": "add_plugin",
-                "displayName": "Add Maven plugin",
-                "description": "Add the specified Maven plugin to the pom.xml.",
-                "options": [
-                  {
-                    "name": "group_id",
-                    "displayName": "Group",
-                    "description": "The first part of a dependency coordinate 'org.openrewrite.maven:rewrite-maven-plugin:VERSION'.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "artifact_id",
-                    "displayName": "Artifact",
-                    "description": "The second part of a dependency coordinate 'org.openrewrite.maven:rewrite-maven-plugin:VERSION'.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "version",
-                    "displayName": "Version",
-                    "description": "A fixed version of the plugin to add.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "configuration",
-                    "displayName": "Configuration",
-                    "description": "Optional plugin configuration provided as raw XML",
-                    "type": "String"
-                  },
-                  {
-                    "name": "dependencies",
-                    "displayName": "Dependencies",
-                    "description": "Optional plugin dependencies provided as raw XML.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "executions",
-                    "displayName": "Executions",
-                    "description": "Optional executions provided as raw XML.",
-                    "type": "String"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.AddPluginDependency",
-                "name": "add_plugin_dependency",
-                "displayName": "Add Maven plugin dependencies",
-                "description": "Adds the specified dependencies to a Maven plugin. Will not add the plugin if it does not already exist in the pom.",
-                "options": [
-                  {
-                    "name": "plugin_group_id",
-                    "displayName": "Plugin group",
-                    "description": "Group ID of the plugin to which the dependency will be added. A group ID is the first part of a dependency coordinate `org.openrewrite.maven:rewrite-maven-plugin:VERSION`.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "plugin_artifact_id",
-                    "displayName": "Plugin artifact",
-                    "description": "Artifact ID of the plugin to which the dependency will be added.The second part of a dependency coordinate `org.openrewrite.maven:rewrite-maven-plugin:VERSION`.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "group_id",
-                    "displayName": "Group",
-                    "description": "The group ID of the dependency to add.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "artifact_id",
-                    "displayName": "Artifact",
-                    "description": "The artifact ID of the dependency to add.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "version",
-                    "displayName": "Version",
-                    "description": "The version of the dependency to add.",
-                    "type": "String"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.AddProperty",
-                "name": "add_property",
-                "displayName": "Add Maven project property",
-                "description": "Add a new property to the Maven project property. Prefers to add the property to the parent if the project has multiple modules.",
-                "options": [
-                  {
-                    "name": "key",
-                    "displayName": "Key",
-                    "description": "The name of the property key to be added.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "value",
-                    "displayName": "Value",
-                    "description": "The value of property to be added.",
-                    "type": "String"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.ChangeDependencyGroupIdAndArtifactId",
-                "name": "change_dependency_group_id_and_artifact_id",
-                "displayName": "Change Maven dependency",
-                "description": "Change a Maven dependency coordinates. The `newGroupId` or `newArtifactId` **MUST** be different from before. Matching `<dependencyManagement>` coordinates are also updated if a `newVersion` or `versionPattern` is provided.",
-                "options": [
-                  {
-                    "name": "old_group_id",
-                    "displayName": "Old groupId",
-                    "description": "The old groupId to replace. The groupId is the first part of a dependency coordinate `com.google.guava:guava:VERSION`. Supports glob expressions.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "old_artifact_id",
-                    "displayName": "Old artifactId",
-                    "description": "The old artifactId to replace. The artifactId is the second part of a dependency coordinate `com.google.guava:guava:VERSION`. Supports glob expressions.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "new_group_id",
-                    "displayName": "New groupId",
-                    "description": "The new groupId to use. Defaults to the existing group id.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "new_artifact_id",
-                    "displayName": "New artifactId",
-                    "description": "The new artifactId to use. Defaults to the existing artifact id.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "new_version",
-                    "displayName": "New version",
-                    "description": "An exact version number or node-style semver selector used to select the version number.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "version_pattern",
-                    "displayName": "Version pattern",
-                    "description": "Allows version selection to be extended beyond the original Node Semver semantics. So for example,Setting 'version' to \\"25-29\\" can be paired with a metadata pattern of \\"-jre\\" to select Guava 29.0-jre",
-                    "type": "String"
-                  },
-                  {
-                    "name": "override_managed_version",
-                    "displayName": "Override managed version",
-                    "description": "If the new dependency has a managed version, this flag can be used to explicitly set the version on the dependency. The default for this flag is `false`.",
-                    "type": "Boolean"
-                  },
-                  {
-                    "name": "change_managed_dependency",
-                    "displayName": "Update dependency management",
-                    "description": "Also update the dependency management section. The default for this flag is `true`.",
-                    "type": "Boolean"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.ChangeManagedDependencyGroupIdAndArtifactId",
-                "name": "change_managed_dependency_group_id_and_artifact_id",
-                "displayName": "Change Maven managed dependency groupId, artifactId and optionally the version",
-                "description": "Change the groupId, artifactId and optionally the version of a specified Maven managed dependency.",
-                "options": [
-                  {
-                    "name": "old_group_id",
-                    "displayName": "Old groupId",
-                    "description": "The old groupId to replace. The groupId is the first part of a managed dependency coordinate `com.google.guava:guava:VERSION`.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "old_artifact_id",
-                    "displayName": "Old artifactId",
-                    "description": "The old artifactId to replace. The artifactId is the second part of a managed dependency coordinate `com.google.guava:guava:VERSION`.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "new_group_id",
-                    "displayName": "New groupId",
-                    "description": "The new groupId to use.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "new_artifact_id",
-                    "displayName": "New artifactId",
-                    "description": "The new artifactId to use.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "new_version",
-                    "displayName": "New version",
-                    "description": "The new version to use.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "version_pattern",
-                    "displayName": "Version pattern",
-                    "description": "Allows version selection to be extended beyond the original Node Semver semantics. So for example,Setting 'version' to \\"25-29\\" can be paired with a metadata pattern of \\"-jre\\" to select Guava 29.0-jre",
-                    "type": "String"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.ChangeParentPom",
-                "name": "change_parent_pom",
-                "displayName": "Change Maven parent",
-                "description": "Change the parent pom of a Maven pom.xml. Identifies the parent pom to be changed by its groupId and artifactId.",
-                "options": [
-                  {
-                    "name": "old_group_id",
-                    "displayName": "Old group ID",
-                    "description": "The group ID of the Maven parent pom to be changed away from.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "new_group_id",
-                    "displayName": "New group ID",
-                    "description": "The group ID of the new maven parent pom to be adopted. If this argument is omitted it defaults to the value of `oldGroupId`.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "old_artifact_id",
-                    "displayName": "Old artifact ID",
-                    "description": "The artifact ID of the maven parent pom to be changed away from.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "new_artifact_id",
-                    "displayName": "New artifact ID",
-                    "description": "The artifact ID of the new maven parent pom to be adopted. If this argument is omitted it defaults to the value of `oldArtifactId`.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "new_version",
-                    "displayName": "New version",
-                    "description": "An exact version number or node-style semver selector used to select the version number.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "old_relative_path",
-                    "displayName": "Old relative path",
-                    "description": "The relativePath of the maven parent pom to be changed away from. Use an empty String to match `<relativePath />`, use `../pom.xml` to match the default value.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "new_relative_path",
-                    "displayName": "New relative path",
-                    "description": "New relative path attribute for parent lookup.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "version_pattern",
-                    "displayName": "Version pattern",
-                    "description": "Allows version selection to be extended beyond the original Node Semver semantics. So for example,Setting 'version' to \\"25-29\\" can be paired with a metadata pattern of \\"-jre\\" to select Guava 29.0-jre",
-                    "type": "String"
-                  },
-                  {
-                    "name": "allow_version_downgrades",
-                    "displayName": "Allow version downgrades",
-                    "description": "If the new parent has the same group/artifact, this flag can be used to only upgrade the version if the target version is newer than the current.",
-                    "type": "Boolean"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.ChangePluginConfiguration",
-                "name": "change_plugin_configuration",
-                "displayName": "Change Maven plugin configuration",
-                "description": "Apply the specified configuration to a Maven plugin. Will not add the plugin if it does not already exist in the pom.",
-                "options": [
-                  {
-                    "name": "group_id",
-                    "displayName": "Group",
-                    "description": "The first part of the coordinate 'org.openrewrite.maven:rewrite-maven-plugin:VERSION' of the plugin to modify.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "artifact_id",
-                    "displayName": "Artifact",
-                    "description": "The second part of a coordinate 'org.openrewrite.maven:rewrite-maven-plugin:VERSION' of the plugin to modify.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "configuration",
-                    "displayName": "Configuration",
-                    "description": "Plugin configuration provided as raw XML overriding any existing configuration. Configuration inside `<executions>` blocks will not be altered. Supplying `null` will remove any existing configuration.",
-                    "type": "String"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.ChangePluginGroupIdAndArtifactId",
-                "name": "change_plugin_group_id_and_artifact_id",
-                "displayName": "Change Maven plugin group and artifact ID",
-                "description": "Change the groupId and/or the artifactId of a specified Maven plugin. Optionally update the plugin version.",
-                "options": [
-                  {
-                    "name": "old_group_id",
-                    "displayName": "Old group ID",
-                    "description": "The old group ID to replace. The group ID is the first part of a plugin coordinate 'com.google.guava:guava:VERSION'. Supports glob expressions.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "old_artifact_id",
-                    "displayName": "Old artifact ID",
-                    "description": "The old artifactId to replace. The artifact ID is the second part of a plugin coordinate 'com.google.guava:guava:VERSION'. Supports glob expressions.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "new_group_id",
-                    "displayName": "New group ID",
-                    "description": "The new group ID to use. Defaults to the existing group ID.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "new_artifact_id",
-                    "displayName": "New artifact ID",
-                    "description": "The new artifact ID to use. Defaults to the existing artifact ID.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "new_version",
-                    "displayName": "New version",
-                    "description": "An exact version number or node-style semver selector used to select the version number.",
-                    "type": "String"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.RemoveDependency",
-                "name": "remove_dependency",
-                "displayName": "Remove Maven dependency",
-                "description": "Removes a single dependency from the <dependencies> section of the pom.xml.",
-                "options": [
-                  {
-                    "name": "group_id",
-                    "displayName": "Group",
-                    "description": "The first part of a dependency coordinate `com.google.guava:guava:VERSION`.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "artifact_id",
-                    "displayName": "Artifact",
-                    "description": "The second part of a dependency coordinate `com.google.guava:guava:VERSION`.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "scope",
-                    "displayName": "Scope",
-                    "description": "Only remove dependencies if they are in this scope. If 'runtime', this willalso remove dependencies in the 'compile' scope because 'compile' dependencies are part of the runtime dependency set",
-                    "type": "String"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.RemoveDuplicateDependencies",
-                "name": "remove_duplicate_dependencies",
-                "displayName": "Remove duplicate Maven dependencies",
-                "description": "Removes duplicated dependencies in the `<dependencies>` and `<dependencyManagement>` sections of the `pom.xml`.",
-                "options": []
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.RemoveManagedDependency",
-                "name": "remove_managed_dependency",
-                "displayName": "Remove Maven managed dependency",
-                "description": "Removes a single managed dependency from the <dependencyManagement><dependencies> section of the pom.xml.",
-                "options": [
-                  {
-                    "name": "group_id",
-                    "displayName": "Group",
-                    "description": "The first part of a managed dependency coordinate `com.google.guava:guava:VERSION`.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "artifact_id",
-                    "displayName": "Artifact",
-                    "description": "The second part of a managed dependency coordinate `com.google.guava:guava:VERSION`.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "scope",
-                    "displayName": "Scope",
-                    "description": "Only remove managed dependencies if they are in this scope. If `runtime`, this will also remove managed dependencies in the 'compile' scope because `compile` dependencies are part of the runtime dependency set.",
-                    "type": "String"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.RemovePlugin",
-                "name": "remove_plugin",
-                "displayName": "Remove Maven plugin",
-                "description": "Remove the specified Maven plugin from the POM.",
-                "options": [
-                  {
-                    "name": "group_id",
-                    "displayName": "Group",
-                    "description": "The first part of a dependency coordinate 'org.openrewrite.maven:rewrite-maven-plugin:VERSION'.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "artifact_id",
-                    "displayName": "Artifact",
-                    "description": "The second part of a dependency coordinate 'org.openrewrite.maven:rewrite-maven-plugin:VERSION'.",
-                    "type": "String"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.RemovePluginDependency",
-                "name": "remove_plugin_dependency",
-                "displayName": "Remove Maven plugin dependency",
-                "description": "Removes a dependency from the <dependencies> section of a plugin in the pom.xml.",
-                "options": [
-                  {
-                    "name": "plugin_group_id",
-                    "displayName": "Plugin group ID",
-                    "description": "Group ID of the plugin from which the dependency will be removed. Supports glob.A Group ID is the first part of a dependency coordinate 'org.openrewrite.maven:rewrite-maven-plugin:VERSION'.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "plugin_artifact_id",
-                    "displayName": "Plugin artifact ID",
-                    "description": "Artifact ID of the plugin from which the dependency will be removed. Supports glob.The second part of a dependency coordinate 'org.openrewrite.maven:rewrite-maven-plugin:VERSION'.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "group_id",
-                    "displayName": "Group",
-                    "description": "The first part of a plugin dependency coordinate. Supports glob.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "artifact_id",
-                    "displayName": "Artifact",
-                    "description": "The second part of a plugin dependency coordinate. Supports glob.",
-                    "type": "String"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.RemoveProperty",
-                "name": "remove_property",
-                "displayName": "Remove Maven project property",
-                "description": "Removes the specified Maven project property from the pom.xml.",
-                "options": [
-                  {
-                    "name": "property_name",
-                    "displayName": "Property name",
-                    "description": "Key name of the property to remove.",
-                    "type": "String"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.UpdateMavenProjectPropertyJavaVersion",
-                "name": "update_maven_project_property_java_version",
-                "displayName": "Update Maven Java project properties",
-                "description": "The Java version is determined by several project properties, including:\\n\\n * `java.version`\\n * `jdk.version`\\n * `javaVersion`\\n * `jdkVersion`\\n * `maven.compiler.source`\\n * `maven.compiler.target`\\n * `maven.compiler.release`\\n * `release.version`\\n\\nIf none of these properties are in use and the maven compiler plugin is not otherwise configured, adds the `maven.compiler.release` property.",
-                "options": [
-                  {
-                    "name": "version",
-                    "displayName": "Java version",
-                    "description": "The Java version to upgrade to.",
-                    "type": "Integer"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.UpdateMavenWrapper",
-                "name": "update_maven_wrapper",
-                "displayName": "Update Maven wrapper",
-                "description": "Update the version of Maven used in an existing Maven wrapper.",
-                "options": [
-                  {
-                    "name": "wrapper_version",
-                    "displayName": "New wrapper version",
-                    "description": "An exact version number or node-style semver selector used to select the wrapper version number.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "wrapper_distribution",
-                    "displayName": "Wrapper Distribution type",
-                    "description": "The distribution of the Maven wrapper to use.\\n\\n* \\"bin\\" uses a `maven-wrapper.jar` compiled binary.\\n* \\"only-script\\" uses a lite version of `mvnw`/`mvnw.cmd` using wget/curl or powershell. (required wrapper 3.2.0 or newer)\\n* \\"script\\" downloads `maven-wrapper.jar` or `MavenWrapperDownloader.java` to then download a full distribution.\\n* \\"source\\" uses `MavenWrapperDownloader.java` source file.\\n\\nDefaults to \\"bin\\".",
-                    "type": "String"
-                  },
-                  {
-                    "name": "distribution_version",
-                    "displayName": "New distribution version",
-                    "description": "An exact version number or node-style semver selector used to select the Maven version number.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "repository_url",
-                    "displayName": "Repository URL",
-                    "description": "The URL of the repository to download the Maven wrapper and distribution from. Supports repositories with a Maven layout. Defaults to `https://repo.maven.apache.org/maven2`.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "add_if_missing",
-                    "displayName": "Add if missing",
-                    "description": "Add a Maven wrapper, if it's missing. Defaults to `true`.",
-                    "type": "Boolean"
-                  },
-                  {
-                    "name": "enforce_wrapper_checksum_verification",
-                    "displayName": "Enforce checksum verification for maven-wrapper.jar",
-                    "description": "Enforce checksum verification for the maven-wrapper.jar. Enabling this feature may sporadically result in build failures, such as [MWRAPPER-103](https://issues.apache.org/jira/browse/MWRAPPER-103). Defaults to `false`.",
-                    "type": "Boolean"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.UpgradeDependencyVersion",
-                "name": "upgrade_dependency_version",
-                "displayName": "Upgrade Maven dependency version",
-                "description": "Upgrade the version of a dependency by specifying a group and (optionally) an artifact using Node Semver advanced range selectors, allowing more precise control over version updates to patch or minor releases.",
-                "options": [
-                  {
-                    "name": "group_id",
-                    "displayName": "Group",
-                    "description": "The first part of a dependency coordinate `com.google.guava:guava:VERSION`. This can be a glob expression.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "artifact_id",
-                    "displayName": "Artifact",
-                    "description": "The second part of a dependency coordinate `com.google.guava:guava:VERSION`. This can be a glob expression.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "new_version",
-                    "displayName": "New version",
-                    "description": "An exact version number or node-style semver selector used to select the version number. You can also use `latest.release` for the latest available version and `latest.patch` if the current version is a valid semantic version. For more details, you can look at the documentation page of [version selectors](https://docs.openrewrite.org/reference/dependency-version-selectors)",
-                    "type": "String"
-                  },
-                  {
-                    "name": "version_pattern",
-                    "displayName": "Version pattern",
-                    "description": "Allows version selection to be extended beyond the original Node Semver semantics. So for example,Setting 'newVersion' to \\"25-29\\" can be paired with a metadata pattern of \\"-jre\\" to select Guava 29.0-jre",
-                    "type": "String"
-                  },
-                  {
-                    "name": "override_managed_version",
-                    "displayName": "Override managed version",
-                    "description": "This flag can be set to explicitly override a managed dependency's version. The default for this flag is `false`.",
-                    "type": "Boolean"
-                  },
-                  {
-                    "name": "retain_versions",
-                    "displayName": "Retain versions",
-                    "description": "Accepts a list of GAVs. For each GAV, if it is a project direct dependency, and it is removed from dependency management after the changes from this recipe, then it will be retained with an explicit version. The version can be omitted from the GAV to use the old value from dependency management",
-                    "type": "List"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.UpgradeParentVersion",
-                "name": "upgrade_parent_version",
-                "displayName": "Upgrade Maven parent project version",
-                "description": "Set the parent pom version number according to a [version selector](https://docs.openrewrite.org/reference/dependency-version-selectors) or to a specific version number.",
-                "options": [
-                  {
-                    "name": "group_id",
-                    "displayName": "Group",
-                    "description": "The first part of a dependency coordinate 'org.springframework.boot:spring-boot-parent:VERSION'.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "artifact_id",
-                    "displayName": "Artifact",
-                    "description": "The second part of a dependency coordinate 'org.springframework.boot:spring-boot-parent:VERSION'.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "new_version",
-                    "displayName": "New version",
-                    "description": "An exact version number or node-style semver selector used to select the version number.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "version_pattern",
-                    "displayName": "Version pattern",
-                    "description": "Allows version selection to be extended beyond the original Node Semver semantics. So for example,Setting 'version' to \\"25-29\\" can be paired with a metadata pattern of \\"-jre\\" to select Guava 29.0-jre",
-                    "type": "String"
-                  },
-                  {
-                    "name": "only_external",
-                    "displayName": "Only external",
-                    "description": "Only upgrade `<parent>` if external to the project, i.e. it has an empty `<relativePath>`. Defaults to `false`.",
-                    "type": "Boolean"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.UpgradeParentVersion",
-                "name": "upgrade_parent_version",
-                "displayName": "Upgrade Maven parent project version",
-                "description": "Set the parent pom version number according to a [version selector](https://docs.openrewrite.org/reference/dependency-version-selectors) or to a specific version number.",
-                "options": [
-                  {
-                    "name": "group_id",
-                    "displayName": "Group",
-                    "description": "The first part of a dependency coordinate 'org.springframework.boot:spring-boot-parent:VERSION'.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "artifact_id",
-                    "displayName": "Artifact",
-                    "description": "The second part of a dependency coordinate 'org.springframework.boot:spring-boot-parent:VERSION'.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "new_version",
-                    "displayName": "New version",
-                    "description": "An exact version number or node-style semver selector used to select the version number.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "version_pattern",
-                    "displayName": "Version pattern",
-                    "description": "Allows version selection to be extended beyond the original Node Semver semantics. So for example,Setting 'version' to \\"25-29\\" can be paired with a metadata pattern of \\"-jre\\" to select Guava 29.0-jre",
-                    "type": "String"
-                  },
-                  {
-                    "name": "only_external",
-                    "displayName": "Only external",
-                    "description": "Only upgrade `<parent>` if external to the project, i.e. it has an empty `<relativePath>`. Defaults to `false`.",
-                    "type": "Boolean"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.UpgradePluginVersion",
-                "name": "upgrade_plugin_version",
-                "displayName": "Upgrade Maven plugin version",
-                "description": "Upgrade the version of a plugin using Node Semver advanced range selectors, allowing more precise control over version updates to patch or minor releases.",
-                "options": [
-                  {
-                    "name": "group_id",
-                    "displayName": "Group",
-                    "description": "The first part of a dependency coordinate 'org.openrewrite.maven:rewrite-maven-plugin:VERSION'. Supports globs.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "artifact_id",
-                    "displayName": "Artifact",
-                    "description": "The second part of a dependency coordinate 'org.openrewrite.maven:rewrite-maven-plugin:VERSION'. Supports globs.",
-                    "type": "String"
-                  },
-                  {
-                    "name": "new_version",
-                    "displayName": "New version",
-                    "description": "An exact version number or node-style semver selector used to select the version number. You can also use `latest.release` for the latest available version and `latest.patch` if the current version is a valid semantic version. For more details, you can look at the documentation page of [version selectors](https://docs.openrewrite.org/reference/dependency-version-selectors)",
-                    "type": "String"
-                  },
-                  {
-                    "name": "version_pattern",
-                    "displayName": "Version pattern",
-                    "description": "Allows version selection to be extended beyond the original Node Semver semantics. So for example,Setting 'version' to \\"25-29\\" can be paired with a metadata pattern of \\"-jre\\" to select Guava 29.0-jre",
-                    "type": "String"
-                  },
-                  {
-                    "name": "trust_parent",
-                    "displayName": "Trust parent POM",
-                    "description": "Even if the parent suggests a version that is older than what we are trying to upgrade to, trust it anyway. Useful when you want to wait for the parent to catch up before upgrading. The parent is not trusted by default.",
-                    "type": "Boolean"
-                  },
-                  {
-                    "name": "add_version_if_missing",
-                    "displayName": "Add version if missing",
-                    "description": "If the plugin is missing a version, add the latest release. Defaults to false.",
-                    "type": "Boolean"
-                  }
-                ]
-              },
-              {
-                "migration": "Java Migration",
-                "fqn": "org.openrewrite.maven.OrderPomElements",
-                "name": "order_pom_elements",
-                "displayName": "Order POM elements",
-                "description": "Order POM elements according to the [recommended](http://maven.apache.org/developers/conventions/code.html#pom-code-convention) order.",
-                "options": []
-              }
-            ]
-            """;
+    @Tool(name = "upgrade_parent_version", description = "Set the parent pom version number according to a version selector or to a specific version number.")
+    public ToolResponse executeUpgradeParentVersionRecipe(
+        @ToolArg(name = "Group ID", description = "The first part of a dependency coordinate 'org.springframework.boot:spring-boot-parent:VERSION'.") String groupId,
+        @ToolArg(name = "Artifact ID", description = "The second part of a dependency coordinate 'org.springframework.boot:spring-boot-parent:VERSION'.") String artifactId,
+        @ToolArg(name = "New Version", description = "An exact version number or node-style semver selector used to select the version number.") String newVersion,
+        @ToolArg(name = "Version Pattern", description = "Extends the version selection beyond the Node Semver semantics, e.g. `-jre` with a new version of `25-29` selects Guava 29.0-jre.", required = false) String versionPattern,
+        @ToolArg(name = "Only External", description = "Only upgrades the parents which are external to the project, i.e. with an empty `<relativePath>`.", required = false, defaultValue = "false") boolean onlyExternal,
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
+        log.infov("Execute UpgradeParentVersion Recipe ({0}, {1}, {2}, {3}, {4})", groupId, artifactId, newVersion, versionPattern, onlyExternal);
+        UpgradeParentVersion upgradeParentVersion = new UpgradeParentVersion(groupId, artifactId, newVersion, versionPattern, onlyExternal);
+        return executeRecipe(upgradeParentVersion, dryRun, include, exclude);
     }
 
-    String getRecipeJson() throws JsonProcessingException {
+    @Tool(name = "upgrade_plugin_version", description = "Upgrade the version of a Maven plugin using Node Semver advanced range selectors, allowing more precise control over version updates to patch or minor releases.")
+    public ToolResponse executeUpgradePluginVersionRecipe(
+        @ToolArg(name = "Group ID", description = "The first part of a dependency coordinate 'org.openrewrite.maven:rewrite-maven-plugin:VERSION'. Supports globs.") String groupId,
+        @ToolArg(name = "Artifact ID", description = "The second part of a dependency coordinate 'org.openrewrite.maven:rewrite-maven-plugin:VERSION'. Supports globs.") String artifactId,
+        @ToolArg(name = "New Version", description = "An exact version number or node-style semver selector used to select the version number, such as `latest.release` or `latest.patch`.") String newVersion,
+        @ToolArg(name = "Version Pattern", description = "Extends the version selection beyond the Node Semver semantics, e.g. `-jre` with a new version of `25-29` selects Guava 29.0-jre.", required = false) String versionPattern,
+        @ToolArg(name = "Add Version If Missing", description = "Adds the selected version to the plugins declared without a version.", required = false, defaultValue = "false") boolean addVersionIfMissing,
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun,
+        @ToolArg(name = "Include", description = RecipeToolArgs.INCLUDE_DESCRIPTION, required = false) String include,
+        @ToolArg(name = "Exclude", description = RecipeToolArgs.EXCLUDE_DESCRIPTION, required = false) String exclude) throws IOException {
+        log.infov("Execute UpgradePluginVersion Recipe ({0}, {1}, {2}, {3}, {4})", groupId, artifactId, newVersion, versionPattern, addVersionIfMissing);
+        UpgradePluginVersion upgradePluginVersion = new UpgradePluginVersion(groupId, artifactId, newVersion, versionPattern, false, addVersionIfMissing);
+        return executeRecipe(upgradePluginVersion, dryRun, include, exclude);
+    }
 
-        List<RecipeJson> jsonRecipes = new ArrayList<>();
-        for (Class recipeClass : recipesToExpose) {
+    @Tool(name = "update_maven_wrapper", description = "Update the Maven wrapper (`mvnw`, `mvnw.cmd` and the `.mvn/wrapper` files) of the application to a version of the wrapper and of Maven.")
+    public ToolResponse executeUpdateMavenWrapperRecipe(
+        @ToolArg(name = "Wrapper Version", description = "An exact version number or node-style semver selector used to select the wrapper version number. The latest release by default.", required = false) String wrapperVersion,
+        @ToolArg(name = "Wrapper Distribution", description = "The distribution of the wrapper, `bin`, `only-script`, `script` or `source`. `bin` by default.", required = false) String wrapperDistribution,
+        @ToolArg(name = "Distribution Version", description = "An exact version number or node-style semver selector used to select the Maven version number. The latest release by default.", required = false) String distributionVersion,
+        @ToolArg(name = "Repository URL", description = "The URL of the Maven repository to download the wrapper and Maven from. The repository mirroring all the repositories, or Maven Central, by default.", required = false) String repositoryUrl,
+        @ToolArg(name = "Add If Missing", description = "Adds the Maven wrapper to the application if it does not have one.", required = false, defaultValue = "false") boolean addIfMissing,
+        @ToolArg(name = "Dry Run", description = RecipeToolArgs.DRY_RUN_DESCRIPTION, required = false, defaultValue = "false") boolean dryRun) throws IOException {
+        log.infov("Execute UpdateMavenWrapper Recipe ({0}, {1}, {2}, {3}, {4})", wrapperVersion, wrapperDistribution, distributionVersion, repositoryUrl, addIfMissing);
+        UpdateMavenWrapper updateMavenWrapper = new UpdateMavenWrapper(wrapperVersion, wrapperDistribution, distributionVersion, repositoryUrl == null || repositoryUrl.isBlank() ? MAVEN_MIRROR_URL : repositoryUrl, addIfMissing, false);
 
-            Recipe recipe = RecipeIntrospectionUtils.constructRecipe(recipeClass);
+        // The wrapper files are not pom.xml files, so they are parsed for this run only
+        InMemoryLargeSourceSet sourceSet = new InMemoryLargeSourceSet(MavenWrapperFiles.parse(ROOT_PATH, executionContext));
+        return runRecipe(updateMavenWrapper, sourceSet, dryRun, false);
+    }
 
-            List<OptionJson> jsonOptions = new ArrayList<>();
-            for (OptionDescriptor optionDescriptor : recipe.getDescriptor().getOptions()) {
-                jsonOptions.add(new OptionJson(camelToSnakeCase(optionDescriptor.getName()), optionDescriptor.getDisplayName(), optionDescriptor.getDescription(), optionDescriptor.getType()));
-            }
+    private static synchronized ToolResponse executeRecipe(Recipe recipe, boolean dryRun, String include, String exclude) throws IOException {
+        PathScope scope;
+        try {
+            scope = PathScope.of(include, exclude);
+        } catch (IllegalArgumentException e) {
+            return ToolResponse.error("Invalid include or exclude glob: " + e.getMessage());
+        }
 
-            jsonRecipes.add(new RecipeJson("Maven Migration", recipe.getName(), camelToSnakeCase(recipe.getClass().getSimpleName()), recipe.getDisplayName(), recipe.getDescription(), jsonOptions));
+        if (AUTO_REFRESH_SOURCES) {
+            refresh();
         }
 
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.writeValueAsString(jsonRecipes);
-    }
+        // Only hand the recipe the pom.xml files in scope, the other ones are still parsed to resolve the reactor, and the
+        // other files of the source set shared with the Java server are left out
+        List<Path> inScope = scope.filter(sourceFiles.paths()).stream().filter(MavenReactor::isPomXml).toList();
+        log.info("Running the tool " + recipe.getDisplayName() + " on " + inScope.size() + " out of " + sourceFiles.size() + " files");
 
-    static String camelToSnakeCase(String camelCase) {
-        if (camelCase == null || camelCase.isEmpty()) {
-            return camelCase;
+        // Apply the recipe, streaming the files through it
+        try (SpillingLargeSourceSet sourceSet = new SpillingLargeSourceSet(sourceFiles, inScope)) {
+            return runRecipe(recipe, sourceSet, dryRun, true);
+        } catch (IllegalStateException e) {
+            // A file evicted from memory has changed on disk since it was indexed
+            return ToolResponse.error(e.getMessage());
         }
+    }
 
-        StringBuilder result = new StringBuilder();
-        result.append(Character.toLowerCase(camelCase.charAt(0)));
+    /**
+     * Runs the recipe on the source set and writes its changes to disk. Changes to the pom.xml files are also applied to
+     * their LSTs, and the POMs depending on them are resolved again. Like {@link #refresh()}, it is synchronized on the
+     * class, so the tools do not interleave their changes.
+     */
+    private static synchronized ToolResponse runRecipe(Recipe recipe, LargeSourceSet sourceSet, boolean dryRun, boolean pomXmlFiles) throws IOException {
+        // The execution context is shared by all the runs, so only collect the data tables of this one
+        executionContext.pollMessage(ExecutionContext.DATA_TABLES);
+        RecipeRun recipeRun = recipe.run(sourceSet, executionContext);
+        executionContext.pollMessage(ExecutionContext.DATA_TABLES);
+        DataTableStore.Run dataTableRun = dataTables.record(recipe.getName(), recipeRun.getDataTables());
+        Changeset changeset = recipeRun.getChangeset();
 
-        for (int i = 1; i < camelCase.length(); i++) {
-            char currentChar = camelCase.charAt(i);
-            if (Character.isUpperCase(currentChar)) {
-                result.append('_');
-                result.append(Character.toLowerCase(currentChar));
-            } else {
-                result.append(currentChar);
+        // Process results, by pages so they do not all have to be in memory
+        if (dryRun) {
+            return ToolResponse.success(RecipeResults.preview(recipe, changeset, dataTableRun, ROOT_APP_TO_MIGRATE, MAX_SOURCE_FILES_IN_MEMORY, MAX_DIFF_LINES_PER_FILE).stream().map(TextContent::new).toList());
+        }
+        Set<Path> changed = new HashSet<>();
+        for (int start = 0; start < changeset.size(); start += MAX_SOURCE_FILES_IN_MEMORY) {
+            List<Result> results = changeset.getPage(start, MAX_SOURCE_FILES_IN_MEMORY);
+            for (Result result : results) {
+                // Write the changes back to disk
+                writeResult(result);
+                if (result.getBefore() != null) {
+                    changed.add(result.getBefore().getSourcePath());
+                }
+                if (result.getAfter() != null) {
+                    changed.add(result.getAfter().getSourcePath());
+                }
+            }
+            // Keep the LSTs in sync with the disk so the next recipe starts from the migrated code
+            if (pomXmlFiles) {
+                sourceFiles.update(results);
             }
         }
+        // The resolution of the modules inheriting from or importing the changed POMs is stale
+        if (pomXmlFiles) {
+            sourceRefresher.written(changed);
+            reactor.resolveAgain(changed);
+        }
 
-        return result.toString();
+        if (changeset.size() == 0) {
+            log.info("Executing the tool " + recipe.getDisplayName() + " made no change in the code");
+            return ToolResponse.success("Executing the tool " + recipe.getDisplayName() + " made no change in the code located in " + ROOT_APP_TO_MIGRATE + (dataTableRun == null ? "" : ". " + RecipeResults.dataTablesMessage(dataTableRun)));
+        } else {
+            log.info("Executing the tool " + recipe.getDisplayName() + " made " + changeset.size() + " changes in the code");
+            return ToolResponse.success("Executing the tool " + recipe.getDisplayName() + " made " + changeset.size() + " changes in the code located in " + ROOT_APP_TO_MIGRATE + (dataTableRun == null ? "" : ". " + RecipeResults.dataTablesMessage(dataTableRun)));
+        }
     }
 
-    private static void collectPomXMLFiles(File directory, List<Path> files) {
-        File[] fileList = directory.listFiles();
-        if (fileList != null) {
-            for (File file : fileList) {
-                if (file.isDirectory()) {
-                    collectPomXMLFiles(file, files);
-                } else if (file.getName().equals("pom.xml")) {
-                    files.add(file.toPath());
+    /**
+     * Returns the relative paths of the pom.xml files in scope, up to date with the working tree if it is refreshed
+     * automatically. Throws an IllegalArgumentException if a glob is invalid.
+     */
+    private static List<Path> modulesInScope(String include, String exclude) {
+        PathScope scope;
+        try {
+            scope = PathScope.of(include, exclude);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid include or exclude glob: " + e.getMessage(), e);
+        }
+        if (AUTO_REFRESH_SOURCES) {
+            refresh();
+        }
+        return scope.filter(sourceFiles.paths()).stream().filter(MavenReactor::isPomXml).toList();
+    }
+
+    /**
+     * Brings the source set and the reactor up to date with the working tree.
+     */
+    private static synchronized String refresh() {
+        if (sharedRefresh != null) {
+            return sharedRefresh.get();
+        }
+        SourceRefresher.Changes changes = sourceRefresher.changes();
+        if (!changes.isEmpty()) {
+            sourceFiles.remove(changes.deleted());
+            List<Path> changed = new ArrayList<>(changes.added());
+            changed.addAll(changes.modified());
+            changed.addAll(changes.deleted());
+            reactor.resolveAgain(changed);
+        }
+        log.info("Refreshed the sources: " + changes);
+        return "Refreshed the sources located in " + ROOT_APP_TO_MIGRATE + ": " + changes;
+    }
+
+    private static void writeResult(Result result) throws IOException {
+        if (result.getAfter() == null) {
+            Files.deleteIfExists(ROOT_PATH.resolve(result.getBefore().getSourcePath()));
+        } else {
+            Path absolutePath = ROOT_PATH.resolve(result.getAfter().getSourcePath());
+            if (result.getBefore() != null && !result.getBefore().getSourcePath().equals(result.getAfter().getSourcePath())) {
+                Files.deleteIfExists(ROOT_PATH.resolve(result.getBefore().getSourcePath()));
+            }
+            Files.createDirectories(absolutePath.getParent());
+            if (result.getAfter() instanceof Remote remote) {
+                // Binary files, such as the wrapper jar, are downloaded instead of printed
+                try (InputStream inputStream = remote.getInputStream(executionContext)) {
+                    Files.copy(inputStream, absolutePath, StandardCopyOption.REPLACE_EXISTING);
                 }
+            } else {
+                Files.writeString(absolutePath, result.getAfter().printAll(), result.getAfter().getCharset() == null ? StandardCharsets.UTF_8 : result.getAfter().getCharset());
+            }
+            if (result.getAfter().getFileAttributes() != null && result.getAfter().getFileAttributes().isExecutable()) {
+                absolutePath.toFile().setExecutable(true);
             }
         }
     }
+
+    String getRecipeAsJson() {
+        return recipeCatalog;
+    }
+
 }
 
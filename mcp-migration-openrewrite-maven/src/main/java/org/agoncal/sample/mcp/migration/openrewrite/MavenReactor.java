@@ -0,0 +1,117 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.agoncal.sample.mcp.migration.openrewrite.common.SourceFileStore;
+import org.jboss.logging.Logger;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Parser;
+import org.openrewrite.SourceFile;
+import org.openrewrite.maven.MavenParser;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The pom.xml files of the application, resolved as a reactor into a source set. The source set is the one of the Maven
+ * server, or the one of the Java server when it parses the pom.xml files as Maven POMs, so both resolve the POMs, and
+ * resolve them again when they change, the same way, and the Java server can serve the Maven tools on its source set.
+ */
+public class MavenReactor {
+
+    private static final Logger log = Logger.getLogger(MavenReactor.class);
+
+    private final Path root;
+    // Absolute paths of all the pom.xml files, parsed along with the requested ones to resolve the reactor
+    private final Set<Path> pomXmlFiles = ConcurrentHashMap.newKeySet();
+    // Parents, imported BOMs and dependencies between the modules, to only resolve again the ones a change makes stale
+    private final ModuleGraph moduleGraph = new ModuleGraph();
+    private final ReactorResolver reactorResolver;
+    private SourceFileStore sourceFiles;
+    private DependencyInsight dependencyInsight;
+
+    /**
+     * Reads the module graph of the pom.xml files, whose paths are absolute, without resolving them.
+     */
+    public MavenReactor(Path root, List<Path> pomXmlFiles, ExecutionContext executionContext, int parallelism) {
+        this.root = root;
+        this.pomXmlFiles.addAll(pomXmlFiles);
+        for (Path pomXmlFile : pomXmlFiles) {
+            moduleGraph.read(root, root.relativize(pomXmlFile));
+        }
+        this.reactorResolver = new ReactorResolver(root, moduleGraph, this.pomXmlFiles, MavenParser.builder().build(), executionContext, parallelism);
+    }
+
+    static boolean isPomXml(Path file) {
+        return file.getFileName() != null && file.getFileName().toString().equals("pom.xml");
+    }
+
+    /**
+     * Parses and resolves the requested POMs, whose paths are absolute, with the modules they depend on. This is the
+     * parser of the pom.xml files of the source set.
+     */
+    public List<SourceFile> resolve(List<Parser.Input> inputs) {
+        return reactorResolver.resolve(inputs);
+    }
+
+    /**
+     * Parses and resolves all the modules concurrently, see {@link ReactorResolver#resolveAll()}.
+     */
+    List<SourceFile> resolveAll() {
+        return reactorResolver.resolveAll();
+    }
+
+    /**
+     * Attaches the source set the POMs are resolved into, once it is loaded. Its POMs are also the ones the dependency
+     * insight looks into, loaded by batches.
+     */
+    public synchronized void attach(SourceFileStore sourceFiles, int batchSize) {
+        this.sourceFiles = sourceFiles;
+        this.dependencyInsight = new DependencyInsight(sourceFiles::getAll, batchSize);
+    }
+
+    synchronized DependencyInsight dependencyInsight() {
+        return dependencyInsight;
+    }
+
+    /**
+     * Resolves again the changed POMs and all the POMs depending on them, which are stale, into the source set. They are
+     * resolved in topological order, level by level, the independent POMs of a level concurrently. Changed POMs which do
+     * not exist anymore are dropped from the module graph. The changed paths are relative, and the ones which are not
+     * pom.xml files are ignored.
+     */
+    public synchronized void resolveAgain(Collection<Path> changed) {
+        List<Path> changedPomXmlFiles = changed.stream().filter(MavenReactor::isPomXml).toList();
+        if (changedPomXmlFiles.isEmpty()) {
+            return;
+        }
+        for (Path path : changedPomXmlFiles) {
+            if (Files.exists(root.resolve(path))) {
+                pomXmlFiles.add(root.resolve(path));
+            } else {
+                pomXmlFiles.remove(root.resolve(path));
+            }
+        }
+
+        // Depending on the changed POMs before the change, e.g. a child whose parent has been renamed, or after
+        Set<Path> stale = new HashSet<>(moduleGraph.dependents(changedPomXmlFiles));
+        for (Path path : changedPomXmlFiles) {
+            moduleGraph.read(root, path);
+        }
+        stale.addAll(moduleGraph.dependents(changedPomXmlFiles));
+        dependencyInsight.invalidate(changedPomXmlFiles);
+        dependencyInsight.invalidate(stale);
+        stale.removeIf(path -> !moduleGraph.containsAll(List.of(path)));
+        if (stale.isEmpty()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        List<List<Path>> levels = moduleGraph.levels(stale);
+        reactorResolver.resolveByLevels(levels, sourceFiles::add);
+        log.info("Resolved again " + stale.size() + " pom.xml files in " + levels.size() + " levels in " + (System.currentTimeMillis() - start) + " ms");
+    }
+}
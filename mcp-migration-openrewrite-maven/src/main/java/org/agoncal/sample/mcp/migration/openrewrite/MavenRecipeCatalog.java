@@ -0,0 +1,174 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkiverse.mcp.server.Tool;
+import org.agoncal.sample.mcp.migration.openrewrite.common.OptionJson;
+import org.agoncal.sample.mcp.migration.openrewrite.common.RecipeJson;
+import org.jboss.logging.Logger;
+import org.openrewrite.Recipe;
+import org.openrewrite.config.OptionDescriptor;
+import org.openrewrite.internal.RecipeIntrospectionUtils;
+import org.openrewrite.maven.AddDependency;
+import org.openrewrite.maven.AddManagedDependency;
+import org.openrewrite.maven.AddParentPom;
+import org.openrewrite.maven.AddPlugin;
+import org.openrewrite.maven.AddPluginDependency;
+import org.openrewrite.maven.AddProperty;
+import org.openrewrite.maven.ChangeDependencyGroupIdAndArtifactId;
+import org.openrewrite.maven.ChangeManagedDependencyGroupIdAndArtifactId;
+import org.openrewrite.maven.ChangeParentPom;
+import org.openrewrite.maven.ChangePluginConfiguration;
+import org.openrewrite.maven.ChangePluginGroupIdAndArtifactId;
+import org.openrewrite.maven.OrderPomElements;
+import org.openrewrite.maven.RemoveDependency;
+import org.openrewrite.maven.RemoveDuplicateDependencies;
+import org.openrewrite.maven.RemoveManagedDependency;
+import org.openrewrite.maven.RemovePlugin;
+import org.openrewrite.maven.RemovePluginDependency;
+import org.openrewrite.maven.RemoveProperty;
+import org.openrewrite.maven.UpdateMavenProjectPropertyJavaVersion;
+import org.openrewrite.maven.UpdateMavenWrapper;
+import org.openrewrite.maven.UpgradeDependencyVersion;
+import org.openrewrite.maven.UpgradeParentVersion;
+import org.openrewrite.maven.UpgradePluginVersion;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Catalog of the recipes exposed by {@link MavenMigrationMCPServer}. The recipes are introspected at build time, when the
+ * exec-maven-plugin runs {@link #main(String[])} after the compilation, and the serialized catalog is written next to
+ * the classes. At runtime the catalog is served from these precomputed bytes, without constructing any recipe.
+ */
+public class MavenRecipeCatalog {
+
+    private static final Logger log = Logger.getLogger(MavenRecipeCatalog.class);
+    static final String CATALOG = "/maven-recipe-catalog.json";
+
+    static final List<Class> recipesToExpose = List.of(
+        // Add
+        AddDependency.class,
+        AddManagedDependency.class,
+        AddParentPom.class,
+        AddPlugin.class,
+        AddPluginDependency.class,
+        AddProperty.class,
+        // Change
+        ChangeDependencyGroupIdAndArtifactId.class,
+        ChangeManagedDependencyGroupIdAndArtifactId.class,
+        ChangeParentPom.class,
+        ChangePluginConfiguration.class,
+        ChangePluginGroupIdAndArtifactId.class,
+        // Remove
+        RemoveDependency.class,
+        RemoveDuplicateDependencies.class,
+        RemoveManagedDependency.class,
+        RemovePlugin.class,
+        RemovePluginDependency.class,
+        RemoveProperty.class,
+        // Update
+        UpdateMavenProjectPropertyJavaVersion.class,
+        UpdateMavenWrapper.class,
+        UpgradeDependencyVersion.class,
+        UpgradeParentVersion.class,
+        UpgradePluginVersion.class,
+        // Other
+        OrderPomElements.class
+    );
+
+    /**
+     * Writes the catalog into the directory given as first argument, usually `target/classes`.
+     */
+    public static void main(String[] args) throws IOException {
+        Path catalog = Paths.get(args[0]).resolve(CATALOG.substring(1));
+        Files.createDirectories(catalog.getParent());
+        Files.write(catalog, generate());
+        log.info("Generated the catalog of the " + recipesToExpose.size() + " exposed recipes in " + catalog);
+    }
+
+    /**
+     * Returns the catalog generated at build time, or introspects the recipes if it is not on the classpath (e.g. when
+     * the server is started from an IDE which does not run the exec-maven-plugin).
+     */
+    static String load() {
+        try (InputStream inputStream = MavenRecipeCatalog.class.getResourceAsStream(CATALOG)) {
+            if (inputStream != null) {
+                return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            log.warn("The catalog " + CATALOG + " has not been generated at build time, introspecting the recipes");
+            return new String(generate(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot load the catalog " + CATALOG, e);
+        }
+    }
+
+    static byte[] generate() throws JsonProcessingException {
+        Map<String, String> toolNames = toolBindings();
+        List<RecipeJson> jsonRecipes = new ArrayList<>();
+        for (Class recipeClass : recipesToExpose) {
+
+            Recipe recipe = RecipeIntrospectionUtils.constructRecipe(recipeClass);
+
+            List<OptionJson> jsonOptions = new ArrayList<>();
+            for (OptionDescriptor optionDescriptor : recipe.getDescriptor().getOptions()) {
+                jsonOptions.add(new OptionJson(camelToSnakeCase(optionDescriptor.getName()), optionDescriptor.getDisplayName(), optionDescriptor.getDescription(), optionDescriptor.getType()));
+            }
+
+            String toolName = toolNames.getOrDefault(recipeClass.getSimpleName(), camelToSnakeCase(recipeClass.getSimpleName()));
+            jsonRecipes.add(new RecipeJson("Maven Migration", recipe.getName(), toolName, recipe.getDisplayName(), recipe.getDescription(), jsonOptions));
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        return mapper.writeValueAsBytes(jsonRecipes);
+    }
+
+    /**
+     * Binds each recipe to the name of the tool executing it, following the `execute<Recipe>Recipe` naming of the tool
+     * methods. The server class is only loaded, not initialized, so its static state is never touched at build time.
+     */
+    static Map<String, String> toolBindings() {
+        Map<String, String> toolNames = new HashMap<>();
+        for (Method method : MavenMigrationMCPServer.class.getDeclaredMethods()) {
+            Tool tool = method.getAnnotation(Tool.class);
+            if (tool != null && method.getName().startsWith("execute")) {
+                String recipeName = method.getName().substring("execute".length());
+                if (recipeName.endsWith("Recipe")) {
+                    recipeName = recipeName.substring(0, recipeName.length() - "Recipe".length());
+                }
+                toolNames.put(recipeName, tool.name());
+            }
+        }
+        return toolNames;
+    }
+
+    static String camelToSnakeCase(String camelCase) {
+        if (camelCase == null || camelCase.isEmpty()) {
+            return camelCase;
+        }
+
+        StringBuilder result = new StringBuilder();
+        result.append(Character.toLowerCase(camelCase.charAt(0)));
+
+        for (int i = 1; i < camelCase.length(); i++) {
+            char currentChar = camelCase.charAt(i);
+            if (Character.isUpperCase(currentChar)) {
+                result.append('_');
+                result.append(Character.toLowerCase(currentChar));
+            } else {
+                result.append(currentChar);
+            }
+        }
+
+        return result.toString();
+    }
+}
@@ -0,0 +1,113 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import io.quarkiverse.mcp.server.Tool;
+import io.quarkiverse.mcp.server.ToolArg;
+import io.quarkiverse.mcp.server.ToolManager;
+import io.quarkiverse.mcp.server.ToolResponse;
+import org.jboss.logging.Logger;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Serves the tools of the Maven server from the Java server, once it {@link MavenMigrationMCPServer#share shares} its
+ * source set with them. The Java server is the application, so the tools are registered programmatically, with the
+ * names, descriptions and arguments of their annotations. The tools the Java server declares too, such as
+ * `refresh_sources` or the data table ones, are only served by the Java server, which covers the pom.xml files too.
+ */
+public class MavenTools {
+
+    private static final Logger log = Logger.getLogger(MavenTools.class);
+
+    /**
+     * Registers the Maven tools the server does not declare. The server creates the shared source set the first time
+     * one of its beans is used, which the initializer does before each tool is executed. The tools are executed while
+     * holding the lock of the server class, so they do not interleave their changes with the ones of its tools.
+     */
+    public static void register(ToolManager toolManager, Class<?> server, Runnable initializer) {
+        List<Method> tools = notDeclaredBy(MavenMigrationMCPServer.class, server);
+        for (Method method : tools) {
+            Tool tool = method.getAnnotation(Tool.class);
+            ToolManager.ToolDefinition definition = toolManager.newTool(tool.name()).setDescription(tool.description());
+            for (Parameter parameter : method.getParameters()) {
+                ToolArg toolArg = parameter.getAnnotation(ToolArg.class);
+                definition.addArgument(toolArg.name(), toolArg.description(), toolArg.required(), parameter.getParameterizedType(), toolArg.defaultValue());
+            }
+            definition.setHandler(toolArguments -> {
+                initializer.run();
+                synchronized (server) {
+                    return invoke(method, arguments(method, toolArguments.args()));
+                }
+            }).register();
+        }
+        log.info("Serving the " + tools.size() + " Maven tools not declared by " + server.getSimpleName());
+    }
+
+    /**
+     * Returns the tool methods of the class whose names the server does not declare, sorted by name.
+     */
+    static List<Method> notDeclaredBy(Class<?> tools, Class<?> server) {
+        Set<String> declared = Arrays.stream(server.getMethods())
+            .filter(method -> method.isAnnotationPresent(Tool.class))
+            .map(method -> method.getAnnotation(Tool.class).name())
+            .collect(Collectors.toSet());
+        List<Method> notDeclared = new ArrayList<>();
+        for (Method method : tools.getMethods()) {
+            if (method.isAnnotationPresent(Tool.class) && !declared.contains(method.getAnnotation(Tool.class).name())) {
+                notDeclared.add(method);
+            }
+        }
+        notDeclared.sort(Comparator.comparing(method -> method.getAnnotation(Tool.class).name()));
+        return notDeclared;
+    }
+
+    /**
+     * Converts the arguments of a tool call, as decoded from JSON, to the parameters of the tool method. A missing
+     * argument takes the default value of its annotation, if any.
+     */
+    static Object[] arguments(Method method, Map<String, Object> args) {
+        Parameter[] parameters = method.getParameters();
+        Object[] arguments = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            ToolArg toolArg = parameters[i].getAnnotation(ToolArg.class);
+            Object value = args.get(toolArg.name());
+            if (value == null && !toolArg.defaultValue().isEmpty()) {
+                value = toolArg.defaultValue();
+            }
+            Class<?> type = parameters[i].getType();
+            if (type == int.class) {
+                arguments[i] = value == null ? 0 : value instanceof Number number ? number.intValue() : Integer.parseInt(value.toString());
+            } else if (type == boolean.class) {
+                arguments[i] = value == null ? false : value instanceof Boolean bool ? bool : Boolean.parseBoolean(value.toString());
+            } else {
+                arguments[i] = value == null ? null : value.toString();
+            }
+        }
+        return arguments;
+    }
+
+    private static ToolResponse invoke(Method method, Object[] arguments) {
+        try {
+            return (ToolResponse) method.invoke(new MavenMigrationMCPServer(), arguments);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            log.error("The tool " + method.getAnnotation(Tool.class).name() + " failed", e.getCause());
+            return ToolResponse.error(e.getCause().getMessage());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.jboss.logging.Logger;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Parser;
+import org.openrewrite.SourceFile;
+import org.openrewrite.Tree;
+import org.openrewrite.marker.BuildTool;
+import org.openrewrite.properties.PropertiesParser;
+import org.openrewrite.quark.QuarkParser;
+import org.openrewrite.text.PlainTextParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Parses the files of the Maven wrapper of an application, which are not pom.xml files, for the recipes updating the
+ * wrapper. The properties of the wrapper are marked with the version of Maven they download, as the build plugins do,
+ * and the binary files are parsed as quarks, only their presence mattering.
+ */
+class MavenWrapperFiles {
+
+    private static final Logger log = Logger.getLogger(MavenWrapperFiles.class);
+    static final Path PROPERTIES = Path.of(".mvn/wrapper/maven-wrapper.properties");
+    private static final List<Path> SCRIPTS = List.of(Path.of("mvnw"), Path.of("mvnw.cmd"));
+    private static final List<Path> BINARIES = List.of(Path.of(".mvn/wrapper/maven-wrapper.jar"), Path.of(".mvn/wrapper/MavenWrapperDownloader.java"));
+    private static final Pattern DISTRIBUTION_VERSION = Pattern.compile("apache-maven-([^/]+)-bin\\.zip$");
+
+    /**
+     * Returns the LSTs of the wrapper files found at the root of the application, none if it has no wrapper.
+     */
+    static List<SourceFile> parse(Path root, ExecutionContext executionContext) {
+        List<SourceFile> sourceFiles = new ArrayList<>();
+        List<Parser.Input> properties = inputs(root, List.of(PROPERTIES));
+        String distributionVersion = distributionVersion(root.resolve(PROPERTIES));
+        new PropertiesParser().parseInputs(properties, root, executionContext)
+            .map(sourceFile -> distributionVersion == null ? sourceFile : sourceFile.withMarkers(sourceFile.getMarkers().add(new BuildTool(Tree.randomId(), BuildTool.Type.Maven, distributionVersion))))
+            .forEach(sourceFiles::add);
+        new PlainTextParser().parseInputs(inputs(root, SCRIPTS), root, executionContext).forEach(sourceFiles::add);
+        new QuarkParser().parseInputs(inputs(root, BINARIES), root, executionContext).forEach(sourceFiles::add);
+        log.info("Parsed " + sourceFiles.size() + " Maven wrapper files" + (distributionVersion == null ? "" : " downloading Maven " + distributionVersion));
+        return sourceFiles;
+    }
+
+    /**
+     * Returns the version of Maven in the distribution URL of the wrapper properties, or null if there is none.
+     */
+    static String distributionVersion(Path propertiesFile) {
+        if (!Files.isRegularFile(propertiesFile)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(propertiesFile)) {
+            properties.load(inputStream);
+        } catch (IOException e) {
+            log.warn("Cannot read the Maven wrapper properties " + propertiesFile + ": " + e.getMessage());
+            return null;
+        }
+        Matcher matcher = DISTRIBUTION_VERSION.matcher(properties.getProperty("distributionUrl", ""));
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static List<Parser.Input> inputs(Path root, List<Path> paths) {
+        return paths.stream()
+            .map(root::resolve)
+            .filter(Files::isRegularFile)
+            .map(Parser.Input::fromFile)
+            .collect(Collectors.toList());
+    }
+}
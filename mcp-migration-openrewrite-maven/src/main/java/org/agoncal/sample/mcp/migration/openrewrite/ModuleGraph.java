@@ -0,0 +1,288 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.jboss.logging.Logger;
+import org.openrewrite.maven.internal.RawPom;
+import org.openrewrite.maven.tree.Dependency;
+import org.openrewrite.maven.tree.ManagedDependency;
+import org.openrewrite.maven.tree.Parent;
+import org.openrewrite.maven.tree.Pom;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Graph of the modules of the reactor, read from the pom.xml files without resolving them. A module depends on its
+ * parent, on the BOMs it imports and on the modules it declares as dependencies, when they are part of the reactor, so
+ * it has to be resolved again when one of them changes, even transitively. The modules are identified by their
+ * `groupId:artifactId`, and the paths are relative to the root of the reactor.
+ */
+class ModuleGraph {
+
+    private static final Logger log = Logger.getLogger(ModuleGraph.class);
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([^}]+)}");
+
+    /**
+     * A module, with the ids of its parent, of its imported BOMs and of its dependencies. The parent path is the one of
+     * the relative path of the parent, used when the id of the parent cannot be told.
+     */
+    record Module(String id, String parent, Path parentPath, Set<String> imports, Set<String> dependencies) {
+    }
+
+    private final Map<Path, Module> modules = new HashMap<>();
+    private final Map<String, Path> paths = new HashMap<>();
+
+    /**
+     * Reads the pom.xml file again, or drops the module if the file does not exist or cannot be read anymore.
+     */
+    synchronized void read(Path root, Path relativePath) {
+        Path file = root.resolve(relativePath);
+        if (!Files.exists(file)) {
+            remove(relativePath);
+            return;
+        }
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            add(relativePath, RawPom.parse(inputStream, null).toPom(relativePath, null));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cannot read the module " + relativePath + ": " + e.getMessage());
+            remove(relativePath);
+        }
+    }
+
+    synchronized void add(Path relativePath, Pom pom) {
+        remove(relativePath);
+        Map<String, String> properties = new HashMap<>(pom.getProperties());
+        Parent parent = pom.getParent();
+        String groupId = pom.getGroupId() != null ? pom.getGroupId() : parent == null ? null : parent.getGroupId();
+        properties.put("project.groupId", groupId);
+        properties.put("pom.groupId", groupId);
+        properties.put("groupId", groupId);
+        properties.put("project.artifactId", pom.getArtifactId());
+        if (parent != null) {
+            properties.put("project.parent.groupId", parent.getGroupId());
+        }
+
+        Set<String> imports = new TreeSet<>();
+        for (ManagedDependency managedDependency : pom.getDependencyManagement()) {
+            if (managedDependency instanceof ManagedDependency.Imported) {
+                imports.add(id(properties, managedDependency.getGroupId(), managedDependency.getArtifactId()));
+            }
+        }
+        Set<String> dependencies = new TreeSet<>();
+        for (Dependency dependency : pom.getDependencies()) {
+            dependencies.add(id(properties, dependency.getGroupId(), dependency.getArtifactId()));
+        }
+        Path parentPath = null;
+        if (parent != null) {
+            String relativeParentPath = parent.getRelativePath() == null ? Parent.DEFAULT_RELATIVE_PATH : parent.getRelativePath();
+            if (!relativeParentPath.isBlank()) {
+                Path resolved = (relativePath.getParent() == null ? Path.of("") : relativePath.getParent()).resolve(relativeParentPath).normalize();
+                parentPath = resolved.getFileName() != null && resolved.getFileName().toString().endsWith(".xml") ? resolved : resolved.resolve("pom.xml");
+            }
+        }
+        Module module = new Module(id(properties, groupId, pom.getArtifactId()),
+            parent == null ? null : id(properties, parent.getGroupId(), parent.getArtifactId()), parentPath, imports, dependencies);
+        modules.put(relativePath, module);
+        paths.put(module.id(), relativePath);
+    }
+
+    synchronized void remove(Path relativePath) {
+        Module module = modules.remove(relativePath);
+        if (module != null && relativePath.equals(paths.get(module.id()))) {
+            paths.remove(module.id());
+        }
+    }
+
+    synchronized boolean containsAll(Collection<Path> relativePaths) {
+        return modules.keySet().containsAll(relativePaths);
+    }
+
+    synchronized int size() {
+        return modules.size();
+    }
+
+    /**
+     * Returns the paths of the parent, imported BOMs and dependencies of the module which are part of the reactor.
+     */
+    synchronized Set<Path> dependsOn(Path relativePath) {
+        Module module = modules.get(relativePath);
+        Set<Path> dependsOn = new TreeSet<>();
+        if (module == null) {
+            return dependsOn;
+        }
+        Path parent = parentOf(module);
+        if (parent != null) {
+            dependsOn.add(parent);
+        }
+        for (String id : module.imports()) {
+            addIfInReactor(dependsOn, id);
+        }
+        for (String id : module.dependencies()) {
+            addIfInReactor(dependsOn, id);
+        }
+        dependsOn.remove(relativePath);
+        return dependsOn;
+    }
+
+    /**
+     * Returns the given modules and all the modules they depend on, transitively: what the parser needs to resolve them.
+     */
+    synchronized Set<Path> upstream(Collection<Path> relativePaths) {
+        return closure(relativePaths, this::dependsOn);
+    }
+
+    /**
+     * Returns the given modules and all the modules depending on them, transitively: what is stale when they change.
+     */
+    synchronized Set<Path> dependents(Collection<Path> relativePaths) {
+        Map<Path, Set<Path>> dependents = new HashMap<>();
+        for (Path path : modules.keySet()) {
+            for (Path dependsOn : dependsOn(path)) {
+                dependents.computeIfAbsent(dependsOn, key -> new TreeSet<>()).add(path);
+            }
+        }
+        return closure(relativePaths, path -> dependents.getOrDefault(path, Set.of()));
+    }
+
+    /**
+     * Returns what the parser needs to resolve the given modules and to link them to their child modules, as the
+     * resolution result of a parent lists the ones of its modules.
+     */
+    synchronized Set<Path> resolutionScope(Collection<Path> relativePaths) {
+        Map<Path, Set<Path>> children = children();
+        return upstream(closure(relativePaths, path -> children.getOrDefault(path, Set.of())));
+    }
+
+    /**
+     * Returns all the modules, each parent followed by the subtrees of its modules, so the modules of a subtree are
+     * next to each other.
+     */
+    synchronized List<Path> subtreeOrder() {
+        Map<Path, Set<Path>> children = children();
+        Set<Path> roots = new TreeSet<>();
+        for (Map.Entry<Path, Module> entry : modules.entrySet()) {
+            if (parentOf(entry.getValue()) == null) {
+                roots.add(entry.getKey());
+            }
+        }
+        Set<Path> order = new LinkedHashSet<>();
+        for (Path path : roots) {
+            addSubtree(order, path, children);
+        }
+        // Modules in a cycle of parents have no root
+        order.addAll(new TreeSet<>(modules.keySet()));
+        return new ArrayList<>(order);
+    }
+
+    /**
+     * Sorts the given modules in topological order, by levels: the modules of a level only depend on modules of the
+     * previous levels, so they can be resolved at the same time. Modules in a cycle are all put in the last level.
+     */
+    synchronized List<List<Path>> levels(Collection<Path> relativePaths) {
+        Set<Path> remaining = new TreeSet<>(relativePaths);
+        List<List<Path>> levels = new ArrayList<>();
+        while (!remaining.isEmpty()) {
+            List<Path> level = new ArrayList<>();
+            for (Path path : remaining) {
+                Set<Path> dependsOn = dependsOn(path);
+                dependsOn.retainAll(remaining);
+                if (dependsOn.isEmpty()) {
+                    level.add(path);
+                }
+            }
+            if (level.isEmpty()) {
+                log.warn("Cycle between the modules " + remaining);
+                level.addAll(remaining);
+            }
+            level.sort(Comparator.naturalOrder());
+            level.forEach(remaining::remove);
+            levels.add(level);
+        }
+        return levels;
+    }
+
+    private static void addSubtree(Set<Path> order, Path path, Map<Path, Set<Path>> children) {
+        if (order.add(path)) {
+            for (Path child : children.getOrDefault(path, Set.of())) {
+                addSubtree(order, child, children);
+            }
+        }
+    }
+
+    private Map<Path, Set<Path>> children() {
+        Map<Path, Set<Path>> children = new HashMap<>();
+        for (Map.Entry<Path, Module> entry : modules.entrySet()) {
+            Path parent = parentOf(entry.getValue());
+            if (parent != null) {
+                children.computeIfAbsent(parent, key -> new TreeSet<>()).add(entry.getKey());
+            }
+        }
+        return children;
+    }
+
+    private Path parentOf(Module module) {
+        if (module.parent() != null && paths.containsKey(module.parent())) {
+            return paths.get(module.parent());
+        }
+        // Parents whose id is built from properties are found by their relative path
+        if (module.parentPath() != null && modules.containsKey(module.parentPath())) {
+            return module.parentPath();
+        }
+        return null;
+    }
+
+    private void addIfInReactor(Set<Path> paths, String id) {
+        Path path = this.paths.get(id);
+        if (path != null) {
+            paths.add(path);
+        }
+    }
+
+    private static Set<Path> closure(Collection<Path> start, Function<Path, Set<Path>> next) {
+        Set<Path> closure = new LinkedHashSet<>();
+        Deque<Path> toVisit = new ArrayDeque<>(start);
+        Set<Path> visited = new HashSet<>();
+        while (!toVisit.isEmpty()) {
+            Path path = toVisit.pop();
+            if (visited.add(path)) {
+                closure.add(path);
+                toVisit.addAll(next.apply(path));
+            }
+        }
+        return closure;
+    }
+
+    private static String id(Map<String, String> properties, String groupId, String artifactId) {
+        return value(properties, groupId) + ":" + value(properties, artifactId);
+    }
+
+    private static String value(Map<String, String> properties, String value) {
+        if (value == null) {
+            return null;
+        }
+        Matcher matcher = PLACEHOLDER.matcher(value);
+        StringBuilder resolved = new StringBuilder();
+        while (matcher.find()) {
+            String property = properties.get(matcher.group(1));
+            matcher.appendReplacement(resolved, Matcher.quoteReplacement(property == null ? matcher.group() : property));
+        }
+        matcher.appendTail(resolved);
+        return resolved.toString();
+    }
+}
@@ -0,0 +1,223 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.jboss.logging.Logger;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Parser;
+import org.openrewrite.SourceFile;
+import org.openrewrite.Tree;
+import org.openrewrite.maven.MavenExecutionContextView;
+import org.openrewrite.maven.MavenParser;
+import org.openrewrite.maven.MavenSettings;
+import org.openrewrite.maven.internal.MavenPomDownloader;
+import org.openrewrite.maven.internal.RawPom;
+import org.openrewrite.maven.tree.MavenResolutionResult;
+import org.openrewrite.maven.tree.Parent;
+import org.openrewrite.maven.tree.Pom;
+import org.openrewrite.maven.tree.ResolvedPom;
+import org.openrewrite.xml.XmlParser;
+import org.openrewrite.xml.tree.Xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Parses and resolves the pom.xml files of a reactor. A POM is resolved along with the modules it depends on, and linked
+ * to its child modules, so they are parsed too and then dropped. The parser keeps no state between two calls, and the
+ * POM caches of the execution context are thread safe, so the POMs can be resolved concurrently.
+ * <p>
+ * The whole reactor can be resolved in parallel: the modules are split into chunks of subtrees of the module graph, and
+ * each chunk is resolved on its own thread. The parser resolves all the POMs it is given, so the chunks are resolved
+ * like it does, but against the raw POMs of the whole reactor, which are cheap to read, so each module is only resolved
+ * once. The parents are then linked to their modules across the chunks, as the parser does.
+ */
+class ReactorResolver {
+
+    private static final Logger log = Logger.getLogger(ReactorResolver.class);
+    // Chunks per thread, more chunks balance the threads better but resolve the shared parents more often
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final Path root;
+    private final ModuleGraph moduleGraph;
+    // Absolute paths of all the pom.xml files, resolved with the POMs which are not in the module graph yet
+    private final Set<Path> reactorPomXmlFiles;
+    private final MavenParser mavenParser;
+    private final ExecutionContext executionContext;
+    private final int parallelism;
+
+    ReactorResolver(Path root, ModuleGraph moduleGraph, Set<Path> reactorPomXmlFiles, MavenParser mavenParser, ExecutionContext executionContext, int parallelism) {
+        this.root = root;
+        this.moduleGraph = moduleGraph;
+        this.reactorPomXmlFiles = reactorPomXmlFiles;
+        this.mavenParser = mavenParser;
+        this.executionContext = executionContext;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Parses and resolves the requested POMs, whose paths are absolute, on the calling thread.
+     */
+    List<SourceFile> resolve(List<Parser.Input> inputs) {
+        Set<Path> requested = inputs.stream().map(Parser.Input::getPath).collect(Collectors.toSet());
+        Set<Path> relativePaths = requested.stream().map(root::relativize).collect(Collectors.toSet());
+        Collection<Path> scope = moduleGraph.containsAll(relativePaths)
+            ? moduleGraph.resolutionScope(relativePaths).stream().map(root::resolve).toList()
+            : reactorPomXmlFiles;
+        return parse(inputs, requested, scope);
+    }
+
+    /**
+     * Parses and resolves all the modules of the graph concurrently, and returns their LSTs. They must all fit in memory,
+     * as the parents are linked to their modules once all of them are resolved.
+     */
+    List<SourceFile> resolveAll() {
+        List<Path> modules = moduleGraph.subtreeOrder();
+        List<List<Path>> chunks = chunks(modules);
+        long start = System.currentTimeMillis();
+        List<SourceFile> sourceFiles = new ArrayList<>();
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+            Map<Path, Pom> projectPoms = readProjectPoms(modules);
+            List<ForkJoinTask<List<SourceFile>>> tasks = new ArrayList<>();
+            for (List<Path> chunk : chunks) {
+                tasks.add(pool.submit(() -> resolveChunk(chunk, projectPoms)));
+            }
+            for (ForkJoinTask<List<SourceFile>> task : tasks) {
+                sourceFiles.addAll(task.join());
+            }
+        }
+        link(sourceFiles);
+        log.info("Resolved " + sourceFiles.size() + " pom.xml files in " + chunks.size() + " chunks on " + parallelism + " threads in " + (System.currentTimeMillis() - start) + " ms");
+        return sourceFiles;
+    }
+
+    /**
+     * Resolves modules sorted in topological levels, the modules of a level concurrently, and hands the LSTs of each
+     * level to the consumer before resolving the next one.
+     */
+    void resolveByLevels(List<List<Path>> levels, Consumer<List<SourceFile>> consumer) {
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+            for (List<Path> level : levels) {
+                List<ForkJoinTask<List<SourceFile>>> tasks = new ArrayList<>();
+                for (Path path : level) {
+                    tasks.add(pool.submit(() -> resolve(List.of(Parser.Input.fromFile(root.resolve(path))))));
+                }
+                List<SourceFile> sourceFiles = new ArrayList<>();
+                for (ForkJoinTask<List<SourceFile>> task : tasks) {
+                    sourceFiles.addAll(task.join());
+                }
+                consumer.accept(sourceFiles);
+            }
+        }
+    }
+
+    /**
+     * Splits modules sorted by subtrees into consecutive chunks, so a chunk mostly holds whole subtrees and only has
+     * to resolve again the parents of its first modules.
+     */
+    List<List<Path>> chunks(List<Path> modules) {
+        int chunkSize = Math.max(1, (modules.size() + parallelism * CHUNKS_PER_THREAD - 1) / (parallelism * CHUNKS_PER_THREAD));
+        List<List<Path>> chunks = new ArrayList<>();
+        for (int start = 0; start < modules.size(); start += chunkSize) {
+            chunks.add(modules.subList(start, Math.min(modules.size(), start + chunkSize)));
+        }
+        return chunks;
+    }
+
+    private Map<Path, Pom> readProjectPoms(List<Path> modules) {
+        Map<Path, Pom> projectPoms = new HashMap<>();
+        for (Path path : modules) {
+            try (InputStream inputStream = Files.newInputStream(root.resolve(path))) {
+                projectPoms.put(path, RawPom.parse(inputStream, null).toPom(path, null));
+            } catch (IOException | RuntimeException e) {
+                // Resolved with the reactor by the parser, which reports the error
+                log.debug("Cannot read the raw POM " + path + ": " + e.getMessage());
+            }
+        }
+        return projectPoms;
+    }
+
+    /**
+     * Resolves the modules of a chunk the way the parser does, with the active profiles of the execution context. A POM
+     * which cannot be resolved this way is resolved by the parser, which builds its error marker.
+     */
+    private List<SourceFile> resolveChunk(List<Path> chunk, Map<Path, Pom> projectPoms) {
+        MavenPomDownloader downloader = new MavenPomDownloader(projectPoms, executionContext);
+        MavenExecutionContextView mavenExecutionContext = MavenExecutionContextView.view(executionContext);
+        MavenSettings settings = mavenExecutionContext.getSettings() == null ? null : mavenExecutionContext.getSettings().withServers(null);
+        List<String> activeProfiles = mavenExecutionContext.getActiveProfiles();
+        List<SourceFile> sourceFiles = new ArrayList<>();
+        for (Path path : chunk) {
+            Parser.Input input = Parser.Input.fromFile(root.resolve(path));
+            Pom pom = projectPoms.get(path);
+            try {
+                if (pom == null) {
+                    throw new IllegalStateException("Cannot read the raw POM");
+                }
+                Xml.Document document = (Xml.Document) new XmlParser().parseInputs(List.of(input), root, executionContext).findFirst().orElseThrow();
+                // The recipes update the properties of the requested POM, which must not be shared with the other chunks
+                Pom requested = pom.withProperties(new LinkedHashMap<>(pom.getProperties()));
+                MavenResolutionResult resolutionResult = new MavenResolutionResult(Tree.randomId(), null, requested.resolve(activeProfiles, downloader, executionContext),
+                    List.of(), null, Map.of(), settings, activeProfiles, Map.of()).resolveDependencies(downloader, executionContext);
+                sourceFiles.add(document.withMarkers(document.getMarkers().compute(resolutionResult, (previous, current) -> current)));
+            } catch (Exception e) {
+                log.debug("Resolve " + path + " with the reactor: " + e.getMessage());
+                sourceFiles.addAll(resolve(List.of(input)));
+            }
+        }
+        return sourceFiles;
+    }
+
+    private List<SourceFile> parse(List<Parser.Input> inputs, Set<Path> requested, Collection<Path> scope) {
+        List<Parser.Input> reactor = new ArrayList<>(inputs);
+        for (Path pomXmlFile : scope) {
+            if (!requested.contains(pomXmlFile)) {
+                reactor.add(Parser.Input.fromFile(pomXmlFile));
+            }
+        }
+        return mavenParser.parseInputs(reactor, root, executionContext)
+            .filter(sourceFile -> requested.contains(root.resolve(sourceFile.getSourcePath())))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Links the resolution results of the modules to the ones of their parents, matched by GAV like the parser does.
+     */
+    private static void link(List<SourceFile> sourceFiles) {
+        List<MavenResolutionResult> results = new ArrayList<>();
+        Map<String, MavenResolutionResult> byGav = new HashMap<>();
+        for (SourceFile sourceFile : sourceFiles) {
+            sourceFile.getMarkers().findFirst(MavenResolutionResult.class).ifPresent(result -> {
+                results.add(result);
+                ResolvedPom pom = result.getPom();
+                byGav.put(pom.getGroupId() + ":" + pom.getArtifactId() + ":" + pom.getVersion(), result);
+            });
+        }
+        Map<MavenResolutionResult, List<MavenResolutionResult>> modules = new IdentityHashMap<>();
+        for (MavenResolutionResult result : results) {
+            Parent parent = result.getPom().getRequested().getParent();
+            if (parent == null) {
+                continue;
+            }
+            ResolvedPom pom = result.getPom();
+            MavenResolutionResult parentResult = byGav.get(pom.getValue(parent.getGroupId()) + ":" + pom.getValue(parent.getArtifactId()) + ":" + pom.getValue(parent.getVersion()));
+            if (parentResult != null) {
+                result.unsafeSetParent(parentResult);
+                modules.computeIfAbsent(parentResult, key -> new ArrayList<>()).add(result);
+            }
+        }
+        modules.forEach(MavenResolutionResult::unsafeSetModules);
+    }
+}
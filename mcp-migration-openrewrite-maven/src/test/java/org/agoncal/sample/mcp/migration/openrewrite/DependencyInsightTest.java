@@ -0,0 +1,142 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.SourceFile;
+import org.openrewrite.maven.MavenExecutionContextView;
+import org.openrewrite.maven.MavenParser;
+import org.openrewrite.maven.cache.InMemoryMavenPomCache;
+import org.openrewrite.maven.tree.MavenRepositoryMirror;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DependencyInsightTest {
+
+    private static final List<Path> MODULES = List.of(Path.of("app/pom.xml"), Path.of("batch/pom.xml"), Path.of("web/pom.xml"));
+
+    @TempDir
+    Path temporaryDirectory;
+
+    private StandInMavenRepository repository;
+    private final Map<Path, SourceFile> sourceFiles = new HashMap<>();
+    private final AtomicInteger loaded = new AtomicInteger();
+    private DependencyInsight dependencyInsight;
+
+    @BeforeEach
+    public void resolveModules() throws IOException {
+        repository = new StandInMavenRepository(temporaryDirectory.resolve("repository"))
+            .release("log4j", "log4j", "jar", "1.2.14", "1.2.17")
+            .releaseDependingOn("com.example.legacy", "legacy-lib", "1.0", "log4j:log4j:1.2.14");
+        Path root = temporaryDirectory.resolve("application");
+        // Gets log4j from the library
+        write(root.resolve("app/pom.xml"), module("app", "", dependency("com.example.legacy", "legacy-lib", "1.0")));
+        // Manages the version of log4j the library depends on
+        write(root.resolve("batch/pom.xml"), module("batch", "<dependencyManagement><dependencies>" + dependency("log4j", "log4j", "1.2.17") + "</dependencies></dependencyManagement>",
+            dependency("com.example.legacy", "legacy-lib", "1.0")));
+        // Declares a nearer log4j than the one of the library
+        write(root.resolve("web/pom.xml"), module("web", "", dependency("com.example.legacy", "legacy-lib", "1.0") + dependency("log4j", "log4j", "1.2.17")));
+
+        ExecutionContext executionContext = new InMemoryExecutionContext(Throwable::printStackTrace);
+        MavenExecutionContextView mavenExecutionContext = MavenExecutionContextView.view(executionContext);
+        mavenExecutionContext.setPomCache(new InMemoryMavenPomCache());
+        mavenExecutionContext.setAddCentralRepository(false);
+        mavenExecutionContext.setMirrors(List.of(new MavenRepositoryMirror("stand-in", repository.uri(), "*", true, true, null)));
+        MavenParser.builder().build().parse(MODULES.stream().map(root::resolve).toList(), root, executionContext)
+            .forEach(sourceFile -> sourceFiles.put(sourceFile.getSourcePath(), sourceFile));
+        dependencyInsight = new DependencyInsight(paths -> {
+            loaded.addAndGet(paths.size());
+            return paths.stream().map(sourceFiles::get).toList();
+        }, 2);
+    }
+
+    @AfterEach
+    public void stopRepository() throws IOException {
+        repository.close();
+    }
+
+    @Test
+    public void testFindTheDependencyWithItsPath() {
+        List<DependencyInsight.DependencyJson> dependencies = dependencyInsight.find(MODULES, "log4j", "*", "1.x");
+
+        assertEquals(3, dependencies.size());
+        DependencyInsight.DependencyJson app = dependencies.getFirst();
+        assertEquals("app/pom.xml", app.module());
+        assertEquals("log4j:log4j:1.2.14", app.dependency());
+        assertEquals("compile", app.scope());
+        assertEquals(1, app.depth());
+        assertEquals(List.of("com.example:app:1.0", "com.example.legacy:legacy-lib:1.0", "log4j:log4j:1.2.14"), app.path());
+        assertEquals(List.of("com.example:web:1.0", "log4j:log4j:1.2.17"), dependencies.get(2).path());
+
+        List<String> modules = new ArrayList<>();
+        for (DependencyInsight.DependencyJson dependency : dependencyInsight.find(MODULES, "log*", "log4j", "1.2.17")) {
+            modules.add(dependency.module());
+        }
+        assertEquals(List.of("batch/pom.xml", "web/pom.xml"), modules);
+        assertThrows(IllegalArgumentException.class, () -> dependencyInsight.find(MODULES, "log4j", "*", "not a version"));
+    }
+
+    @Test
+    public void testListTheConflictingVersions() {
+        List<DependencyInsight.ConflictJson> conflicts = dependencyInsight.conflicts(MODULES, "*", "*");
+
+        assertEquals(1, conflicts.size());
+        DependencyInsight.ConflictJson log4j = conflicts.getFirst();
+        assertEquals("log4j:log4j", log4j.dependency());
+        assertEquals(Map.of("1.2.14", List.of("app/pom.xml"), "1.2.17", List.of("batch/pom.xml", "web/pom.xml")), log4j.modulesByVersion());
+        assertEquals(List.of("batch/pom.xml requests 1.2.14 through com.example.legacy:legacy-lib:1.0 and resolves 1.2.17"), log4j.overriddenRequests());
+    }
+
+    @Test
+    public void testWalkTheGraphsOnceUntilResolvedAgain() {
+        dependencyInsight.find(MODULES, "log4j", "*", null);
+        dependencyInsight.conflicts(MODULES, "*", "*");
+        dependencyInsight.find(MODULES, "com.example.legacy", "*", null);
+        assertEquals(3, dependencyInsight.walked());
+        assertEquals(3, loaded.get());
+
+        dependencyInsight.invalidate(List.of(Path.of("web/pom.xml")));
+        assertEquals(3, dependencyInsight.find(MODULES, "com.example.legacy", "*", null).size());
+        assertEquals(4, dependencyInsight.walked());
+        assertEquals(4, loaded.get());
+
+        DependencyInsight.PageJson<DependencyInsight.DependencyJson> page = DependencyInsight.page(dependencyInsight.find(MODULES, "*", "*", null), 4, 10);
+        assertEquals(6, page.total());
+        assertEquals(2, page.items().size());
+    }
+
+    private static String module(String artifactId, String dependencyManagement, String dependencies) {
+        return """
+            <project>
+              <modelVersion>4.0.0</modelVersion>
+              <groupId>com.example</groupId>
+              <artifactId>%s</artifactId>
+              <version>1.0</version>
+              %s
+              <dependencies>%s</dependencies>
+            </project>
+            """.formatted(artifactId, dependencyManagement, dependencies);
+    }
+
+    private static String dependency(String groupId, String artifactId, String version) {
+        return "<dependency><groupId>" + groupId + "</groupId><artifactId>" + artifactId + "</artifactId><version>" + version + "</version></dependency>";
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
@@ -0,0 +1,133 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.SourceFile;
+import org.openrewrite.maven.MavenExecutionContextView;
+import org.openrewrite.maven.MavenParser;
+import org.openrewrite.maven.cache.CompositeMavenPomCache;
+import org.openrewrite.maven.cache.InMemoryMavenPomCache;
+import org.openrewrite.maven.tree.MavenRepository;
+import org.openrewrite.maven.tree.MavenResolutionResult;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DiskMavenPomCacheTest {
+
+    private static final String CHILD_POM = """
+        <project>
+          <modelVersion>4.0.0</modelVersion>
+          <parent>
+            <groupId>com.example</groupId>
+            <artifactId>legacy-parent</artifactId>
+            <version>%s</version>
+            <relativePath/>
+          </parent>
+          <artifactId>legacy-child</artifactId>
+        </project>
+        """;
+
+    @TempDir
+    Path temporaryDirectory;
+
+    @Test
+    public void testResolveFromTheCacheAfterARestart() throws IOException {
+        Path repository = temporaryDirectory.resolve("repository");
+        writeParentPom(repository, "1.0");
+        Path cacheDirectory = temporaryDirectory.resolve("cache");
+
+        // The parent is downloaded from the repository and cached
+        DiskMavenPomCache cache = new DiskMavenPomCache(cacheDirectory);
+        assertEquals("inherited", resolveParentProperty(cache, repository, "1.0"));
+        assertEquals(0, cache.hits());
+        try (Stream<Path> files = Files.walk(cache.directory())) {
+            assertTrue(files.anyMatch(file -> file.toString().endsWith(".smile")));
+        }
+
+        // After a restart, the parent is resolved from the cache even if the repository is gone
+        deleteRecursively(repository);
+        DiskMavenPomCache restartedCache = new DiskMavenPomCache(cacheDirectory);
+        assertEquals("inherited", resolveParentProperty(restartedCache, repository, "1.0"));
+        assertTrue(restartedCache.hits() > 0);
+    }
+
+    @Test
+    public void testExpireTheSnapshotPoms() throws IOException {
+        Path repository = temporaryDirectory.resolve("repository");
+        writeParentPom(repository, "1.0-SNAPSHOT");
+
+        // Not persisted at all without a time to live
+        DiskMavenPomCache cache = new DiskMavenPomCache(temporaryDirectory.resolve("no-ttl"), Duration.ZERO);
+        assertEquals("inherited", resolveParentProperty(cache, repository, "1.0-SNAPSHOT"));
+        assertFalse(Files.exists(cache.directory().resolve("poms")));
+
+        // Persisted, and read back until it expires
+        Path cacheDirectory = temporaryDirectory.resolve("cache");
+        cache = new DiskMavenPomCache(cacheDirectory, Duration.ofHours(1));
+        assertEquals("inherited", resolveParentProperty(cache, repository, "1.0-SNAPSHOT"));
+        List<Path> cachedPoms;
+        try (Stream<Path> files = Files.walk(cache.directory().resolve("poms"))) {
+            cachedPoms = files.filter(file -> file.toString().endsWith(".smile")).toList();
+        }
+        assertEquals(1, cachedPoms.size());
+        DiskMavenPomCache restartedCache = new DiskMavenPomCache(cacheDirectory, Duration.ofHours(1));
+        assertEquals("inherited", resolveParentProperty(restartedCache, repository, "1.0-SNAPSHOT"));
+        assertTrue(restartedCache.hits() > 0);
+
+        // Deployed again after it expired
+        Files.setLastModifiedTime(cachedPoms.getFirst(), FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+        Files.writeString(repository.resolve("com/example/legacy-parent/1.0-SNAPSHOT/legacy-parent-1.0-SNAPSHOT.pom"),
+            Files.readString(repository.resolve("com/example/legacy-parent/1.0-SNAPSHOT/legacy-parent-1.0-SNAPSHOT.pom")).replace("inherited", "redeployed"));
+        assertEquals("redeployed", resolveParentProperty(new DiskMavenPomCache(cacheDirectory, Duration.ofHours(1)), repository, "1.0-SNAPSHOT"));
+    }
+
+    private static void writeParentPom(Path repository, String version) throws IOException {
+        Path parentPom = repository.resolve("com/example/legacy-parent/" + version + "/legacy-parent-" + version + ".pom");
+        Files.createDirectories(parentPom.getParent());
+        Files.writeString(parentPom, """
+            <project>
+              <modelVersion>4.0.0</modelVersion>
+              <groupId>com.example</groupId>
+              <artifactId>legacy-parent</artifactId>
+              <version>%s</version>
+              <packaging>pom</packaging>
+              <properties>
+                <from.parent>inherited</from.parent>
+              </properties>
+            </project>
+            """.formatted(version));
+    }
+
+    private static String resolveParentProperty(DiskMavenPomCache cache, Path repository, String parentVersion) {
+        ExecutionContext executionContext = new InMemoryExecutionContext(Throwable::printStackTrace);
+        MavenExecutionContextView mavenExecutionContext = MavenExecutionContextView.view(executionContext);
+        mavenExecutionContext.setPomCache(new CompositeMavenPomCache(new InMemoryMavenPomCache(), cache));
+        mavenExecutionContext.setAddCentralRepository(false);
+        mavenExecutionContext.setLocalRepository(MavenRepository.builder().id("local").uri(repository.toUri().toString()).knownToExist(true).build());
+        List<SourceFile> sourceFiles = MavenParser.builder().build().parse(executionContext, CHILD_POM.formatted(parentVersion)).collect(Collectors.toList());
+        return sourceFiles.getFirst().getMarkers().findFirst(MavenResolutionResult.class).orElseThrow().getPom().getValue("${from.parent}");
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Result;
+import org.openrewrite.SourceFile;
+import org.openrewrite.internal.InMemoryLargeSourceSet;
+import org.openrewrite.maven.AddDependency;
+import org.openrewrite.maven.AddManagedDependency;
+import org.openrewrite.maven.AddProperty;
+import org.openrewrite.maven.MavenExecutionContextView;
+import org.openrewrite.maven.MavenParser;
+import org.openrewrite.maven.RemoveDuplicateDependencies;
+import org.openrewrite.maven.cache.InMemoryMavenPomCache;
+import org.openrewrite.maven.tree.MavenRepositoryMirror;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MavenChangeSetTest {
+
+    private static final String CHANGE_SET = """
+        - add_managed_dependency:
+            group_id: com.example.legacy
+            artifact_id: legacy-bom
+            version: 1.0
+            scope: import
+            type: pom
+        - add_dependency: { group_id: com.example.legacy, artifact_id: legacy-lib, version: 1.2 }
+        - AddProperty:
+            key: legacy.version
+            value: 2.10
+            preserveExistingValue: false
+            trustParent: false
+        - remove_duplicate_dependencies
+        """;
+
+    @TempDir
+    Path temporaryDirectory;
+
+    private StandInMavenRepository repository;
+
+    @BeforeEach
+    public void startRepository() throws IOException {
+        repository = new StandInMavenRepository(temporaryDirectory.resolve("repository"))
+            .release("com.example.legacy", "legacy-bom", "pom", "1.0")
+            .release("com.example.legacy", "legacy-lib", "jar", "1.0", "1.2");
+    }
+
+    @AfterEach
+    public void stopRepository() throws IOException {
+        repository.close();
+    }
+
+    @Test
+    public void testCompileTheChangesInOrder() {
+        MavenChangeSet yaml = MavenChangeSet.parse(CHANGE_SET);
+        MavenChangeSet json = MavenChangeSet.parse("""
+            [{"add_managed_dependency": {"group_id": "com.example.legacy", "artifact_id": "legacy-bom", "version": "1.0", "scope": "import", "type": "pom"}},
+             {"add_dependency": {"groupId": "com.example.legacy", "artifactId": "legacy-lib", "version": "1.2"}},
+             {"add_property": {"key": "legacy.version", "value": "2.10", "preserve_existing_value": false, "trust_parent": false}},
+             "RemoveDuplicateDependencies"]
+            """);
+
+        for (MavenChangeSet changeSet : List.of(yaml, json)) {
+            assertEquals(List.of(AddManagedDependency.class, AddDependency.class, AddProperty.class, RemoveDuplicateDependencies.class),
+                changeSet.getRecipeList().stream().map(Object::getClass).collect(Collectors.toList()));
+            // Read as a string, not as the number 2.1
+            assertEquals("2.10", ((AddProperty) changeSet.getRecipeList().get(2)).getValue());
+        }
+    }
+
+    @Test
+    public void testApplyTheChangesInOneRun() throws IOException {
+        Path root = temporaryDirectory.resolve("application");
+        List<Path> pomXmlFiles = new ArrayList<>();
+        pomXmlFiles.add(write(root.resolve("pom.xml"), """
+            <project>
+              <modelVersion>4.0.0</modelVersion>
+              <groupId>com.example</groupId>
+              <artifactId>reactor</artifactId>
+              <version>1.0</version>
+              <packaging>pom</packaging>
+              <modules>
+                <module>app</module>
+              </modules>
+            </project>
+            """));
+        pomXmlFiles.add(write(root.resolve("app/pom.xml"), """
+            <project>
+              <modelVersion>4.0.0</modelVersion>
+              <parent>
+                <groupId>com.example</groupId>
+                <artifactId>reactor</artifactId>
+                <version>1.0</version>
+              </parent>
+              <artifactId>app</artifactId>
+            </project>
+            """));
+        ExecutionContext executionContext = new InMemoryExecutionContext(Throwable::printStackTrace);
+        MavenExecutionContextView mavenExecutionContext = MavenExecutionContextView.view(executionContext);
+        mavenExecutionContext.setPomCache(new InMemoryMavenPomCache());
+        mavenExecutionContext.setAddCentralRepository(false);
+        mavenExecutionContext.setMirrors(List.of(new MavenRepositoryMirror("stand-in", repository.uri(), "*", true, true, null)));
+        List<SourceFile> sourceFiles = MavenParser.builder().build().parse(pomXmlFiles, root, executionContext).collect(Collectors.toList());
+
+        List<Result> results = MavenChangeSet.parse(CHANGE_SET).run(new InMemoryLargeSourceSet(sourceFiles), executionContext).getChangeset().getAllResults();
+
+        // Each file is changed once, with all the changes applying to it
+        Map<String, String> changed = new HashMap<>();
+        for (Result result : results) {
+            changed.put(result.getAfter().getSourcePath().toString().replace('\\', '/'), result.getAfter().printAll());
+        }
+        assertEquals(2, results.size());
+        assertTrue(changed.get("pom.xml").contains("<artifactId>legacy-bom</artifactId>"), changed.get("pom.xml"));
+        assertTrue(changed.get("pom.xml").contains("<legacy.version>2.10</legacy.version>"), changed.get("pom.xml"));
+        assertTrue(changed.get("app/pom.xml").contains("<artifactId>legacy-bom</artifactId>"), changed.get("app/pom.xml"));
+    }
+
+    @Test
+    public void testRejectAnInvalidChangeSet() {
+        assertThrows(IllegalArgumentException.class, () -> MavenChangeSet.parse("add_dependency: {}"));
+        assertThrows(IllegalArgumentException.class, () -> MavenChangeSet.parse("[unbalanced"));
+        IllegalArgumentException unknownChange = assertThrows(IllegalArgumentException.class, () -> MavenChangeSet.parse("- update_maven_wrapper"));
+        assertTrue(unknownChange.getMessage().contains("add_dependency"), unknownChange.getMessage());
+        IllegalArgumentException unknownOption = assertThrows(IllegalArgumentException.class, () -> MavenChangeSet.parse("- add_property: { key: a, value: b, colour: blue }"));
+        assertTrue(unknownOption.getMessage().contains("colour"), unknownOption.getMessage());
+        IllegalArgumentException missingOption = assertThrows(IllegalArgumentException.class, () -> MavenChangeSet.parse("- add_dependency: { group_id: com.example, artifact_id: lib }"));
+        assertTrue(missingOption.getMessage().startsWith("The change 1 (add_dependency) is invalid"), missingOption.getMessage());
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+}
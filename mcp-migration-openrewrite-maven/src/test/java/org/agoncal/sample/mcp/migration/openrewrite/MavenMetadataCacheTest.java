@@ -0,0 +1,155 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Result;
+import org.openrewrite.SourceFile;
+import org.openrewrite.internal.InMemoryLargeSourceSet;
+import org.openrewrite.maven.MavenExecutionContextView;
+import org.openrewrite.maven.MavenParser;
+import org.openrewrite.maven.UpgradeDependencyVersion;
+import org.openrewrite.maven.cache.CompositeMavenPomCache;
+import org.openrewrite.maven.cache.InMemoryMavenPomCache;
+import org.openrewrite.maven.cache.MavenPomCache;
+import org.openrewrite.maven.tree.GroupArtifactVersion;
+import org.openrewrite.maven.tree.MavenMetadata;
+import org.openrewrite.maven.tree.MavenRepositoryMirror;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MavenMetadataCacheTest {
+
+    private static final URI REPOSITORY = URI.create("https://repo.example.com/maven2");
+    private static final MavenMetadata METADATA = new MavenMetadata(new MavenMetadata.Versioning(List.of("1.0", "1.1"), null, null, null, "1.1", "1.1"));
+
+    @TempDir
+    Path temporaryDirectory;
+
+    private StandInMavenRepository repository;
+    private final AtomicLong currentTimeMillis = new AtomicLong(1_000_000);
+
+    @BeforeEach
+    public void startRepository() throws IOException {
+        repository = new StandInMavenRepository(temporaryDirectory.resolve("repository"))
+            .release("com.example.legacy", "legacy-lib", "jar", "1.0", "1.1", "1.2");
+    }
+
+    @AfterEach
+    public void stopRepository() throws IOException {
+        repository.close();
+    }
+
+    @Test
+    public void testResolveTheVersionsOnceUntilTheyExpire() throws IOException {
+        MavenMetadataCache cache = new MavenMetadataCache(new InMemoryMavenPomCache(), 100, Duration.ofHours(1), currentTimeMillis::get);
+
+        // Each tool call upgrades other modules, the versions are only downloaded by the first one
+        for (String module : List.of("app", "web", "batch")) {
+            assertTrue(upgrade(cache, module).contains("<version>1.2</version>"));
+        }
+        assertEquals(1, repository.requests("legacy-lib/maven-metadata.xml"));
+        assertTrue(cache.hits() >= 2, cache.toString());
+
+        // A version released since is only seen once the cached versions expire
+        repository.release("com.example.legacy", "legacy-lib", "jar", "1.0", "1.1", "1.2", "1.3");
+        currentTimeMillis.addAndGet(Duration.ofMinutes(59).toMillis());
+        assertTrue(upgrade(cache, "app").contains("<version>1.2</version>"));
+        currentTimeMillis.addAndGet(Duration.ofMinutes(2).toMillis());
+        assertTrue(upgrade(cache, "app").contains("<version>1.3</version>"));
+        assertEquals(2, repository.requests("legacy-lib/maven-metadata.xml"));
+    }
+
+    @Test
+    public void testEvictTheLeastRecentlyUsedMetadata() {
+        MavenMetadataCache cache = new MavenMetadataCache(new InMemoryMavenPomCache(), 2, Duration.ofHours(1), currentTimeMillis::get);
+        GroupArtifactVersion first = new GroupArtifactVersion("com.example", "first", null);
+        GroupArtifactVersion second = new GroupArtifactVersion("com.example", "second", null);
+        GroupArtifactVersion third = new GroupArtifactVersion("com.example", "third", null);
+        cache.putMavenMetadata(REPOSITORY, first, METADATA);
+        cache.putMavenMetadata(REPOSITORY, second, METADATA);
+        assertNotNull(cache.getMavenMetadata(REPOSITORY, first));
+
+        cache.putMavenMetadata(REPOSITORY, third, null);
+
+        assertEquals(2, cache.size());
+        assertEquals(Optional.of(METADATA), cache.getMavenMetadata(REPOSITORY, first));
+        assertNull(cache.getMavenMetadata(REPOSITORY, second));
+        // Missing from the repository, which is cached too
+        assertEquals(Optional.empty(), cache.getMavenMetadata(REPOSITORY, third));
+        // Keyed by repository
+        assertNull(cache.getMavenMetadata(URI.create("https://other.example.com/maven2"), first));
+    }
+
+    @Test
+    public void testExpireTheMetadataCachedOnDisk() throws IOException {
+        GroupArtifactVersion gav = new GroupArtifactVersion("com.example", "legacy-lib", null);
+        DiskMavenPomCache cache = new DiskMavenPomCache(temporaryDirectory.resolve("cache"), Duration.ofHours(1));
+        cache.putMavenMetadata(REPOSITORY, gav, METADATA);
+        assertEquals(List.of("1.0", "1.1"), cache.getMavenMetadata(REPOSITORY, gav).orElseThrow().getVersioning().getVersions());
+
+        try (Stream<Path> files = Files.walk(cache.directory().resolve("metadata"))) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - Duration.ofHours(2).toMillis()));
+            }
+        }
+        assertNull(cache.getMavenMetadata(REPOSITORY, gav));
+        // Still there for an offline restart, which never expires the metadata
+        assertNotNull(new DiskMavenPomCache(temporaryDirectory.resolve("cache")).getMavenMetadata(REPOSITORY, gav));
+
+        // Not persisted at all without a time to live
+        DiskMavenPomCache uncached = new DiskMavenPomCache(temporaryDirectory.resolve("uncached"), Duration.ZERO);
+        uncached.putMavenMetadata(REPOSITORY, gav, METADATA);
+        assertNull(uncached.getMavenMetadata(REPOSITORY, gav));
+        assertTrue(Files.notExists(uncached.directory()));
+    }
+
+    /**
+     * Upgrades the library of a module in a new execution context sharing the cache, like each tool call does, and
+     * returns the printed POM.
+     */
+    private String upgrade(MavenMetadataCache cache, String artifactId) {
+        ExecutionContext executionContext = new InMemoryExecutionContext(Throwable::printStackTrace);
+        MavenExecutionContextView mavenExecutionContext = MavenExecutionContextView.view(executionContext);
+        MavenPomCache pomCache = new CompositeMavenPomCache(cache, new DiskMavenPomCache(temporaryDirectory.resolve("cache"), Duration.ZERO));
+        mavenExecutionContext.setPomCache(pomCache);
+        mavenExecutionContext.setAddCentralRepository(false);
+        mavenExecutionContext.setMirrors(List.of(new MavenRepositoryMirror("stand-in", repository.uri(), "*", true, true, null)));
+        List<SourceFile> sourceFiles = MavenParser.builder().build().parse(executionContext, """
+            <project>
+              <modelVersion>4.0.0</modelVersion>
+              <groupId>com.example</groupId>
+              <artifactId>%s</artifactId>
+              <version>1.0</version>
+              <dependencies>
+                <dependency>
+                  <groupId>com.example.legacy</groupId>
+                  <artifactId>legacy-lib</artifactId>
+                  <version>1.0</version>
+                </dependency>
+              </dependencies>
+            </project>
+            """.formatted(artifactId)).collect(Collectors.toList());
+        List<Result> results = new UpgradeDependencyVersion("com.example.legacy", "legacy-lib", "latest.release", null, false, null)
+            .run(new InMemoryLargeSourceSet(sourceFiles), executionContext).getChangeset().getAllResults();
+        return results.getFirst().getAfter().printAll();
+    }
+}
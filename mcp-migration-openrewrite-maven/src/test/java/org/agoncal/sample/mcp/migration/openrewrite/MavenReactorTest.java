@@ -0,0 +1,90 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.agoncal.sample.mcp.migration.openrewrite.common.SourceFileStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.maven.MavenExecutionContextView;
+import org.openrewrite.maven.tree.MavenResolutionResult;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MavenReactorTest {
+
+    private static final Path PARENT = Path.of("pom.xml");
+    private static final Path APP = Path.of("app/pom.xml");
+    private static final Path WEB = Path.of("web/pom.xml");
+
+    @TempDir
+    Path root;
+
+    @Test
+    public void testResolveAgainTheStalePomsIntoTheSourceSet() throws IOException {
+        ExecutionContext executionContext = new InMemoryExecutionContext(Throwable::printStackTrace);
+        MavenExecutionContextView.view(executionContext).setAddCentralRepository(false);
+        List<Path> pomXmlFiles = List.of(write(PARENT, parent("1.2", "<module>app</module>")), write(APP, module("app")));
+        MavenReactor reactor = new MavenReactor(root, pomXmlFiles, executionContext, 2);
+        SourceFileStore sourceFiles = new SourceFileStore(root, 10, reactor::resolve);
+        sourceFiles.load(pomXmlFiles);
+        reactor.attach(sourceFiles, 10);
+        assertEquals("1.2", property(sourceFiles, APP));
+
+        // The parent changes and a module is added, the other files of a shared source set are ignored
+        write(PARENT, parent("2.0", "<module>app</module><module>web</module>"));
+        write(WEB, module("web"));
+        reactor.resolveAgain(List.of(PARENT, WEB, Path.of("app/src/main/resources/application.properties")));
+
+        // The module inheriting from the parent is resolved again against it
+        assertEquals(List.of(APP, PARENT, WEB), sourceFiles.paths().stream().sorted().toList());
+        assertEquals("2.0", property(sourceFiles, APP));
+        assertEquals("2.0", property(sourceFiles, WEB));
+    }
+
+    private static String property(SourceFileStore sourceFiles, Path path) {
+        return sourceFiles.get(path).getMarkers().findFirst(MavenResolutionResult.class).orElseThrow().getPom().getProperties().get("legacy.version");
+    }
+
+    private static String parent(String legacyVersion, String modules) {
+        return """
+            <project>
+              <modelVersion>4.0.0</modelVersion>
+              <groupId>com.example</groupId>
+              <artifactId>reactor</artifactId>
+              <version>1.0</version>
+              <packaging>pom</packaging>
+              <properties>
+                <legacy.version>%s</legacy.version>
+              </properties>
+              <modules>
+                %s
+              </modules>
+            </project>
+            """.formatted(legacyVersion, modules);
+    }
+
+    private static String module(String artifactId) {
+        return """
+            <project>
+              <modelVersion>4.0.0</modelVersion>
+              <parent>
+                <groupId>com.example</groupId>
+                <artifactId>reactor</artifactId>
+                <version>1.0</version>
+              </parent>
+              <artifactId>%s</artifactId>
+            </project>
+            """.formatted(artifactId);
+    }
+
+    private Path write(Path relativePath, String content) throws IOException {
+        Path file = root.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+}
@@ -0,0 +1,72 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import io.quarkiverse.mcp.server.Tool;
+import io.quarkiverse.mcp.server.ToolArg;
+import io.quarkiverse.mcp.server.ToolResponse;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MavenToolsTest {
+
+    /**
+     * Declares the tools both servers declare, as the Java server does.
+     */
+    public static class SharingServer {
+
+        @Tool(name = "refresh_sources", description = "Refreshes all the sources.")
+        public ToolResponse refreshSources() {
+            return ToolResponse.success("Refreshed");
+        }
+
+        @Tool(name = "list_data_tables", description = "Lists the data tables of all the recipe runs.")
+        public ToolResponse listDataTables() {
+            return ToolResponse.success("[]");
+        }
+
+        @Tool(name = "get_data_table_rows", description = "Returns the rows of a data table.")
+        public ToolResponse getDataTableRows(@ToolArg(name = "Run ID", description = "The ID of the recipe run.") int runId) {
+            return ToolResponse.success("[]");
+        }
+
+        @Tool(name = "export_data_table", description = "Exports a data table.")
+        public ToolResponse exportDataTable(@ToolArg(name = "Run ID", description = "The ID of the recipe run.") int runId) {
+            return ToolResponse.success("Exported");
+        }
+    }
+
+    @Test
+    public void testOnlyServeTheToolsTheServerDoesNotDeclare() {
+        List<String> tools = MavenTools.notDeclaredBy(MavenMigrationMCPServer.class, SharingServer.class).stream()
+            .map(method -> method.getAnnotation(Tool.class).name())
+            .toList();
+
+        assertTrue(tools.containsAll(List.of("list_all_available_maven_migration_tools", "dependency_insight", "list_dependency_conflicts",
+            "apply_maven_change_set", "add_dependency", "upgrade_dependency_version", "update_maven_wrapper")));
+        for (String shared : List.of("refresh_sources", "list_data_tables", "get_data_table_rows", "export_data_table")) {
+            assertFalse(tools.contains(shared), shared);
+        }
+    }
+
+    @Test
+    public void testConvertTheArguments() throws NoSuchMethodException {
+        Method getDataTableRows = MavenMigrationMCPServer.class.getMethod("getDataTableRows", int.class, String.class, int.class, int.class, String.class);
+        // The missing arguments take their default values
+        assertArrayEquals(new Object[]{3, "SourcesFileResults", 0, 100, "json"},
+            MavenTools.arguments(getDataTableRows, Map.of("Run ID", 3, "Table", "SourcesFileResults")));
+
+        Method upgradeDependencyVersion = MavenMigrationMCPServer.class.getMethod("executeUpgradeDependencyVersionRecipe",
+            String.class, String.class, String.class, String.class, boolean.class, boolean.class, String.class, String.class);
+        // Numbers decoded as longs, and booleans given as strings, are converted too, the optional strings are null
+        assertArrayEquals(new Object[]{"log4j", "log4j", "1.x", null, false, true, "app/**", null},
+            MavenTools.arguments(upgradeDependencyVersion, Map.of("Group ID", "log4j", "Artifact ID", "log4j", "New Version", "1.x", "Dry Run", "true", "Include", "app/**")));
+        assertArrayEquals(new Object[]{7, "SourcesFileResults", 10, 20, "csv"},
+            MavenTools.arguments(getDataTableRows, Map.of("Run ID", 7L, "Table", "SourcesFileResults", "Offset", 10L, "Limit", "20", "Format", "csv")));
+    }
+}
@@ -0,0 +1,139 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ModuleGraphTest {
+
+    private static final Path ROOT = Path.of("pom.xml");
+    private static final Path BOM = Path.of("bom/pom.xml");
+    private static final Path CORE = Path.of("core/pom.xml");
+    private static final Path SERVICE = Path.of("service/pom.xml");
+    private static final Path WEB = Path.of("web/pom.xml");
+    private static final Path STANDALONE = Path.of("standalone/pom.xml");
+
+    @TempDir
+    Path root;
+
+    private final ModuleGraph moduleGraph = new ModuleGraph();
+
+    @BeforeEach
+    public void writeReactor() throws IOException {
+        write(ROOT, """
+            <project>
+              <modelVersion>4.0.0</modelVersion>
+              <groupId>com.example</groupId>
+              <artifactId>root</artifactId>
+              <version>1.0</version>
+              <packaging>pom</packaging>
+            </project>
+            """);
+        write(BOM, child("bom", ""));
+        write(CORE, child("core", ""));
+        write(SERVICE, child("service", """
+            <dependencyManagement>
+              <dependencies>
+                <dependency>
+                  <groupId>com.example</groupId>
+                  <artifactId>bom</artifactId>
+                  <version>1.0</version>
+                  <type>pom</type>
+                  <scope>import</scope>
+                </dependency>
+              </dependencies>
+            </dependencyManagement>
+            <dependencies>
+              <dependency>
+                <groupId>${project.groupId}</groupId>
+                <artifactId>core</artifactId>
+                <version>${project.version}</version>
+              </dependency>
+            </dependencies>
+            """));
+        write(WEB, child("web", """
+            <dependencies>
+              <dependency>
+                <groupId>com.example</groupId>
+                <artifactId>service</artifactId>
+                <version>1.0</version>
+              </dependency>
+            </dependencies>
+            """));
+        write(STANDALONE, """
+            <project>
+              <modelVersion>4.0.0</modelVersion>
+              <groupId>com.example</groupId>
+              <artifactId>standalone</artifactId>
+              <version>1.0</version>
+            </project>
+            """);
+        for (Path path : List.of(ROOT, BOM, CORE, SERVICE, WEB, STANDALONE)) {
+            moduleGraph.read(root, path);
+        }
+    }
+
+    @Test
+    public void testDependsOnParentBomAndModules() {
+        assertEquals(6, moduleGraph.size());
+        assertEquals(Set.of(ROOT, BOM, CORE), moduleGraph.dependsOn(SERVICE));
+        assertEquals(Set.of(ROOT, SERVICE), moduleGraph.dependsOn(WEB));
+        assertEquals(Set.of(), moduleGraph.dependsOn(STANDALONE));
+    }
+
+    @Test
+    public void testResolveAgainTheDependentsInTopologicalOrder() {
+        assertEquals(List.of(List.of(BOM, CORE), List.of(SERVICE), List.of(WEB)), moduleGraph.levels(moduleGraph.dependents(List.of(BOM, CORE))));
+        assertEquals(List.of(List.of(ROOT), List.of(BOM, CORE), List.of(SERVICE), List.of(WEB)), moduleGraph.levels(moduleGraph.dependents(List.of(ROOT))));
+        assertEquals(Set.of(WEB), moduleGraph.dependents(List.of(WEB)));
+    }
+
+    @Test
+    public void testResolutionScope() {
+        // A module is resolved with the modules it depends on, a parent with its child modules too
+        assertEquals(Set.of(CORE, ROOT), moduleGraph.resolutionScope(List.of(CORE)));
+        assertEquals(Set.of(WEB, SERVICE, CORE, BOM, ROOT), moduleGraph.resolutionScope(List.of(WEB)));
+        assertEquals(Set.of(ROOT, BOM, CORE, SERVICE, WEB), moduleGraph.resolutionScope(List.of(ROOT)));
+    }
+
+    @Test
+    public void testReadAgainAChangedModule() throws IOException {
+        // The service does not depend on the core anymore, and the core is deleted
+        write(SERVICE, child("service", ""));
+        moduleGraph.read(root, SERVICE);
+        Files.delete(root.resolve(CORE));
+        moduleGraph.read(root, CORE);
+
+        assertEquals(5, moduleGraph.size());
+        assertEquals(Set.of(ROOT), moduleGraph.dependsOn(SERVICE));
+        assertEquals(Set.of(BOM), moduleGraph.dependents(List.of(BOM)));
+    }
+
+    private static String child(String artifactId, String content) {
+        return """
+            <project>
+              <modelVersion>4.0.0</modelVersion>
+              <parent>
+                <groupId>com.example</groupId>
+                <artifactId>root</artifactId>
+                <version>1.0</version>
+              </parent>
+              <artifactId>%s</artifactId>
+              %s
+            </project>
+            """.formatted(artifactId, content);
+    }
+
+    private void write(Path path, String content) throws IOException {
+        Files.createDirectories(root.resolve(path).getParent());
+        Files.writeString(root.resolve(path), content);
+    }
+}
@@ -0,0 +1,139 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Parser;
+import org.openrewrite.SourceFile;
+import org.openrewrite.internal.InMemoryLargeSourceSet;
+import org.openrewrite.marker.Markup;
+import org.openrewrite.maven.AddProperty;
+import org.openrewrite.maven.MavenParser;
+import org.openrewrite.maven.tree.MavenResolutionResult;
+import org.openrewrite.maven.tree.Scope;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ReactorResolverTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    public void testResolveInParallelLikeTheWholeReactorAtOnce() throws IOException {
+        // A parent with two levels of modules, the last ones depending on the first module of each subtree, and a standalone module
+        List<Path> pomXmlFiles = new ArrayList<>();
+        pomXmlFiles.add(write(Path.of("pom.xml"), """
+            <project>
+              <modelVersion>4.0.0</modelVersion>
+              <groupId>com.example</groupId>
+              <artifactId>root</artifactId>
+              <version>1.0</version>
+              <packaging>pom</packaging>
+              <properties>
+                <from.root>inherited</from.root>
+              </properties>
+            </project>
+            """));
+        for (int subtree = 0; subtree < 5; subtree++) {
+            pomXmlFiles.add(write(Path.of("subtree-" + subtree, "pom.xml"), module("root", "subtree-" + subtree, "pom", "")));
+            for (int module = 0; module < 4; module++) {
+                String dependency = module == 0 ? "" : """
+                    <dependencies>
+                      <dependency>
+                        <groupId>com.example</groupId>
+                        <artifactId>module-%d-0</artifactId>
+                        <version>1.0</version>
+                      </dependency>
+                    </dependencies>
+                    """.formatted(subtree);
+                pomXmlFiles.add(write(Path.of("subtree-" + subtree, "module-" + module, "pom.xml"), module("subtree-" + subtree, "module-" + subtree + "-" + module, "jar", dependency)));
+            }
+        }
+        pomXmlFiles.add(write(Path.of("standalone", "pom.xml"), """
+            <project>
+              <modelVersion>4.0.0</modelVersion>
+              <groupId>com.example</groupId>
+              <artifactId>standalone</artifactId>
+              <version>1.0</version>
+            </project>
+            """));
+        ModuleGraph moduleGraph = new ModuleGraph();
+        for (Path pomXmlFile : pomXmlFiles) {
+            moduleGraph.read(root, root.relativize(pomXmlFile));
+        }
+        Set<Path> reactor = ConcurrentHashMap.newKeySet();
+        reactor.addAll(pomXmlFiles);
+        ReactorResolver serial = new ReactorResolver(root, moduleGraph, reactor, MavenParser.builder().build(), new InMemoryExecutionContext(Throwable::printStackTrace), 1);
+        ReactorResolver parallel = new ReactorResolver(root, moduleGraph, reactor, MavenParser.builder().build(), new InMemoryExecutionContext(Throwable::printStackTrace), 4);
+
+        List<SourceFile> serialSourceFiles = serial.resolve(pomXmlFiles.stream().map(Parser.Input::fromFile).toList());
+        List<SourceFile> parallelSourceFiles = parallel.resolveAll();
+        assertEquals(14, parallel.chunks(moduleGraph.subtreeOrder()).size());
+        assertEquals(describe(serialSourceFiles), describe(parallelSourceFiles));
+        assertEquals("inherited 1 4", describe(parallelSourceFiles).get("subtree-3/module-2/pom.xml"));
+
+        // The recipes update the resolution result of a POM without properties, which must be as mutable as the parser's
+        assertEquals(1, addProperty(serialSourceFiles, "standalone/pom.xml"));
+        assertEquals(1, addProperty(parallelSourceFiles, "standalone/pom.xml"));
+    }
+
+    /**
+     * Adds a property to a POM and returns the number of POMs changed without an error, as a recipe failing on a POM marks
+     * it with the error.
+     */
+    private static long addProperty(List<SourceFile> sourceFiles, String sourcePath) {
+        List<SourceFile> changed = sourceFiles.stream().filter(sourceFile -> sourceFile.getSourcePath().toString().replace('\\', '/').equals(sourcePath)).toList();
+        AddProperty addProperty = new AddProperty("added.property", "added", false, false);
+        return addProperty.run(new InMemoryLargeSourceSet(changed), new InMemoryExecutionContext(Throwable::printStackTrace)).getChangeset().getAllResults().stream()
+            .filter(result -> result.getAfter() != null && result.getAfter().getMarkers().findFirst(Markup.Error.class).isEmpty())
+            .count();
+    }
+
+    /**
+     * Describes each POM by an inherited property, its number of dependencies and of modules, and its parent.
+     */
+    private static Map<String, String> describe(List<SourceFile> sourceFiles) {
+        Map<String, String> descriptions = new TreeMap<>();
+        for (SourceFile sourceFile : sourceFiles) {
+            MavenResolutionResult result = sourceFile.getMarkers().findFirst(MavenResolutionResult.class).orElseThrow();
+            descriptions.put(sourceFile.getSourcePath().toString().replace('\\', '/'), result.getPom().getValue("${from.root}")
+                + " " + result.getDependencies().get(Scope.Compile).size()
+                + " " + (result.getParent() == null ? result.getModules().size() : result.getParent().getModules().size()));
+        }
+        return descriptions;
+    }
+
+    private static String module(String parent, String artifactId, String packaging, String content) {
+        return """
+            <project>
+              <modelVersion>4.0.0</modelVersion>
+              <parent>
+                <groupId>com.example</groupId>
+                <artifactId>%s</artifactId>
+                <version>1.0</version>
+                <relativePath>../pom.xml</relativePath>
+              </parent>
+              <artifactId>%s</artifactId>
+              <packaging>%s</packaging>
+              %s
+            </project>
+            """.formatted(parent, artifactId, packaging, content);
+    }
+
+    private Path write(Path path, String content) throws IOException {
+        Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+}
@@ -0,0 +1,222 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A Maven repository served over HTTP from a directory, so the recipes looking for new versions are tested without
+ * network. The artifacts are generated on demand: the metadata listing their versions and a POM per version, and the
+ * archives of the Maven wrapper and of the Maven distributions. The GET requests are counted by path.
+ * <p>
+ * The repository is only served over HTTP. A mirror is first probed over HTTPS, so the TLS handshakes are refused at
+ * once, instead of waiting for a request line which never comes as a plain HTTP server would.
+ */
+class StandInMavenRepository implements AutoCloseable {
+
+    static final String WRAPPER_SCRIPT = "#!/bin/sh\n# Stand-in Maven wrapper %s\nexec mvn \"$@\"\n";
+    static final String WRAPPER_BATCH_SCRIPT = "@REM Stand-in Maven wrapper %s\r\nmvn %%*\r\n";
+
+    // First byte of a TLS record carrying a handshake
+    private static final int TLS_HANDSHAKE = 0x16;
+
+    private final Path directory;
+    private final ServerSocket serverSocket;
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+
+    StandInMavenRepository(Path directory) throws IOException {
+        this.directory = directory.toAbsolutePath().normalize();
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread server = new Thread(this::serve, "stand-in-maven-repository");
+        server.setDaemon(true);
+        server.start();
+    }
+
+    String uri() {
+        return "http://" + serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort() + "/maven2";
+    }
+
+    /**
+     * Releases the versions of an artifact, each one with a POM of the given packaging.
+     */
+    StandInMavenRepository release(String groupId, String artifactId, String packaging, String... versions) throws IOException {
+        for (String version : versions) {
+            write(groupId, artifactId, version, artifactId + "-" + version + ".pom", """
+                <project>
+                  <modelVersion>4.0.0</modelVersion>
+                  <groupId>%s</groupId>
+                  <artifactId>%s</artifactId>
+                  <version>%s</version>
+                  <packaging>%s</packaging>
+                </project>
+                """.formatted(groupId, artifactId, version, packaging).getBytes(StandardCharsets.UTF_8));
+        }
+        return metadata(groupId, artifactId, versions);
+    }
+
+    /**
+     * Releases a version of a library depending on other ones, given as `groupId:artifactId:version`.
+     */
+    StandInMavenRepository releaseDependingOn(String groupId, String artifactId, String version, String... dependencies) throws IOException {
+        StringBuilder declared = new StringBuilder();
+        for (String dependency : dependencies) {
+            String[] gav = dependency.split(":");
+            declared.append("""
+                    <dependency>
+                      <groupId>%s</groupId>
+                      <artifactId>%s</artifactId>
+                      <version>%s</version>
+                    </dependency>
+                """.formatted(gav[0], gav[1], gav[2]));
+        }
+        write(groupId, artifactId, version, artifactId + "-" + version + ".pom", """
+            <project>
+              <modelVersion>4.0.0</modelVersion>
+              <groupId>%s</groupId>
+              <artifactId>%s</artifactId>
+              <version>%s</version>
+              <dependencies>
+            %s  </dependencies>
+            </project>
+            """.formatted(groupId, artifactId, version, declared).getBytes(StandardCharsets.UTF_8));
+        return metadata(groupId, artifactId, version);
+    }
+
+    /**
+     * Releases the versions of the Maven wrapper, each with a jar and a `bin` distribution holding its scripts, and the
+     * versions of the Maven distributions.
+     */
+    StandInMavenRepository mavenWrapper(List<String> wrapperVersions, List<String> mavenVersions) throws IOException {
+        for (String version : wrapperVersions) {
+            write("org.apache.maven.wrapper", "maven-wrapper", version, "maven-wrapper-" + version + ".jar", zip(Map.of("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n")));
+            write("org.apache.maven.wrapper", "maven-wrapper-distribution", version, "maven-wrapper-distribution-" + version + "-bin.zip",
+                zip(Map.of("mvnw", WRAPPER_SCRIPT.formatted(version), "mvnw.cmd", WRAPPER_BATCH_SCRIPT.formatted(version))));
+        }
+        metadata("org.apache.maven.wrapper", "maven-wrapper-distribution", wrapperVersions.toArray(String[]::new));
+        for (String version : mavenVersions) {
+            write("org.apache.maven", "apache-maven", version, "apache-maven-" + version + "-bin.zip", zip(Map.of("apache-maven-" + version + "/bin/mvn", "")));
+        }
+        return metadata("org.apache.maven", "apache-maven", mavenVersions.toArray(String[]::new));
+    }
+
+    /**
+     * Returns the number of GET requests of the files whose path ends with the suffix.
+     */
+    int requests(String suffix) {
+        return requests.entrySet().stream().filter(entry -> entry.getKey().endsWith(suffix)).mapToInt(entry -> entry.getValue().get()).sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private StandInMavenRepository metadata(String groupId, String artifactId, String... versions) throws IOException {
+        StringBuilder listed = new StringBuilder();
+        for (String version : versions) {
+            listed.append("      <version>").append(version).append("</version>\n");
+        }
+        String latest = versions[versions.length - 1];
+        Path file = directory.resolve(groupId.replace('.', '/')).resolve(artifactId).resolve("maven-metadata.xml");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, """
+            <metadata>
+              <groupId>%s</groupId>
+              <artifactId>%s</artifactId>
+              <versioning>
+                <latest>%s</latest>
+                <release>%s</release>
+                <versions>
+            %s    </versions>
+                <lastUpdated>20240101000000</lastUpdated>
+              </versioning>
+            </metadata>
+            """.formatted(groupId, artifactId, latest, latest, listed));
+        return this;
+    }
+
+    private void write(String groupId, String artifactId, String version, String fileName, byte[] content) throws IOException {
+        Path file = directory.resolve(groupId.replace('.', '/')).resolve(artifactId).resolve(version).resolve(fileName);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content);
+    }
+
+    private static byte[] zip(Map<String, String> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private void serve() {
+        while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+                handle(socket);
+            } catch (IOException e) {
+                // Closed, or a client which went away
+            }
+        }
+    }
+
+    /**
+     * Answers a request with one of the files of the directory, and closes the connection. The repository itself
+     * answers the requests checking it is reachable.
+     */
+    private void handle(Socket socket) throws IOException {
+        InputStream inputStream = new BufferedInputStream(socket.getInputStream());
+        inputStream.mark(1);
+        if (inputStream.read() == TLS_HANDSHAKE) {
+            return;
+        }
+        inputStream.reset();
+        String[] requestLine = readLine(inputStream).split(" ");
+        while (!readLine(inputStream).isEmpty()) {
+            // Headers
+        }
+        String path = URI.create(requestLine[1]).getPath().replaceFirst("^/maven2/*", "");
+        Path file = directory.resolve(path).normalize();
+        byte[] content = new byte[0];
+        int status = path.isEmpty() || Files.exists(file) ? 200 : 404;
+        if (requestLine[0].equals("GET")) {
+            requests.computeIfAbsent(path, key -> new AtomicInteger()).incrementAndGet();
+            status = file.startsWith(directory) && Files.isRegularFile(file) ? 200 : 404;
+            content = status == 200 ? Files.readAllBytes(file) : content;
+        }
+        OutputStream outputStream = socket.getOutputStream();
+        outputStream.write(("HTTP/1.1 " + status + (status == 200 ? " OK" : " Not Found") + "\r\nContent-Length: " + content.length + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        if (!requestLine[0].equals("HEAD")) {
+            outputStream.write(content);
+        }
+        outputStream.flush();
+    }
+
+    private static String readLine(InputStream inputStream) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int b = inputStream.read(); b != -1 && b != '\n'; b = inputStream.read()) {
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,236 @@
+package org.agoncal.sample.mcp.migration.openrewrite;
+
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Recipe;
+import org.openrewrite.Result;
+import org.openrewrite.SourceFile;
+import org.openrewrite.internal.InMemoryLargeSourceSet;
+import org.openrewrite.maven.MavenExecutionContextView;
+import org.openrewrite.maven.MavenParser;
+import org.openrewrite.maven.UpdateMavenWrapper;
+import org.openrewrite.maven.UpgradeDependencyVersion;
+import org.openrewrite.maven.UpgradeParentVersion;
+import org.openrewrite.maven.UpgradePluginVersion;
+import org.openrewrite.maven.cache.InMemoryMavenPomCache;
+import org.openrewrite.maven.tree.MavenRepositoryMirror;
+import org.openrewrite.remote.Remote;
+import org.openrewrite.text.PlainText;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the recipes of the version upgrade tools, configured as the tools do, against a stand-in repository mirroring
+ * all the remote ones, as with `MAVEN_MIRROR_URL`.
+ */
+public class VersionUpgradeToolsTest {
+
+    private static final Logger log = Logger.getLogger(VersionUpgradeToolsTest.class);
+
+    @TempDir
+    Path temporaryDirectory;
+
+    private StandInMavenRepository repository;
+
+    @BeforeEach
+    public void startRepository() throws IOException {
+        repository = new StandInMavenRepository(temporaryDirectory.resolve("repository"))
+            .release("com.example.legacy", "legacy-lib", "jar", "1.0", "1.1", "1.2", "2.0")
+            .release("com.example.legacy", "legacy-parent", "pom", "1.0", "1.1", "2.0")
+            .release("com.example.legacy", "legacy-maven-plugin", "maven-plugin", "1.0", "1.4", "1.5")
+            .mavenWrapper(List.of("3.2.0", "3.3.2"), List.of("3.6.3", "3.8.8", "3.9.9"));
+    }
+
+    @AfterEach
+    public void stopRepository() throws IOException {
+        repository.close();
+    }
+
+    @Test
+    public void testUpgradeDependencyVersion() {
+        List<String> changes = run(new UpgradeDependencyVersion("com.example.legacy", "legacy-lib", "1.x", null, false, null), module("app", """
+            <dependencies>
+              <dependency>
+                <groupId>com.example.legacy</groupId>
+                <artifactId>legacy-lib</artifactId>
+                <version>1.0</version>
+              </dependency>
+            </dependencies>
+            """));
+
+        assertEquals(1, changes.size());
+        assertTrue(changes.getFirst().contains("<version>1.2</version>"));
+    }
+
+    @Test
+    public void testUpgradeParentVersion() {
+        List<String> changes = run(new UpgradeParentVersion("com.example.legacy", "legacy-parent", "1.x", null, false), """
+            <project>
+              <modelVersion>4.0.0</modelVersion>
+              <parent>
+                <groupId>com.example.legacy</groupId>
+                <artifactId>legacy-parent</artifactId>
+                <version>1.0</version>
+                <relativePath/>
+              </parent>
+              <artifactId>app</artifactId>
+            </project>
+            """);
+
+        assertEquals(1, changes.size());
+        assertTrue(changes.getFirst().contains("<version>1.1</version>"));
+    }
+
+    @Test
+    public void testUpgradePluginVersion() {
+        List<String> changes = run(new UpgradePluginVersion("com.example.legacy", "legacy-maven-plugin", "latest.release", null, false, false), module("app", """
+            <build>
+              <plugins>
+                <plugin>
+                  <groupId>com.example.legacy</groupId>
+                  <artifactId>legacy-maven-plugin</artifactId>
+                  <version>1.0</version>
+                </plugin>
+              </plugins>
+            </build>
+            """));
+
+        assertEquals(1, changes.size());
+        assertTrue(changes.getFirst().contains("<version>1.5</version>"));
+    }
+
+    @Test
+    public void testUpdateMavenWrapper() throws IOException {
+        Path application = temporaryDirectory.resolve("application");
+        write(application.resolve(MavenWrapperFiles.PROPERTIES), """
+            distributionUrl=https://repo.maven.apache.org/maven2/org/apache/maven/apache-maven/3.6.3/apache-maven-3.6.3-bin.zip
+            wrapperUrl=https://repo.maven.apache.org/maven2/org/apache/maven/wrapper/maven-wrapper/3.2.0/maven-wrapper-3.2.0.jar
+            """);
+        write(application.resolve("mvnw"), StandInMavenRepository.WRAPPER_SCRIPT.formatted("3.2.0"));
+        write(application.resolve("mvnw.cmd"), StandInMavenRepository.WRAPPER_BATCH_SCRIPT.formatted("3.2.0"));
+        write(application.resolve(".mvn/wrapper/maven-wrapper.jar"), "");
+        ExecutionContext executionContext = executionContext();
+        List<SourceFile> wrapperFiles = MavenWrapperFiles.parse(application, executionContext);
+        assertEquals(4, wrapperFiles.size());
+
+        UpdateMavenWrapper updateMavenWrapper = new UpdateMavenWrapper(null, null, "3.9.x", repository.uri(), false, false);
+        List<Result> results = updateMavenWrapper.run(new InMemoryLargeSourceSet(wrapperFiles), executionContext).getChangeset().getAllResults();
+        Map<String, SourceFile> changed = results.stream().collect(Collectors.toMap(result -> result.getAfter().getSourcePath().toString().replace('\\', '/'), Result::getAfter));
+
+        assertEquals(4, changed.size());
+        String properties = changed.get(".mvn/wrapper/maven-wrapper.properties").printAll();
+        assertTrue(properties.contains(repository.uri() + "/org/apache/maven/apache-maven/3.9.9/apache-maven-3.9.9-bin.zip"), properties);
+        assertTrue(properties.contains("maven-wrapper-3.3.2.jar"), properties);
+        assertEquals(StandInMavenRepository.WRAPPER_SCRIPT.formatted("3.3.2"), ((PlainText) changed.get("mvnw")).getText());
+        assertEquals(StandInMavenRepository.WRAPPER_BATCH_SCRIPT.formatted("3.3.2"), ((PlainText) changed.get("mvnw.cmd")).getText());
+        try (InputStream wrapperJar = ((Remote) changed.get(".mvn/wrapper/maven-wrapper.jar")).getInputStream(executionContext)) {
+            assertArrayEquals(Files.readAllBytes(temporaryDirectory.resolve("repository/org/apache/maven/wrapper/maven-wrapper/3.3.2/maven-wrapper-3.3.2.jar")), wrapperJar.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testUpgradeDependencyVersionThroughput() throws IOException {
+        // A parent and its modules depending on the same library, whose versions are only downloaded once
+        int modules = 200;
+        Path reactor = temporaryDirectory.resolve("reactor");
+        List<Path> pomXmlFiles = new ArrayList<>();
+        pomXmlFiles.add(write(reactor.resolve("pom.xml"), """
+            <project>
+              <modelVersion>4.0.0</modelVersion>
+              <groupId>com.example</groupId>
+              <artifactId>reactor</artifactId>
+              <version>1.0</version>
+              <packaging>pom</packaging>
+            </project>
+            """));
+        for (int module = 0; module < modules; module++) {
+            pomXmlFiles.add(write(reactor.resolve("module-" + module + "/pom.xml"), """
+                <project>
+                  <modelVersion>4.0.0</modelVersion>
+                  <parent>
+                    <groupId>com.example</groupId>
+                    <artifactId>reactor</artifactId>
+                    <version>1.0</version>
+                  </parent>
+                  <artifactId>module-%d</artifactId>
+                  <dependencies>
+                    <dependency>
+                      <groupId>com.example.legacy</groupId>
+                      <artifactId>legacy-lib</artifactId>
+                      <version>1.0</version>
+                    </dependency>
+                  </dependencies>
+                </project>
+                """.formatted(module)));
+        }
+        ExecutionContext executionContext = executionContext();
+        List<SourceFile> sourceFiles = MavenParser.builder().build().parse(pomXmlFiles, reactor, executionContext).collect(Collectors.toList());
+
+        long start = System.nanoTime();
+        UpgradeDependencyVersion upgradeDependencyVersion = new UpgradeDependencyVersion("com.example.legacy", "legacy-lib", "latest.release", null, false, null);
+        int changes = upgradeDependencyVersion.run(new InMemoryLargeSourceSet(sourceFiles), executionContext).getChangeset().getAllResults().size();
+        long elapsed = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        log.info("Upgraded " + changes + " pom.xml files in " + elapsed + " ms, " + (changes * 1000L / elapsed) + " files/s");
+
+        assertEquals(modules, changes);
+        assertEquals(1, repository.requests("legacy-lib/maven-metadata.xml"));
+    }
+
+    /**
+     * Runs the recipe on the POM and returns the printed POMs it changes.
+     */
+    private List<String> run(Recipe recipe, String pomXmlFile) {
+        ExecutionContext executionContext = executionContext();
+        List<SourceFile> sourceFiles = MavenParser.builder().build().parse(executionContext, pomXmlFile).collect(Collectors.toList());
+        List<String> changes = new ArrayList<>();
+        for (Result result : recipe.run(new InMemoryLargeSourceSet(sourceFiles), executionContext).getChangeset().getAllResults()) {
+            changes.add(result.getAfter().printAll());
+        }
+        return changes;
+    }
+
+    /**
+     * Returns an execution context resolving everything from the stand-in repository.
+     */
+    private ExecutionContext executionContext() {
+        ExecutionContext executionContext = new InMemoryExecutionContext(Throwable::printStackTrace);
+        MavenExecutionContextView mavenExecutionContext = MavenExecutionContextView.view(executionContext);
+        mavenExecutionContext.setPomCache(new InMemoryMavenPomCache());
+        mavenExecutionContext.setAddCentralRepository(false);
+        mavenExecutionContext.setMirrors(List.of(new MavenRepositoryMirror("stand-in", repository.uri(), "*", true, true, null)));
+        return executionContext;
+    }
+
+    private static String module(String artifactId, String content) {
+        return """
+            <project>
+              <modelVersion>4.0.0</modelVersion>
+              <groupId>com.example</groupId>
+              <artifactId>%s</artifactId>
+              <version>1.0</version>
+              %s
+            </project>
+            """.formatted(artifactId, content);
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+}